@@ -0,0 +1,87 @@
+package hr.fer.zemris.ppj.compiler.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexObjects;
+import hr.fer.zemris.ppj.compiler.util.StreamManager;
+
+/**
+ * Cost of a single token produced by <code>Lex.analyze</code>.<br>
+ *
+ * Every operation is one token, so running with the GC profiler
+ * (<code>-prof gc</code>) reports <code>gc.alloc.rate.norm</code> in bytes allocated per token.
+ *
+ * @author fiilip
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllocationBenchmark {
+
+	/**
+	 * Line of the <code>ppjC</code> language with exactly {@link #TOKENS_PER_LINE} tokens.
+	 */
+	private static final String LINE = "x = (y + 42) * z;\n";
+
+	private static final int TOKENS_PER_LINE = 10;
+
+	private static final int LINES = 10_000;
+
+	private static final int TOKENS = TOKENS_PER_LINE * LINES;
+
+	/**
+	 * Engine of the lexer states.
+	 */
+	@Param({ "dfa", "nfa" })
+	public String engine;
+
+	private LexObjects objects;
+
+	private StreamManager streamManager;
+
+	private byte[] corpus;
+
+	@Setup
+	public void setup() throws IOException {
+		objects = BenchmarkSupport.load(BenchmarkSupport.generate(BenchmarkSupport.definition("ppjC"), engine));
+		streamManager = new StreamManager();
+
+		StringBuilder sb = new StringBuilder(LINE.length() * LINES);
+		for (int i = 0; i < LINES; i++) {
+			sb.append(LINE);
+		}
+		corpus = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+		if (analyze() != TOKENS) {
+			throw new IllegalStateException("Corpus doesn't have the expected number of tokens.");
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(TOKENS)
+	public long analyze() throws IOException {
+		BenchmarkSupport.TokenCountingStream output = new BenchmarkSupport.TokenCountingStream();
+		objects.createLex(streamManager, output).analyze(new ByteArrayInputStream(corpus));
+		return output.tokens;
+	}
+}
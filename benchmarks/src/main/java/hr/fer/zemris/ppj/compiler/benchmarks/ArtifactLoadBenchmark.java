@@ -0,0 +1,59 @@
+package hr.fer.zemris.ppj.compiler.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexObjects;
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexState;
+
+/**
+ * Benchmark of loading the objects generated by GLA, as done by LA on startup.
+ *
+ * @author fiilip
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArtifactLoadBenchmark {
+
+	@Param({ "minus", "ppjC" })
+	public String definition;
+
+	private Path artifact;
+
+	@Setup
+	public void setup() throws IOException {
+		artifact = BenchmarkSupport.generate(BenchmarkSupport.definition(definition));
+	}
+
+	@Benchmark
+	public LexObjects load() throws IOException {
+		return BenchmarkSupport.load(artifact);
+	}
+
+	/**
+	 * Loading followed by decoding the start state, ie. everything LA reads before the first token.
+	 */
+	@Benchmark
+	public LexState loadStartState() throws IOException {
+		LexObjects objects = BenchmarkSupport.load(artifact);
+		return objects.getState(objects.getStartState());
+	}
+}
@@ -0,0 +1,276 @@
+package hr.fer.zemris.ppj.compiler.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import hr.fer.zemris.ppj.compiler.lexical.automata.DfaProfile;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexAutomatonMerged;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexDfa;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexDfaBuilder;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexNfa;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexNfaBuilder;
+import hr.fer.zemris.ppj.compiler.lexical.exec.Lex;
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexObjects;
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexProfile;
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexRule;
+import hr.fer.zemris.ppj.compiler.lexical.input.LexicalDefinitionsParser;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.TokenConsumer;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.TokenSink;
+import hr.fer.zemris.ppj.compiler.util.StreamManager;
+
+/**
+ * Helpers shared by the benchmarks: bundled definitions and corpora,
+ * generation and loading of the lexical objects.
+ *
+ * @author fiilip
+ *
+ */
+final class BenchmarkSupport {
+
+	private BenchmarkSupport() {
+	}
+
+	/**
+	 * Reads a bundled resource.
+	 *
+	 * @param name Name of the resource, relative to the classpath root.
+	 * @return Content of the resource.
+	 * @throws IOException
+	 */
+	static byte[] resource(String name) throws IOException {
+		try (InputStream stream = BenchmarkSupport.class.getResourceAsStream("/" + name)) {
+			if (stream == null) {
+				throw new IOException(String.format("Missing benchmark resource %s.", name));
+			}
+			return stream.readAllBytes();
+		}
+	}
+
+	/**
+	 * Reads one of the bundled definitions.
+	 *
+	 * @param definition Name of the definition, ie. <code>minus</code> or <code>ppjC</code>.
+	 * @return Content of the definition file.
+	 * @throws IOException
+	 */
+	static byte[] definition(String definition) throws IOException {
+		return resource("definitions/" + definition + ".lan");
+	}
+
+	/**
+	 * Gets the name of the corpus representative for the given definition.
+	 *
+	 * @param definition Name of the definition.
+	 * @return Name of the corpus resource.
+	 */
+	static String corpusFor(String definition) {
+		return "minus".equals(definition) ? "corpora/minus.txt" : "corpora/program.c";
+	}
+
+	/**
+	 * Parses the definitions into a fresh merged automaton.
+	 *
+	 * @param definition Content of the definition file.
+	 * @return Parser holding the parsed definitions.
+	 */
+	static LexicalDefinitionsParser parse(byte[] definition) {
+		LexicalDefinitionsParser parser = new LexicalDefinitionsParser(
+				new ByteArrayInputStream(definition), new LexAutomatonMerged());
+		parser.parse();
+		return parser;
+	}
+
+	/**
+	 * Generates the lexical objects from the definitions and writes them
+	 * to a temporary file, the way GLA does.
+	 *
+	 * @param definition Content of the definition file.
+	 * @return Path of the written file.
+	 * @throws IOException
+	 */
+	static Path generate(byte[] definition) throws IOException {
+		return generate(definition, "dfa");
+	}
+
+	/**
+	 * Generates the lexical objects from the definitions with the given engine and writes them
+	 * to a temporary file, the way GLA does.
+	 *
+	 * @param definition Content of the definition file.
+	 * @param engine Engine of the lexer states, <code>dfa</code> or <code>nfa</code>.
+	 * @return Path of the written file.
+	 * @throws IOException
+	 */
+	static Path generate(byte[] definition, String engine) throws IOException {
+		return generate(definition, engine, null);
+	}
+
+	/**
+	 * Generates the lexical objects from the definitions with the given engine and writes them
+	 * to a temporary file, the way GLA does. With the training corpus, the states of the deterministic
+	 * automatons are renumbered by the profile of the corpus, the way <code>GLA --train</code> does.
+	 *
+	 * @param definition Content of the definition file.
+	 * @param engine Engine of the lexer states, <code>dfa</code> or <code>nfa</code>.
+	 * @param training Training corpus, or <code>null</code>.
+	 * @return Path of the written file.
+	 * @throws IOException
+	 */
+	static Path generate(byte[] definition, String engine, byte[] training) throws IOException {
+		LexicalDefinitionsParser parser = parse(definition);
+		Path path = Files.createTempFile("lex_objects", ".bin");
+		path.toFile().deleteOnExit();
+		LexObjects objects;
+
+		if ("nfa".equals(engine)) {
+			Map<String, LexNfa> nfas = new LinkedHashMap<>();
+
+			for (Map.Entry<String, List<LexRule>> state : parser.getStates().entrySet()) {
+				nfas.put(state.getKey(), new LexNfaBuilder(parser.getAutomatonMerged(),
+						state.getValue().stream().map(LexRule::getAutomaton).collect(Collectors.toList())).build());
+			}
+
+			objects = LexObjects.of(parser.getStartState(), parser.getStates(), Collections.emptyMap(), nfas);
+		} else {
+			objects = LexObjects.build(parser.getStartState(), parser.getStates(), parser.getAutomatonMerged());
+		}
+
+		if (training != null) {
+			objects = renumber(parser, objects, training);
+		}
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			objects.write(channel);
+		}
+
+		return path;
+	}
+
+	/**
+	 * Renumbers the states of the deterministic automatons by the profile of the training corpus.
+	 *
+	 * @param parser Parser holding the parsed definitions.
+	 * @param objects Generated objects.
+	 * @param training Training corpus.
+	 * @return Objects with the renumbered automatons.
+	 * @throws IOException
+	 */
+	private static LexObjects renumber(LexicalDefinitionsParser parser, LexObjects objects, byte[] training)
+			throws IOException {
+		LexProfile profile = new LexProfile();
+		Lex lex = objects.createLex(new StreamManager(), new TokenConsumer() {
+
+			@Override
+			public void token(int unit, CharSequence buffer, int start, int end, int line) {
+			}
+
+			@Override
+			public void finish() {
+			}
+		});
+		lex.setProfile(profile);
+		lex.analyze(new ByteArrayInputStream(training));
+
+		Map<String, LexDfa> automatons = new LinkedHashMap<>();
+		for (String state : parser.getStates().keySet()) {
+			DfaProfile dfaProfile = profile.getProfiles().get(state);
+			LexDfa dfa = objects.getState(state).getAutomaton();
+			automatons.put(state, dfaProfile == null ? dfa : LexDfaBuilder.renumber(dfa, dfaProfile));
+		}
+
+		return LexObjects.of(parser.getStartState(), parser.getStates(), automatons, Collections.emptyMap());
+	}
+
+	/**
+	 * Loads the lexical objects, the way LA does.
+	 *
+	 * @param path Path of the generated file.
+	 * @return Loaded objects.
+	 * @throws IOException
+	 */
+	static LexObjects load(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return LexObjects.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Builds a corpus of at least <code>size</code> bytes by repeating the given resource.
+	 *
+	 * @param name Name of the corpus resource.
+	 * @param size Minimal size of the corpus in bytes.
+	 * @return Corpus content.
+	 * @throws IOException
+	 */
+	static byte[] corpus(String name, int size) throws IOException {
+		byte[] sample = resource(name);
+		ByteArrayOutputStream corpus = new ByteArrayOutputStream(size + sample.length);
+
+		while (corpus.size() < size) {
+			corpus.write(sample);
+		}
+
+		return corpus.toByteArray();
+	}
+
+	/**
+	 * Output stream that discards the output of the analyzer, counting the tokens (lines).
+	 */
+	static final class TokenCountingStream extends OutputStream {
+
+		long tokens;
+
+		@Override
+		public void write(int b) {
+			if (b == '\n') {
+				tokens ++;
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			for (int i = off; i < off + len; i++) {
+				if (b[i] == '\n') {
+					tokens ++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sink that counts the tokens passed on to another sink.
+	 */
+	static final class CountingSink implements TokenSink {
+
+		private final TokenSink sink;
+
+		long tokens;
+
+		CountingSink(TokenSink sink) {
+			this.sink = sink;
+		}
+
+		@Override
+		public void token(String lexUnit, int line, CharSequence input, int start, int end, int symbol) throws IOException {
+			tokens ++;
+			sink.token(lexUnit, line, input, start, end, symbol);
+		}
+
+		@Override
+		public void finish() throws IOException {
+			sink.finish();
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package hr.fer.zemris.ppj.compiler.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hr.fer.zemris.ppj.compiler.util.StreamManager;
+
+/**
+ * Cold start of the <b>Lexical Analyzer</b>: time from loading the generated objects
+ * in a fresh JVM until the first token is written.<br>
+ *
+ * Each fork measures a single shot, so the result includes class loading and
+ * interpretation, not just the steady state.
+ *
+ * @author fiilip
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class ColdStartBenchmark {
+
+	@Param({ "minus", "ppjC" })
+	public String definition;
+
+	private Path artifact;
+
+	private byte[] input;
+
+	@Setup
+	public void setup() throws IOException {
+		artifact = BenchmarkSupport.generate(BenchmarkSupport.definition(definition));
+		input = "12\n".getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public long firstToken() throws IOException {
+		BenchmarkSupport.TokenCountingStream output = new BenchmarkSupport.TokenCountingStream();
+		BenchmarkSupport.load(artifact).createLex(new StreamManager(), output).analyze(new ByteArrayInputStream(input));
+		return output.tokens;
+	}
+}
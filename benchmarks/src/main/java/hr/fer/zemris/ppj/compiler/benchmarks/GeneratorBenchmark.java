@@ -0,0 +1,77 @@
+package hr.fer.zemris.ppj.compiler.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexDfa;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexDfaBuilder;
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexRule;
+import hr.fer.zemris.ppj.compiler.lexical.input.LexicalDefinitionsParser;
+
+/**
+ * Benchmarks of the <b>Generator of Lexical Analyzer</b>: parsing of the definitions
+ * (which builds the epsilon-NFA of every rule), and construction of the deterministic
+ * automatons of every lexer state.
+ *
+ * @author fiilip
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneratorBenchmark {
+
+	/**
+	 * Bundled definition: <code>minus</code> is small, <code>ppjC</code> is large, and <code>ppjC_extended</code>
+	 * is the same language as <code>ppjC</code> written with the extended regular expressions.
+	 */
+	@Param({ "minus", "ppjC", "ppjC_extended" })
+	public String definition;
+
+	private byte[] content;
+
+	private LexicalDefinitionsParser parsed;
+
+	@Setup
+	public void setup() throws IOException {
+		content = BenchmarkSupport.definition(definition);
+		parsed = BenchmarkSupport.parse(content);
+	}
+
+	@Benchmark
+	public LexicalDefinitionsParser parse() {
+		return BenchmarkSupport.parse(content);
+	}
+
+	@Benchmark
+	public List<LexDfa> determinize() {
+		List<LexDfa> automatons = new ArrayList<>();
+
+		for (Map.Entry<String, List<LexRule>> state : parsed.getStates().entrySet()) {
+			LexDfaBuilder builder = new LexDfaBuilder(parsed.getAutomatonMerged(),
+					state.getValue().stream().map(LexRule::getAutomaton).collect(Collectors.toList()));
+			automatons.add(LexDfaBuilder.minimize(builder.determinize()));
+		}
+
+		return automatons;
+	}
+}
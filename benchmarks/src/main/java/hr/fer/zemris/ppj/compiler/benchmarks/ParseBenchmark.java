@@ -0,0 +1,131 @@
+package hr.fer.zemris.ppj.compiler.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexObjects;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.BinaryTokenWriter;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.TextTokenWriter;
+import hr.fer.zemris.ppj.compiler.syntax.exec.BinaryTokenSource;
+import hr.fer.zemris.ppj.compiler.syntax.exec.LrParser;
+import hr.fer.zemris.ppj.compiler.syntax.exec.SynObjects;
+import hr.fer.zemris.ppj.compiler.syntax.exec.TextTokenSource;
+import hr.fer.zemris.ppj.compiler.syntax.grammar.Grammar;
+import hr.fer.zemris.ppj.compiler.syntax.input.SyntaxDefinitionsParser;
+import hr.fer.zemris.ppj.compiler.syntax.lr.LalrBuilder;
+import hr.fer.zemris.ppj.compiler.syntax.lr.Lr1Builder;
+import hr.fer.zemris.ppj.compiler.syntax.lr.LrTables;
+import hr.fer.zemris.ppj.compiler.util.StreamManager;
+
+/**
+ * Throughput of <code>LrParser.parse</code> on the tokens of the <code>ppjC</code> corpus, read from the text
+ * lines or from the binary token stream of the <b>Lexical Analyzer</b>.<br>
+ *
+ * Besides the parsed corpora per second, the <code>tokens</code> secondary result gives the throughput in tokens
+ * per second.
+ *
+ * @author fiilip
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+	/**
+	 * Size of the corpus in kilobytes, before the lexical analysis.
+	 */
+	@Param({ "64", "1024" })
+	public int corpusKB;
+
+	/**
+	 * Format of the tokens: <code>text</code> lines or the <code>binary</code> token stream.
+	 */
+	@Param({ "text", "binary" })
+	public String input;
+
+	/**
+	 * Automaton of the tables: <code>lalr</code> or the canonical <code>lr1</code>.
+	 */
+	@Param({ "lalr", "lr1" })
+	public String automaton;
+
+	/**
+	 * Whether or not the generative tree is built.
+	 */
+	@Param({ "true", "false" })
+	public boolean tree;
+
+	private SynObjects objects;
+
+	private byte[] tokens;
+
+	/**
+	 * Tokens parsed in an iteration.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Counters {
+
+		public long tokens;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			tokens = 0;
+		}
+	}
+
+	@Setup
+	public void setup() throws IOException {
+		LexObjects lexObjects = BenchmarkSupport.load(BenchmarkSupport.generate(BenchmarkSupport.definition("ppjC")));
+		StreamManager streamManager = new StreamManager();
+		byte[] corpus = BenchmarkSupport.corpus(BenchmarkSupport.corpusFor("ppjC"), corpusKB * 1024);
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+		lexObjects.createLex(streamManager, "binary".equals(input)
+				? new BinaryTokenWriter(stream, lexObjects.getLexUnits(), false)
+				: new TextTokenWriter(streamManager, stream)).analyze(new ByteArrayInputStream(corpus));
+		tokens = stream.toByteArray();
+
+		SyntaxDefinitionsParser parser = new SyntaxDefinitionsParser(
+				new ByteArrayInputStream(BenchmarkSupport.resource("definitions/ppjC.san")));
+		parser.read();
+		Grammar grammar = parser.getGrammar();
+		LrTables tables = new LrTables("lr1".equals(automaton) ? new Lr1Builder(grammar).build()
+				: new LalrBuilder(grammar).build());
+		objects = SynObjects.of(grammar, tables.pack());
+	}
+
+	@Benchmark
+	public long parse(Counters counters) throws IOException {
+		LrParser parser = new LrParser(objects);
+		parser.setBuildTree(tree);
+		ByteArrayInputStream stream = new ByteArrayInputStream(tokens);
+
+		if (!parser.parse("binary".equals(input) ? new BinaryTokenSource(stream) : new TextTokenSource(stream))) {
+			throw new IllegalStateException("Corpus is not accepted.");
+		}
+
+		counters.tokens += parser.getTokenCount();
+		return parser.getTokenCount();
+	}
+}
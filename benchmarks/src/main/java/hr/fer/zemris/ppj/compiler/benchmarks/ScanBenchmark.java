@@ -0,0 +1,131 @@
+package hr.fer.zemris.ppj.compiler.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hr.fer.zemris.ppj.compiler.lexical.exec.Lex;
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexObjects;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.BinaryTokenWriter;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.LexemeTable;
+import hr.fer.zemris.ppj.compiler.util.StreamManager;
+
+/**
+ * Throughput of <code>Lex.analyze</code> on a representative corpus of each bundled definition.<br>
+ *
+ * Besides the analyzed corpora per second, the <code>chars</code> and <code>tokens</code>
+ * secondary results give the throughput in characters and tokens per second.
+ *
+ * @author fiilip
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScanBenchmark {
+
+	@Param({ "minus", "ppjC" })
+	public String definition;
+
+	/**
+	 * Size of the corpus in kilobytes.
+	 */
+	@Param({ "64", "1024" })
+	public int corpusKB;
+
+	/**
+	 * Engine of the lexer states: <code>trained</code> is the deterministic automaton with the states renumbered
+	 * by the profile of the corpus sample.
+	 */
+	@Param({ "dfa", "nfa", "trained" })
+	public String engine;
+
+	/**
+	 * Format of the tokens: <code>text</code> lines, the <code>binary</code> token stream, or the binary token
+	 * stream with the <code>interned</code> identifiers and numbers.
+	 */
+	@Param({ "text", "binary", "interned" })
+	public String output;
+
+	private LexObjects objects;
+
+	private StreamManager streamManager;
+
+	private byte[] corpus;
+
+	private int chars;
+
+	/**
+	 * Characters and tokens analyzed in an iteration.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Counters {
+
+		public long chars;
+
+		public long tokens;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			chars = 0;
+			tokens = 0;
+		}
+	}
+
+	@Setup
+	public void setup() throws IOException {
+		String corpusName = BenchmarkSupport.corpusFor(definition);
+		objects = BenchmarkSupport.load("trained".equals(engine)
+				? BenchmarkSupport.generate(BenchmarkSupport.definition(definition), "dfa", BenchmarkSupport.resource(corpusName))
+				: BenchmarkSupport.generate(BenchmarkSupport.definition(definition), engine));
+		streamManager = new StreamManager();
+		corpus = BenchmarkSupport.corpus(corpusName, corpusKB * 1024);
+		chars = new String(corpus, StandardCharsets.UTF_8).length();
+	}
+
+	@Benchmark
+	public long analyze(Counters counters) throws IOException {
+		BenchmarkSupport.TokenCountingStream stream = new BenchmarkSupport.TokenCountingStream();
+		long tokens;
+
+		if (!"text".equals(output)) {
+			boolean interned = "interned".equals(output);
+			BenchmarkSupport.CountingSink sink = new BenchmarkSupport.CountingSink(
+					new BinaryTokenWriter(stream, objects.getLexUnits(), interned));
+			Lex lex = objects.createLex(streamManager, sink);
+
+			if (interned) {
+				lex.setInterning(new LexemeTable(), Set.of("IDN", "BROJ"));
+			}
+			lex.analyze(new ByteArrayInputStream(corpus));
+			tokens = sink.tokens;
+		} else {
+			objects.createLex(streamManager, stream).analyze(new ByteArrayInputStream(corpus));
+			tokens = stream.tokens;
+		}
+
+		counters.chars += chars;
+		counters.tokens += tokens;
+		return tokens;
+	}
+}
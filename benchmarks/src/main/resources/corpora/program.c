@@ -0,0 +1,44 @@
+/* Racuna statistike nad nizom brojeva.
+ * Koristi se za mjerenje brzine leksicke analize. */
+const int MAX = 0x100;
+int niz[256];
+float prosjek;
+
+int fib(int n) {
+	if (n < 2) return n;
+	return fib(n - 1) + fib(n - 2);
+}
+
+// vraca najveci element niza
+int najveci(int a[], int n) {
+	int i, max = a[0];
+	for (i = 1; i < n; i++) {
+		if (a[i] > max && a[i] != 0) max = a[i];
+	}
+	return max;
+}
+
+void ispisi(char poruka[]) {
+	int i = 0;
+	while (poruka[i] != '\0') {
+		putchar(poruka[i]);
+		++i;
+	}
+}
+
+int main(void) {
+	int i, suma = 0;
+	char c = 'x';
+	for (i = 0; i < MAX; i++) {
+		niz[i] = (i * 31 + 7) % 97;
+		suma = suma + niz[i];
+		if (!(i & 1) || i >= 200) continue;
+		else suma = suma ^ ~i;
+	}
+	prosjek = suma / 256.0;
+	ispisi("Zbroj je izracunat.\n");
+	if (najveci(niz, MAX) <= fib(10) && c == 'x') {
+		ispisi("\"Najveci\" element je malen\n");
+	}
+	return suma | 0;
+}
@@ -1,8 +1,43 @@
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import hr.fer.zemris.ppj.compiler.events.ArtifactCacheEvent;
+import hr.fer.zemris.ppj.compiler.events.ArtifactWriteEvent;
+import hr.fer.zemris.ppj.compiler.lexical.automata.DfaProfile;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexAutomaton;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexDfa;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexDfaBuilder;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexNfa;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexNfaBuilder;
+import hr.fer.zemris.ppj.compiler.lexical.exec.Lex;
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexObjects;
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexProfile;
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexRule;
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexState;
+import hr.fer.zemris.ppj.compiler.lexical.input.LexDeadRules;
+import hr.fer.zemris.ppj.compiler.lexical.input.LexFingerprints;
 import hr.fer.zemris.ppj.compiler.lexical.input.LexicalDefinitionsParser;
+import hr.fer.zemris.ppj.compiler.lexical.report.LexGeneratorReport;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.TokenConsumer;
+import hr.fer.zemris.ppj.compiler.util.ArtifactCache;
 import hr.fer.zemris.ppj.compiler.util.StreamManager;
 
 /**
@@ -21,16 +56,136 @@ import hr.fer.zemris.ppj.compiler.util.StreamManager;
 public class GLA {
 
 	/**
-	 * Program entry - point.
+	 * Program entry - point.<br>
 	 * 
-	 * @param args	Not used.
+	 * Supported options:
+	 * <ul>
+	 * <li><code>--report file</code> - writes the compilation report in JSON format to the <code>file</code></li>
+	 * <li><code>--no-cache</code> - always generates the objects, without looking them up in the cache</li>
+	 * <li><code>--cache-entries n</code> - number of the generated objects kept in the cache (default 16)</li>
+	 * <li><code>--verbose</code> - reports the cache hits, misses and evictions, and the rebuilt states to the standard error</li>
+	 * <li><code>--engine dfa|nfa</code> - matches the rules of every lexer state by the minimal deterministic automaton
+	 * (default), or by simulating the nondeterministic automaton with the precomputed epsilon closures</li>
+	 * <li><code>--dfa-states n</code> - largest number of the states of a determinized lexer state (default 32768); 
+	 * a lexer state whose automaton grows past it is simulated by the nondeterministic automaton instead</li>
+	 * <li><code>--dead-rules</code> - with the <code>nfa</code> engine, finds the rules that never match too, which 
+	 * takes determinizing every lexer state; the <code>dfa</code> engine always finds them</li>
+	 * <li><code>--train file</code> - scans the training corpus in the <code>file</code> with the generated automatons, 
+	 * and renumbers their states so that the hot states and their usual successors are next to each other</li>
+	 * <li><code>--profile file</code> - renumbers the states by the profile written by the {@link LA} instead</li>
+	 * </ul>
+	 * 
+	 * @param args	Command line options.
 	 */
 	public static void main(String[] args) {
-		new GLA(System.in).generateLA(StreamManager.LEX_OBJECTS);
+		GLA gla = new GLA(System.in);
+		
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "--report": gla.setReportFile(args[++i]); break;
+				case "--no-cache": gla.setCache(null); break;
+				case "--cache-entries": gla.setCache(defaultCache(Integer.parseInt(args[++i]))); break;
+				case "--verbose": gla.setVerbose(true); break;
+				case "--engine": gla.setEngine(args[++i]); break;
+				case "--dfa-states": gla.setMaxDfaStates(Integer.parseInt(args[++i])); break;
+				case "--dead-rules": gla.setDeadRules(true); break;
+				case "--train": gla.setTraining(args[++i], false); break;
+				case "--profile": gla.setTraining(args[++i], true); break;
+				default: throw new IllegalArgumentException(String.format("Option %s is not supported.", args[i]));
+			}
+		}
+		
+		gla.generateLA(StreamManager.LEX_OBJECTS);
 	}
 	
+	/**
+	 * Version of the generator, part of the cache key. It has to be changed whenever the objects
+	 * generated for the same definitions change, eg. the automatons are built differently.
+	 */
+	private static final String GENERATOR_VERSION = "5";
+	
+	/**
+	 * Default number of the generated objects kept in the cache.
+	 */
+	private static final int CACHE_ENTRIES = 16;
+	
+	/**
+	 * Maximal total size of the generated objects kept in the cache.
+	 */
+	private static final long CACHE_BYTES = 64L << 20;
+	
+	/**
+	 * Suffix of the file with the fingerprints of the generated objects, next to the objects.
+	 */
+	private static final String FINGERPRINTS_SUFFIX = ".fp";
+	
+	/**
+	 * Engine matching the rules by the minimal deterministic automaton.
+	 */
+	public static final String ENGINE_DFA = "dfa";
+	
+	/**
+	 * Engine matching the rules by simulating the nondeterministic automaton.
+	 */
+	public static final String ENGINE_NFA = "nfa";
+	
+	/**
+	 * Default largest number of the states of a determinized lexer state.
+	 */
+	public static final int DFA_STATES = 1 << 15;
+	
 	private final StreamManager streamManager;
 	
+	/**
+	 * Cache of the generated objects, or <code>null</code> if the objects are always generated.
+	 */
+	private ArtifactCache cache;
+	
+	/**
+	 * Cache of the fingerprints of the generated objects, under the keys of the objects, or <code>null</code> 
+	 * if the objects are always generated. The rules that never match are known only once the automatons 
+	 * are built, so a cache hit takes them from here.
+	 */
+	private ArtifactCache fingerprintCache;
+	
+	/**
+	 * Whether or not to report the cache usage and the rebuilt states to the standard error.
+	 */
+	private boolean verbose;
+	
+	/**
+	 * Engine of the generated lexer states: {@link #ENGINE_DFA} or {@link #ENGINE_NFA}.
+	 */
+	private String engine = ENGINE_DFA;
+	
+	/**
+	 * Largest number of the states of a determinized lexer state, before minimization. Lexer states with more 
+	 * fall back to the {@link #ENGINE_NFA}.
+	 */
+	private int maxDfaStates = DFA_STATES;
+	
+	/**
+	 * Whether or not the rules that never match are found with the {@link #ENGINE_NFA} too.
+	 */
+	private boolean deadRules;
+	
+	/**
+	 * Name of the file with the training corpus or the profile, or <code>null</code> if the states are
+	 * not renumbered.
+	 */
+	private String trainingFile;
+	
+	/**
+	 * Whether or not the {@link #trainingFile} is the profile written by the {@link LA}.
+	 */
+	private boolean profiled;
+	
+	/**
+	 * Name of the file the compilation report is written to, or <code>null</code> if
+	 * the report is not needed.
+	 */
+	private String reportFile;
+	
 	/**
 	 * Source of the input file containing the definitions.<br>
 	 * Possible sources: System.in, FileInputStream, etc.
@@ -46,27 +201,523 @@ public class GLA {
 	public GLA(InputStream istream) {
 		this.istream = istream;
 		this.streamManager = new StreamManager();
+		setCache(defaultCache(CACHE_ENTRIES));
+	}
+	
+	/**
+	 * Creates the cache of the generated objects in the analyzer directory.
+	 * 
+	 * @param entries	Number of the generated objects kept.
+	 * @return			Cache of the generated objects.
+	 */
+	private static ArtifactCache defaultCache(int entries) {
+		return new ArtifactCache(StreamManager.getRootDir(), "lex-", ".bin", entries, CACHE_BYTES);
+	}
+	
+	/**
+	 * Sets the cache of the generated objects.
+	 * 
+	 * @param cache		Cache of the generated objects, or <code>null</code> if the objects are always generated.
+	 */
+	public void setCache(ArtifactCache cache) {
+		this.cache = cache;
+		this.fingerprintCache = cache == null ? null : cache.companion(FINGERPRINTS_SUFFIX);
+	}
+	
+	/**
+	 * Sets whether or not to report the cache usage to the standard error.
+	 * 
+	 * @param verbose	<code>True</code> if the cache usage is reported.
+	 */
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+
+	/**
+	 * Sets the engine of the generated lexer states.
+	 * 
+	 * @param engine	{@link #ENGINE_DFA} or {@link #ENGINE_NFA}.
+	 */
+	public void setEngine(String engine) {
+		if (!ENGINE_DFA.equals(engine) && !ENGINE_NFA.equals(engine)) {
+			throw new IllegalArgumentException(String.format("Engine %s is not supported.", engine));
+		}
+		
+		this.engine = engine;
+	}
+
+	/**
+	 * Sets the largest number of the states of a determinized lexer state. The automaton of a lexer state 
+	 * is determinized only until it grows past it, and the state is then simulated by the nondeterministic 
+	 * automaton, so that a single state blowing up doesn't take the whole generator, or the other states, with it.
+	 * 
+	 * @param maxDfaStates	Largest number of the states, before minimization.
+	 */
+	public void setMaxDfaStates(int maxDfaStates) {
+		if (maxDfaStates < 1) {
+			throw new IllegalArgumentException(String.format("Cap of %d deterministic states is not supported.", maxDfaStates));
+		}
+		
+		this.maxDfaStates = maxDfaStates;
+	}
+
+	/**
+	 * Sets whether or not the rules that never match are found with the {@link #ENGINE_NFA}. They are found 
+	 * by determinizing the automatons, which the nondeterministic engine otherwise avoids, so it's off by default. 
+	 * The {@link #ENGINE_DFA} finds them anyway.
+	 * 
+	 * @param deadRules	<code>True</code> if the rules that never match are found and left out.
+	 */
+	public void setDeadRules(boolean deadRules) {
+		this.deadRules = deadRules;
+	}
+
+	/**
+	 * Sets the input the states of the deterministic automatons are renumbered by, so that the states 
+	 * visited most often are laid out together.
+	 * 
+	 * @param trainingFile	Name of the file with the training corpus or the profile, or <code>null</code>.
+	 * @param profiled		<code>True</code> if the file is the profile written by the {@link LA}, 
+	 * 						<code>false</code> for the corpus scanned by the generated objects.
+	 */
+	public void setTraining(String trainingFile, boolean profiled) {
+		this.trainingFile = trainingFile;
+		this.profiled = profiled;
+	}
+
+	/**
+	 * Sets the name of the file the compilation report is written to.
+	 * 
+	 * @param reportFile	Name of the report file, or <code>null</code> if the report is not needed.
+	 */
+	public void setReportFile(String reportFile) {
+		this.reportFile = reportFile;
 	}
 
 	/**
 	 * Generates the objects needed by the {@link LA}.<br>
-	 * In terms, generates the automatons used by the <b>Lexical Analyzer</b>.
+	 * In terms, generates the automatons used by the <b>Lexical Analyzer</b>.<br>
+	 * 
+	 * If the same definitions were already generated by this version of the generator, the
+	 * objects are taken from the cache instead. Otherwise, only the automatons of the lexer states whose
+	 * rules changed since the previous generation are built again. Neither can be skipped if the report is needed.
 	 * 
 	 * @param toFilename		Name of the file that this {@link GLA} generates it's output.
 	 */
 	public void generateLA(String toFilename) {
-		LexicalDefinitionsParser parser = new LexicalDefinitionsParser(istream);
+		byte[] definitions;
+		byte[] training;
+		
+		try {
+			definitions = istream.readAllBytes();
+			training = trainingFile == null ? new byte[0] : Files.readAllBytes(Paths.get(trainingFile));
+		} catch (IOException e) {
+			System.err.println(String.format("Error occured in GLA: %s.", e.getMessage()));
+			return;
+		}
+		
+		Path target = Paths.get(toFilename);
+		
+		// the cap decides which states fall back to the nondeterministic automaton, and the rules left out 
+		// depend on whether they are looked for
+		String engineSettings = engine + " " + maxDfaStates + " " + deadRules;
+		
+		// the renumbered states are reused by the incremental builds only with the same training input
+		String settings = trainingFile == null ? engineSettings 
+				: engineSettings + " " + ArtifactCache.key(Boolean.toString(profiled).getBytes(StandardCharsets.UTF_8), training);
+		String key = cache == null ? null : ArtifactCache.key(
+				GENERATOR_VERSION.getBytes(StandardCharsets.UTF_8), 
+				Integer.toString(LexObjects.FORMAT_VERSION).getBytes(StandardCharsets.UTF_8), 
+				engineSettings.getBytes(StandardCharsets.UTF_8), 
+				normalize(definitions), 
+				(trainingFile == null ? "" : profiled ? "profile" : "train").getBytes(StandardCharsets.UTF_8), 
+				training);
+		
+		ArtifactCacheEvent cacheEvent = new ArtifactCacheEvent(key);
+		cacheEvent.begin();
+		
+		if (key != null && reportFile == null && cache.lookup(key) != null) {
+			try {
+				ArtifactCache.copyAtomically(cache.path(key), target);
+				commitCacheEvent(cacheEvent, "hit", key);
+				copyFingerprints(key, Paths.get(toFilename + FINGERPRINTS_SUFFIX));
+				return;
+			} catch (IOException e) {
+				// entry evicted in the meantime; generate it again
+			}
+		}
+		
+		LexicalDefinitionsParser parser = new LexicalDefinitionsParser(new ByteArrayInputStream(definitions));
 		
 		// parse the input file into the needed data structures
-		parser.parse();
+		parser.read();
+		
+		LexFingerprints fingerprints = LexFingerprints.of(parser, settings);
+		Path fingerprintsFile = Paths.get(toFilename + FINGERPRINTS_SUFFIX);
+		
+		// states of the previous objects whose rules are unchanged are not built again
+		Map<String, BitSet> shadowed = new HashMap<>();
+		Map<String, LexState> previous = reportFile == null ? previousStates(fingerprints, fingerprintsFile, target, shadowed) 
+				: Collections.emptyMap();
+		parser.buildAutomatons(state -> !previous.containsKey(state));
+		
+		LexGeneratorReport report = reportFile == null ? null : new LexGeneratorReport(parser);
+		Map<String, LexDfa> automatons = new LinkedHashMap<>();
+		Map<String, LexNfa> nfas = new LinkedHashMap<>();
+		buildAutomatons(parser, previous, report, automatons, nfas, shadowed);
+		
+		// rules that never match and the states never entered are left out of the objects
+		LexDeadRules dead = LexDeadRules.of(parser, shadowed);
+		for (String warning : dead.getWarnings(parser)) {
+			System.err.println(String.format("GLA warning: %s", warning));
+			if (report != null) {
+				report.addWarning(warning);
+			}
+		}
+		
+		dead.prune(parser);
+		automatons.keySet().removeAll(dead.getUnreachableStates());
+		nfas.keySet().removeAll(dead.getUnreachableStates());
+		shadowed.forEach(fingerprints::setShadowedRules);
 		
-		try (ObjectOutputStream stream = streamManager.getOutputStream(toFilename)) {
-			stream.writeObject(parser.getStartState());
-			stream.writeObject(parser.getStates());
-			stream.writeObject(parser.getAutomatonMerged());
+		if (trainingFile != null) {
+			long start = System.nanoTime();
+			renumber(parser, automatons, nfas, training);
+			
+			if (report != null) {
+				report.addPhase("renumber", System.nanoTime() - start);
+			}
+		}
+		
+		ArtifactWriteEvent event = new ArtifactWriteEvent(toFilename);
+		event.begin();
+		long start = System.nanoTime();
+		long bytes = 0;
+		
+		try {
+			// written next to the target and renamed, so that LA never sees a partially written file
+			Path temporary = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName().toString(), ".tmp");
+			
+			try (FileChannel channel = streamManager.getOutputChannel(temporary.toString())) {
+				bytes = LexObjects.of(parser.getStartState(), parser.getStates(), automatons, nfas).write(channel);
+			}
+			
+			ArtifactCache.move(temporary, target);
+			fingerprints.write(fingerprintsFile, GENERATOR_VERSION, target);
+			
+			if (key != null) {
+				cache.store(key, target);
+				fingerprintCache.store(key, fingerprintsFile);
+			}
 		} catch (IOException e) {
 			System.err.println(String.format("Error occured in GLA: %s.", e.getMessage()));
 		}
+		
+		event.end();
+		if (event.shouldCommit()) {
+			event.setSizes(bytes, automatons.size() + nfas.size(), automatons.values().stream().mapToInt(LexDfa::getStateCount).sum() 
+					+ nfas.values().stream().mapToInt(LexNfa::getPositionCount).sum());
+			event.commit();
+		}
+		
+		commitCacheEvent(cacheEvent, reportFile == null ? "miss" : "bypassed", key);
+		
+		if (report != null) {
+			report.addPhase("write", System.nanoTime() - start);
+			report.setCache(key, cache == null ? "disabled" : "bypassed", cache == null ? 0 : cache.getEvictions());
+			
+			try {
+				report.write(Files.newBufferedWriter(Paths.get(reportFile), StandardCharsets.UTF_8));
+			} catch (IOException e) {
+				System.err.println(String.format("Error writing GLA report: %s.", e.getMessage()));
+			}
+		}
+	}
+	
+	/**
+	 * Copies the cached fingerprints of the objects taken from the cache, for the incremental builds that follow.
+	 * They hold the rules that never match, which the reused states of the objects are built without. 
+	 * Without the cached fingerprints, the previous ones are deleted, so the next build builds every state.
+	 * 
+	 * @param key				Key of the objects.
+	 * @param fingerprintsFile	File with the fingerprints of the objects.
+	 * @throws IOException
+	 */
+	private void copyFingerprints(String key, Path fingerprintsFile) throws IOException {
+		Path cached = fingerprintCache.lookup(key);
+		
+		try {
+			if (cached != null) {
+				ArtifactCache.copyAtomically(cached, fingerprintsFile);
+				return;
+			}
+		} catch (NoSuchFileException e) {
+			// evicted in the meantime
+		}
+		
+		Files.deleteIfExists(fingerprintsFile);
+	}
+	
+	/**
+	 * Commits the event of the cache lookup, and reports the outcome if requested.
+	 * 
+	 * @param event		Event of the cache lookup.
+	 * @param outcome	Outcome of the lookup: <code>hit</code>, <code>miss</code> or <code>bypassed</code>.
+	 * @param key		Key of the objects, or <code>null</code> if the cache is disabled.
+	 */
+	private void commitCacheEvent(ArtifactCacheEvent event, String outcome, String key) {
+		if (key == null) {
+			return;
+		}
+		
+		event.end();
+		if (event.shouldCommit()) {
+			event.setOutcome("hit".equals(outcome), cache.getEvictions());
+			event.commit();
+		}
+		
+		if (verbose) {
+			System.err.println(String.format("GLA cache %s for %s; %d old entries evicted.", 
+					outcome, key.substring(0, 12), cache.getEvictions()));
+		}
+	}
+	
+	/**
+	 * Normalizes the definitions before hashing, so that the line endings don't affect the key.
+	 * 
+	 * @param definitions	Definitions as read from the input.
+	 * @return				Definitions with <code>\n</code> line endings and no trailing empty lines.
+	 */
+	private static byte[] normalize(byte[] definitions) {
+		String text = new String(definitions, StandardCharsets.UTF_8).replace("\r\n", "\n").replace('\r', '\n');
+		int end = text.length();
+		
+		while (end > 0 && text.charAt(end - 1) == '\n') {
+			end --;
+		}
+		
+		return text.substring(0, end).getBytes(StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Finds the states of the previously generated objects that can be reused, ie. the states
+	 * whose rules and regular definitions haven't changed since. Their automatons are reused, while
+	 * the lexical units and actions are always taken from the current definitions.
+	 * 
+	 * @param fingerprints		Fingerprints of the current definitions.
+	 * @param fingerprintsFile	File with the fingerprints of the previous definitions.
+	 * @param target			File of the previously generated objects.
+	 * @param shadowed			Mappings from state name to the rules that never match, filled for the reused states.
+	 * @return					Mappings from state name to the reusable state.
+	 */
+	private Map<String, LexState> previousStates(LexFingerprints fingerprints, Path fingerprintsFile, Path target, 
+			Map<String, BitSet> shadowed) {
+		LexFingerprints old = LexFingerprints.read(fingerprintsFile, GENERATOR_VERSION, target);
+		Set<String> unchanged = fingerprints.unchangedStates(old);
+		Map<String, LexState> states = new HashMap<>();
+		
+		if (!unchanged.isEmpty()) {
+			try {
+				// read into the heap, since the target gets replaced
+				LexObjects objects = LexObjects.read(ByteBuffer.wrap(Files.readAllBytes(target)));
+				
+				for (String state : unchanged) {
+					// a state left out of the previous objects as unreachable is built again
+					LexState reused = objects.getState(state);
+					if (reused != null) {
+						states.put(state, reused);
+						shadowed.put(state, old.getShadowedRules(state));
+					}
+				}
+			} catch (IOException | RuntimeException e) {
+				// previous objects are not usable; build everything
+				states.clear();
+			}
+		}
+		
+		if (verbose) {
+			System.err.println(String.format("GLA rebuilding %d of %d states; %d rules and %d regular definitions changed.", 
+					fingerprints.getStateCount() - states.size(), fingerprints.getStateCount(), 
+					fingerprints.changedRules(old), fingerprints.changedRegDefs(old)));
+		}
+		
+		return states;
+	}
+	
+	/**
+	 * Renumbers the states of the deterministic automatons by the profile, recorded by scanning the training 
+	 * corpus with the generated objects, or read from the profile written by the {@link LA}.
+	 * 
+	 * @param parser		Parser holding the parsed definitions.
+	 * @param automatons	Mappings from state to the deterministic automaton, updated by this method.
+	 * @param nfas			Mappings from state to the nondeterministic automaton.
+	 * @param training		Content of the training corpus or the profile.
+	 */
+	private void renumber(LexicalDefinitionsParser parser, Map<String, LexDfa> automatons, 
+			Map<String, LexNfa> nfas, byte[] training) {
+		LexProfile profile;
+		
+		try {
+			if (profiled) {
+				profile = LexProfile.read(new ByteArrayInputStream(training), automatons);
+			} else {
+				profile = new LexProfile();
+				Lex lex = LexObjects.of(parser.getStartState(), parser.getStates(), automatons, nfas)
+						.createLex(streamManager, new TokenConsumer() {
+							
+							@Override
+							public void token(int unit, CharSequence buffer, int start, int end, int line) {
+							}
+							
+							@Override
+							public void finish() {
+							}
+						});
+				lex.setProfile(profile);
+				lex.analyze(new ByteArrayInputStream(training));
+			}
+		} catch (IOException | IllegalStateException e) {
+			System.err.println(String.format("Error reading GLA training input %s: %s.", trainingFile, e.getMessage()));
+			return;
+		}
+		
+		long visits = 0;
+		
+		for (Map.Entry<String, DfaProfile> entry : profile.getProfiles().entrySet()) {
+			automatons.put(entry.getKey(), LexDfaBuilder.renumber(entry.getValue().getDfa(), entry.getValue()));
+			visits += entry.getValue().getTotalVisits();
+		}
+		
+		if (verbose) {
+			System.err.println(String.format("GLA renumbered %d of %d automatons by %d profiled state visits.", 
+					profile.getProfiles().size(), automatons.size(), visits));
+		}
+	}
+	
+	/**
+	 * Builds the automaton of every lexer state that has no previous state, and records their sizes
+	 * to the <code>report</code>. With the {@link #ENGINE_DFA} the automatons are determinized and minimized,
+	 * and with the {@link #ENGINE_NFA} their epsilon closures are precomputed.<br>
+	 * 
+	 * Rules no state of the determinized automaton accepts never match. They are found with the {@link #ENGINE_DFA},
+	 * and with the {@link #ENGINE_NFA} only if the {@link #deadRules} are asked for, since it takes determinizing the
+	 * automaton. The built automatons accept the remaining rules by their indices once the shadowed rules are 
+	 * removed.<br>
+	 * 
+	 * Automatons growing past the {@link #maxDfaStates} are not determinized any further; the lexer state is 
+	 * simulated by the nondeterministic automaton with either engine, and none of its rules is known to never match.<br>
+	 * 
+	 * States are built in parallel on the common fork-join pool; the automatons don't depend on the order.
+	 * 
+	 * @param parser		Parser holding the parsed definitions.
+	 * @param previous		Mappings from state name to the state reused from the previous objects.
+	 * @param report		Report the sizes are recorded to, or <code>null</code>.
+	 * @param automatons	Mappings from state to the minimal deterministic automaton, filled by this method.
+	 * @param nfas			Mappings from state to the nondeterministic automaton, filled by this method.
+	 * @param shadowed		Mappings from state to the indices of the rules that never match, filled by this method 
+	 * 						for the built states.
+	 */
+	private void buildAutomatons(LexicalDefinitionsParser parser, Map<String, LexState> previous, 
+			LexGeneratorReport report, Map<String, LexDfa> automatons, Map<String, LexNfa> nfas, 
+			Map<String, BitSet> shadowed) {
+		List<Map.Entry<String, List<LexRule>>> states = new ArrayList<>(parser.getStates().entrySet());
+		LexDfa[] dfas = new LexDfa[states.size()];
+		LexDfa[] minimals = new LexDfa[states.size()];
+		LexNfa[] simulated = new LexNfa[states.size()];
+		long[] determinizeTimes = new long[states.size()];
+		long[] minimizeTimes = new long[states.size()];
+		BitSet[] accepted = new BitSet[states.size()];
+		boolean deterministic = ENGINE_DFA.equals(engine);
+		boolean determinized = deterministic || deadRules;
+		
+		IntStream.range(0, states.size()).parallel()
+				.filter(i -> !previous.containsKey(states.get(i).getKey()))
+				.forEach(i -> {
+					List<LexAutomaton> rules = states.get(i).getValue().stream()
+							.map(LexRule::getAutomaton).collect(Collectors.toList());
+					long start = System.nanoTime();
+					
+					dfas[i] = !determinized ? null 
+							: new LexDfaBuilder(parser.getAutomatonMerged(), rules).determinize(maxDfaStates);
+					
+					if (dfas[i] == null) {
+						accepted[i] = new BitSet();
+						accepted[i].set(0, rules.size());
+					} else {
+						accepted[i] = LexDfaBuilder.acceptedRules(dfas[i]);
+					}
+					
+					if (!deterministic || dfas[i] == null) {
+						// if at all, the automaton was determinized only to find the rules that never match
+						List<LexAutomaton> live = new ArrayList<>();
+						for (int rule = accepted[i].nextSetBit(0); rule >= 0; rule = accepted[i].nextSetBit(rule + 1)) {
+							live.add(rules.get(rule));
+						}
+						
+						simulated[i] = new LexNfaBuilder(parser.getAutomatonMerged(), live).build();
+						determinizeTimes[i] = System.nanoTime() - start;
+						return;
+					}
+					
+					long minimizing = System.nanoTime();
+					minimals[i] = LexDfaBuilder.minimize(dfas[i]);
+					
+					determinizeTimes[i] = minimizing - start;
+					minimizeTimes[i] = System.nanoTime() - minimizing;
+				});
+		
+		for (int i = 0; i < states.size(); i++) {
+			String state = states.get(i).getKey();
+			LexState old = previous.get(state);
+			
+			if (old != null) {
+				if (old.isDeterministic()) {
+					automatons.put(state, old.getAutomaton());
+				} else {
+					nfas.put(state, old.getNfa());
+				}
+				continue;
+			}
+			
+			int ruleCount = states.get(i).getValue().size();
+			BitSet dead = new BitSet();
+			dead.set(0, ruleCount);
+			dead.andNot(accepted[i]);
+			shadowed.put(state, dead);
+			
+			if (deterministic && dfas[i] == null) {
+				String warning = String.format("Lexer state %s has more than %d deterministic states; "
+						+ "it is matched by the nondeterministic automaton.", state, maxDfaStates);
+				System.err.println(String.format("GLA warning: %s", warning));
+				
+				if (report != null) {
+					report.addWarning(warning);
+				}
+			}
+			
+			if (simulated[i] != null) {
+				nfas.put(state, simulated[i]);
+				
+				if (report != null) {
+					report.addNfaState(state, simulated[i], determinizeTimes[i]);
+				}
+				continue;
+			}
+			
+			if (!dead.isEmpty()) {
+				int[] indices = new int[ruleCount];
+				for (int rule = accepted[i].nextSetBit(0), index = 0; rule >= 0; rule = accepted[i].nextSetBit(rule + 1)) {
+					indices[rule] = index++;
+				}
+				minimals[i] = LexDfaBuilder.retag(minimals[i], indices);
+			}
+			
+			automatons.put(state, minimals[i]);
+			
+			if (report != null) {
+				report.addState(state, dfas[i], determinizeTimes[i], minimals[i], minimizeTimes[i]);
+			}
+		}
 	}
 	
 }
@@ -0,0 +1,157 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import hr.fer.zemris.ppj.compiler.events.ArtifactWriteEvent;
+import hr.fer.zemris.ppj.compiler.syntax.exec.SynObjects;
+import hr.fer.zemris.ppj.compiler.syntax.exec.SynTables;
+import hr.fer.zemris.ppj.compiler.syntax.grammar.Grammar;
+import hr.fer.zemris.ppj.compiler.syntax.input.SyntaxDefinitionsParser;
+import hr.fer.zemris.ppj.compiler.syntax.lr.LalrBuilder;
+import hr.fer.zemris.ppj.compiler.syntax.lr.Lr1Builder;
+import hr.fer.zemris.ppj.compiler.syntax.lr.LrAutomaton;
+import hr.fer.zemris.ppj.compiler.syntax.lr.LrTables;
+import hr.fer.zemris.ppj.compiler.util.ArtifactCache;
+import hr.fer.zemris.ppj.compiler.util.StreamManager;
+
+/**
+ * <b>Generator of Syntax Analyzer</b><br>
+ * 
+ * This class is used for generating the <b>Syntax Analyzer</b> 
+ * based on the grammar of the language. <br>
+ * 
+ * It reads in the syntax definitions, builds the <i>LALR(1)</i> automaton of the grammar, or the canonical 
+ * <i>LR(1)</i> automaton, and writes its packed parse tables to the file that will be read by the 
+ * <b>Syntax Analyzer</b>. Conflicts are resolved in favour of the shift, and of the production defined earlier, 
+ * and their number is reported to the standard error.
+ * 
+ * @author fiilip
+ *
+ */
+public class GSA {
+
+	/**
+	 * Program entry - point.<br>
+	 * 
+	 * Supported options:
+	 * <ul>
+	 * <li><code>--canonical</code> - builds the canonical <i>LR(1)</i> automaton instead of the <i>LALR(1)</i> one</li>
+	 * <li><code>--verbose</code> - reports every resolved conflict and the sizes of the tables to the standard error</li>
+	 * </ul>
+	 * 
+	 * @param args	Command line options.
+	 */
+	public static void main(String[] args) {
+		GSA gsa = new GSA(System.in);
+		
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "--canonical": gsa.setCanonical(true); break;
+				case "--verbose": gsa.setVerbose(true); break;
+				default: throw new IllegalArgumentException(String.format("Option %s is not supported.", args[i]));
+			}
+		}
+		
+		gsa.generateSA(StreamManager.SYN_OBJECTS);
+	}
+	
+	private final StreamManager streamManager;
+	
+	/**
+	 * Source of the input file containing the definitions.
+	 */
+	private final InputStream istream;
+	
+	/**
+	 * Whether or not the canonical <i>LR(1)</i> automaton is built.
+	 */
+	private boolean canonical;
+	
+	/**
+	 * Whether or not to report the conflicts and the sizes of the tables to the standard error.
+	 */
+	private boolean verbose;
+	
+	/**
+	 * Public constructor.<br>
+	 * Constructs the new {@link GSA} object.
+	 * 
+	 * @param istream	Stream of the syntax definitions.
+	 */
+	public GSA(InputStream istream) {
+		this.istream = istream;
+		this.streamManager = new StreamManager();
+	}
+	
+	/**
+	 * Sets whether or not the canonical <i>LR(1)</i> automaton is built.
+	 * 
+	 * @param canonical	<code>True</code> for the canonical automaton, <code>false</code> for the <i>LALR(1)</i> one.
+	 */
+	public void setCanonical(boolean canonical) {
+		this.canonical = canonical;
+	}
+	
+	/**
+	 * Sets whether or not to report the conflicts and the sizes of the tables to the standard error.
+	 * 
+	 * @param verbose	<code>True</code> if they are reported.
+	 */
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+	
+	/**
+	 * Generates the objects needed by the {@link SA}, ie. the packed parse tables of the grammar.
+	 * 
+	 * @param toFilename	Name of the file that this {@link GSA} generates it's output.
+	 */
+	public void generateSA(String toFilename) {
+		SyntaxDefinitionsParser parser = new SyntaxDefinitionsParser(istream);
+		parser.read();
+		Grammar grammar = parser.getGrammar();
+		
+		LrAutomaton automaton = canonical ? new Lr1Builder(grammar).build() : new LalrBuilder(grammar).build();
+		LrTables tables = new LrTables(automaton);
+		SynTables packed = tables.pack();
+		
+		if (tables.getShiftReduceConflicts() + tables.getReduceReduceConflicts() > 0) {
+			System.err.println(String.format("GSA resolved %d shift/reduce and %d reduce/reduce conflicts.", 
+					tables.getShiftReduceConflicts(), tables.getReduceReduceConflicts()));
+		}
+		
+		if (verbose) {
+			tables.getConflicts().forEach(System.err::println);
+			System.err.println(String.format("GSA built %d states; packed tables take %d of %d dense entries.", 
+					tables.getStateCount(), packed.getPackedSize(), 
+					tables.getStateCount() * grammar.getSymbolCount()));
+		}
+		
+		Path target = Paths.get(toFilename);
+		ArtifactWriteEvent event = new ArtifactWriteEvent(toFilename);
+		event.begin();
+		long bytes = 0;
+		
+		try {
+			// written next to the target and renamed, so that SA never sees a partially written file
+			Path temporary = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName().toString(), ".tmp");
+			
+			try (FileChannel channel = streamManager.getOutputChannel(temporary.toString())) {
+				bytes = SynObjects.of(grammar, packed).write(channel);
+			}
+			
+			ArtifactCache.move(temporary, target);
+		} catch (IOException e) {
+			System.err.println(String.format("Error occured in GSA: %s.", e.getMessage()));
+		}
+		
+		event.end();
+		if (event.shouldCommit()) {
+			event.setSizes(bytes, 0, tables.getStateCount());
+			event.commit();
+		}
+	}
+}
@@ -1,13 +1,43 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
-import hr.fer.zemris.ppj.compiler.lexical.automata.LexAutomatonMerged;
+import hr.fer.zemris.ppj.compiler.events.ArtifactLoadEvent;
 import hr.fer.zemris.ppj.compiler.lexical.exec.Lex;
-import hr.fer.zemris.ppj.compiler.lexical.exec.LexRule;
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexDiagnostics;
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexObjects;
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexProfile;
+import hr.fer.zemris.ppj.compiler.lexical.pipeline.LexPipeline;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.BinaryTokenWriter;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.ErrorReporter;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.ErrorSink;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.LexemeTable;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.StripedLexemeTable;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.SymbolTable;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.TextTokenWriter;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.TokenQuery;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.TokenSink;
+import hr.fer.zemris.ppj.compiler.util.ArtifactCache;
 import hr.fer.zemris.ppj.compiler.util.StreamManager;
 
 /**
@@ -23,16 +53,101 @@ import hr.fer.zemris.ppj.compiler.util.StreamManager;
  *
  */
 public class LA {
+	
+	/**
+	 * Runs skipped by the error recovery are dropped silently.
+	 */
+	public static final String ERRORS_NONE = "none";
+	
+	/**
+	 * Runs skipped by the error recovery are reported to the standard error.
+	 */
+	public static final String ERRORS_STDERR = "stderr";
+	
+	/**
+	 * Runs skipped by the error recovery are written to the output as the error tokens.
+	 */
+	public static final String ERRORS_OUTPUT = "output";
 
 	/**
-	 * Program entry - point.
+	 * Program entry - point.<br>
 	 * 
-	 * @param args Not used.
+	 * Supported options:
+	 * <ul>
+	 * <li><code>--binary</code> - writes the tokens as the binary token stream of the {@link BinaryTokenWriter}, 
+	 * instead of the text lines <code>UNIT line lexeme</code></li>
+	 * <li><code>--intern UNIT,UNIT...</code> - interns the lexemes of the given lexical units, so that a lexeme 
+	 * seen before creates no string, and its tokens carry the symbol id in the binary token stream</li>
+	 * <li><code>--symbols file</code> - writes the interned lexemes to the <code>file</code>, a line 
+	 * <code>id lexeme</code> for every symbol</li>
+	 * <li><code>--pipeline</code> - decodes, scans and writes the tokens on three threads connected by 
+	 * the ring buffers, see {@link LexPipeline}</li>
+	 * <li><code>--errors none|stderr|output</code> - drops the runs of the input skipped by the error recovery, 
+	 * reports them to the standard error (default), or writes them to the output as the error tokens 
+	 * <code>#ERROR line offset length</code></li>
+	 * <li><code>--profile file</code> - counts the visits of the states of the deterministic automatons, and writes 
+	 * the profile to the <code>file</code>, so that the {@link GLA} can renumber the states by it</li>
+	 * <li><code>--diagnostics file</code> - accounts the chars read more than once, past the tokens, given back 
+	 * by the rules or re-scanned, and writes the report of the rules, lines and offsets wasting the most to the 
+	 * <code>file</code> in JSON format, see {@link LexDiagnostics}</li>
+	 * <li><code>--query count|distinct|top:k|lines</code> - writes only the aggregate of the tokens instead of 
+	 * the tokens: the number of the tokens per lexical unit, the distinct lexemes per unit, the <code>k</code> 
+	 * most frequent lexemes, or the number of the tokens per line, see {@link TokenQuery}; the options 
+	 * <code>--binary</code>, <code>--intern</code> and <code>--pipeline</code> are ignored</li>
+	 * <li><code>--select UNIT,UNIT...</code> - aggregates only the tokens of the given lexical units, all of them 
+	 * by default; lexemes of the other tokens are never read</li>
+	 * <li><code>--cache dir</code> - keeps the tokens of the batch files in the cache in the <code>dir</code>, 
+	 * keyed by the content of the file, the generated objects and the options, so that the tokens of an 
+	 * unchanged file are copied from the cache instead of analyzed; the runs skipped by the error recovery 
+	 * are reported again for such a file. The cache is not used with <code>--intern</code>.</li>
+	 * <li><code>--cache-bytes n</code> - total size of the tokens kept in the cache (default 256MB), the least 
+	 * recently used are evicted</li>
+	 * <li><code>--batch file...</code> - analyzes all the remaining arguments as the input files in parallel, 
+	 * writing the tokens of every file to <code>file.tokens</code>; the symbol table is shared by all the files</li>
+	 * </ul>
+	 * 
+	 * @param args Command line options.
 	 */
 	public static void main(String[] args) {
-		new LA(System.in, System.out).analyze(StreamManager.LEX_OBJECTS);
+		LA la = new LA(System.in, System.out);
+		List<String> batch = null;
+		
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "--binary": la.setBinary(true); break;
+				case "--pipeline": la.setPipelined(true); break;
+				case "--errors": la.setErrors(args[++i]); break;
+				case "--intern": la.setInternedUnits(new LinkedHashSet<>(Arrays.asList(args[++i].split(",")))); break;
+				case "--symbols": la.setSymbolsFile(args[++i]); break;
+				case "--profile": la.setProfileFile(args[++i]); break;
+				case "--diagnostics": la.setDiagnosticsFile(args[++i]); break;
+				case "--query": la.setQuery(args[++i]); break;
+				case "--select": la.setSelectedUnits(new LinkedHashSet<>(Arrays.asList(args[++i].split(",")))); break;
+				case "--cache": la.setCacheDirectory(args[++i]); break;
+				case "--cache-bytes": la.setCacheBytes(Long.parseLong(args[++i])); break;
+				case "--batch": batch = Arrays.asList(args).subList(i + 1, args.length); i = args.length; break;
+				default: throw new IllegalArgumentException(String.format("Option %s is not supported.", args[i]));
+			}
+		}
+		
+		if (batch == null) {
+			la.analyze(StreamManager.LEX_OBJECTS);
+		} else {
+			la.analyzeBatch(StreamManager.LEX_OBJECTS, batch);
+		}
 	}
 	
+	/**
+	 * Version of the token output, part of the key of the cached tokens. It has to be changed whenever 
+	 * the tokens written for the same input, objects and options change.
+	 */
+	private static final String TOKENS_VERSION = "1";
+	
+	/**
+	 * Default maximal total size of the tokens kept in the cache.
+	 */
+	private static final long CACHE_BYTES = 256L << 20;
+	
 	/**
 	 * Input stream to be analyzed by the <b>Lexical Analyzer</b>.
 	 */
@@ -45,6 +160,67 @@ public class LA {
 	
 	private final StreamManager streamManager;
 	
+	/**
+	 * Whether or not the tokens are written as the binary token stream.
+	 */
+	private boolean binary;
+	
+	/**
+	 * Whether or not the analysis runs as the pipeline of the decoding, scanning and formatting stage.
+	 */
+	private boolean pipelined;
+	
+	/**
+	 * Where the runs skipped by the error recovery go, one of the <code>ERRORS_*</code> constants.
+	 */
+	private String errors = ERRORS_STDERR;
+	
+	/**
+	 * Lexical units whose lexemes are interned.
+	 */
+	private Set<String> internedUnits = Set.of();
+	
+	/**
+	 * Name of the file the interned lexemes are written to, or <code>null</code>.
+	 */
+	private String symbolsFile;
+	
+	/**
+	 * Name of the file the profile of the automatons is written to, or <code>null</code>.
+	 */
+	private String profileFile;
+	
+	/**
+	 * Name of the file the diagnostics report is written to, or <code>null</code>.
+	 */
+	private String diagnosticsFile;
+	
+	/**
+	 * Aggregation of the query, one of the <code>TokenQuery</code> constants, or <code>null</code> to write 
+	 * the tokens.
+	 */
+	private String query;
+	
+	/**
+	 * Number of the lexemes of the {@link TokenQuery#TOP} query.
+	 */
+	private int queryTop;
+	
+	/**
+	 * Lexical units aggregated by the query, or <code>null</code> for all of them.
+	 */
+	private Set<String> selectedUnits;
+	
+	/**
+	 * Directory of the cache of the batch tokens, or <code>null</code> if the batch is not cached.
+	 */
+	private Path cacheDirectory;
+	
+	/**
+	 * Maximal total size of the cached tokens, in bytes.
+	 */
+	private long cacheBytes = CACHE_BYTES;
+	
 	/**
 	 * Public constructor.<br>
 	 * 
@@ -59,23 +235,403 @@ public class LA {
 		this.streamManager = new StreamManager();
 	}
 	
+	/**
+	 * Sets whether or not the tokens are written as the binary token stream.
+	 * 
+	 * @param binary	<code>True</code> for the binary token stream, <code>false</code> for the text lines.
+	 */
+	public void setBinary(boolean binary) {
+		this.binary = binary;
+	}
+	
+	/**
+	 * Sets whether or not the analysis runs as the pipeline of the decoding, scanning and formatting stage.
+	 * 
+	 * @param pipelined	<code>True</code> for the pipeline, <code>false</code> to run all the work on one thread.
+	 */
+	public void setPipelined(boolean pipelined) {
+		this.pipelined = pipelined;
+	}
+	
+	/**
+	 * Sets where the runs of the input skipped by the error recovery go.
+	 * 
+	 * @param errors	{@link #ERRORS_NONE}, {@link #ERRORS_STDERR} or {@link #ERRORS_OUTPUT}.
+	 */
+	public void setErrors(String errors) {
+		if (!ERRORS_NONE.equals(errors) && !ERRORS_STDERR.equals(errors) && !ERRORS_OUTPUT.equals(errors)) {
+			throw new IllegalArgumentException(String.format("Unknown error handling %s; expected %s, %s or %s.", 
+					errors, ERRORS_NONE, ERRORS_STDERR, ERRORS_OUTPUT));
+		}
+		
+		this.errors = errors;
+	}
+	
+	/**
+	 * Sets the lexical units whose lexemes are interned.
+	 * 
+	 * @param internedUnits	Lexical units, none by default.
+	 */
+	public void setInternedUnits(Set<String> internedUnits) {
+		this.internedUnits = Set.copyOf(internedUnits);
+	}
+	
+	/**
+	 * Sets the file the interned lexemes are written to once the analysis is done.
+	 * 
+	 * @param symbolsFile	Name of the file, or <code>null</code> not to write the lexemes.
+	 */
+	public void setSymbolsFile(String symbolsFile) {
+		this.symbolsFile = symbolsFile;
+	}
+	
+	/**
+	 * Sets the file the profile of the automatons is written to once the analysis is done. 
+	 * Input files of the batch are not profiled.
+	 * 
+	 * @param profileFile	Name of the file, or <code>null</code> not to profile the analysis.
+	 */
+	public void setProfileFile(String profileFile) {
+		this.profileFile = profileFile;
+	}
+	
+	/**
+	 * Sets the file the report of the chars read more than once is written to once the analysis is done. 
+	 * Input files of the batch are not accounted.
+	 * 
+	 * @param diagnosticsFile	Name of the file, or <code>null</code> not to account the analysis.
+	 */
+	public void setDiagnosticsFile(String diagnosticsFile) {
+		this.diagnosticsFile = diagnosticsFile;
+	}
+	
+	/**
+	 * Sets the aggregation of the tokens written instead of the tokens.
+	 * 
+	 * @param query	<code>count</code>, <code>distinct</code>, <code>top:k</code> or <code>lines</code>, 
+	 * 				or <code>null</code> to write the tokens.
+	 */
+	public void setQuery(String query) {
+		if (query == null) {
+			this.query = null;
+			return;
+		}
+		
+		int colon = query.indexOf(':');
+		String aggregation = colon < 0 ? query : query.substring(0, colon);
+		
+		try {
+			queryTop = colon < 0 ? 0 : Integer.parseInt(query.substring(colon + 1));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(String.format("Query %s is not supported.", query), e);
+		}
+		if (TokenQuery.TOP.equals(aggregation) != (colon >= 0) || (colon >= 0 && queryTop < 1)) {
+			throw new IllegalArgumentException(String.format("Query %s is not supported.", query));
+		}
+		
+		this.query = aggregation;
+	}
+	
+	/**
+	 * Sets the lexical units aggregated by the query.
+	 * 
+	 * @param selectedUnits	Lexical units, or <code>null</code> for all of them.
+	 */
+	public void setSelectedUnits(Set<String> selectedUnits) {
+		this.selectedUnits = selectedUnits == null ? null : Set.copyOf(selectedUnits);
+	}
+	
+	/**
+	 * Sets the directory of the cache of the tokens of the batch files.
+	 * 
+	 * @param cacheDirectory	Name of the directory, or <code>null</code> to analyze every file.
+	 */
+	public void setCacheDirectory(String cacheDirectory) {
+		this.cacheDirectory = cacheDirectory == null ? null : Paths.get(cacheDirectory);
+	}
+	
+	/**
+	 * Sets the maximal total size of the tokens kept in the cache.
+	 * 
+	 * @param cacheBytes	Number of bytes.
+	 */
+	public void setCacheBytes(long cacheBytes) {
+		this.cacheBytes = cacheBytes;
+	}
+	
 	/**
 	 * Performs the lexical analysis of the input stream.
 	 * 
-	 * @param filename	Name of the file to be lexically analyzed.
+	 * @param filename	Name of the file with the objects generated by the {@link GLA}.
 	 */
-	@SuppressWarnings("unchecked")
 	public void analyze(String filename) {
+		try {
+			LexObjects objects = load(filename);
+			SymbolTable symbols = new LexemeTable();
+			LexProfile profile = profileFile == null ? null : new LexProfile();
+			LexDiagnostics diagnostics = diagnosticsFile == null ? null : new LexDiagnostics();
+			
+			analyze(objects, symbols, profile, diagnostics, istream, ostream, System.err);
+			writeSymbols(symbols);
+			
+			if (profile != null) {
+				try (OutputStream out = new BufferedOutputStream(new FileOutputStream(profileFile))) {
+					profile.write(out);
+				}
+			}
+			
+			if (diagnostics != null) {
+				try (Writer out = new OutputStreamWriter(new FileOutputStream(diagnosticsFile), StandardCharsets.UTF_8)) {
+					diagnostics.write(out);
+				}
+			}
+		} catch (IOException e) {
+			System.err.println(String.format("Error in LA: %s.", e.getMessage()));
+		}
+	}
+	
+	/**
+	 * Performs the lexical analysis of the given input files in parallel, on the common fork-join pool.<br>
+	 * 
+	 * Tokens of every file are written to the file of the same name with the <code>.tokens</code> suffix. 
+	 * All the files intern their lexemes into the same symbol table, so the symbol ids are the same 
+	 * across the files.<br>
+	 * 
+	 * If the cache is set, the tokens of a file are keyed by its content, the objects and the options, and 
+	 * copied from the cache when the key is found. Lexical errors reported to the standard error are cached 
+	 * along with the tokens, and reported again when they are copied. The cache is not used if any lexemes 
+	 * are interned: the copied tokens intern nothing into the symbol table, and the symbol ids of the binary 
+	 * tokens depend on the other files of the batch.
+	 * 
+	 * @param filename	Name of the file with the objects generated by the {@link GLA}.
+	 * @param inputs	Names of the input files.
+	 */
+	public void analyzeBatch(String filename, List<String> inputs) {
+		try {
+			LexObjects objects = load(filename);
+			SymbolTable symbols = new StripedLexemeTable(4 * Runtime.getRuntime().availableProcessors());
+			List<String> failed = new ArrayList<>();
+			
+			ArtifactCache cache = cacheDirectory == null || !internedUnits.isEmpty() ? null 
+					: new ArtifactCache(cacheDirectory, "tokens-", ".bin", Integer.MAX_VALUE, cacheBytes);
+			if (cacheDirectory != null && cache == null) {
+				System.err.println("LA cache is not used; the interned lexemes depend on all the files analyzed.");
+			}
+			ArtifactCache errorCache = cache == null ? null : cache.companion(".err");
+			byte[] artifact = cache == null ? null : ArtifactCache.key(Files.readAllBytes(Paths.get(filename)), 
+					options().getBytes(StandardCharsets.UTF_8)).getBytes(StandardCharsets.US_ASCII);
+			
+			inputs.parallelStream().forEach(input -> {
+				try {
+					if (cache == null) {
+						try (InputStream in = new FileInputStream(input)) {
+							analyze(objects, symbols, in, Paths.get(input + ".tokens"), System.err);
+						}
+					} else {
+						analyzeCached(objects, symbols, cache, errorCache, artifact, input);
+					}
+				} catch (IOException e) {
+					synchronized (failed) {
+						failed.add(input);
+					}
+					System.err.println(String.format("Error in LA for %s: %s.", input, e.getMessage()));
+				}
+			});
+			
+			writeSymbols(symbols);
+			if (!failed.isEmpty()) {
+				System.err.println(String.format("LA failed for %d of %d files.", failed.size(), inputs.size()));
+			}
+		} catch (IOException e) {
+			System.err.println(String.format("Error in LA: %s.", e.getMessage()));
+		}
+	}
+	
+	/**
+	 * Analyzes the batch file, unless its tokens are in the cache. Tokens of a file that is not in the cache 
+	 * are stored once written, together with the errors reported to the standard error, so that a file 
+	 * taken from the cache reports the same errors.
+	 * 
+	 * @param objects		Objects generated by the {@link GLA}.
+	 * @param symbols		Symbol table the lexemes are interned into.
+	 * @param cache			Cache of the tokens.
+	 * @param errorCache	Cache of the reported errors, under the keys of the tokens.
+	 * @param artifact		Key of the objects and the options.
+	 * @param input			Name of the input file.
+	 * @throws IOException
+	 */
+	private void analyzeCached(LexObjects objects, SymbolTable symbols, ArtifactCache cache, ArtifactCache errorCache, 
+			byte[] artifact, String input) throws IOException {
+		byte[] content = Files.readAllBytes(Paths.get(input));
+		String key = ArtifactCache.key(TOKENS_VERSION.getBytes(StandardCharsets.US_ASCII), artifact, content);
+		Path target = Paths.get(input + ".tokens");
+		
+		// without the errors, the tokens are analyzed again
+		if (cache.lookup(key) != null && errorCache.lookup(key) != null) {
+			try {
+				byte[] reported = Files.readAllBytes(errorCache.path(key));
+				ArtifactCache.copyAtomically(cache.path(key), target);
+				System.err.write(reported, 0, reported.length);
+				return;
+			} catch (NoSuchFileException e) {
+				// evicted by a concurrent build since the lookup
+			}
+		}
+		
+		ByteArrayOutputStream reported = new ByteArrayOutputStream();
+		try (PrintStream err = new PrintStream(reported, true, StandardCharsets.UTF_8)) {
+			analyze(objects, symbols, new ByteArrayInputStream(content), target, err);
+		}
+		System.err.write(reported.toByteArray(), 0, reported.size());
+		
+		Path errors = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName().toString(), ".err");
+		try {
+			Files.write(errors, reported.toByteArray());
+			cache.store(key, target);
+			errorCache.store(key, errors);
+		} finally {
+			Files.deleteIfExists(errors);
+		}
+	}
+	
+	/**
+	 * Analyzes the input stream, writing the tokens to the file as set by the options.
+	 * 
+	 * @param objects	Objects generated by the {@link GLA}.
+	 * @param symbols	Symbol table the lexemes are interned into.
+	 * @param in		Input stream.
+	 * @param target	File the tokens are written to.
+	 * @param err		Stream the errors are reported to, if they go to the standard error.
+	 * @throws IOException
+	 */
+	private void analyze(LexObjects objects, SymbolTable symbols, InputStream in, Path target, PrintStream err) 
+			throws IOException {
+		try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target))) {
+			analyze(objects, symbols, null, null, in, out, err);
+		}
+	}
+	
+	/**
+	 * Gets the options the written tokens depend on, as a part of the key of the cached tokens. 
+	 * Errors are part of it, since with the {@link #ERRORS_OUTPUT} they are written among the tokens, and 
+	 * otherwise the cached errors are reported, or not. Interned units are left out, the tokens are not 
+	 * cached when any lexemes are interned.
+	 * 
+	 * @return Options.
+	 */
+	private String options() {
+		return String.format("binary=%b errors=%s query=%s top=%d select=%s", binary, errors, query, queryTop, 
+				selectedUnits == null ? null : new TreeSet<>(selectedUnits));
+	}
+	
+	/**
+	 * Analyzes the input stream, writing the tokens to the output stream as set by the options.
+	 * 
+	 * @param objects	Objects generated by the {@link GLA}.
+	 * @param symbols	Symbol table the lexemes are interned into.
+	 * @param profile	Profile the automatons are profiled into, or <code>null</code>.
+	 * @param diagnostics	Accounting of the chars read more than once, or <code>null</code>.
+	 * @param in		Input stream.
+	 * @param out		Output stream for the tokens.
+	 * @param err		Stream the errors are reported to, if they go to the standard error.
+	 * @throws IOException
+	 */
+	private void analyze(LexObjects objects, SymbolTable symbols, LexProfile profile, LexDiagnostics diagnostics, 
+			InputStream in, OutputStream out, PrintStream err) throws IOException {
+		if (query != null) {
+			query(objects, profile, diagnostics, in, out, err);
+			return;
+		}
+		
+		boolean interning = !internedUnits.isEmpty();
+		TokenSink sink = binary ? new BinaryTokenWriter(out, objects.getLexUnits(), interning) 
+				: new TextTokenWriter(streamManager, out);
+		
+		ErrorSink errorSink = ERRORS_OUTPUT.equals(errors) ? (ErrorSink) sink 
+				: ERRORS_STDERR.equals(errors) ? new ErrorReporter(err) : null;
+		
+		LexPipeline pipeline = pipelined ? new LexPipeline(objects, streamManager, sink) : null;
+		Lex lex = pipelined ? pipeline.getLex() : objects.createLex(streamManager, sink);
+		if (interning) {
+			lex.setInterning(symbols, internedUnits);
+		}
+		lex.setProfile(profile);
+		lex.setDiagnostics(diagnostics);
+		
+		if (pipelined) {
+			pipeline.setErrorSink(errorSink);
+		} else {
+			lex.setErrorSink(errorSink);
+		}
+		
+		if (pipelined) {
+			pipeline.analyze(in);
+		} else {
+			lex.analyze(in);
+		}
+	}
+	
+	/**
+	 * Analyzes the input stream, aggregating the tokens by the {@link #query} in the scan loop, and writes 
+	 * the result to the output stream. Runs skipped by the error recovery never go to the output.
+	 * 
+	 * @param objects	Objects generated by the {@link GLA}.
+	 * @param profile	Profile the automatons are profiled into, or <code>null</code>.
+	 * @param diagnostics	Accounting of the chars read more than once, or <code>null</code>.
+	 * @param in		Input stream.
+	 * @param out		Output stream for the result.
+	 * @param err		Stream the errors are reported to.
+	 * @throws IOException
+	 */
+	private void query(LexObjects objects, LexProfile profile, LexDiagnostics diagnostics, InputStream in, 
+			OutputStream out, PrintStream err) throws IOException {
+		TokenQuery consumer = new TokenQuery(streamManager, out, objects.getLexUnits(), selectedUnits, query, queryTop);
+		Lex lex = objects.createLex(streamManager, consumer);
+		
+		lex.setErrorSink(ERRORS_NONE.equals(errors) ? null : new ErrorReporter(err));
+		lex.setProfile(profile);
+		lex.setDiagnostics(diagnostics);
+		lex.analyze(in);
+	}
+	
+	/**
+	 * Writes the interned lexemes to the {@link #symbolsFile}, if it's set.
+	 * 
+	 * @param symbols	Symbol table.
+	 * @throws IOException
+	 */
+	private void writeSymbols(SymbolTable symbols) throws IOException {
+		if (symbolsFile == null) {
+			return;
+		}
+		
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(symbolsFile))) {
+			for (int id = 0; id < symbols.size(); id++) {
+				streamManager.writeToStream(String.format("%d %s%s", id, symbols.getSymbol(id), System.lineSeparator()), out);
+			}
+		}
+	}
+	
+	/**
+	 * Loads the objects generated by the {@link GLA}.
+	 * 
+	 * @param filename	Name of the file with the generated objects.
+	 * @return			Objects read from the file.
+	 * @throws IOException
+	 */
+	public LexObjects load(String filename) throws IOException {
+		ArtifactLoadEvent event = new ArtifactLoadEvent(filename);
+		event.begin();
+		
+		// the artifact is used in place; lexer states are decoded once they are entered
+		LexObjects objects = LexObjects.read(streamManager.map(filename));
+		
+		event.end();
+		if (event.shouldCommit()) {
+			event.setSizes(new File(filename).length(), objects.getStateNames().size(), objects.getRuleCount());
+			event.commit();
+		}
 		
-        try (ObjectInputStream stream = streamManager.getInputStream(filename)) {
-            String startState = (String) stream.readObject();
-            Map<String, List<LexRule>> states = (Map<String, List<LexRule>>) stream.readObject();
-            LexAutomatonMerged merged = (LexAutomatonMerged) stream.readObject();
-            
-            new Lex(startState, states, streamManager, ostream, merged).analyze(istream);
-            
-        } catch (IOException | ClassNotFoundException e) {
-            System.err.println(String.format("Error in LA: %s.", e.getMessage()));
-        }
+		return objects;
 	}
 }
@@ -0,0 +1,159 @@
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexObjects;
+import hr.fer.zemris.ppj.compiler.lexical.exec.TokenWindow;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.BinaryTokenReader;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.ErrorReporter;
+import hr.fer.zemris.ppj.compiler.syntax.exec.BinaryTokenSource;
+import hr.fer.zemris.ppj.compiler.syntax.exec.LexTokenSource;
+import hr.fer.zemris.ppj.compiler.syntax.exec.LrParser;
+import hr.fer.zemris.ppj.compiler.syntax.exec.SynObjects;
+import hr.fer.zemris.ppj.compiler.syntax.exec.TextTokenSource;
+import hr.fer.zemris.ppj.compiler.syntax.exec.TokenSource;
+import hr.fer.zemris.ppj.compiler.util.StreamManager;
+
+/**
+ * <b>Syntax Analyzer</b><br>
+ * 
+ * This class represents a <b>Syntax Analyzer</b> based on the 
+ * parse tables generated by the {@link GSA}.<br>
+ * 
+ * It reads the tokens written by the {@link LA}, either as the text lines or as the binary token stream, 
+ * parses them, and writes the generative tree. Syntax errors are reported to the standard error, and recovered 
+ * from by the synchronization terminals. With the <code>--source</code> option, it reads the source program instead, 
+ * and runs the lexical analysis of the {@link LA} in the same process, token by token as the parser advances.
+ * 
+ * @author fiilip
+ *
+ */
+public class SA {
+
+	/**
+	 * Program entry - point.<br>
+	 * 
+	 * Supported options:
+	 * <ul>
+	 * <li><code>--check</code> - only checks the syntax, without building and writing the generative tree</li>
+	 * <li><code>--source</code> - reads the source program, and passes its tokens from the objects generated by 
+	 * the {@link GLA} straight to the parser</li>
+	 * </ul>
+	 * 
+	 * @param args Command line options.
+	 */
+	public static void main(String[] args) {
+		SA sa = new SA(System.in, System.out);
+		
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "--check": sa.setCheckOnly(true); break;
+				case "--source": sa.setSource(true); break;
+				default: throw new IllegalArgumentException(String.format("Option %s is not supported.", args[i]));
+			}
+		}
+		
+		sa.analyze(StreamManager.SYN_OBJECTS);
+	}
+	
+	/**
+	 * Input stream of the tokens.
+	 */
+	private final InputStream istream;
+	
+	/**
+	 * Output stream for the generative tree.
+	 */
+	private final OutputStream ostream;
+	
+	private final StreamManager streamManager;
+	
+	/**
+	 * Whether or not only the syntax is checked, without the generative tree.
+	 */
+	private boolean checkOnly;
+	
+	/**
+	 * Whether or not the input is the source program, analyzed by the lexical analyzer in the same process.
+	 */
+	private boolean source;
+	
+	/**
+	 * Public constructor.<br>
+	 * Constructs the new {@link SA} object.
+	 * 
+	 * @param istream	Input stream of the tokens.
+	 * @param ostream	Output stream for the generative tree.
+	 */
+	public SA(InputStream istream, OutputStream ostream) {
+		this.istream = istream;
+		this.ostream = ostream;
+		this.streamManager = new StreamManager();
+	}
+	
+	/**
+	 * Sets whether or not only the syntax is checked.
+	 * 
+	 * @param checkOnly	<code>True</code> if the generative tree is not built.
+	 */
+	public void setCheckOnly(boolean checkOnly) {
+		this.checkOnly = checkOnly;
+	}
+	
+	/**
+	 * Sets whether or not the input is the source program instead of the tokens.
+	 * 
+	 * @param source	<code>True</code> if the lexical analysis runs in the same process.
+	 */
+	public void setSource(boolean source) {
+		this.source = source;
+	}
+	
+	/**
+	 * Performs the syntax analysis of the tokens.
+	 * 
+	 * @param filename	Name of the file with the objects generated by the {@link GSA}.
+	 */
+	public void analyze(String filename) {
+		try {
+			SynObjects objects = SynObjects.read(streamManager.map(filename));
+			LrParser parser = new LrParser(objects);
+			parser.setBuildTree(!checkOnly);
+			
+			if (!parser.parse(source ? lex() : tokens())) {
+				System.err.println(String.format("SA stopped after %d syntax errors; the input is not accepted.", 
+						parser.getErrorCount()));
+			} else if (!checkOnly) {
+				parser.getTree().write(ostream);
+			}
+		} catch (IOException e) {
+			System.err.println(String.format("Error in SA: %s.", e.getMessage()));
+		}
+	}
+	
+	/**
+	 * Reads the tokens written by the {@link LA}, in the format detected from the input.
+	 * 
+	 * @return			Source of the tokens.
+	 * @throws IOException
+	 */
+	private TokenSource tokens() throws IOException {
+		InputStream in = new BufferedInputStream(istream, 1 << 16);
+		return BinaryTokenReader.isTokenStream(in) ? new BinaryTokenSource(in) : new TextTokenSource(in);
+	}
+	
+	/**
+	 * Starts the lexical analysis of the source program, with the lexical errors reported to the standard error.
+	 * 
+	 * @return			Source of the tokens scanned on demand.
+	 * @throws IOException
+	 */
+	private TokenSource lex() throws IOException {
+		LexObjects objects = LexObjects.read(streamManager.map(StreamManager.LEX_OBJECTS));
+		TokenWindow window = new TokenWindow(objects, streamManager, 1);
+		window.getLex().setErrorSink(new ErrorReporter(System.err));
+		window.analyze(istream);
+		return new LexTokenSource(window);
+	}
+}
@@ -0,0 +1,49 @@
+package hr.fer.zemris.ppj.compiler.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event that covers a lookup of the generated objects in the cache.
+ *
+ * @author fiilip
+ *
+ */
+@Name("hr.fer.zemris.ppj.ArtifactCache")
+@Label("Artifact Cache")
+@Category({ "PPJ Compiler", "Generator" })
+@Description("Lookup of the generated objects in the cache, and storing of the new ones")
+public class ArtifactCacheEvent extends Event {
+
+	@Label("Key")
+	private String key;
+
+	@Label("Hit")
+	private boolean hit;
+
+	@Label("Evicted Entries")
+	private int evicted;
+
+	/**
+	 * Creates a new {@link ArtifactCacheEvent}.
+	 *
+	 * @param key Key of the looked up objects.
+	 */
+	public ArtifactCacheEvent(String key) {
+		this.key = key;
+	}
+
+	/**
+	 * Sets the outcome of the lookup.
+	 *
+	 * @param hit Whether or not the objects were found.
+	 * @param evicted Number of old entries evicted.
+	 */
+	public void setOutcome(boolean hit, int evicted) {
+		this.hit = hit;
+		this.evicted = evicted;
+	}
+}
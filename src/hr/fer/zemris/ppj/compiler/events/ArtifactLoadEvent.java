@@ -0,0 +1,56 @@
+package hr.fer.zemris.ppj.compiler.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event that covers reading of the generated objects by the analyzer.
+ *
+ * @author fiilip
+ *
+ */
+@Name("hr.fer.zemris.ppj.ArtifactLoad")
+@Label("Artifact Load")
+@Category({ "PPJ Compiler", "Analyzer" })
+@Description("Reading of the objects generated by the generator")
+public class ArtifactLoadEvent extends Event {
+
+	@Label("File")
+	private String file;
+
+	@Label("Size")
+	@DataAmount(DataAmount.BYTES)
+	private long bytes;
+
+	@Label("Lexer States")
+	private int lexerStates;
+
+	@Label("Rules")
+	private int rules;
+
+	/**
+	 * Creates a new {@link ArtifactLoadEvent}.
+	 *
+	 * @param file Name of the file being read.
+	 */
+	public ArtifactLoadEvent(String file) {
+		this.file = file;
+	}
+
+	/**
+	 * Sets the sizes of the loaded artifact.
+	 *
+	 * @param bytes Size of the read file in bytes.
+	 * @param lexerStates Number of lexer states read.
+	 * @param rules Number of lexical rules read.
+	 */
+	public void setSizes(long bytes, int lexerStates, int rules) {
+		this.bytes = bytes;
+		this.lexerStates = lexerStates;
+		this.rules = rules;
+	}
+}
@@ -0,0 +1,56 @@
+package hr.fer.zemris.ppj.compiler.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event that covers writing of the generated objects by the generator.
+ *
+ * @author fiilip
+ *
+ */
+@Name("hr.fer.zemris.ppj.ArtifactWrite")
+@Label("Artifact Write")
+@Category({ "PPJ Compiler", "Generator" })
+@Description("Writing of the objects generated for the analyzer")
+public class ArtifactWriteEvent extends Event {
+
+	@Label("File")
+	private String file;
+
+	@Label("Size")
+	@DataAmount(DataAmount.BYTES)
+	private long bytes;
+
+	@Label("Lexer States")
+	private int lexerStates;
+
+	@Label("Automaton States")
+	private int states;
+
+	/**
+	 * Creates a new {@link ArtifactWriteEvent}.
+	 *
+	 * @param file Name of the file being written.
+	 */
+	public ArtifactWriteEvent(String file) {
+		this.file = file;
+	}
+
+	/**
+	 * Sets the sizes of the written artifact.
+	 *
+	 * @param bytes Size of the written file in bytes.
+	 * @param lexerStates Number of lexer states written.
+	 * @param states Number of automaton states written.
+	 */
+	public void setSizes(long bytes, int lexerStates, int states) {
+		this.bytes = bytes;
+		this.lexerStates = lexerStates;
+		this.states = states;
+	}
+}
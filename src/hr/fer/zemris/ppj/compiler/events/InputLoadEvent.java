@@ -0,0 +1,39 @@
+package hr.fer.zemris.ppj.compiler.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event that covers loading of the analyzed input to memory.
+ *
+ * @author fiilip
+ *
+ */
+@Name("hr.fer.zemris.ppj.InputLoad")
+@Label("Input Load")
+@Category({ "PPJ Compiler", "Analyzer" })
+@Description("Reading and decoding of the input stream")
+public class InputLoadEvent extends Event {
+
+	@Label("Size")
+	@DataAmount(DataAmount.BYTES)
+	private long bytes;
+
+	@Label("Characters")
+	private int chars;
+
+	/**
+	 * Sets the sizes of the loaded input.
+	 *
+	 * @param bytes Number of bytes read.
+	 * @param chars Number of characters decoded.
+	 */
+	public void setSizes(long bytes, int chars) {
+		this.bytes = bytes;
+		this.chars = chars;
+	}
+}
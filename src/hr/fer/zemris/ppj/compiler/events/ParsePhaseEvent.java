@@ -0,0 +1,68 @@
+package hr.fer.zemris.ppj.compiler.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event that covers a single phase of parsing the lexical definitions.<br>
+ *
+ * Phases are: <code>regdefs</code>, <code>states</code>, <code>units</code> and <code>rules</code>.
+ *
+ * @author fiilip
+ *
+ */
+@Name("hr.fer.zemris.ppj.ParsePhase")
+@Label("Definitions Parse Phase")
+@Category({ "PPJ Compiler", "Generator" })
+@Description("Single phase of parsing the lexical definitions in GLA")
+public class ParsePhaseEvent extends Event {
+
+	@Label("Phase")
+	private String phase;
+
+	@Label("Items")
+	@Description("Number of items (definitions, states, units or rules) read in this phase")
+	private int items;
+
+	@Label("NFA States")
+	@Description("Total number of states in the merged automaton after this phase")
+	private int states;
+
+	@Label("NFA Transitions")
+	@Description("Total number of symbol and epsilon transitions in the merged automaton after this phase")
+	private int transitions;
+
+	/**
+	 * Creates a new {@link ParsePhaseEvent}.
+	 *
+	 * @param phase Name of the parsing phase.
+	 */
+	public ParsePhaseEvent(String phase) {
+		this.phase = phase;
+	}
+
+	/**
+	 * Gets the name of the parsing phase.
+	 *
+	 * @return Name of the phase.
+	 */
+	public String getPhase() {
+		return phase;
+	}
+
+	/**
+	 * Sets the sizes gathered at the end of the phase.
+	 *
+	 * @param items Number of items read in this phase.
+	 * @param states Total number of automaton states.
+	 * @param transitions Total number of automaton transitions.
+	 */
+	public void setSizes(int items, int states, int transitions) {
+		this.items = items;
+		this.states = states;
+		this.transitions = transitions;
+	}
+}
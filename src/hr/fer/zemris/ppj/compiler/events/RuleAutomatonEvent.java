@@ -0,0 +1,49 @@
+package hr.fer.zemris.ppj.compiler.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event that covers the construction of an automaton
+ * for a single lexical rule.
+ *
+ * @author fiilip
+ *
+ */
+@Name("hr.fer.zemris.ppj.RuleAutomaton")
+@Label("Rule Automaton Construction")
+@Category({ "PPJ Compiler", "Generator" })
+@Description("Construction of the epsilon-NFA for a single lexical rule")
+public class RuleAutomatonEvent extends Event {
+
+	@Label("Regular Expression Length")
+	@Description("Length of the regular expression after the regular definitions are expanded")
+	private int regExLength;
+
+	@Label("States")
+	private int states;
+
+	@Label("Transitions")
+	private int transitions;
+
+	@Label("Epsilon Transitions")
+	private int epsilonTransitions;
+
+	/**
+	 * Sets the sizes of the constructed automaton.
+	 *
+	 * @param regExLength Length of the normalized regular expression.
+	 * @param states Number of states created for the rule.
+	 * @param transitions Number of symbol transitions created for the rule.
+	 * @param epsilonTransitions Number of epsilon transitions created for the rule.
+	 */
+	public void setSizes(int regExLength, int states, int transitions, int epsilonTransitions) {
+		this.regExLength = regExLength;
+		this.states = states;
+		this.transitions = transitions;
+		this.epsilonTransitions = epsilonTransitions;
+	}
+}
@@ -0,0 +1,84 @@
+package hr.fer.zemris.ppj.compiler.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event that covers a coarse slice of the scanning loop.<br>
+ *
+ * A slice ends once the scanner moves at least {@link #SLICE_CHARS} characters
+ * past the start of the slice, or when the input ends.
+ *
+ * @author fiilip
+ *
+ */
+@Name("hr.fer.zemris.ppj.ScanSlice")
+@Label("Scan Slice")
+@Category({ "PPJ Compiler", "Analyzer" })
+@Description("Slice of the lexical analysis loop")
+public class ScanSliceEvent extends Event {
+
+	/**
+	 * Minimal number of input characters covered by a single slice.
+	 */
+	public static final int SLICE_CHARS = 1 << 16;
+
+	@Label("Start Offset")
+	private long startOffset;
+
+	@Label("Characters")
+	private int chars;
+
+	@Label("Tokens")
+	private int tokens;
+
+	@Label("Errors")
+	@Description("Number of characters dropped by the error recovery")
+	private int errors;
+
+	/**
+	 * Creates a new {@link ScanSliceEvent}.
+	 *
+	 * @param startOffset Offset of the first character covered by the slice.
+	 */
+	public ScanSliceEvent(long startOffset) {
+		this.startOffset = startOffset;
+	}
+
+	/**
+	 * Gets the offset of the first character covered by this slice.
+	 *
+	 * @return Start offset of the slice.
+	 */
+	public long getStartOffset() {
+		return startOffset;
+	}
+
+	/**
+	 * Counts a single token emitted in this slice.
+	 */
+	public void token() {
+		tokens ++;
+	}
+
+	/**
+	 * Counts the characters dropped by the error recovery in this slice.
+	 *
+	 * @param chars Number of the dropped characters.
+	 */
+	public void error(int chars) {
+		errors += chars;
+	}
+
+	/**
+	 * Sets the number of characters covered by this slice.
+	 *
+	 * @param chars Number of covered characters.
+	 */
+	public void setChars(int chars) {
+		this.chars = chars;
+	}
+}
@@ -25,6 +25,15 @@ public class EnterStateAction implements LexAction {
 		this.state = state;
 	}
 
+	/**
+	 * Gets the state that is entered by this action.
+	 * 
+	 * @return New state of the lexical analyzer.
+	 */
+	public String getState() {
+		return state;
+	}
+
 	@Override
 	public void execute(Lex lex) {
 		lex.enterState(state);
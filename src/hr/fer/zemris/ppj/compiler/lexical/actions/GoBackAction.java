@@ -31,6 +31,15 @@ public class GoBackAction implements LexAction {
 		this.goBack = goBack;
 	}
 
+	/**
+	 * Gets the number of symbols of the matched input that are kept.
+	 * 
+	 * @return Number of symbols that aren't returned.
+	 */
+	public int getGoBack() {
+		return goBack;
+	}
+
 	@Override
 	public void execute(Lex lex) {
 		lex.goBack(goBack);
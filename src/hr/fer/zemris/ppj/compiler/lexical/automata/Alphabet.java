@@ -0,0 +1,177 @@
+package hr.fer.zemris.ppj.compiler.lexical.automata;
+
+import java.nio.IntBuffer;
+import java.util.Objects;
+
+/**
+ * Alphabet classes of an automaton of a lexer state.<br>
+ *
+ * Symbol domain is split into sorted intervals, and every interval is assigned a class (or <code>-1</code> if
+ * no transition can ever be made on the symbols from it). Classes of the ASCII symbols are also kept in a direct table.
+ * Classes a token can start with are marked in a bitmap, so that the symbols no token starts with can be skipped
+ * without running the automaton.
+ *
+ * @author fiilip
+ *
+ */
+final class Alphabet {
+
+	/**
+	 * Starting symbols of the intervals, sorted. First interval always starts at <code>0</code>.
+	 */
+	private final IntBuffer bounds;
+
+	/**
+	 * Alphabet class of every interval, or <code>-1</code> if there are no transitions for it.
+	 */
+	private final IntBuffer classes;
+
+	/**
+	 * Number of alphabet classes.
+	 */
+	private final int classCount;
+
+	/**
+	 * ASCII symbol -> alphabet class, so that the common symbols skip the search of the intervals
+	 */
+	private final int[] asciiClasses = new int[LexDfa.ASCII_LIMIT];
+
+	/**
+	 * class / 32 -> bits of the classes a token can start with
+	 */
+	private final IntBuffer starts;
+
+	/**
+	 * Creates a new {@link Alphabet}.
+	 *
+	 * @param bounds Starting symbols of the intervals.
+	 * @param classes Alphabet class of every interval.
+	 * @param classCount Number of alphabet classes.
+	 * @param starts Bitmap of the classes a token can start with.
+	 */
+	Alphabet(IntBuffer bounds, IntBuffer classes, int classCount, IntBuffer starts) {
+		this.bounds = Objects.requireNonNull(bounds);
+		this.classes = Objects.requireNonNull(classes);
+		this.classCount = classCount;
+		this.starts = Objects.requireNonNull(starts);
+
+		if (bounds.limit() != classes.limit() || starts.limit() != LexNfa.wordCount(classCount)) {
+			throw new IllegalArgumentException("Inconsistent sizes of the alphabet tables.");
+		}
+
+		for (int symbol = 0; symbol < LexDfa.ASCII_LIMIT; symbol++) {
+			asciiClasses[symbol] = searchClass(symbol);
+		}
+	}
+
+	/**
+	 * Gets the alphabet class of the given <code>symbol</code>.
+	 *
+	 * @param symbol Input symbol, a Unicode code point.
+	 * @return Alphabet class of the symbol, or <code>-1</code>.
+	 */
+	int classOf(int symbol) {
+		return symbol < LexDfa.ASCII_LIMIT ? asciiClasses[symbol] : searchClass(symbol);
+	}
+
+	/**
+	 * Tests whether a token can start with a symbol of the given class.
+	 *
+	 * @param cls Alphabet class, or <code>-1</code>.
+	 * @return <code>True</code> if some token can start with the class, <code>false</code> otherwise.
+	 */
+	boolean canStart(int cls) {
+		return cls >= 0 && (starts.get(cls >>> 5) & (1 << cls)) != 0;
+	}
+
+	/**
+	 * Gets the word of the bitmap of the classes a token can start with.
+	 *
+	 * @param word Index of the word.
+	 * @return Bits of the alphabet classes <code>32 * word</code> to <code>32 * word + 31</code>.
+	 */
+	int getStartWord(int word) {
+		return starts.get(word);
+	}
+
+	/**
+	 * Searches the intervals for the class of the given <code>symbol</code>.
+	 *
+	 * @param symbol Input symbol.
+	 * @return Alphabet class of the symbol, or <code>-1</code>.
+	 */
+	private int searchClass(int symbol) {
+		// last interval starting at or before the symbol
+		int low = 0;
+		int high = bounds.limit() - 1;
+
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+
+			if (bounds.get(mid) <= symbol) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+
+		return classes.get(low);
+	}
+
+	/**
+	 * Gets the number of alphabet classes.
+	 *
+	 * @return Number of alphabet classes.
+	 */
+	int getClassCount() {
+		return classCount;
+	}
+
+	/**
+	 * Gets the number of intervals.
+	 *
+	 * @return Number of intervals.
+	 */
+	int getIntervalCount() {
+		return bounds.limit();
+	}
+
+	/**
+	 * Gets the starting symbol of the interval <code>idx</code>.
+	 *
+	 * @param idx Index of the interval.
+	 * @return Starting symbol of the interval.
+	 */
+	int getIntervalStart(int idx) {
+		return bounds.get(idx);
+	}
+
+	/**
+	 * Gets the exclusive end symbol of the interval <code>idx</code>.
+	 *
+	 * @param idx Index of the interval.
+	 * @return Exclusive end symbol of the interval.
+	 */
+	int getIntervalEnd(int idx) {
+		return idx + 1 < bounds.limit() ? bounds.get(idx + 1) : LexDfa.SYMBOL_LIMIT;
+	}
+
+	/**
+	 * Gets the alphabet class of the interval <code>idx</code>.
+	 *
+	 * @param idx Index of the interval.
+	 * @return Alphabet class of the interval, or <code>-1</code>.
+	 */
+	int getIntervalClass(int idx) {
+		return classes.get(idx);
+	}
+
+	/**
+	 * Gets the size of the tables in bytes.
+	 *
+	 * @return Size of the tables in bytes.
+	 */
+	int getTableBytes() {
+		return Integer.BYTES * (bounds.limit() + classes.limit() + starts.limit());
+	}
+}
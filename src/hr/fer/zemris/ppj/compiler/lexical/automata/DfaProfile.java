@@ -0,0 +1,164 @@
+package hr.fer.zemris.ppj.compiler.lexical.automata;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Counts of the state visits and the transitions taken by a {@link LexDfa} while scanning an input, used to renumber
+ * the states of the automaton so that the hot ones are close in its tables, see {@link LexDfaBuilder#renumber}.<br>
+ *
+ * A profile can be moved between the automatons that differ only in the numbering of their states, eg. the
+ * automaton a profile was recorded on and the one generated again from the same definitions. The counts are then
+ * indexed by the <b>canonical</b> numbering instead, where the states are numbered in the breadth-first order from
+ * the starting state, following the alphabet classes in order.
+ *
+ * @author fiilip
+ *
+ */
+public class DfaProfile {
+
+	private final LexDfa dfa;
+
+	/**
+	 * state -> number of the visits
+	 */
+	private final long[] visits;
+
+	/**
+	 * state * classCount + class -> number of the transitions taken
+	 */
+	private final long[] transitions;
+
+	/**
+	 * canonical number -> state, computed once the counts are added by the canonical numbers
+	 */
+	private int[] canonical;
+
+	/**
+	 * Creates a new, empty {@link DfaProfile} of the automaton.
+	 *
+	 * @param dfa Profiled automaton.
+	 */
+	public DfaProfile(LexDfa dfa) {
+		this.dfa = Objects.requireNonNull(dfa);
+		this.visits = new long[dfa.getStateCount()];
+		this.transitions = new long[dfa.getStateCount() * dfa.getClassCount()];
+	}
+
+	/**
+	 * Records a visit of the state, eg. the start of a token in the starting state.
+	 *
+	 * @param state Visited state.
+	 */
+	public void visit(int state) {
+		visits[state]++;
+	}
+
+	/**
+	 * Records a transition taken, and the visit of its target state.
+	 *
+	 * @param state State the transition is taken from.
+	 * @param cls Alphabet class of the transition.
+	 * @param target State reached, not the {@link LexDfa#DEAD}.
+	 */
+	public void transition(int state, int cls, int target) {
+		transitions[state * dfa.getClassCount() + cls]++;
+		visits[target]++;
+	}
+
+	/**
+	 * Gets the profiled automaton.
+	 *
+	 * @return Automaton.
+	 */
+	public LexDfa getDfa() {
+		return dfa;
+	}
+
+	/**
+	 * Gets the number of the visits of the state.
+	 *
+	 * @param state State of interest.
+	 * @return Number of visits.
+	 */
+	public long getVisits(int state) {
+		return visits[state];
+	}
+
+	/**
+	 * Gets the number of the transitions taken from the state on the alphabet class.
+	 *
+	 * @param state State of interest.
+	 * @param cls Alphabet class.
+	 * @return Number of transitions.
+	 */
+	public long getTransitions(int state, int cls) {
+		return transitions[state * dfa.getClassCount() + cls];
+	}
+
+	/**
+	 * Gets the total number of the visits of all the states.
+	 *
+	 * @return Number of visits.
+	 */
+	public long getTotalVisits() {
+		return Arrays.stream(visits).sum();
+	}
+
+	/**
+	 * Adds the counts given by the canonical state numbers.
+	 *
+	 * @param canonicalState Canonical number of the state.
+	 * @param visits Number of the visits of the state.
+	 * @param transitions Number of the transitions taken from the state, by the alphabet classes.
+	 */
+	public void addCanonical(int canonicalState, long visits, long[] transitions) {
+		if (canonical == null) {
+			canonical = canonicalOrder(dfa);
+		}
+
+		int state = canonical[canonicalState];
+		this.visits[state] += visits;
+
+		for (int cls = 0; cls < transitions.length; cls++) {
+			this.transitions[state * dfa.getClassCount() + cls] += transitions[cls];
+		}
+	}
+
+	/**
+	 * Gets the states in the canonical order: breadth-first from the starting state, with the states not
+	 * reachable from it at the end in their own order.
+	 *
+	 * @param dfa Automaton.
+	 * @return canonical number -> state
+	 */
+	public static int[] canonicalOrder(LexDfa dfa) {
+		int n = dfa.getStateCount();
+		int k = dfa.getClassCount();
+		int[] order = new int[n];
+		boolean[] seen = new boolean[n];
+		int size = 0;
+
+		order[size++] = LexDfa.START;
+		seen[LexDfa.START] = true;
+
+		for (int i = 0; i < size; i++) {
+			for (int cls = 0; cls < k; cls++) {
+				int target = dfa.next(order[i], cls);
+
+				if (target != LexDfa.DEAD && !seen[target]) {
+					seen[target] = true;
+					order[size++] = target;
+				}
+			}
+		}
+
+		for (int state = 0; state < n; state++) {
+			if (!seen[state]) {
+				order[size++] = state;
+			}
+		}
+
+		return order;
+	}
+}
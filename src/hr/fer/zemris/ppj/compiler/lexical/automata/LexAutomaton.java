@@ -39,7 +39,7 @@ public class LexAutomaton implements Automaton<Character> {
 	private boolean accepts;
 	
 	/**
-	 * Currently active states of this automaton.
+	 * Currently active states of this automaton, or <code>null</code> until the automaton is first used.
 	 */
 	private Set<Integer> currentStates;
 	
@@ -49,7 +49,10 @@ public class LexAutomaton implements Automaton<Character> {
 	private static LexAutomatonMerged automatonMerged;
 	
 	/**
-	 * Creates a new instance of {@link LexAutomaton}.
+	 * Creates a new instance of {@link LexAutomaton}.<br>
+	 * 
+	 * The epsilon environment of the starting state is computed when the automaton is first used,
+	 * since the automaton can be created before its transitions are merged.
 	 * 
 	 * @param leftState		Starting state of the automaton.
 	 * @param rightState		Final state of the automaton.
@@ -58,10 +61,16 @@ public class LexAutomaton implements Automaton<Character> {
 		this.leftState = leftState;
 		this.rightState = rightState;
 		this.accepts = false;
-		this.currentStates = new TreeSet<>();
-				
-		currentStates.add(leftState);
-		updateCurrentStates();
+	}
+	
+	/**
+	 * Creates a copy of this automaton with both of its states shifted by the <code>offset</code>.
+	 * 
+	 * @param offset	Offset added to the states.
+	 * @return			Shifted automaton.
+	 */
+	public LexAutomaton shift(int offset) {
+		return new LexAutomaton(leftState + offset, rightState + offset);
 	}
 	
 	public static void setLexAutomatonMerged(LexAutomatonMerged merged) {
@@ -110,16 +119,32 @@ public class LexAutomaton implements Automaton<Character> {
 		return rightState;
 	}
 
+	/**
+	 * Starts this automaton in its starting state if it hasn't been used yet.
+	 */
+	private void start() {
+		if (currentStates == null) {
+			reset();
+		}
+	}
+
 	@Override
 	public void consume(Character symbol) {
+		start();
 		Set<Integer> states = new TreeSet<>();
 		
 		for (Integer state : currentStates) {
-			Integer transitionState = automatonMerged.getNormalStates(state).get(symbol);
+			Integer transitionState = automatonMerged.getNormalStates(state).get((int) symbol);
 			
 			if (transitionState != null) {
 				states.add(transitionState);
 			}
+			
+			automatonMerged.getClassStates(state).forEach((charClass, target) -> {
+				if (charClass.contains(symbol)) {
+					states.add(target);
+				}
+			});
 		}
 		
 		currentStates = states;
@@ -135,11 +160,13 @@ public class LexAutomaton implements Automaton<Character> {
 
 	@Override
 	public boolean accepts() {
+		start();
 		return accepts;
 	}
 
 	@Override
 	public boolean isDead() {
+		start();
 		return currentStates.isEmpty();
 	}
 }
@@ -1,6 +1,8 @@
 package hr.fer.zemris.ppj.compiler.lexical.automata;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -9,6 +11,8 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import hr.fer.zemris.ppj.compiler.events.RuleAutomatonEvent;
+import hr.fer.zemris.ppj.compiler.lexical.regex.CharClass;
 import hr.fer.zemris.ppj.compiler.lexical.regex.RegexUtil;
 
 /**
@@ -45,6 +49,31 @@ public class LexAutomatonMerged implements Serializable {
 	 * Kleene repetition symbol.
 	 */
 	private static final char KLEENE_SYM = '*';
+	
+	/**
+	 * Symbol of one or more repetitions, in the extended regular expressions.
+	 */
+	private static final char PLUS_SYM = '+';
+	
+	/**
+	 * Symbol of an optional operand, in the extended regular expressions.
+	 */
+	private static final char OPTIONAL_SYM = '?';
+	
+	/**
+	 * Symbol that starts the bounds of a repetition, in the extended regular expressions.
+	 */
+	private static final char BOUNDS_START_SYM = '{';
+	
+	/**
+	 * Symbol that ends the bounds of a repetition, in the extended regular expressions.
+	 */
+	private static final char BOUNDS_END_SYM = '}';
+
+	/**
+	 * Prefix of the regular expression of a rule matched regardless of the case, in the extended regular expressions.
+	 */
+	public static final String IGNORE_CASE_PREFIX = "(?i)";
 
 	/**
 	 * {regularDefinition} -> regEx
@@ -57,25 +86,58 @@ public class LexAutomatonMerged implements Serializable {
 	private final Map<Integer, Set<Integer>> epsTransitions;
 	
 	/**
-	 * state + symbol -> [set of states]
+	 * state + symbol (code point) -> state
+	 */
+	private final Map<Integer, Map<Integer, Integer>> transitions;
+	
+	/**
+	 * state + character class -> state
+	 */
+	private final Map<Integer, Map<CharClass, Integer>> classTransitions;
+	
+	/**
+	 * Whether or not the regular expressions are extended.
+	 */
+	private boolean extended;
+	
+	/**
+	 * Whether or not all the regular expressions are matched regardless of the case.
+	 */
+	private boolean ignoreCase;
+	
+	/**
+	 * Whether or not the regular expression being transformed is matched regardless of the case.
 	 */
-	private final Map<Integer, Map<Character, Integer>> transitions;
+	private boolean folding;
 	
 	/**
 	 * Current state of the automaton.
 	 */
 	private int currentState = 0;
 	
+	/**
+	 * Number of symbol transitions added to the automaton.
+	 */
+	private int transitionCount = 0;
+	
+	/**
+	 * Number of epsilon transitions added to the automaton.
+	 */
+	private int epsTransitionCount = 0;
+	
 	
 	/**
 	 * Creates a new instance of <b>empty</b> {@link LexAutomatonMerged} object.<br>
 	 * 
-	 * This object needs to be filled with the actual data coming from parser.
+	 * This object needs to be filled with the actual data coming from parser. Most users
+	 * should use the shared instance from {@link #getInstance()}; separate instances are
+	 * needed only when the definitions are parsed more than once in the same process.
 	 */
-	private LexAutomatonMerged() {
+	public LexAutomatonMerged() {
 		//this.regDefs = normalizeAll(Objects.requireNonNull(regDefs));
 		this.epsTransitions = new HashMap<>();
 		this.transitions = new HashMap<>();
+		this.classTransitions = new HashMap<>();
 	}
 	
 	/**
@@ -93,13 +155,112 @@ public class LexAutomatonMerged implements Serializable {
 	}
 	
 	/**
-	 * Creates a new {@link LexAutomaton} instance based on the given regular expression.
+	 * Creates a new {@link LexAutomaton} instance based on the given regular expression.<br>
+	 * 
+	 * A regular expression starting with the {@link #IGNORE_CASE_PREFIX}, or any if the case is ignored 
+	 * in all of them, is matched regardless of the case: every symbol is a transition on the class of all 
+	 * its cases, and every character class is closed under the case conversions. The cases of a symbol then 
+	 * end up in a single alphabet class of the deterministic automaton, unless another rule tells them apart, 
+	 * so the automaton is as large as the one of the lower case expression.<br>
+	 * 
+	 * The prefix is recognized only in the extended regular expressions, or if the case is ignored in all of them.
+	 * Otherwise it's matched literally, as it always was, since <code>?</code> is not an operator there.
 	 * 
 	 * @param regEx		Regular expression describing the automaton.
 	 * @return new {@link LexAutomaton} instance based on the <code>regEx</code>.
 	 */
 	public LexAutomaton fromRegEx(String regEx) {
-		return transform(RegexUtil.normalize(regEx, regDefs));
+		boolean prefixed = (extended || ignoreCase) && regEx.startsWith(IGNORE_CASE_PREFIX);
+		folding = ignoreCase || prefixed;
+		if (prefixed) {
+			regEx = regEx.substring(IGNORE_CASE_PREFIX.length());
+		}
+		
+		RuleAutomatonEvent event = new RuleAutomatonEvent();
+		event.begin();
+		
+		int states = currentState;
+		int trans = transitionCount;
+		int epsTrans = epsTransitionCount;
+		
+		String normalized = RegexUtil.normalize(regEx, regDefs);
+		LexAutomaton automaton = transform(normalized);
+		
+		event.end();
+		if (event.shouldCommit()) {
+			event.setSizes(normalized.length(), currentState - states, 
+					transitionCount - trans, epsTransitionCount - epsTrans);
+			event.commit();
+		}
+		
+		return automaton;
+	}
+	
+	/**
+	 * Creates new {@link LexAutomaton} instances based on the given regular expressions.<br>
+	 * 
+	 * Every automaton is first built into a separate fragment with its own state numbering, in parallel on the
+	 * common fork-join pool. Fragments are then merged into this automaton in order of the regular expressions,
+	 * with their states shifted past the states generated so far, so that the states and transitions are the
+	 * same as if the automatons were built one by one with {@link #fromRegEx(String)}.
+	 * 
+	 * @param regExes	Regular expressions describing the automatons.
+	 * @return new {@link LexAutomaton} instances, in order of the <code>regExes</code>.
+	 */
+	public List<LexAutomaton> fromRegExes(List<String> regExes) {
+		List<Fragment> fragments = regExes.parallelStream()
+				.map(regEx -> {
+					LexAutomatonMerged fragment = new LexAutomatonMerged();
+					fragment.regDefs = regDefs;
+					fragment.extended = extended;
+					fragment.ignoreCase = ignoreCase;
+					return new Fragment(fragment, fragment.fromRegEx(regEx));
+				})
+				.collect(Collectors.toList());
+		
+		List<LexAutomaton> automatons = new ArrayList<>();
+		
+		for (Fragment fragment : fragments) {
+			automatons.add(merge(fragment.transitions, fragment.automaton));
+		}
+		
+		return automatons;
+	}
+	
+	/**
+	 * Merges the transitions of the given fragment into this automaton, shifting its states
+	 * past the states generated so far.
+	 * 
+	 * @param fragment	Automaton holding the transitions of the fragment, numbered from <code>0</code>.
+	 * @param automaton	Automaton of the fragment.
+	 * @return			Automaton of the fragment, with the shifted states.
+	 */
+	private LexAutomaton merge(LexAutomatonMerged fragment, LexAutomaton automaton) {
+		int offset = currentState;
+		
+		for (Map.Entry<Integer, Map<Integer, Integer>> state : fragment.transitions.entrySet()) {
+			Map<Integer, Integer> shifted = new HashMap<>();
+			state.getValue().forEach((symbol, target) -> shifted.put(symbol, target + offset));
+			transitions.put(state.getKey() + offset, shifted);
+		}
+		
+		for (Map.Entry<Integer, Map<CharClass, Integer>> state : fragment.classTransitions.entrySet()) {
+			Map<CharClass, Integer> shifted = new HashMap<>();
+			state.getValue().forEach((charClass, target) -> shifted.put(charClass, target + offset));
+			classTransitions.put(state.getKey() + offset, shifted);
+		}
+		
+		for (Map.Entry<Integer, Set<Integer>> state : fragment.epsTransitions.entrySet()) {
+			Set<Integer> shifted = new HashSet<>();
+			state.getValue().forEach(target -> shifted.add(target + offset));
+			epsTransitions.put(state.getKey() + offset, shifted);
+		}
+		
+		currentState += fragment.currentState;
+		transitionCount += fragment.transitionCount;
+		epsTransitionCount += fragment.epsTransitionCount;
+		
+		return automaton.shift(offset);
 	}
 	
 	/**
@@ -109,7 +270,7 @@ public class LexAutomatonMerged implements Serializable {
 	 * @return Lexical automaton based on the given <code>regEx</code>.
 	 */
 	private LexAutomaton transform(String regEx) {
-		List<String> choices = RegexUtil.splitChoices(regEx);
+		List<String> choices = RegexUtil.splitChoices(regEx, extended);
 		
 		int leftState = generateNewState();
 		int rightState = generateNewState();
@@ -132,15 +293,20 @@ public class LexAutomatonMerged implements Serializable {
 				int state2;
 				
 				char symbol = regEx.charAt(i);
+				int atomStart = prefixed ? i - 1 : i;
+				
+				// symbols outside of the basic plane take two chars
+				int codePoint = regEx.codePointAt(i);
 				
 				if (prefixed) {
 					prefixed = false;
-					char escape = RegexUtil.unescape(symbol);
+					int escape = Character.isBmpCodePoint(codePoint) ? RegexUtil.unescape(symbol) : codePoint;
 					
 					state1 = generateNewState();
 					state2 = generateNewState();
 					
-					addTransition(state1, state2, escape);
+					addSymbolTransition(state1, state2, escape);
+					i += Character.charCount(codePoint) - 1;
 				} else {
 					if (symbol == '\\') {
 						prefixed = true;
@@ -148,13 +314,24 @@ public class LexAutomatonMerged implements Serializable {
 					}
 					
 					if (symbol == '(') {
-						int closing = RegexUtil.findClosingOperator(regEx, '(', ')', i);
+						int closing = RegexUtil.findClosingOperator(regEx, '(', ')', i, extended);
 						String sub = regEx.substring(i + 1, closing);
 						
 						LexAutomaton tmp = transform(sub);
 						state1 = tmp.getLeftState();
 						state2 = tmp.getRightState();
 						i = closing;
+					} else if (extended && symbol == CharClass.START_SYM) {
+						CharClass charClass = CharClass.parse(regEx, i, LexDfa.SYMBOL_LIMIT - 1, folding);
+						
+						state1 = generateNewState();
+						state2 = generateNewState();
+						
+						addClassTransition(state1, state2, charClass);
+						i = RegexUtil.findClassEnd(regEx, i);
+					} else if (extended && isRepetition(regEx, i)) {
+						throw new IllegalArgumentException(String.format(
+								"Repetition without an operand at %d in regEx: '%s'.", i, regEx));
 					} else {
 						state1 = generateNewState();
 						state2 = generateNewState();
@@ -162,7 +339,8 @@ public class LexAutomatonMerged implements Serializable {
 						if (symbol == EPS) {
 							addEpsTransition(state1, state2);
 						} else {
-							addTransition(state1, state2, symbol);
+							addSymbolTransition(state1, state2, codePoint);
+							i += Character.charCount(codePoint) - 1;
 						}
 					}
 				}
@@ -180,6 +358,16 @@ public class LexAutomatonMerged implements Serializable {
 					addEpsTransition(stateTmp2, stateTmp1);
 					addEpsTransition(stateTmp2, state2);
 					i ++;
+				} else if (extended && i < len-1 && isRepetition(regEx, i+1)) {
+					// other repetitions copy the operand as many times as needed
+					int[] bounds = new int[2];
+					int end = repetitionBounds(regEx, i+1, bounds);
+					
+					LexAutomaton tmp = repeat(regEx.substring(atomStart, i + 1), 
+							new LexAutomaton(state1, state2), bounds[0], bounds[1]);
+					state1 = tmp.getLeftState();
+					state2 = tmp.getRightState();
+					i = end;
 				}
 				
 				// link to previous choice
@@ -194,17 +382,182 @@ public class LexAutomatonMerged implements Serializable {
 		return new LexAutomaton(leftState, rightState);
 	}
 	
+	/**
+	 * Evaluates whether or not a repetition operator other than <code>*</code> starts at the given index 
+	 * of the extended regular expression.
+	 * 
+	 * @param regEx	Extended regular expression.
+	 * @param idx	Index of interest.
+	 * @return		<code>True</code> if there is a <code>+</code>, <code>?</code> or <code>{m,n}</code> at <code>idx</code>.
+	 */
+	private static boolean isRepetition(String regEx, int idx) {
+		char symbol = regEx.charAt(idx);
+		
+		return symbol == PLUS_SYM || symbol == OPTIONAL_SYM || (symbol == BOUNDS_START_SYM 
+				&& idx + 1 < regEx.length() && Character.isDigit(regEx.charAt(idx + 1)));
+	}
+	
+	/**
+	 * Reads the bounds of the repetition operator starting at the given index.
+	 * 
+	 * @param regEx	Extended regular expression.
+	 * @param idx	Index of the repetition operator.
+	 * @param bounds	Array the minimal and the maximal number of repetitions are stored to; 
+	 * 				<code>-1</code> for the unbounded maximum.
+	 * @return		Index of the last symbol of the operator.
+	 */
+	private static int repetitionBounds(String regEx, int idx, int[] bounds) {
+		switch (regEx.charAt(idx)) {
+			case PLUS_SYM: 
+				bounds[0] = 1; bounds[1] = -1; 
+				return idx;
+			case OPTIONAL_SYM: 
+				bounds[0] = 0; bounds[1] = 1; 
+				return idx;
+			default:
+				break;
+		}
+		
+		int end = regEx.indexOf(BOUNDS_END_SYM, idx);
+		String[] parts = end < 0 ? new String[0] : regEx.substring(idx + 1, end).split(",", -1);
+		
+		try {
+			bounds[0] = Integer.parseInt(parts[0]);
+			bounds[1] = parts.length == 1 ? bounds[0] : parts[1].isEmpty() ? -1 : Integer.parseInt(parts[1]);
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException(String.format("Invalid repetition bounds at %d in regEx: '%s'.", idx, regEx));
+		}
+		
+		if (parts.length > 2 || (bounds[1] >= 0 && bounds[1] < bounds[0])) {
+			throw new IllegalArgumentException(String.format("Invalid repetition bounds at %d in regEx: '%s'.", idx, regEx));
+		}
+		
+		return end;
+	}
+	
+	/**
+	 * Creates the automaton repeating the operand from <code>min</code> to <code>max</code> times.
+	 * 
+	 * @param operand	Regular expression of the operand.
+	 * @param first		Already built automaton of the operand, used as its first copy.
+	 * @param min		Minimal number of repetitions.
+	 * @param max		Maximal number of repetitions, or <code>-1</code> if unbounded.
+	 * @return			Automaton of the repetition.
+	 */
+	private LexAutomaton repeat(String operand, LexAutomaton first, int min, int max) {
+		int leftState = generateNewState();
+		int lastState = leftState;
+		LexAutomaton copy = first;
+		
+		for (int i = 0; max < 0 ? i <= min : i < max; i++) {
+			copy = copy != null ? copy : transform(operand);
+			
+			if (i < min) {
+				addEpsTransition(lastState, copy.getLeftState());
+				lastState = copy.getRightState();
+			} else {
+				// optional copy, or the Kleene repetition of the last one
+				int state1 = generateNewState();
+				int state2 = generateNewState();
+				
+				addEpsTransition(state1, copy.getLeftState());
+				addEpsTransition(state1, state2);
+				addEpsTransition(copy.getRightState(), state2);
+				
+				if (max < 0) {
+					addEpsTransition(copy.getRightState(), copy.getLeftState());
+				}
+				
+				addEpsTransition(lastState, state1);
+				lastState = state2;
+			}
+			
+			copy = null;
+		}
+		
+		int rightState = generateNewState();
+		addEpsTransition(lastState, rightState);
+		
+		return new LexAutomaton(leftState, rightState);
+	}
+	
+	/**
+	 * Adds a new transition from <code>leftState</code> for a <code>symbol</code> of the regular expression
+	 * to the <code>rightState</code>, for all the cases of the symbol if the case is ignored.
+	 * 
+	 * @param leftState Left state.
+	 * @param rightState Right state.
+	 * @param symbol Transition symbol, a Unicode code point.
+	 */
+	private void addSymbolTransition(int leftState, int rightState, int symbol) {
+		CharClass cases = folding ? CharClass.caseOf(symbol, LexDfa.SYMBOL_LIMIT - 1) : null;
+		
+		if (cases == null) {
+			addTransition(leftState, rightState, symbol);
+		} else {
+			addClassTransition(leftState, rightState, cases);
+		}
+	}
+	
+	/**
+	 * Adds a new transition from <code>leftState</code> for all the symbols of the <code>charClass</code>
+	 * to the <code>rightState</code>.
+	 * 
+	 * @param leftState Left state.
+	 * @param rightState Right state.
+	 * @param charClass Transition symbols.
+	 */
+	private void addClassTransition(int leftState, int rightState, CharClass charClass) {
+		Map<CharClass, Integer> transition = classTransitions.computeIfAbsent(leftState, state -> new HashMap<>());
+		if (transition.put(charClass, rightState) == null) {
+			transitionCount ++;
+		}
+	}
+	
+	/**
+	 * Gets the states that can be accessed via character class transitions from a given state.<br>
+	 * If no such states exist, an empty map is returned.
+	 * 
+	 * @param state State of interest.
+	 * @return Character class -> state
+	 */
+	public Map<CharClass, Integer> getClassStates(int state) {
+		Map<CharClass, Integer> transition = classTransitions.get(state);
+		return transition == null ? Collections.emptyMap() : transition;
+	}
+	
+	/**
+	 * Sets whether or not the regular expressions are extended with the character classes and
+	 * the <code>+</code>, <code>?</code> and <code>{m,n}</code> repetitions.
+	 * 
+	 * @param extended	<code>True</code> for the extended regular expressions.
+	 */
+	public void setExtended(boolean extended) {
+		this.extended = extended;
+	}
+	
+	/**
+	 * Sets whether or not all the regular expressions are matched regardless of the case.
+	 * 
+	 * @param ignoreCase	<code>True</code> to ignore the case in all the regular expressions.
+	 */
+	public void setIgnoreCase(boolean ignoreCase) {
+		this.ignoreCase = ignoreCase;
+	}
+	
 	/**
 	 * Adds a new transition from <code>leftState</code> for a <code>symbol</code>
 	 * to the <code>rightState</code>.
 	 * 
 	 * @param leftState Left state.
 	 * @param rightState Right state.
-	 * @param symbol Transition symbol.
+	 * @param symbol Transition symbol, a Unicode code point.
 	 */
-	private void addTransition(int leftState, int rightState, char symbol) {
-		Map<Character, Integer> transition = getNormalStates(leftState);
-		transition.put(symbol, rightState);
+	private void addTransition(int leftState, int rightState, int symbol) {
+		Map<Integer, Integer> transition = getNormalStates(leftState);
+		if (transition.put(symbol, rightState) == null) {
+			transitionCount ++;
+		}
 		transitions.put(leftState, transition);
 	}
 	
@@ -212,11 +565,11 @@ public class LexAutomatonMerged implements Serializable {
 	 * Gets the state that can be accessed via symbol transition from a given state.<br>
 	 * If no such states exist, an empty map is returned.
 	 * 
-	 * @param state
-	 * @return
+	 * @param state State of interest.
+	 * @return Symbol, as a Unicode code point -> state
 	 */
-	public Map<Character, Integer> getNormalStates(int state) {
-		Map<Character, Integer> transition = transitions.get(state);
+	public Map<Integer, Integer> getNormalStates(int state) {
+		Map<Integer, Integer> transition = transitions.get(state);
 		
 		if (transition == null) {
 			transition = new HashMap<>();
@@ -233,7 +586,9 @@ public class LexAutomatonMerged implements Serializable {
 	 */
 	private void addEpsTransition(int leftState, int rightState) {
 		Set<Integer> states = getEpsilonStates(leftState);
-		states.add(rightState);
+		if (states.add(rightState)) {
+			epsTransitionCount ++;
+		}
 		epsTransitions.put(leftState, states);
 	}
 	
@@ -264,6 +619,42 @@ public class LexAutomatonMerged implements Serializable {
 	}
 
 
+	/**
+	 * Gets the regular definitions with all the nested definitions expanded.
+	 * 
+	 * @return Normalized regular definitions.
+	 */
+	public Map<String, String> getRegDefs() {
+		return regDefs;
+	}
+	
+	/**
+	 * Gets the number of states generated so far.
+	 * 
+	 * @return Number of states of this automaton.
+	 */
+	public int getStateCount() {
+		return currentState;
+	}
+	
+	/**
+	 * Gets the number of symbol and character class transitions added so far.
+	 * 
+	 * @return Number of symbol transitions of this automaton.
+	 */
+	public int getTransitionCount() {
+		return transitionCount;
+	}
+	
+	/**
+	 * Gets the number of epsilon transitions added so far.
+	 * 
+	 * @return Number of epsilon transitions of this automaton.
+	 */
+	public int getEpsilonTransitionCount() {
+		return epsTransitionCount;
+	}
+
 	/**
 	 * Generates a new, unique state.
 	 * 
@@ -274,6 +665,27 @@ public class LexAutomatonMerged implements Serializable {
 	}
 	
 	
+    /**
+     * Automaton of a single regular expression, built separately from the other automatons.
+     */
+    private static final class Fragment {
+    	
+    		/**
+    		 * Transitions of the automaton, with states numbered from <code>0</code>.
+    		 */
+    		private final LexAutomatonMerged transitions;
+    		
+    		/**
+    		 * Automaton of the regular expression.
+    		 */
+    		private final LexAutomaton automaton;
+    		
+    		Fragment(LexAutomatonMerged transitions, LexAutomaton automaton) {
+    			this.transitions = transitions;
+    			this.automaton = automaton;
+    		}
+    }
+    
     /**
      * Normalizes all regular definitions into the normal regular expression format.
      * 
@@ -281,9 +693,23 @@ public class LexAutomatonMerged implements Serializable {
      * @return Normalized regular expression.
      */
     private static Map<String, String> normalizeAll(Map<String, String> regDefs) {
-    		return regDefs.entrySet().stream().collect(Collectors.toMap(
-    				e -> e.getKey(),
-    				e -> RegexUtil.normalize(e.getValue(), regDefs)));
+    		Map<String, String> normalized = regDefs;
+    		
+    		// every pass expands one more level of nested definitions; a definition can 
+    		// reference at most regDefs.size() - 1 others unless there is a cycle
+    		for (int pass = 0; pass <= regDefs.size(); pass++) {
+    			Map<String, String> current = normalized;
+    			Map<String, String> next = current.entrySet().stream().collect(Collectors.toMap(
+    					e -> e.getKey(),
+    					e -> RegexUtil.normalize(e.getValue(), current)));
+    			
+    			if (next.equals(current)) {
+    				return next;
+    			}
+    			normalized = next;
+    		}
+    		
+    		throw new IllegalStateException("Regular definitions reference each other cyclically.");
     }
     
 }
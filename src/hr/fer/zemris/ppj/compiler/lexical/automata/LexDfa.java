@@ -0,0 +1,259 @@
+package hr.fer.zemris.ppj.compiler.lexical.automata;
+
+import java.nio.IntBuffer;
+import java.util.Objects;
+
+/**
+ * Deterministic finite automaton that matches all the lexical rules of a single
+ * lexer state at once.<br>
+ *
+ * Symbols are Unicode code points. They are first mapped to the <b>alphabet classes</b>: the symbol domain
+ * is split into sorted intervals, and every interval is assigned a class (or <code>-1</code> if no transition
+ * can ever be made on the symbols from it). Classes of the ASCII symbols are also kept in a direct table.
+ * Transitions are then stored as a flat table indexed by <code>state * classCount + class</code>.<br>
+ *
+ * Alphabet classes that lead out of the starting state are marked as the classes a token can start with.<br>
+ *
+ * Every accepting state is tagged with the index of the rule it accepts; if the same input is accepted
+ * by more rules, the one defined first wins. State <code>0</code> is the starting state,
+ * and <code>-1</code> represents the dead state.<br>
+ *
+ * Tables are held in {@link IntBuffer}s, so that the automaton can be used directly from
+ * a memory mapped artifact, as well as from the arrays built by the {@link LexDfaBuilder}.
+ *
+ * @author fiilip
+ *
+ */
+public class LexDfa {
+
+	/**
+	 * Dead state, ie. state without any transitions.
+	 */
+	public static final int DEAD = -1;
+
+	/**
+	 * Starting state.
+	 */
+	public static final int START = 0;
+
+	/**
+	 * Exclusive upper bound of the symbol domain. Symbols are Unicode code points.
+	 */
+	public static final int SYMBOL_LIMIT = Character.MAX_CODE_POINT + 1;
+
+	/**
+	 * Exclusive upper bound of the symbols whose classes are looked up directly.
+	 */
+	public static final int ASCII_LIMIT = 128;
+
+	/**
+	 * Alphabet classes of the symbols.
+	 */
+	private final Alphabet alphabet;
+
+	/**
+	 * Number of alphabet classes, ie. the width of the transition table.
+	 */
+	private final int classCount;
+
+	/**
+	 * state * classCount + class -> state
+	 */
+	private final IntBuffer transitions;
+
+	/**
+	 * state -> index of the accepted rule, or <code>-1</code>
+	 */
+	private final IntBuffer accepts;
+
+	/**
+	 * Creates a new instance of {@link LexDfa}.
+	 *
+	 * @param bounds Starting symbols of the alphabet intervals.
+	 * @param classes Alphabet class of every interval.
+	 * @param classCount Number of alphabet classes.
+	 * @param transitions Flat transition table.
+	 * @param accepts Accepted rule of every state.
+	 */
+	public LexDfa(int[] bounds, int[] classes, int classCount, int[] transitions, int[] accepts) {
+		this(IntBuffer.wrap(bounds), IntBuffer.wrap(classes), classCount, IntBuffer.wrap(starts(transitions, classCount)),
+				IntBuffer.wrap(transitions), IntBuffer.wrap(accepts));
+	}
+
+	/**
+	 * Creates a new instance of {@link LexDfa} over the given tables. Tables are used from their
+	 * absolute index <code>0</code> up to their limit, and are never modified.
+	 *
+	 * @param bounds Starting symbols of the alphabet intervals.
+	 * @param classes Alphabet class of every interval.
+	 * @param classCount Number of alphabet classes.
+	 * @param starts Bitmap of the classes a token can start with.
+	 * @param transitions Flat transition table.
+	 * @param accepts Accepted rule of every state.
+	 */
+	public LexDfa(IntBuffer bounds, IntBuffer classes, int classCount, IntBuffer starts, IntBuffer transitions,
+			IntBuffer accepts) {
+		this.alphabet = new Alphabet(bounds, classes, classCount, starts);
+		this.classCount = classCount;
+		this.transitions = Objects.requireNonNull(transitions);
+		this.accepts = Objects.requireNonNull(accepts);
+
+		if (transitions.limit() != accepts.limit() * classCount) {
+			throw new IllegalArgumentException("Inconsistent sizes of the automaton tables.");
+		}
+	}
+
+	/**
+	 * Gets the alphabet class of the given <code>symbol</code>.
+	 *
+	 * @param symbol Input symbol, a Unicode code point.
+	 * @return Alphabet class of the symbol, or <code>-1</code> if there is no transition for it.
+	 */
+	public int classOf(int symbol) {
+		return alphabet.classOf(symbol);
+	}
+
+	/**
+	 * Computes the bitmap of the classes with a transition from the starting state.
+	 *
+	 * @param transitions Flat transition table.
+	 * @param classCount Number of alphabet classes.
+	 * @return Bitmap of the classes a token can start with.
+	 */
+	private static int[] starts(int[] transitions, int classCount) {
+		int[] starts = new int[LexNfa.wordCount(classCount)];
+
+		for (int cls = 0; cls < classCount; cls++) {
+			if (transitions[START * classCount + cls] != DEAD) {
+				starts[cls >>> 5] |= 1 << cls;
+			}
+		}
+
+		return starts;
+	}
+
+	/**
+	 * Tests whether a token can start with a symbol of the given alphabet class, ie. whether the class
+	 * leads out of the starting state.
+	 *
+	 * @param cls Alphabet class of the symbol, or <code>-1</code>.
+	 * @return <code>True</code> if some token can start with the class, <code>false</code> otherwise.
+	 */
+	public boolean canStart(int cls) {
+		return alphabet.canStart(cls);
+	}
+
+	/**
+	 * Gets the word of the bitmap of the classes a token can start with.
+	 *
+	 * @param word Index of the word, up to the {@link LexNfa#wordCount(int)}.
+	 * @return Bits of the alphabet classes <code>32 * word</code> to <code>32 * word + 31</code>.
+	 */
+	public int getStartWord(int word) {
+		return alphabet.getStartWord(word);
+	}
+
+	/**
+	 * Gets the state reached from <code>state</code> for the given alphabet class.
+	 *
+	 * @param state Current state.
+	 * @param cls Alphabet class of the symbol.
+	 * @return Next state, or {@link #DEAD}.
+	 */
+	public int next(int state, int cls) {
+		return cls < 0 ? DEAD : transitions.get(state * classCount + cls);
+	}
+
+	/**
+	 * Gets the index of the rule accepted in the given <code>state</code>.
+	 *
+	 * @param state State of interest.
+	 * @return Index of the accepted rule, or <code>-1</code> if the state is not accepting.
+	 */
+	public int acceptedRule(int state) {
+		return accepts.get(state);
+	}
+
+	/**
+	 * Gets the number of states of this automaton.
+	 *
+	 * @return Number of states.
+	 */
+	public int getStateCount() {
+		return accepts.limit();
+	}
+
+	/**
+	 * Gets the number of alphabet classes of this automaton.
+	 *
+	 * @return Number of alphabet classes.
+	 */
+	public int getClassCount() {
+		return classCount;
+	}
+
+	/**
+	 * Gets the number of alphabet intervals of this automaton.
+	 *
+	 * @return Number of alphabet intervals.
+	 */
+	public int getIntervalCount() {
+		return alphabet.getIntervalCount();
+	}
+
+	/**
+	 * Gets the number of transitions that don't lead to the dead state.
+	 *
+	 * @return Number of transitions.
+	 */
+	public int getTransitionCount() {
+		int count = 0;
+
+		for (int idx = 0, len = transitions.limit(); idx < len; idx++) {
+			if (transitions.get(idx) != DEAD) {
+				count ++;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Gets the size of the tables of this automaton in bytes.
+	 *
+	 * @return Size of the tables in bytes.
+	 */
+	public int getTableBytes() {
+		return alphabet.getTableBytes() + Integer.BYTES * (transitions.limit() + accepts.limit());
+	}
+
+	/**
+	 * Gets the starting symbol of the alphabet interval <code>idx</code>.
+	 *
+	 * @param idx Index of the interval.
+	 * @return Starting symbol of the interval.
+	 */
+	public int getIntervalStart(int idx) {
+		return alphabet.getIntervalStart(idx);
+	}
+
+	/**
+	 * Gets the exclusive end symbol of the alphabet interval <code>idx</code>.
+	 *
+	 * @param idx Index of the interval.
+	 * @return Exclusive end symbol of the interval.
+	 */
+	public int getIntervalEnd(int idx) {
+		return alphabet.getIntervalEnd(idx);
+	}
+
+	/**
+	 * Gets the alphabet class of the alphabet interval <code>idx</code>.
+	 *
+	 * @param idx Index of the interval.
+	 * @return Alphabet class of the interval, or <code>-1</code>.
+	 */
+	public int getIntervalClass(int idx) {
+		return alphabet.getIntervalClass(idx);
+	}
+}
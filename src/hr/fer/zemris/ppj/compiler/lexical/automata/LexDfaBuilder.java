@@ -0,0 +1,768 @@
+package hr.fer.zemris.ppj.compiler.lexical.automata;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import hr.fer.zemris.ppj.compiler.lexical.regex.CharClass;
+
+/**
+ * Builds the {@link LexDfa} from the {@link LexAutomaton}s of a single lexer state.<br>
+ *
+ * Automatons are determinized together using the subset construction, so that the resulting
+ * automaton tracks all of the rules at once. Symbol domain is split into the elementary intervals
+ * by the bounds of all the symbol and character class transitions, and every interval with a transition
+ * becomes an alphabet class. Each accepting state is tagged with the first
+ * rule whose final state it contains.
+ *
+ * @author fiilip
+ *
+ */
+public class LexDfaBuilder {
+
+	/**
+	 * Merged automaton containing all the transitions.
+	 */
+	private final LexAutomatonMerged merged;
+
+	/**
+	 * Automatons of the rules, in order of the rule definitions.
+	 */
+	private final List<LexAutomaton> automatons;
+
+	/**
+	 * Creates a new {@link LexDfaBuilder}.
+	 *
+	 * @param merged Merged automaton containing all the transitions.
+	 * @param automatons Automatons of the rules, in order of the rule definitions.
+	 */
+	public LexDfaBuilder(LexAutomatonMerged merged, List<LexAutomaton> automatons) {
+		this.merged = Objects.requireNonNull(merged);
+		this.automatons = Objects.requireNonNull(automatons);
+	}
+
+	/**
+	 * Determinizes the automatons using the subset construction.<br>
+	 *
+	 * Elementary intervals taken by the same transitions share an alphabet class, eg. the cases of a symbol
+	 * of the rules that ignore the case; every other interval with a transition gets its own class.
+	 *
+	 * @return Deterministic automaton, not minimized.
+	 */
+	public LexDfa determinize() {
+		return determinize(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Determinizes the automatons using the subset construction, giving up once the automaton grows past
+	 * the given number of states, eg. for the rules whose subsets blow up exponentially.
+	 *
+	 * @param maxStates Largest number of the states of the automaton, before minimization.
+	 * @return Deterministic automaton, not minimized, or <code>null</code> if it has more than <code>maxStates</code>
+	 *         states.
+	 */
+	public LexDfa determinize(int maxStates) {
+		// final state -> index of the rule; earlier rules take precedence
+		int[] ruleOf = new int[merged.getStateCount()];
+		Arrays.fill(ruleOf, -1);
+
+		BitSet start = new BitSet();
+
+		for (int i = automatons.size() - 1; i >= 0; i--) {
+			LexAutomaton automaton = automatons.get(i);
+			start.set(automaton.getLeftState());
+			ruleOf[automaton.getRightState()] = i;
+		}
+		closure(merged, start);
+
+		// elementary intervals: no transition starts or ends within one, so each is a single class
+		List<Integer> reachable = reachable(merged, start);
+		int[] bounds = collectBounds(merged, reachable);
+		int[] intervalClass = new int[bounds.length - 1];
+		int classCount = classify(reachable, bounds, intervalClass);
+
+		List<BitSet> sets = new ArrayList<>();
+		Map<BitSet, Integer> ids = new HashMap<>();
+		sets.add(start);
+		ids.put(start, LexDfa.START);
+
+		int[] transitions = new int[classCount * 16];
+		int[] accepts = new int[16];
+
+		for (int i = 0; i < sets.size(); i++) {
+			BitSet set = sets.get(i);
+			BitSet[] targets = new BitSet[classCount];
+			int accept = -1;
+
+			for (int state = set.nextSetBit(0); state >= 0; state = set.nextSetBit(state + 1)) {
+				int rule = ruleOf[state];
+
+				if (rule >= 0 && (accept < 0 || rule < accept)) {
+					accept = rule;
+				}
+
+				for (Map.Entry<Integer, Integer> transition : merged.getNormalStates(state).entrySet()) {
+					int cls = intervalClass[interval(bounds, transition.getKey())];
+
+					if (targets[cls] == null) {
+						targets[cls] = new BitSet();
+					}
+					targets[cls].set(transition.getValue());
+				}
+
+				for (Map.Entry<CharClass, Integer> transition : merged.getClassStates(state).entrySet()) {
+					CharClass charClass = transition.getKey();
+
+					for (int range = 0; range < charClass.getRangeCount(); range++) {
+						int last = interval(bounds, charClass.getHigh(range));
+
+						for (int idx = interval(bounds, charClass.getLow(range)); idx <= last; idx++) {
+							int cls = intervalClass[idx];
+
+							if (targets[cls] == null) {
+								targets[cls] = new BitSet();
+							}
+							targets[cls].set(transition.getValue());
+						}
+					}
+				}
+			}
+
+			if (accepts.length <= i) {
+				accepts = Arrays.copyOf(accepts, accepts.length * 2);
+				transitions = Arrays.copyOf(transitions, accepts.length * classCount);
+			}
+			accepts[i] = accept;
+
+			for (int cls = 0; cls < classCount; cls++) {
+				BitSet target = targets[cls];
+
+				if (target == null) {
+					transitions[i * classCount + cls] = LexDfa.DEAD;
+					continue;
+				}
+
+				closure(merged, target);
+				Integer id = ids.get(target);
+
+				if (id == null) {
+					if (sets.size() == maxStates) {
+						return null;
+					}
+
+					id = sets.size();
+					sets.add(target);
+					ids.put(target, id);
+				}
+				transitions[i * classCount + cls] = id;
+			}
+		}
+
+		int stateCount = sets.size();
+
+		// neighbouring gaps without transitions are joined
+		List<Integer> starts = new ArrayList<>();
+		List<Integer> classes = new ArrayList<>();
+
+		for (int idx = 0; idx < intervalClass.length; idx++) {
+			if (idx == 0 || intervalClass[idx] >= 0 || intervalClass[idx - 1] >= 0) {
+				starts.add(bounds[idx]);
+				classes.add(intervalClass[idx]);
+			}
+		}
+
+		return new LexDfa(toArray(starts), toArray(classes), classCount,
+				Arrays.copyOf(transitions, stateCount * classCount), Arrays.copyOf(accepts, stateCount));
+	}
+
+	/**
+	 * Minimizes the given automaton.<br>
+	 *
+	 * States from which no accepting state can be reached are removed, equivalent states are merged
+	 * by partition refinement, and alphabet classes with identical columns in the transition table
+	 * are merged into a single class. States are renumbered in the breadth-first order from the starting state.
+	 *
+	 * @param dfa Automaton to be minimized.
+	 * @return Minimal automaton accepting the same rules.
+	 */
+	public static LexDfa minimize(LexDfa dfa) {
+		int n = dfa.getStateCount();
+		int k = dfa.getClassCount();
+		boolean[] productive = productiveStates(dfa);
+
+		// initial partition is by the accepted rule
+		Map<IntArrayKey, Integer> ids = new HashMap<>();
+		int[] block = new int[n];
+
+		for (int state = 0; state < n; state++) {
+			block[state] = productive[state]
+					? blockId(ids, new int[] { dfa.acceptedRule(state) })
+					: LexDfa.DEAD;
+		}
+		int blockCount = ids.size();
+
+		// refine until stable
+		while (true) {
+			ids.clear();
+			int[] next = new int[n];
+
+			for (int state = 0; state < n; state++) {
+				if (!productive[state]) {
+					next[state] = LexDfa.DEAD;
+					continue;
+				}
+
+				int[] signature = new int[k + 1];
+				signature[0] = block[state];
+
+				for (int cls = 0; cls < k; cls++) {
+					int target = dfa.next(state, cls);
+					signature[cls + 1] = target == LexDfa.DEAD ? LexDfa.DEAD : block[target];
+				}
+				next[state] = blockId(ids, signature);
+			}
+
+			block = next;
+
+			if (ids.size() == blockCount) {
+				break;
+			}
+			blockCount = ids.size();
+		}
+
+		// renumber the blocks in breadth-first order
+		int[] representative = new int[blockCount];
+		int[] order = new int[blockCount];
+		Arrays.fill(order, LexDfa.DEAD);
+
+		for (int state = n - 1; state >= 0; state--) {
+			if (block[state] != LexDfa.DEAD) {
+				representative[block[state]] = state;
+			}
+		}
+
+		List<Integer> queue = new ArrayList<>();
+
+		if (block[LexDfa.START] != LexDfa.DEAD) {
+			order[block[LexDfa.START]] = 0;
+			queue.add(block[LexDfa.START]);
+		}
+
+		for (int i = 0; i < queue.size(); i++) {
+			int state = representative[queue.get(i)];
+
+			for (int cls = 0; cls < k; cls++) {
+				int target = dfa.next(state, cls);
+
+				if (target != LexDfa.DEAD && block[target] != LexDfa.DEAD && order[block[target]] == LexDfa.DEAD) {
+					order[block[target]] = queue.size();
+					queue.add(block[target]);
+				}
+			}
+		}
+
+		// starting state is kept even if it accepts nothing
+		int m = Math.max(1, queue.size());
+		int[] transitions = new int[m * k];
+		int[] accepts = new int[m];
+		Arrays.fill(transitions, LexDfa.DEAD);
+		Arrays.fill(accepts, -1);
+
+		for (int i = 0; i < queue.size(); i++) {
+			int state = representative[queue.get(i)];
+			accepts[i] = dfa.acceptedRule(state);
+
+			for (int cls = 0; cls < k; cls++) {
+				int target = dfa.next(state, cls);
+
+				if (target != LexDfa.DEAD && block[target] != LexDfa.DEAD) {
+					transitions[i * k + cls] = order[block[target]];
+				}
+			}
+		}
+
+		return mergeClasses(dfa, m, transitions, accepts);
+	}
+
+	/**
+	 * Finds the rules that win in some state of the automaton. Any other rule never matches: every string it
+	 * accepts is accepted by an earlier rule too, ie. its language is included in the union of the languages of
+	 * the earlier rules.
+	 *
+	 * @param dfa Determinized automaton of all the rules of a lexer state.
+	 * @return Indices of the rules accepted by some state.
+	 */
+	public static BitSet acceptedRules(LexDfa dfa) {
+		BitSet accepted = new BitSet();
+
+		for (int state = 0; state < dfa.getStateCount(); state++) {
+			if (dfa.acceptedRule(state) >= 0) {
+				accepted.set(dfa.acceptedRule(state));
+			}
+		}
+
+		return accepted;
+	}
+
+	/**
+	 * Changes the indices of the accepted rules, eg. once the rules that never match are removed.
+	 *
+	 * @param dfa Automaton.
+	 * @param rules Mappings from the old index of every accepted rule to the new one.
+	 * @return Automaton with the same states and transitions, accepting the rules by their new indices.
+	 */
+	public static LexDfa retag(LexDfa dfa, int[] rules) {
+		int n = dfa.getStateCount();
+		int k = dfa.getClassCount();
+		int[] transitions = new int[n * k];
+		int[] accepts = new int[n];
+
+		for (int state = 0; state < n; state++) {
+			accepts[state] = dfa.acceptedRule(state) < 0 ? -1 : rules[dfa.acceptedRule(state)];
+
+			for (int cls = 0; cls < k; cls++) {
+				transitions[state * k + cls] = dfa.next(state, cls);
+			}
+		}
+
+		return withTables(dfa, transitions, accepts);
+	}
+
+	/**
+	 * Renumbers the states of the automaton by the profile, so that the hot states and their usual successors
+	 * are next to each other in the transition table, and the hot states come first.<br>
+	 *
+	 * States are laid out in chains: starting from the starting state, the next state is the unplaced successor
+	 * the last placed state most often moved to. Once the chain can't go on, a new one starts at the unplaced state
+	 * visited most often, and the states never visited come last, in their own order. The starting state stays
+	 * <code>0</code>, and the alphabet is not changed.
+	 *
+	 * @param dfa Automaton to be renumbered.
+	 * @param profile Profile recorded on the automaton.
+	 * @return Automaton accepting the same rules, with the states renumbered.
+	 */
+	public static LexDfa renumber(LexDfa dfa, DfaProfile profile) {
+		int n = dfa.getStateCount();
+		int k = dfa.getClassCount();
+		int[] order = new int[n];
+		int[] number = new int[n];
+		Arrays.fill(number, LexDfa.DEAD);
+
+		// transitions from the last placed state, by the target state
+		long[] weights = new long[n];
+		int size = 0;
+		int last = LexDfa.START;
+		order[size++] = last;
+		number[last] = 0;
+
+		while (size < n) {
+			int next = LexDfa.DEAD;
+			long best = 0;
+
+			for (int cls = 0; cls < k; cls++) {
+				int target = dfa.next(last, cls);
+				if (target != LexDfa.DEAD && number[target] == LexDfa.DEAD) {
+					weights[target] += profile.getTransitions(last, cls);
+				}
+			}
+
+			for (int cls = 0; cls < k; cls++) {
+				int target = dfa.next(last, cls);
+				if (target != LexDfa.DEAD && weights[target] > 0) {
+					if (weights[target] > best) {
+						best = weights[target];
+						next = target;
+					}
+					weights[target] = 0;
+				}
+			}
+
+			for (int state = 0; next == LexDfa.DEAD && state < n; state++) {
+				if (number[state] == LexDfa.DEAD && profile.getVisits(state) > best) {
+					best = profile.getVisits(state);
+					next = state;
+				}
+			}
+
+			for (int state = 0; next == LexDfa.DEAD && state < n; state++) {
+				if (number[state] == LexDfa.DEAD) {
+					next = state;
+				}
+			}
+
+			number[next] = size;
+			order[size++] = next;
+			last = next;
+		}
+
+		int[] transitions = new int[n * k];
+		int[] accepts = new int[n];
+
+		for (int i = 0; i < n; i++) {
+			int state = order[i];
+			accepts[i] = dfa.acceptedRule(state);
+
+			for (int cls = 0; cls < k; cls++) {
+				int target = dfa.next(state, cls);
+				transitions[i * k + cls] = target == LexDfa.DEAD ? LexDfa.DEAD : number[target];
+			}
+		}
+
+		return withTables(dfa, transitions, accepts);
+	}
+
+	/**
+	 * Creates the automaton with the alphabet of the given one, and the new tables.
+	 *
+	 * @param dfa Automaton whose alphabet is kept.
+	 * @param transitions Transition table over the same alphabet classes.
+	 * @param accepts Accepted rules.
+	 * @return New automaton.
+	 */
+	private static LexDfa withTables(LexDfa dfa, int[] transitions, int[] accepts) {
+		int[] bounds = new int[dfa.getIntervalCount()];
+		int[] classes = new int[bounds.length];
+
+		for (int idx = 0; idx < bounds.length; idx++) {
+			bounds[idx] = dfa.getIntervalStart(idx);
+			classes[idx] = dfa.getIntervalClass(idx);
+		}
+
+		return new LexDfa(bounds, classes, dfa.getClassCount(), transitions, accepts);
+	}
+
+	/**
+	 * Merges the alphabet classes that have identical columns in the transition table,
+	 * and joins the neighbouring intervals that end up in the same class.
+	 *
+	 * @param dfa Original automaton, used for its alphabet intervals.
+	 * @param m Number of states.
+	 * @param transitions Transition table over the original classes.
+	 * @param accepts Accepted rules.
+	 * @return Automaton with merged alphabet classes.
+	 */
+	private static LexDfa mergeClasses(LexDfa dfa, int m, int[] transitions, int[] accepts) {
+		int k = dfa.getClassCount();
+		int[] remap = new int[k];
+		Map<IntArrayKey, Integer> ids = new HashMap<>();
+
+		for (int cls = 0; cls < k; cls++) {
+			int[] column = new int[m];
+			boolean dead = true;
+
+			for (int state = 0; state < m; state++) {
+				column[state] = transitions[state * k + cls];
+				dead &= column[state] == LexDfa.DEAD;
+			}
+
+			remap[cls] = dead ? -1 : blockId(ids, column);
+		}
+		int classCount = ids.size();
+
+		int[] merged = new int[m * classCount];
+
+		for (int state = 0; state < m; state++) {
+			for (int cls = 0; cls < k; cls++) {
+				if (remap[cls] >= 0) {
+					merged[state * classCount + remap[cls]] = transitions[state * k + cls];
+				}
+			}
+		}
+
+		List<Integer> bounds = new ArrayList<>();
+		List<Integer> classes = new ArrayList<>();
+
+		for (int idx = 0, len = dfa.getIntervalCount(); idx < len; idx++) {
+			int cls = dfa.getIntervalClass(idx) < 0 ? -1 : remap[dfa.getIntervalClass(idx)];
+
+			if (classes.isEmpty() || classes.get(classes.size() - 1) != cls) {
+				bounds.add(dfa.getIntervalStart(idx));
+				classes.add(cls);
+			}
+		}
+
+		return new LexDfa(toArray(bounds), toArray(classes), classCount, merged, accepts);
+	}
+
+	/**
+	 * Finds the states from which some accepting state can be reached.
+	 *
+	 * @param dfa Automaton of interest.
+	 * @return For every state, whether or not it's productive.
+	 */
+	private static boolean[] productiveStates(LexDfa dfa) {
+		int n = dfa.getStateCount();
+		int k = dfa.getClassCount();
+
+		// reverse edges in compressed form: sources of state t are in sources[offsets[t]..offsets[t+1])
+		int[] offsets = new int[n + 1];
+
+		for (int state = 0; state < n; state++) {
+			for (int cls = 0; cls < k; cls++) {
+				int target = dfa.next(state, cls);
+
+				if (target != LexDfa.DEAD) {
+					offsets[target + 1] ++;
+				}
+			}
+		}
+
+		for (int state = 0; state < n; state++) {
+			offsets[state + 1] += offsets[state];
+		}
+
+		int[] sources = new int[offsets[n]];
+		int[] fill = Arrays.copyOf(offsets, n);
+
+		for (int state = 0; state < n; state++) {
+			for (int cls = 0; cls < k; cls++) {
+				int target = dfa.next(state, cls);
+
+				if (target != LexDfa.DEAD) {
+					sources[fill[target] ++] = state;
+				}
+			}
+		}
+
+		boolean[] productive = new boolean[n];
+		Deque<Integer> stack = new ArrayDeque<>();
+
+		for (int state = 0; state < n; state++) {
+			if (dfa.acceptedRule(state) >= 0) {
+				productive[state] = true;
+				stack.push(state);
+			}
+		}
+
+		while (!stack.isEmpty()) {
+			int state = stack.pop();
+
+			for (int i = offsets[state]; i < offsets[state + 1]; i++) {
+				if (!productive[sources[i]]) {
+					productive[sources[i]] = true;
+					stack.push(sources[i]);
+				}
+			}
+		}
+
+		return productive;
+	}
+
+	/**
+	 * Extends the given set of states with all the states reachable through the epsilon transitions.
+	 *
+	 * @param merged Merged automaton containing all the transitions.
+	 * @param set Set of states to be extended.
+	 */
+	static void closure(LexAutomatonMerged merged, BitSet set) {
+		Deque<Integer> stack = new ArrayDeque<>();
+
+		for (int state = set.nextSetBit(0); state >= 0; state = set.nextSetBit(state + 1)) {
+			stack.push(state);
+		}
+
+		while (!stack.isEmpty()) {
+			for (int target : merged.getEpsilonStates(stack.pop())) {
+				if (!set.get(target)) {
+					set.set(target);
+					stack.push(target);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Collects the bounds of all the transitions of the given states.<br>
+	 *
+	 * A symbol transition on <code>c</code> contributes the bounds <code>c</code> and <code>c + 1</code>, and
+	 * every range <code>[low, high]</code> of a character class transition the bounds <code>low</code> and
+	 * <code>high + 1</code>. Bounds <code>0</code> and {@link LexDfa#SYMBOL_LIMIT} are always included.
+	 *
+	 * @param merged Merged automaton containing all the transitions.
+	 * @param states States of interest.
+	 * @return Sorted bounds of the elementary intervals.
+	 */
+	static int[] collectBounds(LexAutomatonMerged merged, List<Integer> states) {
+		SortedSet<Integer> bounds = new TreeSet<>();
+		bounds.add(0);
+		bounds.add(LexDfa.SYMBOL_LIMIT);
+
+		for (int state : states) {
+			for (int symbol : merged.getNormalStates(state).keySet()) {
+				bounds.add(symbol);
+				bounds.add(symbol + 1);
+			}
+
+			for (CharClass charClass : merged.getClassStates(state).keySet()) {
+				for (int range = 0; range < charClass.getRangeCount(); range++) {
+					bounds.add(charClass.getLow(range));
+					bounds.add(charClass.getHigh(range) + 1);
+				}
+			}
+		}
+
+		return toArray(new ArrayList<>(bounds));
+	}
+
+	/**
+	 * Assigns the alphabet classes to the elementary intervals: intervals taken by the same set of transitions
+	 * of the given states get the same class, numbered in order of their first interval, and the intervals no
+	 * transition takes get <code>-1</code>.
+	 *
+	 * @param states States of interest.
+	 * @param bounds Bounds of the elementary intervals.
+	 * @param intervalClass Array the class of every elementary interval is stored to.
+	 * @return Number of the classes.
+	 */
+	private int classify(List<Integer> states, int[] bounds, int[] intervalClass) {
+		BitSet[] takenBy = new BitSet[intervalClass.length];
+		int transition = 0;
+
+		for (int state : states) {
+			for (int symbol : merged.getNormalStates(state).keySet()) {
+				take(takenBy, interval(bounds, symbol), interval(bounds, symbol), transition ++);
+			}
+
+			for (CharClass charClass : merged.getClassStates(state).keySet()) {
+				for (int range = 0; range < charClass.getRangeCount(); range++) {
+					take(takenBy, interval(bounds, charClass.getLow(range)), interval(bounds, charClass.getHigh(range)),
+							transition);
+				}
+				transition ++;
+			}
+		}
+
+		Map<BitSet, Integer> ids = new HashMap<>();
+
+		for (int idx = 0; idx < takenBy.length; idx++) {
+			intervalClass[idx] = takenBy[idx] == null ? -1 : ids.computeIfAbsent(takenBy[idx], set -> ids.size());
+		}
+
+		return ids.size();
+	}
+
+	/**
+	 * Marks the elementary intervals as taken by the transition.
+	 *
+	 * @param takenBy Interval -> transitions taking it.
+	 * @param first First interval.
+	 * @param last Last interval, inclusive.
+	 * @param transition Index of the transition.
+	 */
+	private static void take(BitSet[] takenBy, int first, int last, int transition) {
+		for (int idx = first; idx <= last; idx++) {
+			if (takenBy[idx] == null) {
+				takenBy[idx] = new BitSet();
+			}
+			takenBy[idx].set(transition);
+		}
+	}
+
+	/**
+	 * Finds the states reachable from the given set.
+	 *
+	 * @param merged Merged automaton containing all the transitions.
+	 * @param start Starting set of states.
+	 * @return Reachable states, including the starting ones.
+	 */
+	static List<Integer> reachable(LexAutomatonMerged merged, BitSet start) {
+		List<Integer> states = new ArrayList<>();
+		BitSet visited = (BitSet) start.clone();
+		Deque<Integer> stack = new ArrayDeque<>();
+
+		for (int state = start.nextSetBit(0); state >= 0; state = start.nextSetBit(state + 1)) {
+			stack.push(state);
+		}
+
+		while (!stack.isEmpty()) {
+			int state = stack.pop();
+			states.add(state);
+			List<Integer> targets = new ArrayList<>(merged.getEpsilonStates(state));
+			targets.addAll(merged.getNormalStates(state).values());
+			targets.addAll(merged.getClassStates(state).values());
+
+			for (int target : targets) {
+				if (!visited.get(target)) {
+					visited.set(target);
+					stack.push(target);
+				}
+			}
+		}
+
+		return states;
+	}
+
+	/**
+	 * Finds the elementary interval containing the symbol.
+	 *
+	 * @param bounds Bounds of the elementary intervals.
+	 * @param symbol Symbol of interest.
+	 * @return Index of the interval.
+	 */
+	static int interval(int[] bounds, int symbol) {
+		int idx = Arrays.binarySearch(bounds, symbol);
+		return idx >= 0 ? idx : -idx - 2;
+	}
+
+	/**
+	 * Gets the id of the block with the given signature, assigning the next free id if it's new.
+	 *
+	 * @param ids Ids of the signatures seen so far.
+	 * @param signature Signature of the block.
+	 * @return Id of the block.
+	 */
+	private static int blockId(Map<IntArrayKey, Integer> ids, int[] signature) {
+		IntArrayKey key = new IntArrayKey(signature);
+		Integer id = ids.get(key);
+
+		if (id == null) {
+			id = ids.size();
+			ids.put(key, id);
+		}
+
+		return id;
+	}
+
+	/**
+	 * Converts the list of integers to an array.
+	 *
+	 * @param list List of integers.
+	 * @return Array with the same elements.
+	 */
+	static int[] toArray(List<Integer> list) {
+		return list.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * Wrapper of the <code>int[]</code> that can be used as a hash key.
+	 */
+	private static final class IntArrayKey {
+
+		private final int[] array;
+
+		private final int hash;
+
+		IntArrayKey(int[] array) {
+			this.array = array;
+			this.hash = Arrays.hashCode(array);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof IntArrayKey && Arrays.equals(array, ((IntArrayKey) obj).array);
+		}
+	}
+}
@@ -0,0 +1,400 @@
+package hr.fer.zemris.ppj.compiler.lexical.automata;
+
+import java.nio.IntBuffer;
+import java.util.Objects;
+
+/**
+ * Nondeterministic finite automaton that matches all the lexical rules of a single
+ * lexer state at once, simulated without the subset construction.<br>
+ *
+ * Symbols are mapped to the alphabet classes in the same way as for the {@link LexDfa}. The automaton is
+ * stored by its <b>positions</b>: the transitions on a symbol or a character class of the rules' automatons. Every
+ * position has a label, the set of alphabet classes it can be taken on, stored as a bitmap of
+ * <code>words = (classCount + 31) / 32</code> integers. Epsilon transitions are gone: for every position, the
+ * epsilon closure of its target is precomputed as the positions that can be taken next, together with the first
+ * rule whose final state is in that closure. Closure of the starting states of all the rules is stored after
+ * the closures of the positions, at index <code>positionCount</code>. Classes a token can start with are the labels
+ * of the positions in that closure.<br>
+ *
+ * The automaton is simulated by a {@link Matcher}, which tracks the set of current positions.
+ * Tables are held in {@link IntBuffer}s, so that the automaton can be used directly from a memory mapped artifact.
+ *
+ * @author fiilip
+ *
+ */
+public class LexNfa {
+
+	/**
+	 * Alphabet classes of the symbols.
+	 */
+	private final Alphabet alphabet;
+
+	/**
+	 * Number of positions.
+	 */
+	private final int positionCount;
+
+	/**
+	 * Number of the label words of every position.
+	 */
+	private final int words;
+
+	/**
+	 * position * words + class / 32 -> bits of the classes the position is taken on
+	 */
+	private final IntBuffer labels;
+
+	/**
+	 * Closure of the position <code>p</code> is <code>closures[closureOffsets[p]..closureOffsets[p+1])</code>
+	 */
+	private final IntBuffer closureOffsets;
+
+	/**
+	 * Positions of all the closures, one after another.
+	 */
+	private final IntBuffer closures;
+
+	/**
+	 * closure -> index of the first rule accepted in it, or <code>-1</code>
+	 */
+	private final IntBuffer closureRules;
+
+	/**
+	 * Creates a new instance of {@link LexNfa}.
+	 *
+	 * @param bounds Starting symbols of the alphabet intervals.
+	 * @param classes Alphabet class of every interval.
+	 * @param classCount Number of alphabet classes.
+	 * @param labels Label bitmaps of the positions.
+	 * @param closureOffsets Offsets of the closures.
+	 * @param closures Positions of the closures.
+	 * @param closureRules Accepted rule of every closure.
+	 */
+	public LexNfa(int[] bounds, int[] classes, int classCount, int[] labels, int[] closureOffsets,
+			int[] closures, int[] closureRules) {
+		this(IntBuffer.wrap(bounds), IntBuffer.wrap(classes), classCount,
+				IntBuffer.wrap(starts(classCount, labels, closureOffsets, closures)), IntBuffer.wrap(labels),
+				IntBuffer.wrap(closureOffsets), IntBuffer.wrap(closures), IntBuffer.wrap(closureRules));
+	}
+
+	/**
+	 * Creates a new instance of {@link LexNfa} over the given tables. Tables are used from their
+	 * absolute index <code>0</code> up to their limit, and are never modified.
+	 *
+	 * @param bounds Starting symbols of the alphabet intervals.
+	 * @param classes Alphabet class of every interval.
+	 * @param classCount Number of alphabet classes.
+	 * @param starts Bitmap of the classes a token can start with.
+	 * @param labels Label bitmaps of the positions.
+	 * @param closureOffsets Offsets of the closures.
+	 * @param closures Positions of the closures.
+	 * @param closureRules Accepted rule of every closure.
+	 */
+	public LexNfa(IntBuffer bounds, IntBuffer classes, int classCount, IntBuffer starts, IntBuffer labels,
+			IntBuffer closureOffsets, IntBuffer closures, IntBuffer closureRules) {
+		this.alphabet = new Alphabet(bounds, classes, classCount, starts);
+		this.labels = Objects.requireNonNull(labels);
+		this.closureOffsets = Objects.requireNonNull(closureOffsets);
+		this.closures = Objects.requireNonNull(closures);
+		this.closureRules = Objects.requireNonNull(closureRules);
+		this.positionCount = closureRules.limit() - 1;
+		this.words = wordCount(classCount);
+
+		if (positionCount < 0 || labels.limit() != positionCount * words || closureOffsets.limit() != positionCount + 2
+				|| closureOffsets.get(positionCount + 1) != closures.limit()) {
+			throw new IllegalArgumentException("Inconsistent sizes of the automaton tables.");
+		}
+	}
+
+	/**
+	 * Gets the number of label words of every position.
+	 *
+	 * @param classCount Number of alphabet classes.
+	 * @return Number of label words.
+	 */
+	public static int wordCount(int classCount) {
+		return (classCount + Integer.SIZE - 1) / Integer.SIZE;
+	}
+
+	/**
+	 * Computes the bitmap of the classes a token can start with, the union of the labels of the positions
+	 * in the starting closure.
+	 *
+	 * @param classCount Number of alphabet classes.
+	 * @param labels Label bitmaps of the positions.
+	 * @param closureOffsets Offsets of the closures.
+	 * @param closures Positions of the closures.
+	 * @return Bitmap of the classes a token can start with.
+	 */
+	private static int[] starts(int classCount, int[] labels, int[] closureOffsets, int[] closures) {
+		int words = wordCount(classCount);
+		int[] starts = new int[words];
+		int start = closureOffsets.length - 2;
+
+		for (int idx = closureOffsets[start]; idx < closureOffsets[start + 1]; idx++) {
+			for (int word = 0; word < words; word++) {
+				starts[word] |= labels[closures[idx] * words + word];
+			}
+		}
+
+		return starts;
+	}
+
+	/**
+	 * Tests whether a token can start with a symbol of the given alphabet class, ie. whether a position
+	 * of the starting closure is taken on it.
+	 *
+	 * @param cls Alphabet class of the symbol, or <code>-1</code>.
+	 * @return <code>True</code> if some token can start with the class, <code>false</code> otherwise.
+	 */
+	public boolean canStart(int cls) {
+		return alphabet.canStart(cls);
+	}
+
+	/**
+	 * Gets the word of the bitmap of the classes a token can start with.
+	 *
+	 * @param word Index of the word, up to the {@link #wordCount(int)}.
+	 * @return Bits of the alphabet classes <code>32 * word</code> to <code>32 * word + 31</code>.
+	 */
+	public int getStartWord(int word) {
+		return alphabet.getStartWord(word);
+	}
+
+	/**
+	 * Creates a new matcher of this automaton. Matchers are not thread safe, but are reusable
+	 * for any number of tokens.
+	 *
+	 * @return New matcher.
+	 */
+	public Matcher matcher() {
+		return new Matcher();
+	}
+
+	/**
+	 * Gets the alphabet class of the given <code>symbol</code>.
+	 *
+	 * @param symbol Input symbol, a Unicode code point.
+	 * @return Alphabet class of the symbol, or <code>-1</code> if there is no transition for it.
+	 */
+	public int classOf(int symbol) {
+		return alphabet.classOf(symbol);
+	}
+
+	/**
+	 * Tests whether the position is taken on the given alphabet class.
+	 *
+	 * @param position Position of interest.
+	 * @param cls Alphabet class.
+	 * @return <code>True</code> if the position is taken, <code>false</code> otherwise.
+	 */
+	public boolean isTaken(int position, int cls) {
+		return (labels.get(position * words + (cls >>> 5)) & (1 << cls)) != 0;
+	}
+
+	/**
+	 * Gets the first index of the closure in the closure table.
+	 *
+	 * @param closure Position whose target's closure is of interest, or <code>positionCount</code> for the start.
+	 * @return Inclusive start of the closure.
+	 */
+	public int getClosureStart(int closure) {
+		return closureOffsets.get(closure);
+	}
+
+	/**
+	 * Gets the exclusive end of the closure in the closure table.
+	 *
+	 * @param closure Position whose target's closure is of interest, or <code>positionCount</code> for the start.
+	 * @return Exclusive end of the closure.
+	 */
+	public int getClosureEnd(int closure) {
+		return closureOffsets.get(closure + 1);
+	}
+
+	/**
+	 * Gets the position stored at the given index of the closure table.
+	 *
+	 * @param idx Index in the closure table.
+	 * @return Position.
+	 */
+	public int getClosurePosition(int idx) {
+		return closures.get(idx);
+	}
+
+	/**
+	 * Gets the first rule whose final state is in the closure.
+	 *
+	 * @param closure Position whose target's closure is of interest, or <code>positionCount</code> for the start.
+	 * @return Index of the accepted rule, or <code>-1</code>.
+	 */
+	public int getClosureRule(int closure) {
+		return closureRules.get(closure);
+	}
+
+	/**
+	 * Gets the number of positions of this automaton.
+	 *
+	 * @return Number of positions.
+	 */
+	public int getPositionCount() {
+		return positionCount;
+	}
+
+	/**
+	 * Gets the total number of positions in all the closures.
+	 *
+	 * @return Size of the closure table.
+	 */
+	public int getClosureLength() {
+		return closures.limit();
+	}
+
+	/**
+	 * Gets the label word of the position.
+	 *
+	 * @param position Position of interest.
+	 * @param word Index of the word.
+	 * @return Bits of the alphabet classes <code>32 * word</code> to <code>32 * word + 31</code>.
+	 */
+	public int getLabelWord(int position, int word) {
+		return labels.get(position * words + word);
+	}
+
+	/**
+	 * Gets the number of alphabet classes of this automaton.
+	 *
+	 * @return Number of alphabet classes.
+	 */
+	public int getClassCount() {
+		return alphabet.getClassCount();
+	}
+
+	/**
+	 * Gets the number of alphabet intervals of this automaton.
+	 *
+	 * @return Number of alphabet intervals.
+	 */
+	public int getIntervalCount() {
+		return alphabet.getIntervalCount();
+	}
+
+	/**
+	 * Gets the starting symbol of the alphabet interval <code>idx</code>.
+	 *
+	 * @param idx Index of the interval.
+	 * @return Starting symbol of the interval.
+	 */
+	public int getIntervalStart(int idx) {
+		return alphabet.getIntervalStart(idx);
+	}
+
+	/**
+	 * Gets the alphabet class of the alphabet interval <code>idx</code>.
+	 *
+	 * @param idx Index of the interval.
+	 * @return Alphabet class of the interval, or <code>-1</code>.
+	 */
+	public int getIntervalClass(int idx) {
+		return alphabet.getIntervalClass(idx);
+	}
+
+	/**
+	 * Gets the size of the tables of this automaton in bytes.
+	 *
+	 * @return Size of the tables in bytes.
+	 */
+	public int getTableBytes() {
+		return alphabet.getTableBytes()
+				+ Integer.BYTES * (labels.limit() + closureOffsets.limit() + closures.limit() + closureRules.limit());
+	}
+
+	/**
+	 * Simulation of the automaton over a single token.<br>
+	 *
+	 * Current positions are held in one of the two preallocated {@link SparseSet}s, and the positions
+	 * of the next step are collected into the other one, after which the two are swapped. Nothing is allocated
+	 * while stepping.
+	 */
+	public final class Matcher {
+
+		/**
+		 * Positions that can be taken on the next symbol.
+		 */
+		private SparseSet current = new SparseSet(positionCount);
+
+		/**
+		 * Positions being collected for the step after the next one.
+		 */
+		private SparseSet next = new SparseSet(positionCount);
+
+		/**
+		 * Creates a new {@link Matcher}, use {@link LexNfa#matcher()}.
+		 */
+		private Matcher() {
+		}
+
+		/**
+		 * Resets the simulation to the starting states of all the rules.
+		 */
+		public void start() {
+			current.clear();
+			addClosure(current, positionCount);
+		}
+
+		/**
+		 * Takes all the current positions labelled with the given class.
+		 *
+		 * @param cls Alphabet class of the symbol, or <code>-1</code>.
+		 * @return Index of the first rule accepted after the step, or <code>-1</code>.
+		 */
+		public int step(int cls) {
+			next.clear();
+			int rule = -1;
+
+			if (cls >= 0) {
+				int word = cls >>> 5;
+				int bit = 1 << cls;
+
+				for (int i = 0, size = current.size(); i < size; i++) {
+					int position = current.get(i);
+
+					if ((labels.get(position * words + word) & bit) != 0) {
+						addClosure(next, position);
+						int accepted = closureRules.get(position);
+
+						if (accepted >= 0 && (rule < 0 || accepted < rule)) {
+							rule = accepted;
+						}
+					}
+				}
+			}
+
+			SparseSet swap = current;
+			current = next;
+			next = swap;
+			return rule;
+		}
+
+		/**
+		 * Tests whether no more positions can be taken, ie. no rule can be accepted anymore.
+		 *
+		 * @return <code>True</code> if the simulation is dead, <code>false</code> otherwise.
+		 */
+		public boolean isDead() {
+			return current.size() == 0;
+		}
+
+		/**
+		 * Adds the positions of the closure to the set.
+		 *
+		 * @param set Set of positions.
+		 * @param closure Index of the closure.
+		 */
+		private void addClosure(SparseSet set, int closure) {
+			for (int idx = closureOffsets.get(closure), end = closureOffsets.get(closure + 1); idx < end; idx++) {
+				set.add(closures.get(idx));
+			}
+		}
+	}
+}
@@ -0,0 +1,202 @@
+package hr.fer.zemris.ppj.compiler.lexical.automata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import hr.fer.zemris.ppj.compiler.lexical.regex.CharClass;
+
+/**
+ * Builds the {@link LexNfa} from the {@link LexAutomaton}s of a single lexer state.<br>
+ *
+ * Every symbol and character class transition reachable from the starting states of the rules becomes a position.
+ * Symbol domain is split into the elementary intervals by the bounds of those transitions, and the intervals
+ * taken by exactly the same positions share an alphabet class. Epsilon closures are computed once here, so that
+ * the simulation never follows an epsilon transition.
+ *
+ * @author fiilip
+ *
+ */
+public class LexNfaBuilder {
+
+	/**
+	 * Merged automaton containing all the transitions.
+	 */
+	private final LexAutomatonMerged merged;
+
+	/**
+	 * Automatons of the rules, in order of the rule definitions.
+	 */
+	private final List<LexAutomaton> automatons;
+
+	/**
+	 * Creates a new {@link LexNfaBuilder}.
+	 *
+	 * @param merged Merged automaton containing all the transitions.
+	 * @param automatons Automatons of the rules, in order of the rule definitions.
+	 */
+	public LexNfaBuilder(LexAutomatonMerged merged, List<LexAutomaton> automatons) {
+		this.merged = Objects.requireNonNull(merged);
+		this.automatons = Objects.requireNonNull(automatons);
+	}
+
+	/**
+	 * Builds the automaton.
+	 *
+	 * @return Automaton simulating all the rules together.
+	 */
+	public LexNfa build() {
+		// final state -> index of the rule; earlier rules take precedence
+		int[] ruleOf = new int[merged.getStateCount()];
+		Arrays.fill(ruleOf, -1);
+
+		BitSet start = new BitSet();
+
+		for (int i = automatons.size() - 1; i >= 0; i--) {
+			LexAutomaton automaton = automatons.get(i);
+			start.set(automaton.getLeftState());
+			ruleOf[automaton.getRightState()] = i;
+		}
+
+		List<Integer> reachable = LexDfaBuilder.reachable(merged, start);
+		reachable.sort(null);
+
+		// positions in order of their source states: source, target, and the label as inclusive ranges
+		List<Integer> sources = new ArrayList<>();
+		List<Integer> targets = new ArrayList<>();
+		List<int[]> labels = new ArrayList<>();
+
+		for (int state : reachable) {
+			List<int[]> transitions = new ArrayList<>();
+
+			for (Map.Entry<Integer, Integer> transition : merged.getNormalStates(state).entrySet()) {
+				transitions.add(new int[] { transition.getValue(), transition.getKey(), transition.getKey() });
+			}
+
+			for (Map.Entry<CharClass, Integer> transition : merged.getClassStates(state).entrySet()) {
+				CharClass charClass = transition.getKey();
+				int[] transitionRanges = new int[1 + 2 * charClass.getRangeCount()];
+				transitionRanges[0] = transition.getValue();
+
+				for (int range = 0; range < charClass.getRangeCount(); range++) {
+					transitionRanges[1 + 2 * range] = charClass.getLow(range);
+					transitionRanges[2 + 2 * range] = charClass.getHigh(range);
+				}
+				transitions.add(transitionRanges);
+			}
+
+			// deterministic order, independent of the maps: by target, then by the first symbol
+			transitions.sort((t1, t2) -> t1[0] != t2[0] ? Integer.compare(t1[0], t2[0])
+					: Integer.compare(t1.length > 1 ? t1[1] : -1, t2.length > 1 ? t2[1] : -1));
+
+			for (int[] transition : transitions) {
+				sources.add(state);
+				targets.add(transition[0]);
+				labels.add(Arrays.copyOfRange(transition, 1, transition.length));
+			}
+		}
+
+		int positionCount = sources.size();
+		int[] positionsFrom = new int[merged.getStateCount()];
+		int[] positionsTo = new int[merged.getStateCount()];
+
+		for (int p = positionCount - 1; p >= 0; p--) {
+			positionsFrom[sources.get(p)] = p;
+		}
+
+		for (int p = 0; p < positionCount; p++) {
+			positionsTo[sources.get(p)] = p + 1;
+		}
+
+		// alphabet: elementary intervals, and a class for every distinct set of positions taking them
+		int[] bounds = LexDfaBuilder.collectBounds(merged, reachable);
+		BitSet[] takenBy = new BitSet[bounds.length - 1];
+
+		for (int p = 0; p < positionCount; p++) {
+			int[] label = labels.get(p);
+
+			for (int range = 0; range < label.length; range += 2) {
+				int last = LexDfaBuilder.interval(bounds, label[range + 1]);
+
+				for (int idx = LexDfaBuilder.interval(bounds, label[range]); idx <= last; idx++) {
+					if (takenBy[idx] == null) {
+						takenBy[idx] = new BitSet();
+					}
+					takenBy[idx].set(p);
+				}
+			}
+		}
+
+		Map<BitSet, Integer> ids = new HashMap<>();
+		List<BitSet> columns = new ArrayList<>();
+		List<Integer> starts = new ArrayList<>();
+		List<Integer> classes = new ArrayList<>();
+
+		for (int idx = 0; idx < takenBy.length; idx++) {
+			int cls = -1;
+
+			if (takenBy[idx] != null) {
+				cls = ids.computeIfAbsent(takenBy[idx], column -> {
+					columns.add(column);
+					return columns.size() - 1;
+				});
+			}
+
+			if (classes.isEmpty() || classes.get(classes.size() - 1) != cls) {
+				starts.add(bounds[idx]);
+				classes.add(cls);
+			}
+		}
+
+		int classCount = columns.size();
+		int words = LexNfa.wordCount(classCount);
+		int[] labelWords = new int[positionCount * words];
+
+		for (int cls = 0; cls < classCount; cls++) {
+			BitSet column = columns.get(cls);
+
+			for (int p = column.nextSetBit(0); p >= 0; p = column.nextSetBit(p + 1)) {
+				labelWords[p * words + (cls >>> 5)] |= 1 << cls;
+			}
+		}
+
+		// closures of the targets, and of the starting states at the end
+		int[] closureOffsets = new int[positionCount + 2];
+		int[] closureRules = new int[positionCount + 1];
+		List<Integer> closures = new ArrayList<>();
+
+		for (int closure = 0; closure <= positionCount; closure++) {
+			BitSet states;
+
+			if (closure < positionCount) {
+				states = new BitSet();
+				states.set(targets.get(closure));
+			} else {
+				states = (BitSet) start.clone();
+			}
+
+			LexDfaBuilder.closure(merged, states);
+			int rule = -1;
+
+			for (int state = states.nextSetBit(0); state >= 0; state = states.nextSetBit(state + 1)) {
+				if (ruleOf[state] >= 0 && (rule < 0 || ruleOf[state] < rule)) {
+					rule = ruleOf[state];
+				}
+
+				for (int p = positionsFrom[state]; p < positionsTo[state]; p++) {
+					closures.add(p);
+				}
+			}
+
+			closureRules[closure] = rule;
+			closureOffsets[closure + 1] = closures.size();
+		}
+
+		return new LexNfa(LexDfaBuilder.toArray(starts), LexDfaBuilder.toArray(classes), classCount, labelWords,
+				closureOffsets, LexDfaBuilder.toArray(closures), closureRules);
+	}
+}
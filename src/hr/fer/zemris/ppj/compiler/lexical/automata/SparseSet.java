@@ -0,0 +1,88 @@
+package hr.fer.zemris.ppj.compiler.lexical.automata;
+
+/**
+ * Set of integers from <code>0</code> up to a fixed capacity, with constant time insertion,
+ * lookup and clearing (<i>Briggs and Torczon</i>).<br>
+ *
+ * Members are kept densely in insertion order, and every member knows its position in the dense array.
+ * A value is a member only if the two agree, so the arrays never have to be initialized or cleared.
+ *
+ * @author fiilip
+ *
+ */
+final class SparseSet {
+
+	/**
+	 * Members, in insertion order.
+	 */
+	private final int[] dense;
+
+	/**
+	 * value -> position of the value in the dense array, if it's a member
+	 */
+	private final int[] sparse;
+
+	/**
+	 * Number of members.
+	 */
+	private int size;
+
+	/**
+	 * Creates a new, empty {@link SparseSet}.
+	 *
+	 * @param capacity Exclusive upper bound of the values.
+	 */
+	SparseSet(int capacity) {
+		this.dense = new int[capacity];
+		this.sparse = new int[capacity];
+	}
+
+	/**
+	 * Tests whether the value is a member of this set.
+	 *
+	 * @param value Value of interest.
+	 * @return <code>True</code> if the value is a member, <code>false</code> otherwise.
+	 */
+	boolean contains(int value) {
+		int idx = sparse[value];
+		return idx < size && dense[idx] == value;
+	}
+
+	/**
+	 * Adds the value to this set.
+	 *
+	 * @param value Value to be added.
+	 */
+	void add(int value) {
+		if (!contains(value)) {
+			sparse[value] = size;
+			dense[size ++] = value;
+		}
+	}
+
+	/**
+	 * Gets the member at the given position.
+	 *
+	 * @param idx Position of the member, in insertion order.
+	 * @return Member.
+	 */
+	int get(int idx) {
+		return dense[idx];
+	}
+
+	/**
+	 * Gets the number of members of this set.
+	 *
+	 * @return Number of members.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all the members of this set.
+	 */
+	void clear() {
+		size = 0;
+	}
+}
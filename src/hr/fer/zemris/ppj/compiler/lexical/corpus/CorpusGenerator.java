@@ -0,0 +1,543 @@
+package hr.fer.zemris.ppj.compiler.lexical.corpus;
+
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+
+import hr.fer.zemris.ppj.compiler.lexical.actions.EnterStateAction;
+import hr.fer.zemris.ppj.compiler.lexical.actions.GoBackAction;
+import hr.fer.zemris.ppj.compiler.lexical.actions.LexAction;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexAutomatonMerged;
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexObjects;
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexState;
+import hr.fer.zemris.ppj.compiler.lexical.input.LexicalDefinitionsParser;
+import hr.fer.zemris.ppj.compiler.util.StreamManager;
+
+/**
+ * <b>Corpus Generator</b><br>
+ *
+ * Generates the inputs of a lexical analyzer of any size, by walking the automatons built from its definitions.
+ * Same options and seed always produce the same output.<br>
+ *
+ * Supported modes:
+ * <ul>
+ * <li><code>valid</code> - sequence of the random tokens, optionally separated by the lexemes of the skipped rules.
+ * Every token is added only if the text still gets analyzed without any errors, taking into account the
+ * maximal munch and the lexer states entered.</li>
+ * <li><code>unterminated</code> - repeated block of the text that starts a match which is never completed,
+ * eg. an unclosed string or comment, which forces the analyzer to scan up to the end of the block before
+ * it can report an error. Out of the randomly generated blocks, the one making the analyzer read the most
+ * characters per character of the input is used.</li>
+ * <li><code>goback</code> - valid text favoring the long lexemes of the rules with the {@link GoBackAction}.</li>
+ * </ul>
+ *
+ * @author fiilip
+ *
+ */
+public class CorpusGenerator {
+
+	/**
+	 * Supported modes of the generator.
+	 */
+	public enum Mode {
+		VALID, UNTERMINATED, GOBACK
+	}
+
+	/**
+	 * Number of consecutive rejected tokens after which the generation is given up.
+	 */
+	private static final int MAX_REJECTED = 10_000;
+
+	/**
+	 * Number of the blocks tried in the unterminated mode.
+	 */
+	private static final int UNTERMINATED_CANDIDATES = 64;
+
+	/**
+	 * Length of the blocks evaluated in the unterminated mode.
+	 */
+	private static final int UNTERMINATED_PROBE = 1024;
+
+	/**
+	 * Program entry - point.<br>
+	 *
+	 * Supported options:
+	 * <ul>
+	 * <li><code>--definition file</code> - lexical definitions the inputs are generated for</li>
+	 * <li><code>--objects file</code> - objects generated by the <b>GLA</b> the inputs are generated for,
+	 * used if no definitions are given (default <code>lex_objects.bin</code>)</li>
+	 * <li><code>--size N[K|M]</code> - size of the output in bytes (default <code>1M</code>)</li>
+	 * <li><code>--seed N</code> - seed of the generator (default <code>0</code>)</li>
+	 * <li><code>--mix UNIT=weight,...</code> - relative frequencies of the lexical units, <code>-</code>
+	 * standing for the skipped rules (all units are equally frequent by default)</li>
+	 * <li><code>--length N</code> - mean length of the lexemes (default <code>8</code>, or <code>64</code>
+	 * in the <code>goback</code> mode)</li>
+	 * <li><code>--block N</code> - length of the repeated block in the <code>unterminated</code> mode
+	 * (default <code>4096</code>)</li>
+	 * <li><code>--mode valid|unterminated|goback</code> - kind of the generated input (default <code>valid</code>)</li>
+	 * <li><code>--out file</code> - output file (default standard output)</li>
+	 * </ul>
+	 *
+	 * @param args Command line options.
+	 * @throws IOException If the definitions or the objects can't be read, or the output can't be written.
+	 */
+	public static void main(String[] args) throws IOException {
+		String definition = null;
+		String objectsFile = StreamManager.LEX_OBJECTS;
+		String out = null;
+		long size = 1 << 20;
+		long seed = 0;
+		String mix = null;
+		Double length = null;
+		int block = 4096;
+		Mode mode = Mode.VALID;
+
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "--definition": definition = args[++i]; break;
+				case "--objects": objectsFile = args[++i]; break;
+				case "--size": size = parseSize(args[++i]); break;
+				case "--seed": seed = Long.parseLong(args[++i]); break;
+				case "--mix": mix = args[++i]; break;
+				case "--length": length = Double.parseDouble(args[++i]); break;
+				case "--block": block = Integer.parseInt(args[++i]); break;
+				case "--mode": mode = Mode.valueOf(args[++i].toUpperCase()); break;
+				case "--out": out = args[++i]; break;
+				default: throw new IllegalArgumentException(String.format("Option %s is not supported.", args[i]));
+			}
+		}
+
+		LexObjects objects = definition != null ? parse(definition) : LexObjects.read(new StreamManager().map(objectsFile));
+		CorpusGenerator generator = new CorpusGenerator(objects, mode, seed);
+		generator.setMeanLength(length != null ? length : mode == Mode.GOBACK ? 64 : 8);
+		generator.setBlockLength(block);
+
+		if (mix != null) {
+			generator.setMix(parseMix(mix));
+		}
+
+		try (Writer writer = out == null
+				? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+				: Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8)) {
+			generator.generate(writer, size);
+		}
+	}
+
+	/**
+	 * Objects of the analyzer the inputs are generated for.
+	 */
+	private final LexObjects objects;
+
+	/**
+	 * Kind of the generated input.
+	 */
+	private final Mode mode;
+
+	/**
+	 * Source of randomness.
+	 */
+	private final Random random;
+
+	/**
+	 * Simulator used for checking the generated text.
+	 */
+	private final ScanSimulator simulator;
+
+	/**
+	 * Lexer state -> walker over its automaton.
+	 */
+	private final Map<String, TokenWalker> walkers = new HashMap<>();
+
+	/**
+	 * Lexical unit -> relative frequency. Empty if all units are equally frequent.
+	 */
+	private Map<String, Double> mix = new HashMap<>();
+
+	/**
+	 * Mean length of the lexemes.
+	 */
+	private double meanLength = 8;
+
+	/**
+	 * Length of the repeated block in the unterminated mode.
+	 */
+	private int blockLength = 4096;
+
+	/**
+	 * Creates a new {@link CorpusGenerator}.
+	 *
+	 * @param objects Objects of the analyzer the inputs are generated for.
+	 * @param mode Kind of the generated input.
+	 * @param seed Seed of the generator.
+	 * @throws IllegalStateException If some lexer state has no deterministic automaton.
+	 */
+	public CorpusGenerator(LexObjects objects, Mode mode, long seed) {
+		this.objects = Objects.requireNonNull(objects);
+		this.mode = Objects.requireNonNull(mode);
+		this.random = new Random(seed);
+		this.simulator = new ScanSimulator(objects);
+
+		for (String state : objects.getStateNames()) {
+			if (!objects.getState(state).isDeterministic()) {
+				// tokens are generated by walking the deterministic automatons
+				throw new IllegalStateException(String.format(
+						"Lexer state %s has no deterministic automaton; generate the objects with --engine dfa "
+						+ "and a larger --dfa-states.", state));
+			}
+		}
+	}
+
+	/**
+	 * Sets the relative frequencies of the lexical units. Units that are not listed are not generated,
+	 * unless there is nothing else to generate in some lexer state.
+	 *
+	 * @param mix Lexical unit -> relative frequency, <code>-</code> standing for the skipped rules.
+	 */
+	public void setMix(Map<String, Double> mix) {
+		this.mix = Objects.requireNonNull(mix);
+	}
+
+	/**
+	 * Sets the mean length of the lexemes.
+	 *
+	 * @param meanLength Mean length of the lexemes.
+	 */
+	public void setMeanLength(double meanLength) {
+		this.meanLength = meanLength;
+	}
+
+	/**
+	 * Sets the length of the repeated block in the unterminated mode.
+	 *
+	 * @param blockLength Length of the block.
+	 */
+	public void setBlockLength(int blockLength) {
+		this.blockLength = blockLength;
+	}
+
+	/**
+	 * Generates the input of the given size.
+	 *
+	 * @param writer Writer the input is written to.
+	 * @param size Size of the input in <i>UTF-8</i> bytes.
+	 * @throws IOException If the input can't be written.
+	 */
+	public void generate(Writer writer, long size) throws IOException {
+		if (mode == Mode.UNTERMINATED) {
+			generateUnterminated(writer, size);
+		} else {
+			generateValid(writer, size);
+		}
+
+		writer.flush();
+	}
+
+	/**
+	 * Generates a sequence of tokens that is analyzed without errors.<br>
+	 *
+	 * Only the part of the text that can't be changed by appending more tokens is kept in memory: once
+	 * a token is matched without its scan reaching the end of the text, it is final and gets written out.
+	 *
+	 * @param writer Writer the input is written to.
+	 * @param size Size of the input in <i>UTF-8</i> bytes.
+	 * @throws IOException If the input can't be written.
+	 */
+	private void generateValid(Writer writer, long size) throws IOException {
+		StringBuilder buffer = new StringBuilder();
+		String bufferState = objects.getStartState();
+		String state = bufferState;
+		Set<String> unproductive = new HashSet<>();
+		long written = 0;
+		int rejected = 0;
+
+		while (written + utf8Length(buffer, 0, buffer.length()) < size) {
+			if (objects.getState(state) == null) {
+				System.err.println(String.format("Lexer state %s has no rules; generation stopped.", state));
+				break;
+			}
+
+			if (rejected > MAX_REJECTED) {
+				System.err.println(String.format("No token can follow the text in lexer state %s; generation stopped.",
+						state));
+				break;
+			}
+
+			int rule = pickRule(objects.getState(state), unproductive);
+			String lexeme = walker(state).walk(rule, meanLength);
+
+			if (lexeme == null) {
+				unproductive.add(state + "/" + rule);
+				rejected ++;
+				continue;
+			}
+
+			int length = buffer.length();
+
+			if (random.nextBoolean()) {
+				String separator = separator(state);
+
+				if (separator != null) {
+					buffer.append(separator);
+				}
+			}
+
+			buffer.append(lexeme);
+			ScanSimulator.Result result = simulator.lex(buffer, 0, buffer.length(), bufferState, false);
+
+			if (result.error) {
+				buffer.setLength(length);
+				rejected ++;
+				continue;
+			}
+
+			rejected = 0;
+			state = result.endState;
+
+			if (result.open > 0) {
+				writer.append(buffer, 0, result.open);
+				written += utf8Length(buffer, 0, result.open);
+				buffer.delete(0, result.open);
+				bufferState = result.openState;
+			}
+		}
+
+		writer.append(buffer);
+	}
+
+	/**
+	 * Generates a repeated block of the text that starts a match which is never completed.
+	 *
+	 * @param writer Writer the input is written to.
+	 * @param size Size of the input in <i>UTF-8</i> bytes.
+	 * @throws IOException If the input can't be written.
+	 */
+	private void generateUnterminated(Writer writer, long size) throws IOException {
+		String start = objects.getStartState();
+
+		if (objects.getState(start) == null) {
+			System.err.println(String.format("Lexer state %s has no rules; nothing to generate.", start));
+			return;
+		}
+
+		String[] best = null;
+		double bestRatio = 0;
+
+		for (int i = 0; i < UNTERMINATED_CANDIDATES; i ++) {
+			String[] candidate = walker(start).unterminated(16);
+
+			if (candidate == null) {
+				break;
+			}
+
+			String probe = block(candidate, Math.min(blockLength, UNTERMINATED_PROBE));
+			double ratio = (double) simulator.lex(probe, 0, probe.length(), start, true).scanned / probe.length();
+
+			if (ratio > bestRatio) {
+				best = candidate;
+				bestRatio = ratio;
+			}
+		}
+
+		if (best == null) {
+			System.err.println(String.format(
+					"Automaton of lexer state %s has no non accepting cycles; generating valid input instead.", start));
+			generateValid(writer, size);
+			return;
+		}
+
+		String block = block(best, blockLength);
+		long blockSize = utf8Length(block, 0, block.length());
+
+		for (long written = 0; written < size; written += blockSize) {
+			writer.write(block);
+		}
+	}
+
+	/**
+	 * Creates a block of the text by repeating the cycle after the prefix.
+	 *
+	 * @param parts Prefix and the cycle.
+	 * @param length Minimal length of the block.
+	 * @return Block of the text.
+	 */
+	private static String block(String[] parts, int length) {
+		StringBuilder block = new StringBuilder(parts[0]);
+
+		do {
+			block.append(parts[1]);
+		} while (block.length() < length);
+
+		return block.toString();
+	}
+
+	/**
+	 * Picks a random rule of the lexer state, according to the mode and the frequencies of the units.
+	 *
+	 * @param state Lexer state.
+	 * @param unproductive Rules known to never win a match, as <code>state/rule</code> keys.
+	 * @return Index of the picked rule.
+	 */
+	private int pickRule(LexState state, Set<String> unproductive) {
+		double[] weights = new double[state.getRuleCount()];
+		double total = 0;
+
+		for (int i = 0; i < weights.length; i ++) {
+			if (unproductive.contains(state.getName() + "/" + i)) {
+				continue;
+			}
+
+			if (mode == Mode.GOBACK && !has(state, i, GoBackAction.class)) {
+				continue;
+			}
+
+			weights[i] = mix.isEmpty() ? 1 : mix.getOrDefault(state.hasLexUnit(i) ? state.lexUnit(i).trim() : "-", 0.0);
+			total += weights[i];
+		}
+
+		if (total <= 0) {
+			return random.nextInt(weights.length);
+		}
+
+		double pick = random.nextDouble() * total;
+
+		for (int i = 0; i < weights.length; i ++) {
+			pick -= weights[i];
+
+			if (pick < 0) {
+				return i;
+			}
+		}
+
+		return weights.length - 1;
+	}
+
+	/**
+	 * Generates a lexeme of a randomly picked skipped rule of the lexer state that doesn't change the state.
+	 *
+	 * @param state Lexer state.
+	 * @return Generated lexeme, or <code>null</code> if there are no such rules.
+	 */
+	private String separator(String state) {
+		LexState lexState = objects.getState(state);
+		List<Integer> candidates = new ArrayList<>();
+
+		for (int i = 0; i < lexState.getRuleCount(); i ++) {
+			if (!lexState.hasLexUnit(i) && !has(lexState, i, EnterStateAction.class)
+					&& !has(lexState, i, GoBackAction.class)) {
+				candidates.add(i);
+			}
+		}
+
+		if (candidates.isEmpty()) {
+			return null;
+		}
+
+		return walker(state).walk(candidates.get(random.nextInt(candidates.size())), 1);
+	}
+
+	/**
+	 * Gets the walker over the automaton of the given lexer state.
+	 *
+	 * @param state Lexer state.
+	 * @return Walker of the state.
+	 */
+	private TokenWalker walker(String state) {
+		return walkers.computeIfAbsent(state, s -> new TokenWalker(objects.getState(s).getAutomaton(), random));
+	}
+
+	/**
+	 * Tests whether the rule has an action of the given type.
+	 *
+	 * @param state Lexer state.
+	 * @param rule Index of the rule in the state.
+	 * @param type Type of the action.
+	 * @return <code>True</code> if the rule has such action, <code>false</code> otherwise.
+	 */
+	private static boolean has(LexState state, int rule, Class<? extends LexAction> type) {
+		return state.getActions(rule).stream().anyMatch(type::isInstance);
+	}
+
+	/**
+	 * Computes the length of <code>text[from, to)</code> encoded in <i>UTF-8</i>.
+	 *
+	 * @param text Text of interest.
+	 * @param from Start of the part.
+	 * @param to End of the part.
+	 * @return Length in bytes.
+	 */
+	private static long utf8Length(CharSequence text, int from, int to) {
+		long length = 0;
+
+		for (int i = from; i < to; i ++) {
+			char c = text.charAt(i);
+			length += c < 0x80 ? 1 : c < 0x800 ? 2 : Character.isSurrogate(c) ? 2 : 3;
+		}
+
+		return length;
+	}
+
+	/**
+	 * Parses the size with the optional <code>K</code> or <code>M</code> suffix.
+	 *
+	 * @param size Size to be parsed.
+	 * @return Size in bytes.
+	 */
+	private static long parseSize(String size) {
+		String upper = size.trim().toUpperCase();
+
+		if (upper.endsWith("K")) {
+			return Long.parseLong(upper.substring(0, upper.length() - 1)) << 10;
+		} else if (upper.endsWith("M")) {
+			return Long.parseLong(upper.substring(0, upper.length() - 1)) << 20;
+		}
+
+		return Long.parseLong(upper);
+	}
+
+	/**
+	 * Parses the frequencies of the units, given as <code>UNIT=weight,...</code>.
+	 *
+	 * @param mix Frequencies to be parsed.
+	 * @return Lexical unit -> relative frequency.
+	 */
+	private static Map<String, Double> parseMix(String mix) {
+		Map<String, Double> weights = new LinkedHashMap<>();
+
+		for (String entry : mix.split(",")) {
+			String[] parts = entry.split("=");
+			weights.put(parts[0].trim(), parts.length > 1 ? Double.parseDouble(parts[1].trim()) : 1.0);
+		}
+
+		return weights;
+	}
+
+	/**
+	 * Parses the lexical definitions from the given file.
+	 *
+	 * @param filename Name of the definitions file.
+	 * @return Objects of the lexical analyzer.
+	 * @throws IOException If the file can't be read.
+	 */
+	private static LexObjects parse(String filename) throws IOException {
+		try (InputStream stream = new FileInputStream(filename)) {
+			LexicalDefinitionsParser parser = new LexicalDefinitionsParser(stream, new LexAutomatonMerged());
+			parser.parse();
+			return LexObjects.build(parser.getStartState(), parser.getStates(), parser.getAutomatonMerged());
+		}
+	}
+}
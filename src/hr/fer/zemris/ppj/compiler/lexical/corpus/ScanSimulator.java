@@ -0,0 +1,168 @@
+package hr.fer.zemris.ppj.compiler.lexical.corpus;
+
+import java.util.Objects;
+
+import hr.fer.zemris.ppj.compiler.lexical.actions.EnterStateAction;
+import hr.fer.zemris.ppj.compiler.lexical.actions.GoBackAction;
+import hr.fer.zemris.ppj.compiler.lexical.actions.LexAction;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexDfa;
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexObjects;
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexState;
+
+/**
+ * Simulates the lexical analysis of a piece of text on the {@link LexObjects}, following the
+ * same maximal munch, state change and go back rules as the lexical analyzer does.<br>
+ *
+ * Besides the outcome, it counts the characters read while scanning, which is used as a measure
+ * of the work the analyzer needs to do for the text.
+ *
+ * @author fiilip
+ *
+ */
+class ScanSimulator {
+
+	/**
+	 * Objects of the simulated analyzer.
+	 */
+	private final LexObjects objects;
+
+	/**
+	 * Creates a new {@link ScanSimulator}.
+	 *
+	 * @param objects Objects of the simulated analyzer.
+	 */
+	ScanSimulator(LexObjects objects) {
+		this.objects = Objects.requireNonNull(objects);
+	}
+
+	/**
+	 * Outcome of a simulation.
+	 */
+	static final class Result {
+
+		/**
+		 * Whether or not an unmatched character was found.
+		 */
+		boolean error;
+
+		/**
+		 * Number of unmatched characters that were dropped.
+		 */
+		int errors;
+
+		/**
+		 * Number of tokens matched.
+		 */
+		int tokens;
+
+		/**
+		 * Number of characters read while scanning.
+		 */
+		long scanned;
+
+		/**
+		 * Lexer state at the end of the text.
+		 */
+		String endState;
+
+		/**
+		 * Start of the first token whose scan reached the end of the text while the automaton was
+		 * still alive. Such token could still change if the text is extended. Equal to the end of the text
+		 * if there is no such token.
+		 */
+		int open;
+
+		/**
+		 * Lexer state at the {@link #open} position.
+		 */
+		String openState;
+	}
+
+	/**
+	 * Simulates the analysis of <code>text[from, to)</code>.
+	 *
+	 * @param text Text to be analyzed.
+	 * @param from Start of the analyzed part.
+	 * @param to End of the analyzed part.
+	 * @param state Lexer state at the start.
+	 * @param recover Whether to drop the unmatched characters and continue, as the analyzer does,
+	 * or to stop at the first one.
+	 * @return Outcome of the simulation.
+	 */
+	Result lex(CharSequence text, int from, int to, String state, boolean recover) {
+		Result result = new Result();
+		result.open = -1;
+		int pos = from;
+
+		while (pos < to) {
+			LexState lexState = objects.getState(state);
+
+			if (lexState == null) {
+				result.error = true;
+				break;
+			}
+
+			LexDfa dfa = lexState.getAutomaton();
+
+			// maximal munch
+			int q = LexDfa.START;
+			int rule = -1;
+			int length = 0;
+			int idx = pos;
+
+			while (idx < to) {
+				int symbol = Character.codePointAt(text, idx);
+				idx += Character.charCount(symbol);
+				q = dfa.next(q, dfa.classOf(symbol));
+				result.scanned ++;
+
+				if (q == LexDfa.DEAD) {
+					break;
+				}
+
+				if (dfa.acceptedRule(q) >= 0) {
+					rule = dfa.acceptedRule(q);
+					length = idx - pos;
+				}
+			}
+
+			if (idx == to && q != LexDfa.DEAD && result.open < 0) {
+				result.open = pos;
+				result.openState = state;
+			}
+
+			if (rule < 0) {
+				result.error = true;
+
+				if (!recover) {
+					break;
+				}
+
+				result.errors ++;
+				pos += Character.charCount(Character.codePointAt(text, pos));
+				continue;
+			}
+
+			for (LexAction action : lexState.getActions(rule)) {
+				if (action instanceof EnterStateAction) {
+					state = ((EnterStateAction) action).getState();
+				} else if (action instanceof GoBackAction) {
+					// goes back in symbols, not chars
+					length = Character.offsetByCodePoints(text, pos, ((GoBackAction) action).getGoBack()) - pos;
+				}
+			}
+
+			result.tokens ++;
+			pos += Math.max(1, length);
+		}
+
+		result.endState = state;
+
+		if (result.open < 0) {
+			result.open = to;
+			result.openState = state;
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,468 @@
+package hr.fer.zemris.ppj.compiler.lexical.corpus;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexDfa;
+
+/**
+ * Generates the lexemes of a single lexer state by random walks over its deterministic automaton.<br>
+ *
+ * A walk for a rule only takes the transitions from which an accepting state of that rule is still reachable,
+ * and stops in such state with the probability of <code>1 / mean length</code> after every symbol. Once it grows
+ * past four times the mean length, it heads straight to the closest accepting state.<br>
+ *
+ * Symbols of an alphabet class are chosen from the printable <i>ASCII</i> characters of the class whenever
+ * there are any, so that the generated text resembles the real sources.
+ *
+ * @author fiilip
+ *
+ */
+class TokenWalker {
+
+	/**
+	 * Distance of the states from which the target can't be reached.
+	 */
+	private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	/**
+	 * Automaton walked.
+	 */
+	private final LexDfa dfa;
+
+	/**
+	 * Source of randomness.
+	 */
+	private final Random random;
+
+	/**
+	 * state -> states with a transition to it
+	 */
+	private final int[][] predecessors;
+
+	/**
+	 * class -> preferred symbols of the class
+	 */
+	private final int[][] preferred;
+
+	/**
+	 * class -> intervals of the class, as <code>start, end</code> pairs
+	 */
+	private final int[][] intervals;
+
+	/**
+	 * rule -> distance of every state to the closest accepting state of the rule
+	 */
+	private final Map<Integer, int[]> distances = new HashMap<>();
+
+	/**
+	 * Distance of every state to the closest non accepting cycle, computed lazily.
+	 */
+	private int[] cycleDistances;
+
+	/**
+	 * Creates a new {@link TokenWalker}.
+	 *
+	 * @param dfa Automaton walked.
+	 * @param random Source of randomness.
+	 */
+	TokenWalker(LexDfa dfa, Random random) {
+		this.dfa = Objects.requireNonNull(dfa);
+		this.random = Objects.requireNonNull(random);
+		this.predecessors = predecessors(dfa);
+		this.preferred = preferredSymbols(dfa);
+		this.intervals = classIntervals(dfa);
+	}
+
+	/**
+	 * Generates a random lexeme accepted by the given rule.
+	 *
+	 * @param rule Index of the rule in the lexer state.
+	 * @param meanLength Mean length of the lexeme.
+	 * @return Generated lexeme, or <code>null</code> if the rule never wins a match.
+	 */
+	String walk(int rule, double meanLength) {
+		int[] distance = distances.computeIfAbsent(rule, r -> distances(acceptingStates(r)));
+
+		if (distance[LexDfa.START] == UNREACHABLE) {
+			return null;
+		}
+
+		StringBuilder lexeme = new StringBuilder();
+		int state = LexDfa.START;
+		double stop = 1.0 / Math.max(1.0, meanLength);
+		int limit = (int) Math.ceil(4 * Math.max(1.0, meanLength));
+		int[] candidates = new int[dfa.getClassCount()];
+
+		while (true) {
+			boolean accepting = lexeme.length() > 0 && dfa.acceptedRule(state) == rule;
+
+			if (accepting && (lexeme.length() >= limit || random.nextDouble() < stop)) {
+				break;
+			}
+
+			int count = 0;
+
+			for (int cls = 0; cls < dfa.getClassCount(); cls ++) {
+				int target = dfa.next(state, cls);
+
+				if (target == LexDfa.DEAD || distance[target] == UNREACHABLE) {
+					continue;
+				}
+
+				if (lexeme.length() >= limit && distance[target] >= distance[state]) {
+					continue;
+				}
+
+				candidates[count ++] = cls;
+			}
+
+			if (count == 0) {
+				break;
+			}
+
+			int cls = candidates[random.nextInt(count)];
+			lexeme.appendCodePoint(symbol(cls));
+			state = dfa.next(state, cls);
+		}
+
+		return lexeme.toString();
+	}
+
+	/**
+	 * Generates a text that leaves the automaton stuck in a cycle of non accepting states, ie. the
+	 * beginning of a match that is never completed. The text consists of a prefix that leads to the cycle,
+	 * and the cycle itself, which can be repeated any number of times.
+	 *
+	 * @param prefixLength Maximal length of the prefix.
+	 * @return Prefix and the cycle, or <code>null</code> if the automaton has no reachable non accepting cycles.
+	 */
+	String[] unterminated(int prefixLength) {
+		if (cycleDistances == null) {
+			cycleDistances = distances(cycleStates());
+		}
+
+		if (cycleDistances[LexDfa.START] == UNREACHABLE) {
+			return null;
+		}
+
+		StringBuilder text = new StringBuilder();
+		int state = LexDfa.START;
+		int length = random.nextInt(prefixLength + 1);
+		int[] candidates = new int[dfa.getClassCount()];
+
+		// random prefix, always heading towards some cycle
+		while (true) {
+			boolean onCycle = cycleDistances[state] == 0;
+
+			if (onCycle && text.length() >= length) {
+				break;
+			}
+
+			int count = 0;
+
+			for (int cls = 0; cls < dfa.getClassCount(); cls ++) {
+				int target = dfa.next(state, cls);
+
+				if (target == LexDfa.DEAD || cycleDistances[target] == UNREACHABLE) {
+					continue;
+				}
+
+				if (text.length() >= length && cycleDistances[target] >= cycleDistances[state]) {
+					continue;
+				}
+
+				candidates[count ++] = cls;
+			}
+
+			int cls = candidates[random.nextInt(count)];
+			text.appendCodePoint(symbol(cls));
+			state = dfa.next(state, cls);
+		}
+
+		return new String[] { text.toString(), cycle(state) };
+	}
+
+	/**
+	 * Finds a shortest path from the non accepting <code>state</code> back to itself through non
+	 * accepting states only.
+	 *
+	 * @param state State on a non accepting cycle.
+	 * @return Symbols of the path.
+	 */
+	private String cycle(int state) {
+		int[] parent = new int[dfa.getStateCount()];
+		int[] parentClass = new int[dfa.getStateCount()];
+		Arrays.fill(parent, -1);
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		queue.add(state);
+
+		while (!queue.isEmpty()) {
+			int current = queue.poll();
+			List<Integer> classes = shuffledClasses();
+
+			for (int cls : classes) {
+				int target = dfa.next(current, cls);
+
+				if (target == LexDfa.DEAD || dfa.acceptedRule(target) >= 0 || parent[target] >= 0) {
+					continue;
+				}
+
+				parent[target] = current;
+				parentClass[target] = cls;
+
+				if (target == state) {
+					queue.clear();
+					break;
+				}
+
+				queue.add(target);
+			}
+		}
+
+		StringBuilder path = new StringBuilder();
+		int current = state;
+
+		do {
+			path.appendCodePoint(symbol(parentClass[current]));
+			current = parent[current];
+		} while (current != state);
+
+		return path.reverse().toString();
+	}
+
+	/**
+	 * Gets the alphabet classes in a random order.
+	 *
+	 * @return Shuffled alphabet classes.
+	 */
+	private List<Integer> shuffledClasses() {
+		List<Integer> classes = new ArrayList<>();
+
+		for (int cls = 0; cls < dfa.getClassCount(); cls ++) {
+			classes.add(cls);
+		}
+
+		Collections.shuffle(classes, random);
+		return classes;
+	}
+
+	/**
+	 * Picks a random symbol of the given alphabet class.
+	 *
+	 * @param cls Alphabet class.
+	 * @return Symbol of the class.
+	 */
+	private int symbol(int cls) {
+		if (preferred[cls].length > 0) {
+			return preferred[cls][random.nextInt(preferred[cls].length)];
+		}
+
+		int[] pairs = intervals[cls];
+		long size = 0;
+
+		for (int i = 0; i < pairs.length; i += 2) {
+			size += pairs[i + 1] - pairs[i];
+		}
+
+		// prefer symbols outside of the surrogate range, which can't be encoded alone
+		for (int attempt = 0; attempt < 8; attempt ++) {
+			long pick = (long) (random.nextDouble() * size);
+
+			for (int i = 0; i < pairs.length; i += 2) {
+				int width = pairs[i + 1] - pairs[i];
+
+				if (pick < width) {
+					int symbol = pairs[i] + (int) pick;
+
+					if (symbol < Character.MIN_SURROGATE || symbol > Character.MAX_SURROGATE || attempt == 7) {
+						return symbol;
+					}
+
+					break;
+				}
+
+				pick -= width;
+			}
+		}
+
+		return pairs[0];
+	}
+
+	/**
+	 * Gets the accepting states of the given rule.
+	 *
+	 * @param rule Index of the rule.
+	 * @return Flags of the accepting states.
+	 */
+	private boolean[] acceptingStates(int rule) {
+		boolean[] targets = new boolean[dfa.getStateCount()];
+
+		for (int state = 0; state < targets.length; state ++) {
+			targets[state] = dfa.acceptedRule(state) == rule;
+		}
+
+		return targets;
+	}
+
+	/**
+	 * Gets the states that lie on a cycle of non accepting states.
+	 *
+	 * @return Flags of the states on non accepting cycles.
+	 */
+	private boolean[] cycleStates() {
+		int n = dfa.getStateCount();
+		boolean[] targets = new boolean[n];
+
+		for (int state = 0; state < n; state ++) {
+			if (dfa.acceptedRule(state) >= 0) {
+				continue;
+			}
+
+			// search for a way back through the non accepting states only
+			boolean[] visited = new boolean[n];
+			ArrayDeque<Integer> queue = new ArrayDeque<>();
+			queue.add(state);
+
+			while (!queue.isEmpty() && !targets[state]) {
+				int current = queue.poll();
+
+				for (int cls = 0; cls < dfa.getClassCount(); cls ++) {
+					int target = dfa.next(current, cls);
+
+					if (target == LexDfa.DEAD || dfa.acceptedRule(target) >= 0 || visited[target]) {
+						continue;
+					}
+
+					if (target == state) {
+						targets[state] = true;
+						break;
+					}
+
+					visited[target] = true;
+					queue.add(target);
+				}
+			}
+		}
+
+		return targets;
+	}
+
+	/**
+	 * Computes the distance of every state to the closest of the target states.
+	 *
+	 * @param targets Flags of the target states.
+	 * @return Distance of every state, or {@link #UNREACHABLE}.
+	 */
+	private int[] distances(boolean[] targets) {
+		int[] distance = new int[dfa.getStateCount()];
+		Arrays.fill(distance, UNREACHABLE);
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+
+		for (int state = 0; state < targets.length; state ++) {
+			if (targets[state]) {
+				distance[state] = 0;
+				queue.add(state);
+			}
+		}
+
+		while (!queue.isEmpty()) {
+			int state = queue.poll();
+
+			for (int source : predecessors[state]) {
+				if (distance[source] == UNREACHABLE) {
+					distance[source] = distance[state] + 1;
+					queue.add(source);
+				}
+			}
+		}
+
+		return distance;
+	}
+
+	/**
+	 * Computes the predecessors of every state of the given automaton.
+	 *
+	 * @param dfa Automaton.
+	 * @return state -> states with a transition to it
+	 */
+	private static int[][] predecessors(LexDfa dfa) {
+		List<List<Integer>> lists = new ArrayList<>();
+
+		for (int state = 0; state < dfa.getStateCount(); state ++) {
+			lists.add(new ArrayList<>());
+		}
+
+		for (int state = 0; state < dfa.getStateCount(); state ++) {
+			for (int cls = 0; cls < dfa.getClassCount(); cls ++) {
+				int target = dfa.next(state, cls);
+
+				if (target != LexDfa.DEAD && !lists.get(target).contains(state)) {
+					lists.get(target).add(state);
+				}
+			}
+		}
+
+		return lists.stream().map(list -> list.stream().mapToInt(Integer::intValue).toArray()).toArray(int[][]::new);
+	}
+
+	/**
+	 * Collects the printable <i>ASCII</i> symbols, tabs and line feeds of every alphabet class.
+	 *
+	 * @param dfa Automaton.
+	 * @return class -> preferred symbols of the class
+	 */
+	private static int[][] preferredSymbols(LexDfa dfa) {
+		List<List<Integer>> lists = new ArrayList<>();
+
+		for (int cls = 0; cls < dfa.getClassCount(); cls ++) {
+			lists.add(new ArrayList<>());
+		}
+
+		for (int symbol = 0; symbol < 0x7F; symbol ++) {
+			if (symbol < ' ' && symbol != '\t' && symbol != '\n') {
+				continue;
+			}
+
+			int cls = dfa.classOf(symbol);
+
+			if (cls >= 0) {
+				lists.get(cls).add(symbol);
+			}
+		}
+
+		return lists.stream().map(list -> list.stream().mapToInt(Integer::intValue).toArray()).toArray(int[][]::new);
+	}
+
+	/**
+	 * Collects the alphabet intervals of every alphabet class.
+	 *
+	 * @param dfa Automaton.
+	 * @return class -> intervals of the class, as <code>start, end</code> pairs
+	 */
+	private static int[][] classIntervals(LexDfa dfa) {
+		List<List<Integer>> lists = new ArrayList<>();
+
+		for (int cls = 0; cls < dfa.getClassCount(); cls ++) {
+			lists.add(new ArrayList<>());
+		}
+
+		for (int idx = 0; idx < dfa.getIntervalCount(); idx ++) {
+			int cls = dfa.getIntervalClass(idx);
+
+			if (cls >= 0) {
+				lists.get(cls).add(dfa.getIntervalStart(idx));
+				lists.get(cls).add(dfa.getIntervalEnd(idx));
+			}
+		}
+
+		return lists.stream().map(list -> list.stream().mapToInt(Integer::intValue).toArray()).toArray(int[][]::new);
+	}
+}
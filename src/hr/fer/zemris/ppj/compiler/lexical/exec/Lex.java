@@ -3,12 +3,22 @@ package hr.fer.zemris.ppj.compiler.lexical.exec;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
-import hr.fer.zemris.ppj.compiler.lexical.automata.LexAutomaton;
-import hr.fer.zemris.ppj.compiler.lexical.automata.LexAutomatonMerged;
+import hr.fer.zemris.ppj.compiler.events.ScanSliceEvent;
+import hr.fer.zemris.ppj.compiler.lexical.automata.DfaProfile;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexDfa;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexNfa;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.ErrorSink;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.SymbolTable;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.TextTokenWriter;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.TokenConsumer;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.TokenSink;
 import hr.fer.zemris.ppj.compiler.util.StreamManager;
 
 /**
@@ -19,50 +29,164 @@ import hr.fer.zemris.ppj.compiler.util.StreamManager;
  */
 public class Lex {
 	
-	private String input;
+	private CharSequence input;
 	
 	private final StreamManager streamManager;
 	
-    private final Map<String, List<LexRule>> states;
+    /**
+     * Objects holding all the states of this lexical analyzer.
+     */
+    private final LexObjects objects;
     
     /**
      * Current state of this lexical analyzer.
      */
-    private String currentState;
+    private LexState currentState;
     
-    
-    private List<LexRule> currentRules;
+    /**
+     * Matchers of the states simulated by the nondeterministic automatons, reused for every token.
+     */
+    private final Map<LexState, LexNfa.Matcher> matchers = new IdentityHashMap<>();
 
     private int startIndex;
     private int endIndex;
     private int lastIndex;
     private int lineNumber;
+    
+    /**
+     * Whether or not the last match read up to the end of the chars available.
+     */
+    private boolean exhausted;
+    
+    /**
+     * Exclusive index of the last char read by the last match.
+     */
+    private int readIndex;
+    
+    /**
+     * Source filling the input, or <code>null</code> if the entire input is available.
+     */
+    private LexInput source;
+    
+    /**
+     * Number of the chars released from the front of the input, see {@link #release()}.
+     */
+    private long released;
+    
+    /**
+     * Whether or not all the chars of the input are available.
+     */
+    private boolean complete;
+    
+    /**
+     * Whether or not the scan stops after the current token, until {@link #resume()}.
+     */
+    private boolean paused;
         
-    private final OutputStream ostream;
+    /**
+     * Sink receiving the tokens, or <code>null</code> if they go to the {@link #consumer}.
+     */
+    private final TokenSink sink;
+    
+    /**
+     * Consumer receiving the tokens by the unit ids, or <code>null</code> if they go to the {@link #sink}.
+     */
+    private final TokenConsumer consumer;
+    
+    /**
+     * Ids of the lexical units of the rules, per state entered, used with the {@link #consumer}.
+     */
+    private final Map<LexState, int[]> unitIds = new IdentityHashMap<>();
+    
+    /**
+     * State of the last token passed to the {@link #consumer}, and the ids of its units.
+     */
+    private LexState lastState;
+    private int[] lastUnitIds;
+    
+    /**
+     * Sink receiving the runs skipped by the error recovery, or <code>null</code> if they are dropped silently.
+     */
+    private ErrorSink errors;
+    
+    /**
+     * Symbol table the lexemes of the {@link #internedUnits} are interned into, or <code>null</code>.
+     */
+    private SymbolTable symbols;
+    
+    /**
+     * Lexical units whose lexemes are interned.
+     */
+    private Set<String> internedUnits = Set.of();
+    
+    /**
+     * Profile the visits of the deterministic automatons are counted into, or <code>null</code>.
+     */
+    private LexProfile profile;
+    
+    /**
+     * Accounting of the chars read more than once, or <code>null</code>.
+     */
+    private LexDiagnostics diagnostics;
+    
+    /**
+     * Flight recorder event of the slice of the input currently being scanned.
+     */
+    private ScanSliceEvent slice;
 
     /**
      * Creates a new instance of {@link Lex}.<br> 
      * 
-     * It has a defined starting state.<br> 
+     * It starts in the starting state of the <code>objects</code>, and enters the
+     * other states of the <code>objects</code> as the rules are executed.
      * 
-     * For every state available, there is a list of rules that are executed when {@link Lex} is in that state.
+     * @param objects Objects generated for the lexical analyzer.
+     * @param streamManager Stream manager.
+     * @param ostream Output stream used for results output.
+     */
+    public Lex(LexObjects objects, StreamManager streamManager, OutputStream ostream) {
+    		this(objects, streamManager, new TextTokenWriter(streamManager, ostream));
+    }
+    
+    /**
+     * Creates a new instance of {@link Lex} that passes the tokens to the given <code>sink</code>.
+     * 
+     * @param objects Objects generated for the lexical analyzer.
+     * @param streamManager Stream manager.
+     * @param sink Sink receiving the tokens.
+     */
+    public Lex(LexObjects objects, StreamManager streamManager, TokenSink sink) {
+    		this(objects, streamManager, Objects.requireNonNull(sink), null);
+    }
+    
+    /**
+     * Creates a new instance of {@link Lex} that passes the tokens to the given <code>consumer</code>, 
+     * by the ids of their lexical units and their bounds in the input.
+     * 
+     * @param objects Objects generated for the lexical analyzer.
+     * @param streamManager Stream manager.
+     * @param consumer Consumer receiving the tokens.
+     */
+    public Lex(LexObjects objects, StreamManager streamManager, TokenConsumer consumer) {
+    		this(objects, streamManager, null, Objects.requireNonNull(consumer));
+    }
+    
+    /**
+     * Creates a new instance of {@link Lex} with exactly one of the receivers of the tokens.
      * 
-     * @param startState Starting state.
-     * @param states Mappings from state to list of rules.
-     * @param merged Merged automaton.
-     * @param output Output stream used for results output.
+     * @param objects Objects generated for the lexical analyzer.
+     * @param streamManager Stream manager.
+     * @param sink Sink receiving the tokens, or <code>null</code>.
+     * @param consumer Consumer receiving the tokens, or <code>null</code>.
      */
-    public Lex(String startState, Map<String, List<LexRule>> states, 
-    				StreamManager streamManager, OutputStream ostream, LexAutomatonMerged merged) {
+    private Lex(LexObjects objects, StreamManager streamManager, TokenSink sink, TokenConsumer consumer) {
+    		this.objects = Objects.requireNonNull(objects);
     		this.streamManager = Objects.requireNonNull(streamManager);
-        this.states = Objects.requireNonNull(states);
-        this.ostream = Objects.requireNonNull(ostream);
-        
-        // statically set data for all lex automatons
-        LexAutomaton.setLexAutomatonMerged(merged);
+        this.sink = sink;
+        this.consumer = consumer;
         
         // put the lexical analyzer to the starting state
-        enterState(startState);
+        enterState(objects.getStartState());
 
         startIndex = 0;
         endIndex = -1;
@@ -77,109 +201,465 @@ public class Lex {
      * @param toState New state of this lexical analyzer.
      */
     public void enterState(String toState) {
-    		currentState = toState;
-    		currentRules = states.get(currentState);
-    		resetCurrentAutomatons();
+    		currentState = objects.getState(toState);
+    		
+    		if (currentState == null) {
+    			throw new IllegalStateException(String.format("Lexer state %s has no rules.", toState));
+    		}
 	}
 
+	/**
+     * Interns the lexemes of the given lexical units into the <code>symbols</code>, so that their tokens
+     * carry the symbol ids. The table may be shared with the other analyzers if it's thread safe.
+     * Tokens passed to a {@link TokenConsumer} are not interned, the consumer has the lexeme in the buffer.
+     * 
+     * @param symbols Symbol table.
+     * @param units Lexical units whose lexemes are interned.
+     */
+    public void setInterning(SymbolTable symbols, Set<String> units) {
+    		this.symbols = Objects.requireNonNull(symbols);
+    		this.internedUnits = Set.copyOf(units);
+    }
+
     /**
-     * Resets all of the automatons that belong to the current state.
+     * Sets the profile the state visits and the transitions of the deterministic automatons are counted into, 
+     * eg. to renumber their states by the <code>GLA</code>. Profiled tokens are matched by a slower loop.
+     * 
+     * @param profile Profile, or <code>null</code> not to profile the analysis.
      */
-	private void resetCurrentAutomatons() {
-		for (LexRule rule : currentRules) {
-			rule.getAutomaton().reset();
-		}
-	}
+    public void setProfile(LexProfile profile) {
+    		this.profile = profile;
+    }
+    
+    /**
+     * Sets the accounting of the chars the matches read more than once: past the accepted prefix, given back 
+     * by the actions, re-scanned after the error recovery or after more chars arrived.
+     * 
+     * @param diagnostics Accounting, or <code>null</code> not to account the analysis.
+     */
+    public void setDiagnostics(LexDiagnostics diagnostics) {
+    		this.diagnostics = diagnostics;
+    }
+
+    /**
+     * Sets the sink receiving the runs of the input skipped by the error recovery.
+     * 
+     * @param errors Error sink, or <code>null</code> to drop the runs silently.
+     */
+    public void setErrorSink(ErrorSink errors) {
+    		this.errors = errors;
+    }
 
 	/**
-     * Consumes symbols from the input stream and performs lexical analysis.
+     * Consumes symbols from the input stream and performs lexical analysis.<br>
+     * 
+     * Every token is the longest prefix of the remaining input accepted by the automaton
+     * of the current state, deterministic or not; if there is no such prefix, the symbol is dropped together
+     * with all the following symbols no token of the current state can start with, and the dropped run is
+     * passed to the error sink.<br>
+     * 
+     * Symbols are Unicode code points, so a surrogate pair is a single symbol. Indices are still
+     * the indices of the chars in the input.
      * 
      * @param istream Input stream.
 	 * @throws IOException 
      */
     public void analyze(InputStream istream) throws IOException {
-    		input = loadToMemory(istream); 	
+    		begin(loadToMemory(istream), null);
+    		scan();
+    }
+    
+    /**
+     * Performs lexical analysis of the input that arrives in parts while it's being scanned, 
+     * eg. decoded by another thread.<br>
+     * 
+     * A token is passed to the sink only once it can't be extended by the chars not available yet, 
+     * so the tokens are the same as if the entire input was available at once.
+     * 
+     * @param input Input, filled on demand.
+     * @throws IOException 
+     */
+    public void analyze(LexInput input) throws IOException {
+    		begin(input, input);
+    		scan();
+    }
+    
+    /**
+     * Pauses the analysis once the current token is passed on, eg. when called by the consumer 
+     * that has received enough tokens for now. The <code>analyze</code> call then returns, and 
+     * the analysis goes on from the next token by the {@link #resume()}.
+     */
+    public void pause() {
+    		paused = true;
+    }
+    
+    /**
+     * Tests whether the analysis is paused.
+     * 
+     * @return <code>True</code> if the analysis stopped before the end of the input.
+     */
+    public boolean isPaused() {
+    		return paused;
+    }
+    
+    /**
+     * Releases the chars of the input before the next token, so that the input doesn't hold the chars of 
+     * all the tokens passed on. Indices of the tokens passed afterwards are shifted down by the number of 
+     * the released chars, so the tokens passed so far must not be looked up in the input anymore.<br>
+     * 
+     * Nothing is released from an input that is entirely available, or while the chars read more than once 
+     * are accounted, since their offsets are in the whole input.
+     * 
+     * @throws IllegalStateException If the analysis is not paused.
+     */
+    public void release() {
+    		if (!paused) {
+    			throw new IllegalStateException("Lexical analysis is not paused.");
+    		}
+    		
+    		if (source == null || diagnostics != null) {
+    			return;
+    		}
+    		
+    		int count = source.release(startIndex);
+    		startIndex -= count;
+    		endIndex -= count;
+    		lastIndex -= count;
+    		readIndex -= count;
+    		released += count;
+    }
+    
+    /**
+     * Resumes the paused analysis, until the end of the input or until paused again.
+     * 
+     * @throws IOException
+     * @throws IllegalStateException If the analysis is not paused.
+     */
+    public void resume() throws IOException {
+    		if (!paused) {
+    			throw new IllegalStateException("Lexical analysis is not paused.");
+    		}
+    		
+    		paused = false;
+    		scan();
+    }
+    
+    /**
+     * Begins the analysis of the input.
+     * 
+     * @param input Input.
+     * @param source Source filling the input, or <code>null</code> if the entire input is available.
+     */
+    private void begin(CharSequence input, LexInput source) {
+    		this.input = input;
+    		this.source = source;
+    		this.complete = source == null;
+    		this.paused = false;
+    }
+    
+    /**
+     * Scans the input from the current token, until the end of the input or until paused.
+     * 
+     * @throws IOException 
+     */
+    private void scan() throws IOException {
     		int len = input.length();
-    		LexRule lastRule = null;
+    		slice = beginSlice();
     		
     		// process every symbol from the stream
-    		while (endIndex < len - 1) {
-    			boolean alive = true;
+    		while (!paused && (startIndex < len || !complete)) {
+    			if (startIndex >= len) {
+    				complete = !source.fill();
+    				len = input.length();
+    				continue;
+    			}
     			
-    			while (alive && endIndex < len - 1) {
-    				alive = false;    				
-    				boolean accepted = false;
-    				
-    				char symbol = input.charAt(++endIndex);
-    				
-    				for (LexRule rule : currentRules) {
-    					LexAutomaton curr = rule.getAutomaton();
-    					
-    					if (curr.isDead()) {
-    						continue;
-    					}
-    					
-    					// automaton alive
-    					alive = true;
-    					curr.consume(symbol);
-    					
-    					if (!accepted && curr.accepts()) {
-    						// move to next token
-    						accepted = true;
-    						lastRule = rule;
-    						lastIndex = endIndex;
-    					}
+    			LexState matchedState = currentState;
+    			int lastRule = !matchedState.isDeterministic() ? matchNfa(matchedState, len) 
+    					: profile == null ? matchDfa(matchedState.getAutomaton(), len) 
+    					: matchDfa(profile.of(matchedState), len);
+    			
+    			if (exhausted && !complete) {
+    				// the token may go on in the chars not available yet; match it again once they are
+    				if (diagnostics != null) {
+    					diagnostics.refill(matchedState, startIndex, lineNumber, readIndex - startIndex);
     				}
+    				complete = !source.fill();
+    				len = input.length();
+    				continue;
     			}
     			
-    			if (lastRule == null) {
-    				// none of the automatons accepted the string; error recovery needed
-    				endIndex = startIndex ++;
+    			if (lastRule < 0) {
+    				// no rule accepted the string; drop the symbol, and the run of symbols no token starts with
+    				int end = skipRun(matchedState, Character.offsetByCodePoints(input, startIndex, 1), len);
+    				
+    				if (end + 1 >= len && !complete) {
+    					// the run may go on in the chars not available yet
+    					if (diagnostics != null) {
+    						diagnostics.refill(matchedState, startIndex, lineNumber, readIndex - startIndex);
+    					}
+    					complete = !source.fill();
+    					len = input.length();
+    					continue;
+    				}
+    				
+    				slice.error(end - startIndex);
+    				if (diagnostics != null) {
+    					diagnostics.error(matchedState, startIndex, lineNumber, readIndex - startIndex, end - startIndex);
+    				}
+    				if (errors != null) {
+    					errors.error(lineNumber, input, startIndex, end);
+    				}
+    				
+    				endIndex = end - 1;
+    				startIndex = end;
     			} else {
     				// string was accepted
     				endIndex = lastIndex;
     				
+    				int accepted = lastIndex;
+    				int line = lineNumber;
+    				
     				// execute rule
-    				lastRule.execute(this);
+    				matchedState.execute(lastRule, this);
+    				
+    				if (diagnostics != null) {
+    					// the char after the accepted prefix is read by every match that doesn't reach the end
+    					diagnostics.token(matchedState, lastRule, startIndex, line, readIndex - startIndex, 
+    							Math.max(0, readIndex - accepted - 2), accepted - lastIndex);
+    				}
     				
-    				if (lastRule.hasLexUnit()) {
-    					output(lastRule.lexUnit());
+    				if (matchedState.hasLexUnit(lastRule)) {
+    					output(matchedState, lastRule);
     					startIndex = lastIndex + 1;
     				} else {
     					skip();
     				}
-    				
-    				lastRule = null;
-    				resetCurrentAutomatons();
     			}
+    			
+    			if (released + startIndex - slice.getStartOffset() >= ScanSliceEvent.SLICE_CHARS) {
+    				commitSlice();
+    				slice = beginSlice();
+    			}
+    		}
+    		
+    		commitSlice();
+    		
+    		if (paused) {
+    			return;
+    		}
+    		
+    		if (sink != null) {
+    			sink.finish();
+    		} else {
+    			consumer.finish();
     		}
     }
     
     /**
-     * Increments line number by <code>1</code>.
+     * Skips the symbols no token of the state can start with.
+     * 
+     * @param state Current state.
+     * @param idx Index of the first symbol.
+     * @param len Length of the input.
+     * @return Index of the first symbol some token can start with, or <code>len</code>.
      */
-    public void incrementLineNumber() {
-    		lineNumber ++;
+    private int skipRun(LexState state, int idx, int len) {
+    		while (idx < len) {
+    			int symbol = Character.codePointAt(input, idx);
+    			
+    			if (state.canStart(symbol)) {
+    				break;
+    			}
+    			
+    			idx += Character.charCount(symbol);
+    		}
+    		
+    		return idx;
     }
     
     /**
-     * Moves the current index back to the <code>startIndex + toIdx</code>.
+     * Finds the longest prefix of the remaining input accepted by the deterministic automaton.
      * 
-     * @param toIdx Index to move, counting from the starting position.
+     * @param dfa Automaton of the current state.
+     * @param len Length of the input.
+     * @return Index of the accepted rule, or <code>-1</code> if no prefix is accepted. 
+     * The end of the prefix is stored as the <code>lastIndex</code>.
      */
-    public void goBack(int toIdx) {
-    		resetCurrentAutomatons();
+    private int matchDfa(LexDfa dfa, int len) {
+    		int state = LexDfa.START;
+    		int lastRule = -1;
+    		int idx = startIndex;
     		
-    		int idx = startIndex + toIdx - 1;
-    		endIndex = lastIndex = idx;
+    		while (idx < len) {
+    			int symbol = input.charAt(idx ++);
+    			
+    			if (symbol >= Character.MIN_HIGH_SURROGATE && symbol <= Character.MAX_HIGH_SURROGATE 
+    					&& idx < len && Character.isLowSurrogate(input.charAt(idx))) {
+    				// symbol outside of the basic plane
+    				symbol = Character.toCodePoint((char) symbol, input.charAt(idx ++));
+    			}
+    			
+    			state = dfa.next(state, dfa.classOf(symbol));
+    			
+    			if (state == LexDfa.DEAD) {
+    				break;
+    			}
+    			
+    			if (dfa.acceptedRule(state) >= 0) {
+    				// longest match so far
+    				lastRule = dfa.acceptedRule(state);
+    				lastIndex = idx - 1;
+    			}
+    		}
+    		
+    		exhausted = idx >= len;
+    		readIndex = idx;
+    		return lastRule;
+    }
+    
+    /**
+     * Finds the longest prefix of the remaining input accepted by the deterministic automaton, 
+     * counting the visited states and the transitions taken into the profile.
+     * 
+     * @param profile Profile of the automaton of the current state.
+     * @param len Length of the input.
+     * @return Index of the accepted rule, or <code>-1</code> if no prefix is accepted. 
+     * The end of the prefix is stored as the <code>lastIndex</code>.
+     */
+    private int matchDfa(DfaProfile profile, int len) {
+    		LexDfa dfa = profile.getDfa();
+    		int state = LexDfa.START;
+    		int lastRule = -1;
+    		int idx = startIndex;
+    		profile.visit(state);
+    		
+    		while (idx < len) {
+    			int symbol = input.charAt(idx ++);
+    			
+    			if (symbol >= Character.MIN_HIGH_SURROGATE && symbol <= Character.MAX_HIGH_SURROGATE 
+    					&& idx < len && Character.isLowSurrogate(input.charAt(idx))) {
+    				// symbol outside of the basic plane
+    				symbol = Character.toCodePoint((char) symbol, input.charAt(idx ++));
+    			}
+    			
+    			int cls = dfa.classOf(symbol);
+    			int next = dfa.next(state, cls);
+    			
+    			if (next == LexDfa.DEAD) {
+    				break;
+    			}
+    			
+    			profile.transition(state, cls, next);
+    			state = next;
+    			
+    			if (dfa.acceptedRule(state) >= 0) {
+    				// longest match so far
+    				lastRule = dfa.acceptedRule(state);
+    				lastIndex = idx - 1;
+    			}
+    		}
     		
-    		char[] feed = input.substring(startIndex, lastIndex + 1).toCharArray();
+    		exhausted = idx >= len;
+    		readIndex = idx;
+    		return lastRule;
+    }
+    
+    /**
+     * Finds the longest prefix of the remaining input accepted by the nondeterministic automaton,
+     * simulating it with the state's matcher.
+     * 
+     * @param state Current state, simulated by the nondeterministic automaton.
+     * @param len Length of the input.
+     * @return Index of the accepted rule, or <code>-1</code> if no prefix is accepted. 
+     * The end of the prefix is stored as the <code>lastIndex</code>.
+     */
+    private int matchNfa(LexState state, int len) {
+    		LexNfa nfa = state.getNfa();
+    		LexNfa.Matcher matcher = matcher(state);
+    		int lastRule = -1;
+    		matcher.start();
+    		int idx = startIndex;
     		
-    		for (LexRule rule : currentRules) {
-    			for (char symbol : feed) {
-    				rule.getAutomaton().consume(symbol);
+    		while (idx < len && !matcher.isDead()) {
+    			int symbol = input.charAt(idx ++);
+    			
+    			if (symbol >= Character.MIN_HIGH_SURROGATE && symbol <= Character.MAX_HIGH_SURROGATE 
+    					&& idx < len && Character.isLowSurrogate(input.charAt(idx))) {
+    				// symbol outside of the basic plane
+    				symbol = Character.toCodePoint((char) symbol, input.charAt(idx ++));
+    			}
+    			
+    			int rule = matcher.step(nfa.classOf(symbol));
+    			
+    			if (rule >= 0) {
+    				// longest match so far
+    				lastRule = rule;
+    				lastIndex = idx - 1;
     			}
     		}
+    		
+    		exhausted = idx >= len;
+    		readIndex = idx;
+    		return lastRule;
+    }
+    
+    /**
+     * Gets the matcher of the state's nondeterministic automaton, creating it when the state
+     * is entered for the first time.
+     * 
+     * @param state Lexer state simulated by the nondeterministic automaton.
+     * @return Matcher of the state.
+     */
+    private LexNfa.Matcher matcher(LexState state) {
+    		LexNfa.Matcher matcher = matchers.get(state);
+    		
+    		if (matcher == null) {
+    			matcher = state.getNfa().matcher();
+    			matchers.put(state, matcher);
+    		}
+    		
+    		return matcher;
+    }
+    
+    /**
+     * Begins a new scan slice event at the current start of the token.
+     * 
+     * @return Started scan slice event.
+     */
+    private ScanSliceEvent beginSlice() {
+    		ScanSliceEvent event = new ScanSliceEvent(released + startIndex);
+    		event.begin();
+    		return event;
+    }
+    
+    /**
+     * Ends and commits the current scan slice event.
+     */
+    private void commitSlice() {
+    		slice.end();
+    		
+    		if (slice.shouldCommit()) {
+    			slice.setChars((int) (released + startIndex - slice.getStartOffset()));
+    			slice.commit();
+    		}
+    }
+    
+    /**
+     * Increments line number by <code>1</code>.
+     */
+    public void incrementLineNumber() {
+    		lineNumber ++;
+    }
+    
+    /**
+     * Moves the current index back, so that the token has only the first <code>toIdx</code> symbols.
+     * 
+     * @param toIdx Number of symbols kept, counting from the starting position.
+     */
+    public void goBack(int toIdx) {
+    		int idx = Character.offsetByCodePoints(input, startIndex, toIdx) - 1;
+    		endIndex = lastIndex = idx;
     }
     
     /**
@@ -190,18 +670,57 @@ public class Lex {
 	}
 
 	/**
-     * Outputs the lexical unit to the output stream.
+     * Passes the token of the matched rule to the sink or the consumer.
      * 
-     * @param lexUnit Lexical unit.
+     * @param state State the rule was matched in.
+     * @param rule Matched rule.
      * @throws IOException 
      */
-    private void output(String lexUnit) throws IOException {
-    		String content = input.substring(startIndex, lastIndex + 1);
+    private void output(LexState state, int rule) throws IOException {
+    		slice.token();
     		
-    		streamManager.writeToStream(
-    				String.format("%s %d %s%s", lexUnit, lineNumber, content, System.lineSeparator()), 
-    				ostream);
+    		if (consumer != null) {
+    			if (state != lastState) {
+    				lastUnitIds = unitIds(state);
+    				lastState = state;
+    			}
+    			
+    			consumer.token(lastUnitIds[rule], input, startIndex, lastIndex + 1, lineNumber);
+    			return;
+    		}
+    		
+    		String lexUnit = state.lexUnit(rule);
+    		int symbol = symbols != null && internedUnits.contains(lexUnit)
+    				? symbols.intern(input, startIndex, lastIndex + 1) : -1;
+    		sink.token(lexUnit, lineNumber, input, startIndex, lastIndex + 1, symbol);
 	}
+    
+    /**
+     * Gets the ids of the lexical units of the state's rules, numbered as in the {@link LexObjects#getLexUnits()}.
+     * 
+     * @param state Lexer state.
+     * @return rule -> unit id, or <code>-1</code> for the rules without the unit
+     */
+    private int[] unitIds(LexState state) {
+    		int[] ids = unitIds.get(state);
+    		
+    		if (ids == null) {
+    			List<String> units = objects.getLexUnits();
+    			Map<String, Integer> byName = new HashMap<>();
+    			for (int id = 0; id < units.size(); id++) {
+    				byName.put(units.get(id), id);
+    			}
+    			
+    			ids = new int[state.getRuleCount()];
+    			for (int rule = 0; rule < ids.length; rule++) {
+    				ids[rule] = state.hasLexUnit(rule) ? byName.get(state.lexUnit(rule)) : -1;
+    			}
+    			
+    			unitIds.put(state, ids);
+    		}
+    		
+    		return ids;
+    }
 
 	/**
      * Loads the entire content of input stream to memory as a String.
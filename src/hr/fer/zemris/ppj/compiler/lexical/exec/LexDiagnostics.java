@@ -0,0 +1,416 @@
+package hr.fer.zemris.ppj.compiler.lexical.exec;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import hr.fer.zemris.ppj.compiler.util.JsonWriter;
+
+/**
+ * Accounting of the input the {@link Lex} reads more than once, recorded while scanning, see
+ * {@link Lex#setDiagnostics(LexDiagnostics)}.<br>
+ *
+ * Every char read by a match that doesn't end up in its token is read again by the next match, so the analysis
+ * turns quadratic once the matches read far past their tokens. Such chars are counted as <b>wasted</b>, for:
+ * <ul>
+ * <li><b>overscan</b> - chars a token's match read past its longest accepted prefix, except for the first
+ * one, which every match has to read to know it can't go on</li>
+ * <li><b>goBack</b> - chars of the accepted prefix given back by the <code>VRATI_SE</code> action</li>
+ * <li><b>error</b> - chars a failed match read past the run dropped by the error recovery</li>
+ * <li><b>refill</b> - chars a match read before it had to be run again, because the token could go on in
+ * the chars not available yet</li>
+ * </ul>
+ * The report lists the totals, the rules and the lines with the most wasted chars, the single matches wasting
+ * the most, and the wasted chars per range of lines as a heat map of the input.
+ *
+ * @author fiilip
+ *
+ */
+public class LexDiagnostics {
+
+	/**
+	 * Default number of the rules, lines and matches listed in the report.
+	 */
+	public static final int TOP = 20;
+
+	/**
+	 * Number of the ranges of lines in the heat map.
+	 */
+	private static final int HEAT_MAP_BUCKETS = 64;
+
+	/**
+	 * Number of the rules, lines and matches listed in the report.
+	 */
+	private final int top;
+
+	private long tokens;
+	private long charsRead;
+	private long overscan;
+	private long goBacks;
+	private long replayed;
+	private long errors;
+	private long errorRescanned;
+	private long refills;
+	private long refillRescanned;
+
+	/**
+	 * lexer state -> rule -> counts of the rule
+	 */
+	private final Map<LexState, RuleStats[]> rules = new IdentityHashMap<>();
+
+	/**
+	 * line -> chars read by the matches starting in it
+	 */
+	private long[] lineRead = new long[1024];
+
+	/**
+	 * line -> wasted chars of the matches starting in it
+	 */
+	private long[] lineWasted = new long[1024];
+
+	/**
+	 * Last line a match started in.
+	 */
+	private int lastLine;
+
+	/**
+	 * Matches wasting the most chars, the least of them at the head.
+	 */
+	private final PriorityQueue<Hotspot> hotspots = new PriorityQueue<>(
+			Comparator.comparingLong((Hotspot hotspot) -> hotspot.wasted).thenComparing(hotspot -> -hotspot.offset));
+
+	/**
+	 * Creates a new, empty {@link LexDiagnostics} listing the {@link #TOP} entries.
+	 */
+	public LexDiagnostics() {
+		this(TOP);
+	}
+
+	/**
+	 * Creates a new, empty {@link LexDiagnostics}.
+	 *
+	 * @param top Number of the rules, lines and matches listed in the report.
+	 * @throws IllegalArgumentException If the <code>top</code> is not positive.
+	 */
+	public LexDiagnostics(int top) {
+		if (top < 1) {
+			throw new IllegalArgumentException(String.format("Top %d entries are not supported.", top));
+		}
+
+		this.top = top;
+	}
+
+	/**
+	 * Records the match of a token.
+	 *
+	 * @param state Lexer state of the match.
+	 * @param rule Rule accepted.
+	 * @param offset Offset of the token in the input.
+	 * @param line Line the token starts in.
+	 * @param read Chars read by the match.
+	 * @param overscan Chars read past the longest accepted prefix, and the char right after it.
+	 * @param replayed Chars of the accepted prefix given back by the rule's actions.
+	 */
+	void token(LexState state, int rule, int offset, int line, int read, int overscan, int replayed) {
+		tokens++;
+		this.overscan += overscan;
+
+		if (replayed > 0) {
+			goBacks++;
+			this.replayed += replayed;
+		}
+
+		RuleStats stats = stats(state, rule);
+		stats.tokens++;
+		stats.read += read;
+		stats.overscan += overscan;
+		stats.replayed += replayed;
+		stats.maxWasted = Math.max(stats.maxWasted, overscan + replayed);
+
+		record(replayed > overscan ? "goBack" : "overscan", state, rule, offset, line, read, overscan + replayed);
+	}
+
+	/**
+	 * Records a failed match, whose first symbols are dropped by the error recovery.
+	 *
+	 * @param state Lexer state of the match.
+	 * @param offset Offset of the match in the input.
+	 * @param line Line the match starts in.
+	 * @param read Chars read by the match.
+	 * @param skipped Chars dropped.
+	 */
+	void error(LexState state, int offset, int line, int read, int skipped) {
+		int rescanned = Math.max(0, read - skipped);
+		errors++;
+		errorRescanned += rescanned;
+		record("error", state, -1, offset, line, read, rescanned);
+	}
+
+	/**
+	 * Records a match run again once more chars are available.
+	 *
+	 * @param state Lexer state of the match.
+	 * @param offset Offset of the match in the input.
+	 * @param line Line the match starts in.
+	 * @param read Chars read by the match.
+	 */
+	void refill(LexState state, int offset, int line, int read) {
+		refills++;
+		refillRescanned += read;
+		record("refill", state, -1, offset, line, read, read);
+	}
+
+	/**
+	 * Gets the total number of the wasted chars.
+	 *
+	 * @return Chars read more than once.
+	 */
+	public long getWasted() {
+		return overscan + replayed + errorRescanned + refillRescanned;
+	}
+
+	/**
+	 * Gets the total number of the chars read by the matches.
+	 *
+	 * @return Chars read.
+	 */
+	public long getCharsRead() {
+		return charsRead;
+	}
+
+	/**
+	 * Writes the report as a <b>JSON</b> document.
+	 *
+	 * @param writer Writer the report is written to. It's closed afterwards.
+	 * @throws IOException
+	 */
+	public void write(Writer writer) throws IOException {
+		try (JsonWriter json = new JsonWriter(writer)) {
+			json.beginObject()
+					.field("tokens", tokens)
+					.field("charsRead", charsRead)
+					.field("wasted", getWasted())
+					.field("overscan", overscan)
+					.field("goBacks", goBacks)
+					.field("replayed", replayed)
+					.field("errors", errors)
+					.field("errorRescanned", errorRescanned)
+					.field("refills", refills)
+					.field("refillRescanned", refillRescanned);
+
+			writeRules(json);
+			writeLines(json);
+
+			json.name("hotspots").beginArray();
+			List<Hotspot> sorted = new ArrayList<>(hotspots);
+			sorted.sort(hotspots.comparator().reversed());
+
+			for (Hotspot hotspot : sorted) {
+				json.beginObject()
+						.field("kind", hotspot.kind)
+						.field("state", hotspot.state)
+						.field("rule", hotspot.rule)
+						.field("offset", hotspot.offset)
+						.field("line", hotspot.line)
+						.field("read", hotspot.read)
+						.field("wasted", hotspot.wasted)
+						.endObject();
+			}
+			json.endArray();
+
+			writeHeatMap(json);
+			json.endObject();
+		}
+	}
+
+	/**
+	 * Writes the rules with the most wasted chars.
+	 *
+	 * @param json JSON writer.
+	 * @throws IOException
+	 */
+	private void writeRules(JsonWriter json) throws IOException {
+		List<Object[]> entries = new ArrayList<>();
+
+		for (Map.Entry<LexState, RuleStats[]> state : rules.entrySet()) {
+			for (int rule = 0; rule < state.getValue().length; rule++) {
+				if (state.getValue()[rule] != null) {
+					entries.add(new Object[] { state.getKey(), rule, state.getValue()[rule] });
+				}
+			}
+		}
+
+		entries.sort(Comparator.comparingLong((Object[] entry) -> ((RuleStats) entry[2]).wasted()).reversed());
+
+		json.name("rules").beginArray();
+		for (Object[] entry : entries.subList(0, Math.min(top, entries.size()))) {
+			LexState state = (LexState) entry[0];
+			int rule = (int) entry[1];
+			RuleStats stats = (RuleStats) entry[2];
+
+			json.beginObject()
+					.field("state", state.getName())
+					.field("rule", rule)
+					.field("unit", state.lexUnit(rule))
+					.field("tokens", stats.tokens)
+					.field("read", stats.read)
+					.field("overscan", stats.overscan)
+					.field("replayed", stats.replayed)
+					.field("maxWasted", stats.maxWasted)
+					.endObject();
+		}
+		json.endArray();
+	}
+
+	/**
+	 * Writes the lines with the most wasted chars.
+	 *
+	 * @param json JSON writer.
+	 * @throws IOException
+	 */
+	private void writeLines(JsonWriter json) throws IOException {
+		PriorityQueue<Integer> worst = new PriorityQueue<>(
+				Comparator.comparingLong((Integer line) -> lineWasted[line]).thenComparing(line -> -line));
+
+		for (int line = 0; line <= lastLine; line++) {
+			if (lineWasted[line] > 0) {
+				worst.add(line);
+
+				if (worst.size() > top) {
+					worst.poll();
+				}
+			}
+		}
+
+		Integer[] lines = worst.toArray(new Integer[0]);
+		Arrays.sort(lines, worst.comparator().reversed());
+
+		json.name("lines").beginArray();
+		for (int line : lines) {
+			json.beginObject()
+					.field("line", line)
+					.field("read", lineRead[line])
+					.field("wasted", lineWasted[line])
+					.endObject();
+		}
+		json.endArray();
+	}
+
+	/**
+	 * Writes the wasted chars per range of lines, the ranges being equally long.
+	 *
+	 * @param json JSON writer.
+	 * @throws IOException
+	 */
+	private void writeHeatMap(JsonWriter json) throws IOException {
+		int linesPerBucket = Math.max(1, (lastLine + HEAT_MAP_BUCKETS - 1) / HEAT_MAP_BUCKETS);
+		long[] buckets = new long[lastLine / linesPerBucket + 1];
+
+		for (int line = 0; line <= lastLine; line++) {
+			buckets[line / linesPerBucket] += lineWasted[line];
+		}
+
+		json.name("heatMap").beginObject()
+				.field("linesPerBucket", linesPerBucket)
+				.name("wasted").beginArray();
+		for (long bucket : buckets) {
+			json.value(bucket);
+		}
+		json.endArray().endObject();
+	}
+
+	/**
+	 * Adds the match to the lines and the hotspots.
+	 *
+	 * @param kind Kind of the wasted chars.
+	 * @param state Lexer state of the match.
+	 * @param rule Rule accepted, or <code>-1</code>.
+	 * @param offset Offset of the match in the input.
+	 * @param line Line the match starts in.
+	 * @param read Chars read by the match.
+	 * @param wasted Chars read again.
+	 */
+	private void record(String kind, LexState state, int rule, int offset, int line, int read, int wasted) {
+		charsRead += read;
+
+		if (line >= lineRead.length) {
+			lineRead = Arrays.copyOf(lineRead, Math.max(2 * lineRead.length, line + 1));
+			lineWasted = Arrays.copyOf(lineWasted, lineRead.length);
+		}
+		lineRead[line] += read;
+		lineWasted[line] += wasted;
+		lastLine = Math.max(lastLine, line);
+
+		if (wasted == 0 || (hotspots.size() == top && hotspots.peek().wasted >= wasted)) {
+			return;
+		}
+
+		hotspots.add(new Hotspot(kind, state.getName(), rule, offset, line, read, wasted));
+		if (hotspots.size() > top) {
+			hotspots.poll();
+		}
+	}
+
+	/**
+	 * Gets the counts of the rule, creating them for its first token.
+	 *
+	 * @param state Lexer state.
+	 * @param rule Rule of the state.
+	 * @return Counts of the rule.
+	 */
+	private RuleStats stats(LexState state, int rule) {
+		RuleStats[] stats = rules.computeIfAbsent(state, s -> new RuleStats[s.getRuleCount()]);
+
+		if (stats[rule] == null) {
+			stats[rule] = new RuleStats();
+		}
+
+		return stats[rule];
+	}
+
+	/**
+	 * Counts of the tokens of a single rule.
+	 */
+	private static final class RuleStats {
+
+		private long tokens;
+		private long read;
+		private long overscan;
+		private long replayed;
+		private long maxWasted;
+
+		long wasted() {
+			return overscan + replayed;
+		}
+	}
+
+	/**
+	 * Single match wasting many chars.
+	 */
+	private static final class Hotspot {
+
+		private final String kind;
+		private final String state;
+		private final int rule;
+		private final int offset;
+		private final int line;
+		private final int read;
+		private final int wasted;
+
+		Hotspot(String kind, String state, int rule, int offset, int line, int read, int wasted) {
+			this.kind = kind;
+			this.state = state;
+			this.rule = rule;
+			this.offset = offset;
+			this.line = line;
+			this.read = read;
+			this.wasted = wasted;
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package hr.fer.zemris.ppj.compiler.lexical.exec;
+
+import java.io.IOException;
+
+/**
+ * Input of the {@link Lex} that arrives in parts while it's being scanned.<br>
+ *
+ * Chars are only ever appended, so the chars already available never change, until the scanned ones are
+ * released by the {@link Lex#release()}.
+ *
+ * @author fiilip
+ *
+ */
+public interface LexInput extends CharSequence {
+
+	/**
+	 * Appends more chars to the input, waiting for them if needed.
+	 *
+	 * @return <code>True</code> if the chars were appended, <code>false</code> at the end of the input.
+	 * @throws IOException If the input can't be read.
+	 */
+	boolean fill() throws IOException;
+
+	/**
+	 * Drops the chars before the given index, shifting the remaining chars to the front of the input.
+	 *
+	 * @param index Index of the first char kept.
+	 * @return Number of the dropped chars; none by default, the input keeps all its chars.
+	 */
+	default int release(int index) {
+		return 0;
+	}
+}
@@ -0,0 +1,334 @@
+package hr.fer.zemris.ppj.compiler.lexical.exec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import hr.fer.zemris.ppj.compiler.lexical.actions.LexAction;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexAutomatonMerged;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexDfa;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexDfaBuilder;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexNfa;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.TokenConsumer;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.TokenSink;
+import hr.fer.zemris.ppj.compiler.util.StreamManager;
+
+/**
+ * Objects generated by the <b>Generator of Lexical Analyzer</b> and
+ * used by the <b>Lexical Analyzer</b>.<br>
+ *
+ * These are the start state and the {@link LexState} of every lexer state, ie. the deterministic
+ * (or nondeterministic) automaton of the state's rules together with their lexical units and actions.<br>
+ *
+ * Objects are stored in a flat binary artifact, described in {@link LexObjectsFormat}. An artifact
+ * read with {@link #read(ByteBuffer)} is used in place: the automaton tables are views of the buffer, and
+ * the section of a lexer state is decoded only when that state is entered for the first time.
+ *
+ * @author fiilip
+ *
+ */
+public class LexObjects {
+
+	/**
+	 * Version of the artifact format.
+	 */
+	public static final int FORMAT_VERSION = LexObjectsFormat.VERSION;
+
+	/**
+	 * Starting state of the lexical analyzer.
+	 */
+	private final String startState;
+
+	/**
+	 * Names of all the lexer states.
+	 */
+	private final List<String> stateNames;
+
+	/**
+	 * Lexer state name -> index of the state.
+	 */
+	private final Map<String, Integer> stateIndices = new HashMap<>();
+
+	/**
+	 * Number of rules of every lexer state.
+	 */
+	private final int[] ruleCounts;
+
+	/**
+	 * Lexical units of all the rules that have one, without duplicates.
+	 */
+	private final List<String> lexUnits;
+
+	/**
+	 * Decoded lexer states; <code>null</code> for the states not decoded yet.
+	 */
+	private final LexState[] states;
+
+	/**
+	 * Artifact the states are decoded from, or <code>null</code> if all the states are already built.
+	 */
+	private final LexObjectsFormat.Reader reader;
+
+	/**
+	 * Creates a new instance of {@link LexObjects} from the already built states.
+	 *
+	 * @param startState Starting state.
+	 * @param states States of the lexical analyzer.
+	 */
+	public LexObjects(String startState, List<LexState> states) {
+		this(startState, states.stream().map(LexState::getName).collect(Collectors.toList()),
+				states.stream().mapToInt(LexState::getRuleCount).toArray(), lexUnitsOf(states),
+				states.toArray(new LexState[0]), null);
+	}
+
+	/**
+	 * Creates a new instance of {@link LexObjects}.
+	 *
+	 * @param startState Starting state.
+	 * @param stateNames Names of all the lexer states.
+	 * @param ruleCounts Number of rules of every lexer state.
+	 * @param lexUnits Lexical units of all the rules that have one, without duplicates.
+	 * @param states Decoded lexer states.
+	 * @param reader Artifact the missing states are decoded from.
+	 */
+	LexObjects(String startState, List<String> stateNames, int[] ruleCounts, List<String> lexUnits,
+			LexState[] states, LexObjectsFormat.Reader reader) {
+		this.startState = Objects.requireNonNull(startState);
+		this.stateNames = Collections.unmodifiableList(stateNames);
+		this.ruleCounts = Objects.requireNonNull(ruleCounts);
+		this.lexUnits = Collections.unmodifiableList(lexUnits);
+		this.states = Objects.requireNonNull(states);
+		this.reader = reader;
+
+		for (int i = 0; i < stateNames.size(); i++) {
+			stateIndices.put(stateNames.get(i), i);
+		}
+	}
+
+	/**
+	 * Creates the objects of the given rules, building the deterministic automaton of every state.
+	 * States are built in parallel on the common fork-join pool.
+	 *
+	 * @param startState Starting state.
+	 * @param rules Mappings from state to list of rules.
+	 * @param merged Merged automaton of all the rules.
+	 * @return Objects of the lexical analyzer.
+	 */
+	public static LexObjects build(String startState, Map<String, List<LexRule>> rules, LexAutomatonMerged merged) {
+		Map<String, LexDfa> automatons = rules.entrySet().parallelStream()
+				.collect(Collectors.toMap(Map.Entry::getKey, state -> {
+					LexDfaBuilder builder = new LexDfaBuilder(merged,
+							state.getValue().stream().map(LexRule::getAutomaton).collect(Collectors.toList()));
+					return LexDfaBuilder.minimize(builder.determinize());
+				}));
+
+		return of(startState, rules, automatons);
+	}
+
+	/**
+	 * Creates the objects of the given rules and their already built automatons.
+	 *
+	 * @param startState Starting state.
+	 * @param rules Mappings from state to list of rules.
+	 * @param automatons Mappings from state to the automaton of all the state's rules.
+	 * @return Objects of the lexical analyzer.
+	 */
+	public static LexObjects of(String startState, Map<String, List<LexRule>> rules, Map<String, LexDfa> automatons) {
+		return of(startState, rules, automatons, Collections.emptyMap());
+	}
+
+	/**
+	 * Creates the objects of the given rules and their already built automatons, where every state has
+	 * either the deterministic or the nondeterministic automaton.
+	 *
+	 * @param startState Starting state.
+	 * @param rules Mappings from state to list of rules.
+	 * @param automatons Mappings from state to the deterministic automaton of all the state's rules.
+	 * @param nfas Mappings from state to the nondeterministic automaton of all the state's rules.
+	 * @return Objects of the lexical analyzer.
+	 */
+	public static LexObjects of(String startState, Map<String, List<LexRule>> rules, Map<String, LexDfa> automatons,
+			Map<String, LexNfa> nfas) {
+		List<LexState> states = new ArrayList<>();
+
+		for (Map.Entry<String, List<LexRule>> state : rules.entrySet()) {
+			List<LexRule> stateRules = state.getValue();
+			String[] lexUnits = stateRules.stream().map(LexRule::lexUnit).toArray(String[]::new);
+			List<List<LexAction>> actions = stateRules.stream().map(LexRule::getActions).collect(Collectors.toList());
+			LexNfa nfa = nfas.get(state.getKey());
+
+			states.add(nfa != null ? new LexState(state.getKey(), nfa, lexUnits, actions)
+					: new LexState(state.getKey(), automatons.get(state.getKey()), lexUnits, actions));
+		}
+
+		return new LexObjects(startState, states);
+	}
+
+	/**
+	 * Reads the objects from the given artifact. Only the header, the directory and the strings
+	 * are read; lexer states are decoded on demand.
+	 *
+	 * @param buffer Content of the artifact, eg. a memory mapped file.
+	 * @return Objects read from the artifact.
+	 * @throws IOException If the artifact is not valid.
+	 */
+	public static LexObjects read(ByteBuffer buffer) throws IOException {
+		return LexObjectsFormat.read(buffer);
+	}
+
+	/**
+	 * Writes these objects to the given <code>channel</code>.
+	 *
+	 * @param channel Channel the artifact is written to.
+	 * @return Number of bytes written.
+	 * @throws IOException
+	 */
+	public long write(WritableByteChannel channel) throws IOException {
+		return LexObjectsFormat.write(this, channel);
+	}
+
+	/**
+	 * Creates a new {@link Lex} that analyzes the input using these objects.
+	 *
+	 * @param streamManager Stream manager.
+	 * @param ostream Output stream used for results output.
+	 * @return New lexical analyzer.
+	 */
+	public Lex createLex(StreamManager streamManager, OutputStream ostream) {
+		return new Lex(this, streamManager, ostream);
+	}
+
+	/**
+	 * Creates a new {@link Lex} that analyzes the input using these objects, and passes the tokens to the
+	 * given <code>sink</code>.
+	 *
+	 * @param streamManager Stream manager.
+	 * @param sink Sink receiving the tokens.
+	 * @return New lexical analyzer.
+	 */
+	public Lex createLex(StreamManager streamManager, TokenSink sink) {
+		return new Lex(this, streamManager, sink);
+	}
+
+	/**
+	 * Creates a new {@link Lex} that analyzes the input using these objects, and passes the tokens to the
+	 * given <code>consumer</code> by the ids of their lexical units, indices into the {@link #getLexUnits()}.
+	 *
+	 * @param streamManager Stream manager.
+	 * @param consumer Consumer receiving the tokens.
+	 * @return New lexical analyzer.
+	 */
+	public Lex createLex(StreamManager streamManager, TokenConsumer consumer) {
+		return new Lex(this, streamManager, consumer);
+	}
+
+	/**
+	 * Gets the lexical units of all the rules that have one, without duplicates. Units of an artifact are
+	 * read from its header, so no lexer state is decoded.
+	 *
+	 * @return Lexical units, in order of the states and their rules.
+	 */
+	public List<String> getLexUnits() {
+		return lexUnits;
+	}
+
+	/**
+	 * Collects the lexical units of the rules of the given states.
+	 *
+	 * @param states Lexer states.
+	 * @return Lexical units, in order of the states and their rules, without duplicates.
+	 */
+	private static List<String> lexUnitsOf(List<LexState> states) {
+		Set<String> units = new LinkedHashSet<>();
+
+		for (LexState state : states) {
+			for (int rule = 0; rule < state.getRuleCount(); rule++) {
+				if (state.hasLexUnit(rule)) {
+					units.add(state.lexUnit(rule));
+				}
+			}
+		}
+
+		return new ArrayList<>(units);
+	}
+
+	/**
+	 * Gets the starting state of the lexical analyzer.
+	 *
+	 * @return Starting state.
+	 */
+	public String getStartState() {
+		return startState;
+	}
+
+	/**
+	 * Gets the names of all the lexer states.
+	 *
+	 * @return Names of the states.
+	 */
+	public List<String> getStateNames() {
+		return stateNames;
+	}
+
+	/**
+	 * Gets the lexer state with the given name, decoding it from the artifact if needed.
+	 *
+	 * @param name Name of the state.
+	 * @return Lexer state, or <code>null</code> if there is no such state.
+	 */
+	public LexState getState(String name) {
+		Integer idx = stateIndices.get(name);
+
+		if (idx == null) {
+			return null;
+		}
+
+		LexState state = states[idx];
+		return state != null ? state : decode(idx);
+	}
+
+	/**
+	 * Tests whether the given lexer state has already been decoded.
+	 *
+	 * @param name Name of the state.
+	 * @return <code>True</code> if the state is decoded, <code>false</code> otherwise.
+	 */
+	public boolean isDecoded(String name) {
+		Integer idx = stateIndices.get(name);
+		return idx != null && states[idx] != null;
+	}
+
+	/**
+	 * Gets the total number of rules in all the states.
+	 *
+	 * @return Number of rules.
+	 */
+	public int getRuleCount() {
+		return Arrays.stream(ruleCounts).sum();
+	}
+
+	/**
+	 * Decodes the lexer state from the artifact.
+	 *
+	 * @param idx Index of the state.
+	 * @return Decoded state.
+	 */
+	private synchronized LexState decode(int idx) {
+		if (states[idx] == null) {
+			states[idx] = reader.readState(idx);
+		}
+
+		return states[idx];
+	}
+}
@@ -0,0 +1,550 @@
+package hr.fer.zemris.ppj.compiler.lexical.exec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import hr.fer.zemris.ppj.compiler.lexical.actions.EnterStateAction;
+import hr.fer.zemris.ppj.compiler.lexical.actions.GoBackAction;
+import hr.fer.zemris.ppj.compiler.lexical.actions.LexAction;
+import hr.fer.zemris.ppj.compiler.lexical.actions.LexActionFactory;
+import hr.fer.zemris.ppj.compiler.lexical.actions.NewLineAction;
+import hr.fer.zemris.ppj.compiler.lexical.actions.SkipAction;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexDfa;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexNfa;
+
+/**
+ * Binary format of the {@link LexObjects} artifact.<br>
+ *
+ * All values are little endian 32 bit integers, and every part of the artifact starts at an offset
+ * divisible by <code>4</code>, so that the tables can be viewed as {@link IntBuffer}s in place.
+ * <ul>
+ * <li><b>header</b> - <code>magic, version, stateCount, startState, stringCount, stringsOffset,
+ * directoryOffset, length, unitCount, unitsOffset</code></li>
+ * <li><b>directory</b> - for every lexer state: <code>name, ruleCount, sectionOffset, sectionLength</code></li>
+ * <li><b>units</b> - the lexical units of all the rules, without duplicates, in order of the states and their
+ * rules, so that they are known without decoding any state</li>
+ * <li><b>strings</b> - for every string: <code>byteLength</code> followed by the <i>UTF-8</i> bytes,
+ * padded to <code>4</code> bytes</li>
+ * <li><b>state section</b> - <code>ruleCount, engine, stateCount, classCount, intervalCount, closureLength</code>,
+ * then for every rule <code>lexUnit, actionCount</code> and for every action <code>argCount, args...</code>, and
+ * finally the tables of the automaton, starting with <code>bounds[intervalCount], classes[intervalCount],
+ * starts[words]</code>, where <code>words = (classCount + 31) / 32</code> and <code>starts</code> is the bitmap of
+ * the classes a token can start with</li>
+ * </ul>
+ * Engine <code>0</code> is the {@link LexDfa}, whose <code>stateCount</code> states are followed by the tables
+ * <code>transitions[stateCount * classCount], accepts[stateCount]</code>. Engine <code>1</code> is the {@link LexNfa},
+ * whose <code>stateCount</code> positions are followed by the tables <code>labels[stateCount * words],
+ * closureOffsets[stateCount + 2], closureRules[stateCount + 1], closures[closureLength]</code>.
+ * Names, lexical units and action arguments are indices into the strings. Actions are stored as the arguments
+ * of the {@link LexActionFactory}, so their name comes first.
+ *
+ * @author fiilip
+ *
+ */
+final class LexObjectsFormat {
+
+	/**
+	 * Magic number of the artifact, <code>PPJL</code> in ASCII.
+	 */
+	static final int MAGIC = 0x4C4A5050;
+
+	/**
+	 * Version of the format. Artifacts of the other versions are rejected.
+	 */
+	static final int VERSION = 4;
+
+	/**
+	 * Engine of the states matched by the {@link LexDfa}.
+	 */
+	static final int ENGINE_DFA = 0;
+
+	/**
+	 * Engine of the states matched by the {@link LexNfa}.
+	 */
+	static final int ENGINE_NFA = 1;
+
+	/**
+	 * Size of the head of a state section in integers.
+	 */
+	private static final int SECTION_INTS = 6;
+
+	/**
+	 * Size of the header in integers.
+	 */
+	private static final int HEADER_INTS = 10;
+
+	/**
+	 * Size of a directory entry in integers.
+	 */
+	private static final int DIRECTORY_INTS = 4;
+
+	private LexObjectsFormat() {
+	}
+
+	/**
+	 * Writes the objects to the given <code>channel</code>. All the lexer states are decoded in the process.
+	 *
+	 * @param objects Objects to be written.
+	 * @param channel Channel the artifact is written to.
+	 * @return Number of bytes written.
+	 * @throws IOException
+	 */
+	static long write(LexObjects objects, WritableByteChannel channel) throws IOException {
+		Map<String, Integer> strings = new LinkedHashMap<>();
+		List<String> names = objects.getStateNames();
+		List<int[]> sections = new ArrayList<>();
+
+		// tables are packed in parallel, strings are indexed in order of the states
+		List<int[]> tables = names.parallelStream()
+				.map(name -> objects.getState(name).isDeterministic() ? tables(objects.getState(name).getAutomaton())
+						: tables(objects.getState(name).getNfa()))
+				.collect(Collectors.toList());
+
+		for (int i = 0; i < names.size(); i++) {
+			sections.add(section(objects.getState(names.get(i)), tables.get(i), strings));
+		}
+
+		// strings
+		List<byte[]> encoded = new ArrayList<>();
+		int stringsLength = 0;
+
+		for (int i = 0; i < names.size(); i++) {
+			index(strings, names.get(i));
+		}
+
+		List<String> units = objects.getLexUnits();
+		for (String unit : units) {
+			index(strings, unit);
+		}
+
+		for (String string : strings.keySet()) {
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			encoded.add(bytes);
+			stringsLength += Integer.BYTES + align(bytes.length);
+		}
+
+		int directoryOffset = HEADER_INTS * Integer.BYTES;
+		int unitsOffset = directoryOffset + names.size() * DIRECTORY_INTS * Integer.BYTES;
+		int stringsOffset = unitsOffset + units.size() * Integer.BYTES;
+		int offset = stringsOffset + stringsLength;
+		int length = offset + sections.stream().mapToInt(section -> section.length * Integer.BYTES).sum();
+
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(names.size()).putInt(names.indexOf(objects.getStartState()))
+				.putInt(strings.size()).putInt(stringsOffset).putInt(directoryOffset).putInt(length)
+				.putInt(units.size()).putInt(unitsOffset);
+
+		for (int i = 0; i < names.size(); i++) {
+			int sectionLength = sections.get(i).length * Integer.BYTES;
+			buffer.putInt(strings.get(names.get(i))).putInt(sections.get(i)[0]).putInt(offset).putInt(sectionLength);
+			offset += sectionLength;
+		}
+
+		for (String unit : units) {
+			buffer.putInt(strings.get(unit));
+		}
+
+		for (byte[] bytes : encoded) {
+			buffer.putInt(bytes.length).put(bytes);
+			buffer.position(buffer.position() + align(bytes.length) - bytes.length);
+		}
+
+		for (int[] section : sections) {
+			buffer.asIntBuffer().put(section);
+			buffer.position(buffer.position() + section.length * Integer.BYTES);
+		}
+
+		buffer.flip();
+
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+
+		return length;
+	}
+
+	/**
+	 * Reads the header, the directory and the strings of the artifact.
+	 *
+	 * @param buffer Content of the artifact.
+	 * @return Objects backed by the artifact.
+	 * @throws IOException If the artifact is not valid.
+	 */
+	static LexObjects read(ByteBuffer buffer) throws IOException {
+		ByteBuffer artifact = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+		if (artifact.remaining() < HEADER_INTS * Integer.BYTES || artifact.getInt(0) != MAGIC) {
+			throw new IOException("Not a lexical objects artifact; regenerate it with GLA.");
+		}
+
+		if (artifact.getInt(4) != VERSION) {
+			throw new IOException(String.format("Unsupported version %d of the lexical objects artifact; expected %d.",
+					artifact.getInt(4), VERSION));
+		}
+
+		if (artifact.getInt(28) != artifact.remaining()) {
+			throw new IOException("Lexical objects artifact is truncated.");
+		}
+
+		int stateCount = artifact.getInt(8);
+		int startState = artifact.getInt(12);
+		String[] strings = new String[artifact.getInt(16)];
+		int position = artifact.getInt(20);
+
+		for (int i = 0; i < strings.length; i++) {
+			int length = artifact.getInt(position);
+			byte[] bytes = new byte[length];
+			artifact.position(position + Integer.BYTES);
+			artifact.get(bytes);
+			strings[i] = new String(bytes, StandardCharsets.UTF_8);
+			position += Integer.BYTES + align(length);
+		}
+
+		IntBuffer directory = slice(artifact, artifact.getInt(24), stateCount * DIRECTORY_INTS);
+		List<String> names = new ArrayList<>();
+		int[] ruleCounts = new int[stateCount];
+
+		for (int i = 0; i < stateCount; i++) {
+			names.add(strings[directory.get(i * DIRECTORY_INTS)]);
+			ruleCounts[i] = directory.get(i * DIRECTORY_INTS + 1);
+		}
+
+		IntBuffer unitIndices = slice(artifact, artifact.getInt(36), artifact.getInt(32));
+		List<String> units = new ArrayList<>();
+
+		for (int i = 0; i < unitIndices.limit(); i++) {
+			units.add(strings[unitIndices.get(i)]);
+		}
+
+		return new LexObjects(names.get(startState), names, ruleCounts, units, new LexState[stateCount],
+				new Reader(artifact, directory, strings));
+	}
+
+	/**
+	 * Decodes the lexer states of an artifact.
+	 */
+	static final class Reader {
+
+		/**
+		 * Content of the artifact.
+		 */
+		private final ByteBuffer artifact;
+
+		/**
+		 * Directory of the lexer states.
+		 */
+		private final IntBuffer directory;
+
+		/**
+		 * Strings of the artifact.
+		 */
+		private final String[] strings;
+
+		/**
+		 * Creates a new {@link Reader}.
+		 *
+		 * @param artifact Content of the artifact.
+		 * @param directory Directory of the lexer states.
+		 * @param strings Strings of the artifact.
+		 */
+		Reader(ByteBuffer artifact, IntBuffer directory, String[] strings) {
+			this.artifact = artifact;
+			this.directory = directory;
+			this.strings = strings;
+		}
+
+		/**
+		 * Decodes the lexer state with the given index. Automaton tables remain in the artifact.
+		 *
+		 * @param idx Index of the state.
+		 * @return Decoded state.
+		 */
+		LexState readState(int idx) {
+			int offset = directory.get(idx * DIRECTORY_INTS + 2);
+			int length = directory.get(idx * DIRECTORY_INTS + 3);
+			IntBuffer section = slice(artifact, offset, length / Integer.BYTES);
+
+			int ruleCount = section.get(0);
+			int engine = section.get(1);
+			int stateCount = section.get(2);
+			int classCount = section.get(3);
+			int intervals = section.get(4);
+			int closureLength = section.get(5);
+			int position = SECTION_INTS;
+
+			String[] lexUnits = new String[ruleCount];
+			List<List<LexAction>> actions = new ArrayList<>();
+
+			for (int rule = 0; rule < ruleCount; rule++) {
+				lexUnits[rule] = strings[section.get(position++)];
+				int actionCount = section.get(position++);
+				List<LexAction> ruleActions = new ArrayList<>();
+
+				for (int action = 0; action < actionCount; action++) {
+					String[] args = new String[section.get(position++)];
+
+					for (int arg = 0; arg < args.length; arg++) {
+						args[arg] = strings[section.get(position++)];
+					}
+
+					ruleActions.add(LexActionFactory.produce(args));
+				}
+
+				actions.add(ruleActions);
+			}
+
+			String name = strings[directory.get(idx * DIRECTORY_INTS)];
+			int words = LexNfa.wordCount(classCount);
+			IntBuffer bounds = slice(section, position, intervals);
+			IntBuffer classes = slice(section, position += intervals, intervals);
+			IntBuffer starts = slice(section, position += intervals, words);
+			position += words;
+
+			if (engine == ENGINE_NFA) {
+				int labelLength = stateCount * words;
+				IntBuffer labels = slice(section, position, labelLength);
+				IntBuffer closureOffsets = slice(section, position += labelLength, stateCount + 2);
+				IntBuffer closureRules = slice(section, position += stateCount + 2, stateCount + 1);
+				IntBuffer closures = slice(section, position += stateCount + 1, closureLength);
+
+				return new LexState(name, new LexNfa(bounds, classes, classCount, starts, labels, closureOffsets,
+						closures, closureRules), lexUnits, actions);
+			}
+
+			IntBuffer transitions = slice(section, position, stateCount * classCount);
+			IntBuffer accepts = slice(section, position += stateCount * classCount, stateCount);
+
+			return new LexState(name, new LexDfa(bounds, classes, classCount, starts, transitions, accepts), lexUnits,
+					actions);
+		}
+	}
+
+	/**
+	 * Encodes the section of the given lexer state.
+	 *
+	 * @param state Lexer state.
+	 * @param tables Packed tables of the state's automaton, in the order of its engine.
+	 * @param strings Strings of the artifact, extended with the strings of the state.
+	 * @return Content of the section.
+	 */
+	private static int[] section(LexState state, int[] tables, Map<String, Integer> strings) {
+		int[] section = new int[64];
+		int length = 0;
+		int[] head;
+
+		if (state.isDeterministic()) {
+			LexDfa dfa = state.getAutomaton();
+			head = new int[] { state.getRuleCount(), ENGINE_DFA, dfa.getStateCount(), dfa.getClassCount(),
+					dfa.getIntervalCount(), 0 };
+		} else {
+			LexNfa nfa = state.getNfa();
+			head = new int[] { state.getRuleCount(), ENGINE_NFA, nfa.getPositionCount(), nfa.getClassCount(),
+					nfa.getIntervalCount(), nfa.getClosureLength() };
+		}
+
+		section = append(section, length, head);
+		length += head.length;
+
+		for (int rule = 0; rule < state.getRuleCount(); rule++) {
+			List<LexAction> actions = state.getActions(rule);
+			section = append(section, length, new int[] { index(strings, state.lexUnit(rule)), actions.size() });
+			length += 2;
+
+			for (LexAction action : actions) {
+				String[] args = encode(action);
+				int[] encoded = new int[args.length + 1];
+				encoded[0] = args.length;
+
+				for (int arg = 0; arg < args.length; arg++) {
+					encoded[arg + 1] = index(strings, args[arg]);
+				}
+
+				section = append(section, length, encoded);
+				length += encoded.length;
+			}
+		}
+
+		section = append(section, length, tables);
+		return Arrays.copyOf(section, length + tables.length);
+	}
+
+	/**
+	 * Packs the tables of the given deterministic automaton.
+	 *
+	 * @param dfa Automaton of a lexer state.
+	 * @return Tables <code>bounds, classes, starts, transitions, accepts</code>, one after another.
+	 */
+	private static int[] tables(LexDfa dfa) {
+		int words = LexNfa.wordCount(dfa.getClassCount());
+		int[] tables = new int[2 * dfa.getIntervalCount() + words + dfa.getStateCount() * (dfa.getClassCount() + 1)];
+		int position = 0;
+
+		for (int idx = 0; idx < dfa.getIntervalCount(); idx++) {
+			tables[position++] = dfa.getIntervalStart(idx);
+		}
+
+		for (int idx = 0; idx < dfa.getIntervalCount(); idx++) {
+			tables[position++] = dfa.getIntervalClass(idx);
+		}
+
+		for (int word = 0; word < words; word++) {
+			tables[position++] = dfa.getStartWord(word);
+		}
+
+		for (int q = 0; q < dfa.getStateCount(); q++) {
+			for (int cls = 0; cls < dfa.getClassCount(); cls++) {
+				tables[position++] = dfa.next(q, cls);
+			}
+		}
+
+		for (int q = 0; q < dfa.getStateCount(); q++) {
+			tables[position++] = dfa.acceptedRule(q);
+		}
+
+		return tables;
+	}
+
+	/**
+	 * Packs the tables of the given nondeterministic automaton.
+	 *
+	 * @param nfa Automaton of a lexer state.
+	 * @return Tables <code>bounds, classes, starts, labels, closureOffsets, closureRules, closures</code>, one after
+	 * another.
+	 */
+	private static int[] tables(LexNfa nfa) {
+		int positions = nfa.getPositionCount();
+		int words = LexNfa.wordCount(nfa.getClassCount());
+		int[] tables = new int[2 * nfa.getIntervalCount() + words + positions * words + 2 * positions + 3
+				+ nfa.getClosureLength()];
+		int position = 0;
+
+		for (int idx = 0; idx < nfa.getIntervalCount(); idx++) {
+			tables[position++] = nfa.getIntervalStart(idx);
+		}
+
+		for (int idx = 0; idx < nfa.getIntervalCount(); idx++) {
+			tables[position++] = nfa.getIntervalClass(idx);
+		}
+
+		for (int word = 0; word < words; word++) {
+			tables[position++] = nfa.getStartWord(word);
+		}
+
+		for (int p = 0; p < positions; p++) {
+			for (int word = 0; word < words; word++) {
+				tables[position++] = nfa.getLabelWord(p, word);
+			}
+		}
+
+		for (int closure = 0; closure <= positions; closure++) {
+			tables[position++] = nfa.getClosureStart(closure);
+		}
+		tables[position++] = nfa.getClosureEnd(positions);
+
+		for (int closure = 0; closure <= positions; closure++) {
+			tables[position++] = nfa.getClosureRule(closure);
+		}
+
+		for (int idx = 0; idx < nfa.getClosureLength(); idx++) {
+			tables[position++] = nfa.getClosurePosition(idx);
+		}
+
+		return tables;
+	}
+
+	/**
+	 * Encodes the action as the arguments of the {@link LexActionFactory}.
+	 *
+	 * @param action Action to be encoded.
+	 * @return Arguments producing the action.
+	 */
+	private static String[] encode(LexAction action) {
+		if (action instanceof NewLineAction) {
+			return new String[] { NewLineAction.NAME };
+		} else if (action instanceof EnterStateAction) {
+			return new String[] { EnterStateAction.NAME, ((EnterStateAction) action).getState() };
+		} else if (action instanceof GoBackAction) {
+			return new String[] { GoBackAction.NAME, Integer.toString(((GoBackAction) action).getGoBack()) };
+		} else if (action instanceof SkipAction) {
+			return new String[] { SkipAction.NAME };
+		}
+
+		throw new IllegalArgumentException(String.format("Action %s can't be stored.", action.getClass().getName()));
+	}
+
+	/**
+	 * Appends the values to the array at the given length, growing it if needed.
+	 *
+	 * @param array Array of values.
+	 * @param length Number of the values used.
+	 * @param values Values to be appended.
+	 * @return Array holding the appended values.
+	 */
+	private static int[] append(int[] array, int length, int[] values) {
+		if (length + values.length > array.length) {
+			array = Arrays.copyOf(array, Math.max(2 * array.length, length + values.length));
+		}
+
+		System.arraycopy(values, 0, array, length, values.length);
+		return array;
+	}
+
+	/**
+	 * Gets the index of the string, adding it to the strings if needed.
+	 *
+	 * @param strings Strings of the artifact.
+	 * @param string String of interest.
+	 * @return Index of the string.
+	 */
+	private static int index(Map<String, Integer> strings, String string) {
+		return strings.computeIfAbsent(string, s -> strings.size());
+	}
+
+	/**
+	 * Rounds the length up to the multiple of <code>4</code>.
+	 *
+	 * @param length Length in bytes.
+	 * @return Aligned length.
+	 */
+	private static int align(int length) {
+		return (length + Integer.BYTES - 1) & -Integer.BYTES;
+	}
+
+	/**
+	 * Views <code>count</code> integers of the buffer starting at the byte <code>offset</code>.
+	 *
+	 * @param buffer Content of the artifact.
+	 * @param offset Offset in bytes.
+	 * @param count Number of integers.
+	 * @return View of the integers.
+	 */
+	private static IntBuffer slice(ByteBuffer buffer, int offset, int count) {
+		ByteBuffer view = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		view.position(offset).limit(offset + count * Integer.BYTES);
+		return view.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+	}
+
+	/**
+	 * Views <code>count</code> integers of the buffer starting at the integer <code>offset</code>.
+	 *
+	 * @param buffer Integers of interest.
+	 * @param offset Offset in integers.
+	 * @param count Number of integers.
+	 * @return View of the integers.
+	 */
+	private static IntBuffer slice(IntBuffer buffer, int offset, int count) {
+		IntBuffer view = buffer.duplicate();
+		view.position(offset).limit(offset + count);
+		return view.slice();
+	}
+}
@@ -0,0 +1,151 @@
+package hr.fer.zemris.ppj.compiler.lexical.exec;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import hr.fer.zemris.ppj.compiler.lexical.automata.DfaProfile;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexDfa;
+
+/**
+ * Profile of the deterministic automatons of the lexer states, recorded by the {@link Lex} while scanning, see
+ * {@link Lex#setProfile(LexProfile)}. States simulated by the nondeterministic automatons are not profiled.<br>
+ *
+ * The profile is written as text, by the canonical state numbers of the {@link DfaProfile}, so that it can be
+ * applied to the automatons generated again from the same definitions: a line <code>%Profile state stateCount
+ * classCount</code> for every lexer state, followed by a line <code>state visits class:count...</code> for every
+ * visited state of its automaton.
+ *
+ * @author fiilip
+ *
+ */
+public class LexProfile {
+
+	/**
+	 * lexer state -> profile of its automaton
+	 */
+	private final Map<String, DfaProfile> profiles = new LinkedHashMap<>();
+
+	/**
+	 * Gets the profile of the lexer state, creating it when the state is profiled for the first time.
+	 *
+	 * @param state Lexer state matched by the deterministic automaton.
+	 * @return Profile of the state's automaton.
+	 */
+	DfaProfile of(LexState state) {
+		return profiles.computeIfAbsent(state.getName(), name -> new DfaProfile(state.getAutomaton()));
+	}
+
+	/**
+	 * Gets the profiles of the lexer states.
+	 *
+	 * @return Mappings from lexer state to the profile of its automaton.
+	 */
+	public Map<String, DfaProfile> getProfiles() {
+		return Collections.unmodifiableMap(profiles);
+	}
+
+	/**
+	 * Writes the profile to the stream.
+	 *
+	 * @param ostream Output stream.
+	 * @throws IOException
+	 */
+	public void write(OutputStream ostream) throws IOException {
+		Writer writer = new OutputStreamWriter(ostream, StandardCharsets.UTF_8);
+		String separator = System.lineSeparator();
+
+		for (Map.Entry<String, DfaProfile> entry : profiles.entrySet()) {
+			DfaProfile profile = entry.getValue();
+			LexDfa dfa = profile.getDfa();
+			int[] order = DfaProfile.canonicalOrder(dfa);
+
+			writer.write(String.format("%%Profile %s %d %d%s", entry.getKey(), dfa.getStateCount(),
+					dfa.getClassCount(), separator));
+
+			for (int i = 0; i < order.length; i++) {
+				if (profile.getVisits(order[i]) == 0) {
+					continue;
+				}
+
+				StringBuilder sb = new StringBuilder();
+				sb.append(i).append(' ').append(profile.getVisits(order[i]));
+
+				for (int cls = 0; cls < dfa.getClassCount(); cls++) {
+					long count = profile.getTransitions(order[i], cls);
+					if (count > 0) {
+						sb.append(' ').append(cls).append(':').append(count);
+					}
+				}
+
+				writer.write(sb.append(separator).toString());
+			}
+		}
+
+		writer.flush();
+	}
+
+	/**
+	 * Reads the profile written by the {@link #write(OutputStream)} for the given automatons. Lexer states whose
+	 * automaton doesn't have the same number of states and alphabet classes as the profiled one are skipped.
+	 *
+	 * @param istream Input stream.
+	 * @param automatons Mappings from lexer state to its deterministic automaton.
+	 * @return Profile of the automatons.
+	 * @throws IOException
+	 * @throws IllegalStateException If the profile is not valid.
+	 */
+	public static LexProfile read(InputStream istream, Map<String, LexDfa> automatons) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(istream, StandardCharsets.UTF_8));
+		LexProfile result = new LexProfile();
+		DfaProfile profile = null;
+		boolean skipped = false;
+		String line;
+
+		try {
+			while ((line = reader.readLine()) != null) {
+				if (line.isBlank()) {
+					continue;
+				}
+
+				String[] parts = line.trim().split(" ");
+
+				if (parts[0].equals("%Profile")) {
+					LexDfa dfa = automatons.get(parts[1]);
+					skipped = dfa == null || dfa.getStateCount() != Integer.parseInt(parts[2])
+							|| dfa.getClassCount() != Integer.parseInt(parts[3]);
+					profile = skipped ? null : new DfaProfile(dfa);
+
+					if (profile != null) {
+						result.profiles.put(parts[1], profile);
+					}
+					continue;
+				}
+
+				if (skipped) {
+					continue;
+				}
+
+				long[] transitions = new long[profile.getDfa().getClassCount()];
+				for (int i = 2; i < parts.length; i++) {
+					int colon = parts[i].indexOf(':');
+					transitions[Integer.parseInt(parts[i].substring(0, colon))] = Long.parseLong(parts[i].substring(colon + 1));
+				}
+
+				profile.addCanonical(Integer.parseInt(parts[0]), Long.parseLong(parts[1]), transitions);
+			}
+		} catch (RuntimeException e) {
+			throw new IllegalStateException("Check the profile format.", e);
+		}
+
+		return result;
+	}
+}
@@ -29,7 +29,12 @@ public class LexRule implements LexExecutable, Serializable {
 	private final String lexUnit;
 	
 	/**
-	 * Corresponding automaton.
+	 * Regular expression of this rule, as given in the definitions.
+	 */
+	private final String regEx;
+	
+	/**
+	 * Corresponding automaton, or <code>null</code> if it's not built.
 	 */
 	private final LexAutomaton automaton;
 	
@@ -43,15 +48,27 @@ public class LexRule implements LexExecutable, Serializable {
 	 * and a list of actions that are executed whenever the input matches the regEx.
 	 * 
 	 * @param lexUnit Lexical unit of this lexical rule.
-	 * @param automaton Automaton for this lexical rule.
+	 * @param regEx Regular expression of this lexical rule.
+	 * @param automaton Automaton for this lexical rule, or <code>null</code> if it's not built yet.
 	 * @param actions List of actions that are executed on matched regEx.
 	 */
-	public LexRule(String lexUnit, LexAutomaton automaton, List<LexAction> actions) {
+	public LexRule(String lexUnit, String regEx, LexAutomaton automaton, List<LexAction> actions) {
 		this.lexUnit = Objects.requireNonNull(lexUnit);
-		this.automaton = Objects.requireNonNull(automaton);
+		this.regEx = Objects.requireNonNull(regEx);
+		this.automaton = automaton;
 		this.actions = Objects.requireNonNull(actions);
 	}
 	
+	/**
+	 * Creates a copy of this rule with the given automaton.
+	 * 
+	 * @param automaton Automaton for the rule.
+	 * @return New lexical rule.
+	 */
+	public LexRule withAutomaton(LexAutomaton automaton) {
+		return new LexRule(lexUnit, regEx, Objects.requireNonNull(automaton), actions);
+	}
+	
 	/**
      * Tests if this lexical rule has an associated lexical unit.
      * 
@@ -70,15 +87,33 @@ public class LexRule implements LexExecutable, Serializable {
         return lexUnit;
     }
 
+    /**
+     * Returns this rule's regular expression, as given in the definitions.
+     * 
+     * @return Regular expression of this rule.
+     */
+    public String getRegEx() {
+        return regEx;
+    }
+
     /**
      * Gets the automaton that is used to match a regEx for this rule.
      * 
-     * @return Automaton that matches regEx.
+     * @return Automaton that matches regEx, or <code>null</code> if it's not built.
      */
     public LexAutomaton getAutomaton() {
         return automaton;
     }
 
+    /**
+     * Gets the actions executed whenever this rule is matched.
+     * 
+     * @return Actions of this rule, in order of execution.
+     */
+    public List<LexAction> getActions() {
+        return actions;
+    }
+
 	@Override
 	public void execute(Lex lex) {
 		for (LexAction action : actions) {
@@ -0,0 +1,187 @@
+package hr.fer.zemris.ppj.compiler.lexical.exec;
+
+import java.util.List;
+import java.util.Objects;
+
+import hr.fer.zemris.ppj.compiler.lexical.actions.LexAction;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexDfa;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexNfa;
+
+/**
+ * Single state of the <b>Lexical Analyzer</b>, as used while analyzing the input.<br>
+ *
+ * Holds the automaton matching all the rules of the state, either deterministic or nondeterministic,
+ * and for every rule (by it's index in the state) the lexical unit and the actions executed when the rule is matched.
+ *
+ * @author fiilip
+ *
+ */
+public class LexState {
+
+	/**
+	 * Name of the state.
+	 */
+	private final String name;
+
+	/**
+	 * Deterministic automaton matching all the rules of the state, or <code>null</code>.
+	 */
+	private final LexDfa automaton;
+
+	/**
+	 * Nondeterministic automaton matching all the rules of the state, or <code>null</code>.
+	 */
+	private final LexNfa nfa;
+
+	/**
+	 * rule -> lexical unit, as given in the definitions
+	 */
+	private final String[] lexUnits;
+
+	/**
+	 * rule -> actions executed when the rule is matched
+	 */
+	private final List<List<LexAction>> actions;
+
+	/**
+	 * Creates a new {@link LexState}.
+	 *
+	 * @param name Name of the state.
+	 * @param automaton Automaton matching all the rules of the state.
+	 * @param lexUnits Lexical unit of every rule.
+	 * @param actions Actions of every rule.
+	 */
+	public LexState(String name, LexDfa automaton, String[] lexUnits, List<List<LexAction>> actions) {
+		this(name, Objects.requireNonNull(automaton), null, lexUnits, actions);
+	}
+
+	/**
+	 * Creates a new {@link LexState} simulating the nondeterministic automaton.
+	 *
+	 * @param name Name of the state.
+	 * @param nfa Nondeterministic automaton matching all the rules of the state.
+	 * @param lexUnits Lexical unit of every rule.
+	 * @param actions Actions of every rule.
+	 */
+	public LexState(String name, LexNfa nfa, String[] lexUnits, List<List<LexAction>> actions) {
+		this(name, null, Objects.requireNonNull(nfa), lexUnits, actions);
+	}
+
+	/**
+	 * Creates a new {@link LexState} with exactly one of the automatons.
+	 *
+	 * @param name Name of the state.
+	 * @param automaton Deterministic automaton, or <code>null</code>.
+	 * @param nfa Nondeterministic automaton, or <code>null</code>.
+	 * @param lexUnits Lexical unit of every rule.
+	 * @param actions Actions of every rule.
+	 */
+	private LexState(String name, LexDfa automaton, LexNfa nfa, String[] lexUnits, List<List<LexAction>> actions) {
+		this.name = Objects.requireNonNull(name);
+		this.automaton = automaton;
+		this.nfa = nfa;
+		this.lexUnits = Objects.requireNonNull(lexUnits);
+		this.actions = Objects.requireNonNull(actions);
+
+		if (lexUnits.length != actions.size()) {
+			throw new IllegalArgumentException("Inconsistent number of rules of the state.");
+		}
+	}
+
+	/**
+	 * Gets the name of this state.
+	 *
+	 * @return Name of the state.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the deterministic automaton matching all the rules of this state.
+	 *
+	 * @return Automaton of the state, or <code>null</code> if the state is simulated by the {@link #getNfa()}.
+	 */
+	public LexDfa getAutomaton() {
+		return automaton;
+	}
+
+	/**
+	 * Gets the nondeterministic automaton matching all the rules of this state.
+	 *
+	 * @return Automaton of the state, or <code>null</code> if the state has the {@link #getAutomaton()}.
+	 */
+	public LexNfa getNfa() {
+		return nfa;
+	}
+
+	/**
+	 * Tests whether this state is matched by the deterministic automaton.
+	 *
+	 * @return <code>True</code> if the state has the deterministic automaton, <code>false</code> otherwise.
+	 */
+	public boolean isDeterministic() {
+		return automaton != null;
+	}
+
+	/**
+	 * Tests whether a token of this state can start with the given symbol.
+	 *
+	 * @param symbol Input symbol, a Unicode code point.
+	 * @return <code>True</code> if some rule can match a token starting with the symbol, <code>false</code> otherwise.
+	 */
+	public boolean canStart(int symbol) {
+		return automaton != null ? automaton.canStart(automaton.classOf(symbol)) : nfa.canStart(nfa.classOf(symbol));
+	}
+
+	/**
+	 * Gets the number of rules of this state.
+	 *
+	 * @return Number of rules.
+	 */
+	public int getRuleCount() {
+		return lexUnits.length;
+	}
+
+	/**
+	 * Tests if the given rule has an associated lexical unit.
+	 *
+	 * @param rule Index of the rule.
+	 * @return <code>True</code> if it has a lexical unit, <code>false</code> otherwise.
+	 */
+	public boolean hasLexUnit(int rule) {
+		return !"-".equals(lexUnits[rule].trim());
+	}
+
+	/**
+	 * Gets the lexical unit of the given rule.
+	 *
+	 * @param rule Index of the rule.
+	 * @return Lexical unit of the rule.
+	 */
+	public String lexUnit(int rule) {
+		return lexUnits[rule];
+	}
+
+	/**
+	 * Gets the actions of the given rule.
+	 *
+	 * @param rule Index of the rule.
+	 * @return Actions of the rule, in order of execution.
+	 */
+	public List<LexAction> getActions(int rule) {
+		return actions.get(rule);
+	}
+
+	/**
+	 * Executes the actions of the given rule.
+	 *
+	 * @param rule Index of the rule.
+	 * @param lex Lexical analyzer.
+	 */
+	public void execute(int rule, Lex lex) {
+		for (LexAction action : actions.get(rule)) {
+			action.execute(lex);
+		}
+	}
+}
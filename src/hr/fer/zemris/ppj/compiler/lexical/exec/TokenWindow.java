@@ -0,0 +1,255 @@
+package hr.fer.zemris.ppj.compiler.lexical.exec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Objects;
+
+import hr.fer.zemris.ppj.compiler.lexical.tokens.TokenConsumer;
+import hr.fer.zemris.ppj.compiler.util.StreamManager;
+
+/**
+ * Window of the next <code>k</code> tokens of the {@link Lex}, for a consumer that reads the tokens on demand with
+ * a bounded lookahead, eg. a parser running in the same process.<br>
+ *
+ * The window drives its own analyzer: once the window is full, the analyzer is paused, and it's resumed only when
+ * a token further than the ones buffered is looked at. Tokens are kept in the primitive ring arrays, by the ids of
+ * their lexical units and their bounds in the input buffer, so no token is ever scanned ahead of the window and no
+ * string is created unless the lexeme is asked for.<br>
+ *
+ * Token <code>0</code> is the current token, and {@link #consume()} moves the window to the next one.
+ *
+ * @author fiilip
+ *
+ */
+public class TokenWindow implements TokenConsumer {
+
+	private final Lex lex;
+
+	/**
+	 * Lexical units, by their ids.
+	 */
+	private final List<String> units;
+
+	/**
+	 * Ring arrays of the buffered tokens, at the capacity of the window.
+	 */
+	private final int[] unitIds;
+	private final int[] starts;
+	private final int[] ends;
+	private final int[] lines;
+
+	/**
+	 * Index of the token <code>0</code> in the ring arrays.
+	 */
+	private int head;
+
+	/**
+	 * Number of the buffered tokens.
+	 */
+	private int size;
+
+	private CharSequence buffer;
+
+	/**
+	 * Whether or not the analyzer has passed all the tokens.
+	 */
+	private boolean finished;
+
+	/**
+	 * Creates a new {@link TokenWindow} with its own analyzer.
+	 *
+	 * @param objects Objects generated for the lexical analyzer.
+	 * @param streamManager Stream manager.
+	 * @param k Number of the tokens the window holds, at least <code>1</code>.
+	 * @throws IllegalArgumentException If the <code>k</code> is not positive.
+	 */
+	public TokenWindow(LexObjects objects, StreamManager streamManager, int k) {
+		if (k < 1) {
+			throw new IllegalArgumentException(String.format("Token window of %d tokens is not supported.", k));
+		}
+
+		this.lex = objects.createLex(Objects.requireNonNull(streamManager), this);
+		this.units = objects.getLexUnits();
+		this.unitIds = new int[k];
+		this.starts = new int[k];
+		this.ends = new int[k];
+		this.lines = new int[k];
+	}
+
+	/**
+	 * Gets the analyzer driven by this window, eg. to set its error sink before the analysis starts.
+	 *
+	 * @return Analyzer.
+	 */
+	public Lex getLex() {
+		return lex;
+	}
+
+	/**
+	 * Starts the analysis of the entire input, scanning up to the first <code>k</code> tokens.
+	 *
+	 * @param istream Input stream.
+	 * @throws IOException
+	 */
+	public void analyze(InputStream istream) throws IOException {
+		lex.analyze(istream);
+	}
+
+	/**
+	 * Starts the analysis of the input that arrives in parts, scanning up to the first <code>k</code> tokens.
+	 *
+	 * @param input Input, filled on demand.
+	 * @throws IOException
+	 */
+	public void analyze(LexInput input) throws IOException {
+		lex.analyze(input);
+	}
+
+	@Override
+	public void token(int unit, CharSequence buffer, int start, int end, int line) {
+		int i = (head + size) % unitIds.length;
+		unitIds[i] = unit;
+		starts[i] = start;
+		ends[i] = end;
+		lines[i] = line;
+		this.buffer = buffer;
+
+		if (++size == unitIds.length) {
+			lex.pause();
+		}
+	}
+
+	@Override
+	public void finish() {
+		finished = true;
+	}
+
+	/**
+	 * Makes the token <code>i</code> available, resuming the analyzer if it's not scanned yet.
+	 *
+	 * @param i Index of the token in the window, less than <code>k</code>.
+	 * @return <code>True</code> if the token is available, <code>false</code> if the input ends before it.
+	 * @throws IOException
+	 * @throws IllegalArgumentException If the token is out of the window.
+	 */
+	public boolean has(int i) throws IOException {
+		if (i < 0 || i >= unitIds.length) {
+			throw new IllegalArgumentException(
+					String.format("Token %d is out of the window of %d tokens.", i, unitIds.length));
+		}
+
+		while (size <= i && !finished) {
+			lex.resume();
+		}
+
+		return i < size;
+	}
+
+	/**
+	 * Drops the current token, so that the token <code>1</code> becomes the current one.
+	 *
+	 * @throws IllegalStateException If the window is empty.
+	 */
+	public void consume() {
+		if (size == 0) {
+			throw new IllegalStateException("Token window is empty.");
+		}
+
+		head = (head + 1) % unitIds.length;
+		size--;
+	}
+
+	/**
+	 * Gets the number of the tokens scanned ahead, without resuming the analyzer.
+	 *
+	 * @return Number of the buffered tokens.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the id of the lexical unit of the available token.
+	 *
+	 * @param i Index of the token in the window.
+	 * @return Index into the {@link #getUnits()}.
+	 */
+	public int unit(int i) {
+		return unitIds[index(i)];
+	}
+
+	/**
+	 * Gets the index of the first char of the available token in the {@link #getBuffer()}.
+	 *
+	 * @param i Index of the token in the window.
+	 * @return Start of the token.
+	 */
+	public int start(int i) {
+		return starts[index(i)];
+	}
+
+	/**
+	 * Gets the exclusive index of the last char of the available token in the {@link #getBuffer()}.
+	 *
+	 * @param i Index of the token in the window.
+	 * @return End of the token.
+	 */
+	public int end(int i) {
+		return ends[index(i)];
+	}
+
+	/**
+	 * Gets the line of the available token.
+	 *
+	 * @param i Index of the token in the window.
+	 * @return Line, starting from <code>1</code>.
+	 */
+	public int line(int i) {
+		return lines[index(i)];
+	}
+
+	/**
+	 * Gets the lexeme of the available token, creating the string.
+	 *
+	 * @param i Index of the token in the window.
+	 * @return Lexeme.
+	 */
+	public String lexeme(int i) {
+		int idx = index(i);
+		return buffer.subSequence(starts[idx], ends[idx]).toString();
+	}
+
+	/**
+	 * Gets the input buffer the bounds of the tokens point into.
+	 *
+	 * @return Buffer, or <code>null</code> before the first token.
+	 */
+	public CharSequence getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * Gets the lexical units, by their ids.
+	 *
+	 * @return Lexical units.
+	 */
+	public List<String> getUnits() {
+		return units;
+	}
+
+	/**
+	 * Maps the index in the window to the index in the ring arrays.
+	 *
+	 * @param i Index of the token in the window.
+	 * @return Index in the ring arrays.
+	 * @throws IllegalArgumentException If the token is not available.
+	 */
+	private int index(int i) {
+		if (i < 0 || i >= size) {
+			throw new IllegalArgumentException(String.format("Token %d is not available; %d tokens are.", i, size));
+		}
+
+		return (head + i) % unitIds.length;
+	}
+}
@@ -0,0 +1,153 @@
+package hr.fer.zemris.ppj.compiler.lexical.input;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import hr.fer.zemris.ppj.compiler.lexical.actions.EnterStateAction;
+import hr.fer.zemris.ppj.compiler.lexical.actions.LexAction;
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexRule;
+
+/**
+ * Rules of the lexical definitions that can never be matched, so they are left out of the generated objects.<br>
+ *
+ * A rule is <b>shadowed</b> if every string it accepts is accepted by an earlier rule of the same lexer state, which
+ * then wins; this is proven on the determinized automaton of the state, where no state accepts the rule, see
+ * <code>LexDfaBuilder.acceptedRules</code>. A lexer state is <b>unreachable</b> if it's not the starting state,
+ * and no rule that can be matched in a reachable state enters it.
+ *
+ * @author fiilip
+ *
+ */
+public class LexDeadRules {
+
+	/**
+	 * Lexer state -> indices of its shadowed rules
+	 */
+	private final Map<String, BitSet> shadowed;
+
+	/**
+	 * Lexer states no rule enters.
+	 */
+	private final Set<String> unreachable;
+
+	/**
+	 * Creates a new {@link LexDeadRules}.
+	 *
+	 * @param shadowed Shadowed rules of every state.
+	 * @param unreachable Unreachable states.
+	 */
+	private LexDeadRules(Map<String, BitSet> shadowed, Set<String> unreachable) {
+		this.shadowed = Objects.requireNonNull(shadowed);
+		this.unreachable = Objects.requireNonNull(unreachable);
+	}
+
+	/**
+	 * Finds the unreachable lexer states, given the shadowed rules of every state.
+	 *
+	 * @param parser Parser holding the parsed definitions.
+	 * @param shadowed Mappings from lexer state to the indices of its shadowed rules.
+	 * @return Dead rules of the definitions.
+	 */
+	public static LexDeadRules of(LexicalDefinitionsParser parser, Map<String, BitSet> shadowed) {
+		Map<String, List<LexRule>> states = parser.getStates();
+		Set<String> reachable = new LinkedHashSet<>();
+		List<String> queue = new ArrayList<>();
+
+		reachable.add(parser.getStartState());
+		queue.add(parser.getStartState());
+
+		for (int i = 0; i < queue.size(); i++) {
+			List<LexRule> rules = states.getOrDefault(queue.get(i), Collections.emptyList());
+			BitSet dead = shadowed.getOrDefault(queue.get(i), new BitSet());
+
+			for (int rule = 0; rule < rules.size(); rule++) {
+				if (dead.get(rule)) {
+					continue;
+				}
+
+				for (LexAction action : rules.get(rule).getActions()) {
+					if (action instanceof EnterStateAction && reachable.add(((EnterStateAction) action).getState())) {
+						queue.add(((EnterStateAction) action).getState());
+					}
+				}
+			}
+		}
+
+		Set<String> unreachable = new LinkedHashSet<>(states.keySet());
+		unreachable.removeAll(reachable);
+		return new LexDeadRules(shadowed, unreachable);
+	}
+
+	/**
+	 * Gets the warnings about the dead rules, one per shadowed rule of a reachable state, and one per
+	 * unreachable state.
+	 *
+	 * @param parser Parser holding the definitions, before they are pruned.
+	 * @return Warnings.
+	 */
+	public List<String> getWarnings(LexicalDefinitionsParser parser) {
+		List<String> warnings = new ArrayList<>();
+
+		for (Map.Entry<String, List<LexRule>> state : parser.getStates().entrySet()) {
+			if (unreachable.contains(state.getKey())) {
+				warnings.add(String.format("Lexer state %s is never entered; it is dropped with its %d rules.",
+						state.getKey(), state.getValue().size()));
+				continue;
+			}
+
+			BitSet dead = shadowed.getOrDefault(state.getKey(), new BitSet());
+			for (int rule = dead.nextSetBit(0); rule >= 0; rule = dead.nextSetBit(rule + 1)) {
+				LexRule lexRule = state.getValue().get(rule);
+				warnings.add(String.format("Rule %d of the lexer state %s (%s %s) never matches; its strings are "
+						+ "matched by the earlier rules.", rule, state.getKey(), lexRule.getRegEx(), lexRule.lexUnit()));
+			}
+		}
+
+		return warnings;
+	}
+
+	/**
+	 * Removes the dead rules and the unreachable states from the parsed definitions.
+	 *
+	 * @param parser Parser holding the parsed definitions.
+	 */
+	public void prune(LexicalDefinitionsParser parser) {
+		Iterator<Map.Entry<String, List<LexRule>>> states = parser.getStates().entrySet().iterator();
+
+		while (states.hasNext()) {
+			Map.Entry<String, List<LexRule>> state = states.next();
+
+			if (unreachable.contains(state.getKey())) {
+				states.remove();
+				continue;
+			}
+
+			BitSet dead = shadowed.getOrDefault(state.getKey(), new BitSet());
+			List<LexRule> live = new ArrayList<>();
+
+			for (int rule = 0; rule < state.getValue().size(); rule++) {
+				if (!dead.get(rule)) {
+					live.add(state.getValue().get(rule));
+				}
+			}
+
+			state.setValue(live);
+		}
+	}
+
+	/**
+	 * Gets the unreachable lexer states.
+	 *
+	 * @return Names of the states.
+	 */
+	public Set<String> getUnreachableStates() {
+		return Collections.unmodifiableSet(unreachable);
+	}
+}
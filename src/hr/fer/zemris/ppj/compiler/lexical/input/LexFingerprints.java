@@ -0,0 +1,370 @@
+package hr.fer.zemris.ppj.compiler.lexical.input;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexRule;
+import hr.fer.zemris.ppj.compiler.lexical.regex.RegexUtil;
+import hr.fer.zemris.ppj.compiler.util.ArtifactCache;
+
+/**
+ * Fingerprints of the parsed lexical definitions, used for rebuilding only the lexer states
+ * whose automatons could have changed.<br>
+ *
+ * Fingerprint of a regular definition covers its text and the fingerprints of the definitions it references,
+ * so it changes whenever any of its transitive dependencies changes. Fingerprint of a rule covers its regular
+ * expression and the referenced definitions in the same way, and fingerprint of a lexer state covers the
+ * fingerprints of its rules in order. Options of the definitions and the settings of the generator are covered
+ * by every rule. Lexical units and
+ * actions are not covered, since they don't affect the automatons.<br>
+ *
+ * Fingerprints are stored in a text file next to the generated objects, together with the hash of the objects
+ * they belong to, and the rules of every state found to never match, which are not in the objects.
+ *
+ * @author fiilip
+ *
+ */
+public class LexFingerprints {
+
+	/**
+	 * First word of the fingerprints file.
+	 */
+	private static final String HEADER = "ppjc-lex-fingerprints";
+
+	/**
+	 * Regular definition name -> fingerprint
+	 */
+	private final Map<String, String> regDefs;
+
+	/**
+	 * Lexer state -> fingerprints of the state's rules, in order
+	 */
+	private final Map<String, List<String>> rules;
+
+	/**
+	 * Lexer state -> fingerprint
+	 */
+	private final Map<String, String> states;
+
+	/**
+	 * Lexer state -> rules that never match, removed from the objects
+	 */
+	private final Map<String, BitSet> shadowed = new LinkedHashMap<>();
+
+	/**
+	 * Creates a new {@link LexFingerprints}.
+	 *
+	 * @param regDefs	Fingerprints of the regular definitions.
+	 * @param rules		Fingerprints of the rules of every lexer state.
+	 * @param states	Fingerprints of the lexer states.
+	 */
+	private LexFingerprints(Map<String, String> regDefs, Map<String, List<String>> rules, Map<String, String> states) {
+		this.regDefs = Objects.requireNonNull(regDefs);
+		this.rules = Objects.requireNonNull(rules);
+		this.states = Objects.requireNonNull(states);
+	}
+
+	/**
+	 * Computes the fingerprints of the definitions read by the parser.
+	 *
+	 * @param parser	Parser that has read the definitions.
+	 * @param settings	Settings of the generator that change the automatons, eg. the engine.
+	 * @return			Fingerprints of the definitions.
+	 */
+	public static LexFingerprints of(LexicalDefinitionsParser parser, String settings) {
+		Map<String, String> regDefs = new TreeMap<>();
+
+		for (String name : parser.getRegDefs().keySet()) {
+			regDefFingerprint(name, parser.getRegDefs(), regDefs, new HashSet<>());
+		}
+
+		Map<String, List<String>> rules = new LinkedHashMap<>();
+		Map<String, String> states = new LinkedHashMap<>();
+		String options = String.join(",", parser.getOptions()) + " " + settings;
+
+		for (Map.Entry<String, List<LexRule>> state : parser.getStates().entrySet()) {
+			List<String> fingerprints = new ArrayList<>();
+
+			for (LexRule rule : state.getValue()) {
+				// options change the meaning of the regular expressions, settings the automatons built
+				fingerprints.add(hash(options + " " + fingerprint(rule.getRegEx(), regDefs)));
+			}
+
+			rules.put(state.getKey(), fingerprints);
+			states.put(state.getKey(), hash(String.join(" ", fingerprints)));
+		}
+
+		return new LexFingerprints(regDefs, rules, states);
+	}
+
+	/**
+	 * Reads the fingerprints belonging to the given objects.
+	 *
+	 * @param file		Fingerprints file.
+	 * @param version	Version of the generator the fingerprints must have been written by.
+	 * @param objects	File of the objects the fingerprints must belong to.
+	 * @return			Fingerprints read, or <code>null</code> if there are none, or they belong to
+	 * 					another version of the generator or other objects.
+	 */
+	public static LexFingerprints read(Path file, String version, Path objects) {
+		if (!Files.isRegularFile(file) || !Files.isRegularFile(objects)) {
+			return null;
+		}
+
+		Map<String, String> regDefs = new TreeMap<>();
+		Map<String, List<String>> rules = new LinkedHashMap<>();
+		Map<String, String> states = new LinkedHashMap<>();
+		Map<String, BitSet> shadowed = new LinkedHashMap<>();
+
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String[] header = reader.readLine().split(" ");
+
+			if (header.length != 4 || !HEADER.equals(header[0]) || !version.equals(header[1])
+					|| !header[2].equals(hashFile(objects))) {
+				return null;
+			}
+
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+				String[] parts = line.split(" ");
+
+				switch (parts[0]) {
+					case "regdef": regDefs.put(parts[1], parts[2]); break;
+					case "rule": rules.computeIfAbsent(parts[1], s -> new ArrayList<>()).add(parts[3]); break;
+					case "state": states.put(parts[1], parts[2]); break;
+					case "shadowed": shadowed.computeIfAbsent(parts[1], s -> new BitSet()).set(Integer.parseInt(parts[2])); break;
+					default: return null;
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			// unreadable fingerprints only mean a full rebuild
+			return null;
+		}
+
+		LexFingerprints fingerprints = new LexFingerprints(regDefs, rules, states);
+		fingerprints.shadowed.putAll(shadowed);
+		return fingerprints;
+	}
+
+	/**
+	 * Writes these fingerprints next to the given objects, atomically.
+	 *
+	 * @param file		Fingerprints file.
+	 * @param version	Version of the generator.
+	 * @param objects	File of the objects the fingerprints belong to.
+	 * @throws IOException
+	 */
+	public void write(Path file, String version, Path objects) throws IOException {
+		Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+
+		try {
+			try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+				writer.write(String.format("%s %s %s %d%n", HEADER, version, hashFile(objects), states.size()));
+
+				for (Map.Entry<String, String> regDef : regDefs.entrySet()) {
+					writer.write(String.format("regdef %s %s%n", regDef.getKey(), regDef.getValue()));
+				}
+
+				for (Map.Entry<String, List<String>> state : rules.entrySet()) {
+					for (int i = 0; i < state.getValue().size(); i++) {
+						writer.write(String.format("rule %s %d %s%n", state.getKey(), i, state.getValue().get(i)));
+					}
+				}
+
+				for (Map.Entry<String, String> state : states.entrySet()) {
+					writer.write(String.format("state %s %s%n", state.getKey(), state.getValue()));
+				}
+
+				for (Map.Entry<String, BitSet> state : shadowed.entrySet()) {
+					for (int rule = state.getValue().nextSetBit(0); rule >= 0; rule = state.getValue().nextSetBit(rule + 1)) {
+						writer.write(String.format("shadowed %s %d%n", state.getKey(), rule));
+					}
+				}
+			}
+
+			ArtifactCache.move(temporary, file);
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	/**
+	 * Sets the rules of the lexer state that never match.
+	 *
+	 * @param state	Lexer state.
+	 * @param rules	Indices of the rules in the definitions.
+	 */
+	public void setShadowedRules(String state, BitSet rules) {
+		shadowed.put(state, (BitSet) rules.clone());
+	}
+
+	/**
+	 * Gets the rules of the lexer state that never match.
+	 *
+	 * @param state	Lexer state.
+	 * @return		Indices of the rules in the definitions, empty if there are none.
+	 */
+	public BitSet getShadowedRules(String state) {
+		BitSet rules = shadowed.get(state);
+		return rules == null ? new BitSet() : (BitSet) rules.clone();
+	}
+
+	/**
+	 * Gets the number of lexer states.
+	 *
+	 * @return	Number of states.
+	 */
+	public int getStateCount() {
+		return states.size();
+	}
+
+	/**
+	 * Gets the lexer states whose automatons are the same as in the <code>previous</code> fingerprints.
+	 *
+	 * @param previous	Previous fingerprints, or <code>null</code>.
+	 * @return			Names of the unchanged states.
+	 */
+	public Set<String> unchangedStates(LexFingerprints previous) {
+		Set<String> unchanged = new HashSet<>();
+
+		if (previous != null) {
+			for (Map.Entry<String, String> state : states.entrySet()) {
+				if (state.getValue().equals(previous.states.get(state.getKey()))) {
+					unchanged.add(state.getKey());
+				}
+			}
+		}
+
+		return unchanged;
+	}
+
+	/**
+	 * Counts the rules that are not found at the same position in the <code>previous</code> fingerprints.
+	 *
+	 * @param previous	Previous fingerprints, or <code>null</code>.
+	 * @return			Number of changed rules.
+	 */
+	public int changedRules(LexFingerprints previous) {
+		int changed = 0;
+
+		for (Map.Entry<String, List<String>> state : rules.entrySet()) {
+			List<String> old = previous == null ? null : previous.rules.get(state.getKey());
+
+			for (int i = 0; i < state.getValue().size(); i++) {
+				if (old == null || i >= old.size() || !old.get(i).equals(state.getValue().get(i))) {
+					changed ++;
+				}
+			}
+		}
+
+		return changed;
+	}
+
+	/**
+	 * Counts the regular definitions that are new or changed, directly or through their dependencies,
+	 * since the <code>previous</code> fingerprints.
+	 *
+	 * @param previous	Previous fingerprints, or <code>null</code>.
+	 * @return			Number of changed regular definitions.
+	 */
+	public int changedRegDefs(LexFingerprints previous) {
+		int changed = 0;
+
+		for (Map.Entry<String, String> regDef : regDefs.entrySet()) {
+			if (previous == null || !regDef.getValue().equals(previous.regDefs.get(regDef.getKey()))) {
+				changed ++;
+			}
+		}
+
+		return changed;
+	}
+
+	/**
+	 * Computes the fingerprint of the regular definition, and the definitions it depends on.
+	 *
+	 * @param name			Name of the regular definition.
+	 * @param definitions	Regular definitions, as given in the definitions file.
+	 * @param fingerprints	Fingerprints computed so far.
+	 * @param visiting		Definitions whose fingerprints are being computed, for detecting cycles.
+	 * @return				Fingerprint of the regular definition.
+	 */
+	private static String regDefFingerprint(String name, Map<String, String> definitions,
+			Map<String, String> fingerprints, Set<String> visiting) {
+		String fingerprint = fingerprints.get(name);
+
+		if (fingerprint != null) {
+			return fingerprint;
+		}
+
+		String regEx = definitions.get(name);
+
+		if (regEx == null || !visiting.add(name)) {
+			// undefined or cyclic definition; the automaton builder reports it
+			return hash("undefined " + name);
+		}
+
+		Map<String, String> dependencies = new HashMap<>();
+
+		for (String reference : RegexUtil.references(regEx)) {
+			dependencies.put(reference, regDefFingerprint(reference, definitions, fingerprints, visiting));
+		}
+
+		visiting.remove(name);
+		fingerprint = fingerprint(regEx, dependencies);
+		fingerprints.put(name, fingerprint);
+		return fingerprint;
+	}
+
+	/**
+	 * Computes the fingerprint of the regular expression and the definitions it references.
+	 *
+	 * @param regEx		Regular expression.
+	 * @param regDefs	Fingerprints of the regular definitions.
+	 * @return			Fingerprint of the regular expression.
+	 */
+	private static String fingerprint(String regEx, Map<String, String> regDefs) {
+		StringBuilder content = new StringBuilder(regEx);
+
+		for (String reference : RegexUtil.references(regEx)) {
+			content.append(' ').append(regDefs.getOrDefault(reference, "undefined"));
+		}
+
+		return hash(content.toString());
+	}
+
+	/**
+	 * Hashes the given text.
+	 *
+	 * @param text	Text to be hashed.
+	 * @return		Hash of the text.
+	 */
+	private static String hash(String text) {
+		return ArtifactCache.key(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Hashes the content of the given file.
+	 *
+	 * @param file	File to be hashed.
+	 * @return		Hash of the file.
+	 * @throws IOException
+	 */
+	private static String hashFile(Path file) throws IOException {
+		return ArtifactCache.key(Files.readAllBytes(file));
+	}
+}
@@ -10,13 +10,19 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 
+import hr.fer.zemris.ppj.compiler.events.ParsePhaseEvent;
 import hr.fer.zemris.ppj.compiler.lexical.actions.LexAction;
 import hr.fer.zemris.ppj.compiler.lexical.actions.LexActionFactory;
 import hr.fer.zemris.ppj.compiler.lexical.automata.LexAutomaton;
@@ -27,6 +33,14 @@ import hr.fer.zemris.ppj.compiler.lexical.exec.LexRule;
  * This class is used to read in the lexical rules of the given language,
  * and parse them into the corresponding objects.
  * 
+ * The regular definitions can be followed by the <code>%O</code> lines with the options of the definitions.
+ * Option <code>EXTENDED_REGEX</code> enables the character classes <code>[a-z]</code> and <code>[^"]</code>, and 
+ * the repetitions <code>+</code>, <code>?</code> and <code>{m,n}</code> in all the regular expressions. Then
+ * the symbols <code>[ ] + ?</code> have to be escaped to be matched literally, as well as <code>{ }</code>
+ * within the classes. Option <code>IGNORE_CASE</code> matches all the rules regardless of the case, while with the 
+ * extended regular expressions a single rule is matched so if its regular expression starts with <code>(?i)</code>.
+ * Without either option <code>(?i)</code> is matched literally. Lexemes keep the case of the input.
+ * 
  * Parsed objects can be used by the {@link LA} for the lexical analysis.
  * 
  * @author fiilip
@@ -44,6 +58,16 @@ public class LexicalDefinitionsParser {
 	 */
 	private static final String REG_DEF_PATTERN = "\\{[a-z]+[A-Z]*[a-z]*\\} ";
 	
+	/**
+	 * Compiled pattern for lines containing lexical rules.
+	 */
+	private static final Pattern LEX_RULE_LINE = Pattern.compile(LEX_RULE_PATTERN);
+	
+	/**
+	 * Compiled pattern for lines containing regular definitions.
+	 */
+	private static final Pattern REG_DEF_LINE = Pattern.compile(REG_DEF_PATTERN);
+	
 	/**
 	 * Pattern that symbolizes the end of the action arguments.
 	 */
@@ -70,6 +94,22 @@ public class LexicalDefinitionsParser {
 	 */
 	private static final String LEX_STATES_PATTERN = "%X ";
 	
+	/**
+	 * Pattern for lines containing options of the definitions.
+	 */
+	private static final String OPTIONS_PATTERN = "%O ";
+	
+	/**
+	 * Option that enables the extended regular expressions: character classes <code>[a-z]</code>, 
+	 * and repetitions <code>+</code>, <code>?</code> and <code>{m,n}</code>.
+	 */
+	public static final String EXTENDED_REGEX = "EXTENDED_REGEX";
+	
+	/**
+	 * Option that matches all the rules regardless of the case, see <code>LexAutomatonMerged.fromRegEx</code>.
+	 */
+	public static final String IGNORE_CASE = "IGNORE_CASE";
+	
 	/**
 	 * Standard charset of the input stream.
 	 */
@@ -102,11 +142,21 @@ public class LexicalDefinitionsParser {
 	 */
 	private final LexAutomatonMerged automatonMerged;
 	
+	/**
+	 * Options of the definitions, given in the <code>%O</code> lines after the regular definitions.
+	 */
+	private final Set<String> options;
+	
 	/**
 	 * Set of regular definitions defined in the input stream.
 	 */
 	private final Map<String, String> regDefs;
 	
+	/**
+	 * Wall clock time spent in each of the parsing phases, in nanoseconds.
+	 */
+	private final Map<String, Long> phaseTimes;
+	
 	/**
 	 * Current line being read from the stream.
 	 */
@@ -118,31 +168,146 @@ public class LexicalDefinitionsParser {
 	 * @param istream	Input stream of the lexical definitions.
 	 */
 	public LexicalDefinitionsParser(InputStream istream) {
+		this(istream, LexAutomatonMerged.getInstance());
+	}
+	
+	/**
+	 * Creates a new instance of {@link LexicalRulesParser} that builds
+	 * the automatons into the given <code>automatonMerged</code>.
+	 * 
+	 * @param istream			Input stream of the lexical definitions.
+	 * @param automatonMerged	Merged automaton the automatons are built into.
+	 */
+	public LexicalDefinitionsParser(InputStream istream, LexAutomatonMerged automatonMerged) {
 		this.istream = Objects.requireNonNull(istream);
 		this.stateNames = new ArrayList<>();
 		this.lexUnits = new ArrayList<>();
 		this.states = new LinkedHashMap<>();
 		this.regDefs = new HashMap<>();
-		this.automatonMerged = LexAutomatonMerged.getInstance();
+		this.options = new TreeSet<>();
+		this.phaseTimes = new LinkedHashMap<>();
+		this.automatonMerged = Objects.requireNonNull(automatonMerged);
+		
+		// automatons created while parsing compute their epsilon environment in this automaton
+		LexAutomaton.setLexAutomatonMerged(automatonMerged);
 	}
 	
 	/**
 	 * Initiates the parsing process of the input stream.<br>
 	 * 
-	 * The input stream contains the language definitions.
+	 * The input stream contains the language definitions. Automatons of all the rules are built.
 	 */
 	public void parse() {
+		read();
+		buildAutomatons(state -> true);
+	}
+	
+	/**
+	 * Reads the definitions from the input stream, without building the automatons of the rules.
+	 * 
+	 * @see #buildAutomatons(Predicate)
+	 */
+	public void read() {
 		try (BufferedReader reader = new BufferedReader(new InputStreamReader(istream, CS))) {
+			ParsePhaseEvent event = new ParsePhaseEvent("regdefs");
+			long start = beginPhase(event);
 			readRegDef(reader);
+			endPhase(event, start, regDefs.size());
+			
+			readOptions(reader);
+			
+			event = new ParsePhaseEvent("states");
+			start = beginPhase(event);
 			readStates(reader);
+			endPhase(event, start, stateNames.size());
+			
+			event = new ParsePhaseEvent("units");
+			start = beginPhase(event);
 			readLexUnits(reader);
+			endPhase(event, start, lexUnits.size());
+			
+			event = new ParsePhaseEvent("rules");
+			start = beginPhase(event);
 			readLexRules(reader);
+			endPhase(event, start, states.values().stream().mapToInt(List::size).sum());
 		} catch (IOException e) {
 			System.err.println(
 					String.format("Error reading from stream. Exception: %s. Message: %s.", e, e.getMessage()));
 		}
 	}
 
+	/**
+	 * Builds the automatons of all the rules of the selected states.<br>
+	 * 
+	 * This method should be called after the <code>read()</code> of this object is called.
+	 * Rules of the other states are left without automatons.
+	 * 
+	 * @param selected	Selects the states whose automatons are built.
+	 */
+	public void buildAutomatons(Predicate<String> selected) {
+		ParsePhaseEvent event = new ParsePhaseEvent("automatons");
+		long start = beginPhase(event);
+		List<String> regExes = new ArrayList<>();
+		
+		for (Map.Entry<String, List<LexRule>> state : states.entrySet()) {
+			if (selected.test(state.getKey())) {
+				for (LexRule rule : state.getValue()) {
+					if (rule.getAutomaton() == null) {
+						regExes.add(rule.getRegEx());
+					}
+				}
+			}
+		}
+		
+		// create automatons from regexes, in parallel
+		Iterator<LexAutomaton> automatons = automatonMerged.fromRegExes(regExes).iterator();
+		
+		for (Map.Entry<String, List<LexRule>> state : states.entrySet()) {
+			if (!selected.test(state.getKey())) {
+				continue;
+			}
+			
+			List<LexRule> rules = new ArrayList<>();
+			
+			for (LexRule rule : state.getValue()) {
+				rules.add(rule.getAutomaton() != null ? rule : rule.withAutomaton(automatons.next()));
+			}
+			
+			state.setValue(rules);
+		}
+		
+		endPhase(event, start, regExes.size());
+	}
+
+	/**
+	 * Begins the given parse phase event.
+	 * 
+	 * @param event Event of the phase that is about to be parsed.
+	 * @return Wall clock time at the beginning of the phase, in nanoseconds.
+	 */
+	private long beginPhase(ParsePhaseEvent event) {
+		event.begin();
+		return System.nanoTime();
+	}
+	
+	/**
+	 * Ends the given parse phase event and commits it together with the current sizes.
+	 * 
+	 * @param event Event of the phase that has just been parsed.
+	 * @param start Wall clock time at the beginning of the phase, in nanoseconds.
+	 * @param items Number of items read in the phase.
+	 */
+	private void endPhase(ParsePhaseEvent event, long start, int items) {
+		phaseTimes.put(event.getPhase(), System.nanoTime() - start);
+		event.end();
+		
+		if (event.shouldCommit()) {
+			event.setSizes(items, automatonMerged.getStateCount(), 
+					automatonMerged.getTransitionCount() + automatonMerged.getEpsilonTransitionCount());
+			event.commit();
+		}
+	}
+
 	/**
 	 * Reads lexical rules from the input.
 	 * 
@@ -162,9 +327,6 @@ public class LexicalDefinitionsParser {
 			String state = currLine.substring(1, endOfStateNameIdx);
 			String regEx = currLine.substring(endOfStateNameIdx + 1);
 			
-			// create automaton from regex
-			LexAutomaton automaton = automatonMerged.fromRegEx(regEx);
-			
 			// skip '{' symbols
 			reader.readLine();
 			
@@ -176,7 +338,7 @@ public class LexicalDefinitionsParser {
 			}
 			
 			List<LexRule> lexRules = getLexRules(state);
-			lexRules.add(new LexRule(lexUnit, automaton, actions));
+			lexRules.add(new LexRule(lexUnit, regEx, null, actions));
 			states.put(state, lexRules);
 		}
 	}
@@ -219,6 +381,50 @@ public class LexicalDefinitionsParser {
 		return automatonMerged;
 	}
 
+	/**
+	 * Gets the regular definitions as defined in the input file.<br>
+	 * 
+	 * This method should be called after the <code>parse()</code> of this object is called.
+	 * 
+	 * @return Regular definitions parsed from the input file.
+	 */
+	public Map<String, String> getRegDefs() {
+		return Collections.unmodifiableMap(regDefs);
+	}
+	
+	/**
+	 * Gets the options of the definitions.<br>
+	 * 
+	 * This method should be called after the <code>parse()</code> of this object is called.
+	 * 
+	 * @return Options given in the input file.
+	 */
+	public Set<String> getOptions() {
+		return Collections.unmodifiableSet(options);
+	}
+	
+	/**
+	 * Gets the names of all the lexical units.<br>
+	 * 
+	 * This method should be called after the <code>parse()</code> of this object is called.
+	 * 
+	 * @return Lexical units parsed from the input file.
+	 */
+	public List<String> getLexUnits() {
+		return Collections.unmodifiableList(lexUnits);
+	}
+	
+	/**
+	 * Gets the wall clock time spent in each of the parsing phases.<br>
+	 * 
+	 * This method should be called after the <code>parse()</code> of this object is called.
+	 * 
+	 * @return Phase name -> time spent, in nanoseconds, in order of the phases.
+	 */
+	public Map<String, Long> getPhaseTimes() {
+		return Collections.unmodifiableMap(phaseTimes);
+	}
+
 	/**
 	 * Reads lexical units from the input.
 	 * 
@@ -240,6 +446,30 @@ public class LexicalDefinitionsParser {
 		lexUnits.addAll(Arrays.asList(lexUnitsArr));
 	}
 
+	/**
+	 * Reads the options from the input, if there are any.
+	 * 
+	 * @param reader Input reader.
+	 * @throws IOException
+	 */
+	private void readOptions(BufferedReader reader) throws IOException {
+		while (currLine != null && currLine.startsWith(OPTIONS_PATTERN)) {
+			for (String option : currLine.substring(3).trim().split("\\s+")) {
+				if (!EXTENDED_REGEX.equals(option) && !IGNORE_CASE.equals(option)) {
+					throw new IllegalStateException(String.format(
+							"Unknown option '%s' in line: '%s'. Check the input stream format.", option, currLine));
+				}
+				
+				options.add(option);
+			}
+			
+			currLine = reader.readLine();
+		}
+		
+		automatonMerged.setExtended(options.contains(EXTENDED_REGEX));
+		automatonMerged.setIgnoreCase(options.contains(IGNORE_CASE));
+	}
+
 	/**
 	 * Reads state names from the input.
 	 * 
@@ -268,7 +498,7 @@ public class LexicalDefinitionsParser {
 	 */
 	private void readRegDef(BufferedReader reader) throws IOException {	
 		while (isRegDefLine(currLine = reader.readLine())) {
-			int regDefEndIdx = currLine.charAt(REG_DEF_END_SYM);
+			int regDefEndIdx = currLine.indexOf(REG_DEF_END_SYM);
 			
 			String regDefName = currLine.substring(1, regDefEndIdx);
 			String regEx = currLine.substring(regDefEndIdx + 2);
@@ -287,7 +517,7 @@ public class LexicalDefinitionsParser {
 	 * @return <code>True</code> if the line contains regular definition, <code>false</code> otherwise.
 	 */
 	private boolean isRegDefLine(String line) {
-		return line.startsWith(REG_DEF_PATTERN);
+		return line != null && REG_DEF_LINE.matcher(line).lookingAt();
 	}
 	
 	/**
@@ -320,7 +550,7 @@ public class LexicalDefinitionsParser {
 	 * @return <code>True</code> if the line contains lexical rule definition, <code>false</code> otherwise.
 	 */
 	private boolean isLexRuleLine(String line) {
-		return line.startsWith(LEX_RULE_PATTERN);
+		return LEX_RULE_LINE.matcher(line).lookingAt();
 	}
 	
 	/**
@@ -0,0 +1,173 @@
+package hr.fer.zemris.ppj.compiler.lexical.pipeline;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexInput;
+
+/**
+ * Input read from a byte channel and decoded from <i>UTF-8</i> only when the {@link hr.fer.zemris.ppj.compiler.lexical.exec.Lex}
+ * needs more chars, so the channel is never read further than the scanning has come.<br>
+ *
+ * The chars are kept in a single array, copied to a larger one as the input grows, like in the {@link ChunkedInput}.
+ * The chars scanned already are dropped by the {@link #release(int)}, so the array holds only the chars of the
+ * tokens not passed on yet, and those decoded ahead of them.
+ *
+ * @author fiilip
+ *
+ */
+final class ChannelInput implements LexInput {
+
+	/**
+	 * Number of the bytes read from the channel at once.
+	 */
+	private static final int READ_BYTES = 1 << 16;
+
+	/**
+	 * Initial number of the chars the array holds.
+	 */
+	private static final int CHARS = 1 << 16;
+
+	private final ReadableByteChannel channel;
+
+	private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	/**
+	 * Bytes read, and not decoded yet.
+	 */
+	private final ByteBuffer bytes = ByteBuffer.allocate(READ_BYTES);
+
+	private char[] chars = new char[CHARS];
+	private int length;
+
+	/**
+	 * Whether or not the end of the channel is reached and all its bytes are decoded.
+	 */
+	private boolean done;
+
+	/**
+	 * Creates a new, empty {@link ChannelInput}.
+	 *
+	 * @param channel Blocking channel the input is read from.
+	 */
+	ChannelInput(ReadableByteChannel channel) {
+		this.channel = channel;
+	}
+
+	/**
+	 * Reads and decodes the bytes until at least one more char is decoded, or the end of the channel.
+	 */
+	@Override
+	public boolean fill() throws IOException {
+		int before = length;
+
+		while (!done && length == before) {
+			boolean eof = channel.read(bytes) < 0;
+			bytes.flip();
+			// a sequence split by the read is left in the bytes, and decoded with the next read
+			decode(eof);
+			bytes.compact();
+
+			if (eof) {
+				flush();
+				done = true;
+			}
+		}
+
+		return length > before;
+	}
+
+	/**
+	 * Moves the chars from the index to the front of the array, and shrinks the array if it's mostly empty,
+	 * eg. after a long token.
+	 */
+	@Override
+	public int release(int index) {
+		int kept = length - index;
+
+		if (chars.length > CHARS && 4 * kept < chars.length) {
+			char[] smaller = new char[Math.max(CHARS, 2 * kept)];
+			System.arraycopy(chars, index, smaller, 0, kept);
+			chars = smaller;
+		} else {
+			System.arraycopy(chars, index, chars, 0, kept);
+		}
+
+		length = kept;
+		return index;
+	}
+
+	/**
+	 * Gets the array of the chars decoded so far. It's replaced by another one once it grows or shrinks.
+	 *
+	 * @return Array holding the input from index <code>0</code> up to the {@link #length()}.
+	 */
+	char[] array() {
+		return chars;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		return chars[index];
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return CharBuffer.wrap(chars, start, end - start);
+	}
+
+	@Override
+	public String toString() {
+		return new String(chars, 0, length);
+	}
+
+	/**
+	 * Decodes the read bytes, appending the chars.
+	 *
+	 * @param eof Whether or not no more bytes follow.
+	 */
+	private void decode(boolean eof) {
+		CoderResult result;
+
+		do {
+			CharBuffer out = CharBuffer.wrap(chars, length, chars.length - length);
+			result = decoder.decode(bytes, out, eof);
+			length = out.position();
+
+			if (result.isOverflow()) {
+				chars = Arrays.copyOf(chars, 2 * chars.length);
+			}
+		} while (result.isOverflow());
+	}
+
+	/**
+	 * Appends the chars the decoder holds back until the end of the input.
+	 */
+	private void flush() {
+		CoderResult result;
+
+		do {
+			CharBuffer out = CharBuffer.wrap(chars, length, chars.length - length);
+			result = decoder.flush(out);
+			length = out.position();
+
+			if (result.isOverflow()) {
+				chars = Arrays.copyOf(chars, 2 * chars.length);
+			}
+		} while (result.isOverflow());
+	}
+}
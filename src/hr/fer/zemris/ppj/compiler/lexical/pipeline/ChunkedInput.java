@@ -0,0 +1,108 @@
+package hr.fer.zemris.ppj.compiler.lexical.pipeline;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexInput;
+
+/**
+ * Input of the scanning stage, appended from the chunks of chars decoded by the decoding stage.<br>
+ *
+ * The chars are kept in a single array, copied to a larger one as the input grows. Chars already in an array
+ * are never changed, so the array of the input at any moment can be handed over to the formatting stage
+ * together with the tokens scanned so far. Used chunks are given back to the decoding stage.
+ *
+ * @author fiilip
+ *
+ */
+final class ChunkedInput implements LexInput {
+
+	/**
+	 * Chunks of the decoded chars, from the decoding stage.
+	 */
+	private final SpscRing<CharBuffer> chunks;
+
+	/**
+	 * Chunks already appended, back to the decoding stage.
+	 */
+	private final SpscRing<CharBuffer> freeChunks;
+
+	private char[] chars = new char[1 << 16];
+	private int length;
+
+	/**
+	 * Creates a new, empty {@link ChunkedInput}.
+	 *
+	 * @param chunks Chunks of the decoded chars.
+	 * @param freeChunks Chunks already appended.
+	 */
+	ChunkedInput(SpscRing<CharBuffer> chunks, SpscRing<CharBuffer> freeChunks) {
+		this.chunks = chunks;
+		this.freeChunks = freeChunks;
+	}
+
+	/**
+	 * Appends the next chunk, waiting for it if needed, and all the other chunks already decoded.
+	 */
+	@Override
+	public boolean fill() throws IOException {
+		CharBuffer chunk = chunks.take();
+
+		if (chunk == null) {
+			return false;
+		}
+
+		do {
+			append(chunk);
+			freeChunks.offer(chunk);
+		} while ((chunk = chunks.poll()) != null);
+
+		return true;
+	}
+
+	/**
+	 * Gets the array of the chars appended so far.
+	 *
+	 * @return Array holding the input from index <code>0</code> up to the {@link #length()}.
+	 */
+	char[] array() {
+		return chars;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		return chars[index];
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return CharBuffer.wrap(chars, start, end - start);
+	}
+
+	@Override
+	public String toString() {
+		return new String(chars, 0, length);
+	}
+
+	/**
+	 * Appends the chars of the chunk.
+	 *
+	 * @param chunk Chunk, ready to be read.
+	 */
+	private void append(CharBuffer chunk) {
+		int count = chunk.remaining();
+
+		if (length + count > chars.length) {
+			chars = Arrays.copyOf(chars, Math.max(2 * chars.length, length + count));
+		}
+
+		chunk.get(chars, length, count);
+		length += count;
+	}
+}
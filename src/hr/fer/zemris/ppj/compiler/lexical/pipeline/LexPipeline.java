@@ -0,0 +1,346 @@
+package hr.fer.zemris.ppj.compiler.lexical.pipeline;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+import hr.fer.zemris.ppj.compiler.lexical.exec.Lex;
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexObjects;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.ErrorSink;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.TokenSink;
+import hr.fer.zemris.ppj.compiler.util.StreamManager;
+
+/**
+ * Lexical analysis split into three stages running on their own threads:
+ * <ul>
+ * <li><b>decode</b> - reads the input stream and decodes it from <i>UTF-8</i> into the chunks of chars</li>
+ * <li><b>scan</b> - runs the {@link Lex} over the chunks as they arrive, collecting the tokens into batches</li>
+ * <li><b>format</b> - passes the tokens of the batches to the sink, eg. formats and writes them</li>
+ * </ul>
+ * The stages are connected by the bounded {@link SpscRing}s, and the chunks and batches are given back through
+ * the reverse rings to be reused. Tokens and their order are the same as of the {@link Lex} reading the entire
+ * input at once. The scanning stage runs on the thread calling {@link #analyze(InputStream)}.<br>
+ *
+ * If any stage fails, all the rings are aborted, and the first failure is thrown once the stages stop.
+ *
+ * @author fiilip
+ *
+ */
+public class LexPipeline {
+
+	/**
+	 * Number of the chunks or batches in flight between two stages.
+	 */
+	private static final int RING_CAPACITY = 1 << 5;
+
+	/**
+	 * Number of the chars in a chunk.
+	 */
+	private static final int CHUNK_CHARS = 1 << 14;
+
+	/**
+	 * Number of the bytes read from the input stream at once.
+	 */
+	private static final int READ_BYTES = 1 << 16;
+
+	/**
+	 * Sink receiving the tokens on the formatting stage.
+	 */
+	private final TokenSink sink;
+
+	/**
+	 * Sink receiving the runs skipped by the error recovery on the formatting stage, or <code>null</code>.
+	 */
+	private ErrorSink errors;
+
+	private final SpscRing<CharBuffer> chunks = new SpscRing<>(RING_CAPACITY);
+	private final SpscRing<CharBuffer> freeChunks = new SpscRing<>(2 * RING_CAPACITY);
+	private final SpscRing<TokenBatch> batches = new SpscRing<>(RING_CAPACITY);
+	private final SpscRing<TokenBatch> freeBatches = new SpscRing<>(2 * RING_CAPACITY);
+
+	/**
+	 * Input of the scanning stage.
+	 */
+	private final ChunkedInput input = new ChunkedInput(chunks, freeChunks);
+
+	/**
+	 * Lexical analyzer of the scanning stage.
+	 */
+	private final Lex lex;
+
+	/**
+	 * Sink of the scanning stage.
+	 */
+	private final BatchingSink batching = new BatchingSink();
+
+	/**
+	 * First failure of any stage.
+	 */
+	private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+	/**
+	 * Creates a new {@link LexPipeline}.
+	 *
+	 * @param objects Objects generated for the lexical analyzer.
+	 * @param streamManager Stream manager.
+	 * @param sink Sink receiving the tokens, called only by the formatting stage.
+	 */
+	public LexPipeline(LexObjects objects, StreamManager streamManager, TokenSink sink) {
+		this.sink = Objects.requireNonNull(sink);
+		this.lex = objects.createLex(streamManager, batching);
+	}
+
+	/**
+	 * Sets the sink receiving the runs of the input skipped by the error recovery. The runs are passed
+	 * to it by the formatting stage, in order with the tokens.
+	 *
+	 * @param errors Error sink, or <code>null</code> to drop the runs silently.
+	 */
+	public void setErrorSink(ErrorSink errors) {
+		this.errors = errors;
+		lex.setErrorSink(errors == null ? null : batching);
+	}
+
+	/**
+	 * Gets the lexical analyzer of the scanning stage, eg. to set up the interning before the analysis.
+	 *
+	 * @return Lexical analyzer.
+	 */
+	public Lex getLex() {
+		return lex;
+	}
+
+	/**
+	 * Performs the lexical analysis of the input stream.
+	 *
+	 * @param istream Input stream.
+	 * @throws IOException If any stage fails with it.
+	 */
+	public void analyze(InputStream istream) throws IOException {
+		Thread decoder = stage("lex-decode", () -> decode(istream));
+		Thread formatter = stage("lex-format", this::format);
+		decoder.start();
+		formatter.start();
+
+		try {
+			lex.analyze(input);
+		} catch (IOException | RuntimeException e) {
+			fail(e);
+		}
+
+		try {
+			formatter.join();
+
+			// a failed decoder may still be blocked reading the input stream
+			if (failure.get() == null) {
+				decoder.join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			fail(e);
+		}
+
+		Throwable cause = failure.get();
+
+		if (cause instanceof IOException) {
+			throw (IOException) cause;
+		} else if (cause instanceof RuntimeException) {
+			throw (RuntimeException) cause;
+		} else if (cause instanceof Error) {
+			throw (Error) cause;
+		} else if (cause != null) {
+			throw new IOException(String.format("Lexical analysis was interrupted: %s", cause), cause);
+		}
+	}
+
+	/**
+	 * Decoding stage: reads the input stream and decodes it into the chunks.
+	 *
+	 * @param istream Input stream.
+	 * @throws IOException
+	 */
+	private void decode(InputStream istream) throws IOException {
+		CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		ByteBuffer bytes = ByteBuffer.allocate(READ_BYTES);
+		CharBuffer chunk = freeChunk();
+		boolean eof = false;
+
+		while (!eof) {
+			int read = istream.read(bytes.array(), bytes.position(), bytes.remaining());
+			eof = read <= 0;
+			bytes.position(bytes.position() + Math.max(0, read));
+			bytes.flip();
+
+			// a sequence split by the read is left in the bytes, and decoded with the next read
+			while (decoder.decode(bytes, chunk, eof).isOverflow()) {
+				chunk = send(chunk);
+			}
+
+			bytes.compact();
+
+			if (chunk.position() > 0) {
+				chunk = send(chunk);
+			}
+		}
+
+		while (decoder.flush(chunk).isOverflow()) {
+			chunk = send(chunk);
+		}
+
+		if (chunk.position() > 0) {
+			send(chunk);
+		}
+
+		chunks.close();
+	}
+
+	/**
+	 * Sends the chunk to the scanning stage.
+	 *
+	 * @param chunk Chunk being filled.
+	 * @return Empty chunk to be filled next.
+	 * @throws IOException If the pipeline is aborted.
+	 */
+	private CharBuffer send(CharBuffer chunk) throws IOException {
+		chunk.flip();
+		chunks.put(chunk);
+		return freeChunk();
+	}
+
+	/**
+	 * Gets an empty chunk, reused if the scanning stage gave one back.
+	 *
+	 * @return Empty chunk.
+	 */
+	private CharBuffer freeChunk() {
+		CharBuffer chunk = freeChunks.poll();
+		return chunk == null ? CharBuffer.allocate(CHUNK_CHARS) : chunk.clear();
+	}
+
+	/**
+	 * Formatting stage: passes the tokens of the batches to the sink.
+	 *
+	 * @throws IOException
+	 */
+	private void format() throws IOException {
+		char[] wrapped = null;
+		CharBuffer chars = null;
+		TokenBatch batch;
+
+		while ((batch = batches.take()) != null) {
+			if (batch.chars != wrapped) {
+				wrapped = batch.chars;
+				chars = CharBuffer.wrap(wrapped);
+			}
+
+			for (int i = 0; i < batch.size; i++) {
+				if (batch.units[i] == null) {
+					errors.error(batch.lines[i], chars, batch.starts[i], batch.ends[i]);
+				} else {
+					sink.token(batch.units[i], batch.lines[i], chars, batch.starts[i], batch.ends[i], batch.symbols[i]);
+				}
+			}
+
+			batch.clear();
+			freeBatches.offer(batch);
+		}
+
+		sink.finish();
+	}
+
+	/**
+	 * Creates the thread of a stage, which records the failure of the stage.
+	 *
+	 * @param name Name of the thread.
+	 * @param stage Stage.
+	 * @return Thread, not started yet.
+	 */
+	private Thread stage(String name, Stage stage) {
+		Thread thread = new Thread(() -> {
+			try {
+				stage.run();
+			} catch (Throwable e) {
+				fail(e);
+			}
+		}, name);
+
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	/**
+	 * Records the failure, and aborts all the rings.
+	 *
+	 * @param cause Failure.
+	 */
+	private void fail(Throwable cause) {
+		failure.compareAndSet(null, cause);
+		chunks.abort();
+		freeChunks.abort();
+		batches.abort();
+		freeBatches.abort();
+	}
+
+	/**
+	 * Work of a stage.
+	 */
+	@FunctionalInterface
+	private interface Stage {
+
+		void run() throws IOException;
+	}
+
+	/**
+	 * Sink of the scanning stage, collecting the tokens into the batches for the formatting stage. Skipped runs
+	 * are collected as the records without the lexical unit.
+	 */
+	private class BatchingSink implements TokenSink, ErrorSink {
+
+		private TokenBatch batch = new TokenBatch();
+
+		@Override
+		public void token(String lexUnit, int line, CharSequence chars, int start, int end, int symbol)
+				throws IOException {
+			if (batch.add(lexUnit, line, start, end, symbol)) {
+				send();
+			}
+		}
+
+		@Override
+		public void error(int line, CharSequence chars, int start, int end) throws IOException {
+			if (batch.add(null, line, start, end, -1)) {
+				send();
+			}
+		}
+
+		@Override
+		public void finish() throws IOException {
+			if (batch.size > 0) {
+				send();
+			}
+
+			batches.close();
+		}
+
+		/**
+		 * Sends the batch to the formatting stage, with the input scanned so far.
+		 *
+		 * @throws IOException If the pipeline is aborted.
+		 */
+		private void send() throws IOException {
+			batch.chars = input.array();
+			batches.put(batch);
+
+			TokenBatch free = freeBatches.poll();
+			batch = free == null ? new TokenBatch() : free;
+		}
+	}
+}
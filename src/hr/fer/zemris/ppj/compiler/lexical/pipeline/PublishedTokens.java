@@ -0,0 +1,116 @@
+package hr.fer.zemris.ppj.compiler.lexical.pipeline;
+
+import java.nio.CharBuffer;
+import java.util.List;
+
+/**
+ * Batch of the consecutive tokens published by the {@link TokenPublisher}.<br>
+ *
+ * The batch owns its lexemes, copied out of the input into a single array, so it stays valid on any thread and
+ * after the input is gone. Lexemes are created as strings only when asked for.
+ *
+ * @author fiilip
+ *
+ */
+public final class PublishedTokens {
+
+	/**
+	 * Lexical units, by their ids.
+	 */
+	private final List<String> units;
+
+	private final int[] unitIds;
+	private final int[] lines;
+
+	/**
+	 * token -> index of its first char in the {@link #chars}, with the end of the last token at the end
+	 */
+	private final int[] offsets;
+
+	private final char[] chars;
+
+	/**
+	 * Creates a new {@link PublishedTokens}.
+	 *
+	 * @param units Lexical units, by their ids.
+	 * @param unitIds Ids of the lexical units of the tokens.
+	 * @param lines Lines of the tokens.
+	 * @param offsets Offsets of the lexemes in the <code>chars</code>, one more than there are tokens.
+	 * @param chars Lexemes of all the tokens, one after another.
+	 */
+	PublishedTokens(List<String> units, int[] unitIds, int[] lines, int[] offsets, char[] chars) {
+		this.units = units;
+		this.unitIds = unitIds;
+		this.lines = lines;
+		this.offsets = offsets;
+		this.chars = chars;
+	}
+
+	/**
+	 * Gets the number of the tokens.
+	 *
+	 * @return Number of the tokens, at least <code>1</code>.
+	 */
+	public int size() {
+		return unitIds.length;
+	}
+
+	/**
+	 * Gets the id of the lexical unit of the token.
+	 *
+	 * @param i Index of the token in the batch.
+	 * @return Index into the {@link #getUnits()}.
+	 */
+	public int unitId(int i) {
+		return unitIds[i];
+	}
+
+	/**
+	 * Gets the lexical unit of the token.
+	 *
+	 * @param i Index of the token in the batch.
+	 * @return Lexical unit.
+	 */
+	public String unit(int i) {
+		return units.get(unitIds[i]);
+	}
+
+	/**
+	 * Gets the line of the token.
+	 *
+	 * @param i Index of the token in the batch.
+	 * @return Line, starting from <code>1</code>.
+	 */
+	public int line(int i) {
+		return lines[i];
+	}
+
+	/**
+	 * Gets the lexeme of the token, creating the string.
+	 *
+	 * @param i Index of the token in the batch.
+	 * @return Lexeme.
+	 */
+	public String lexeme(int i) {
+		return new String(chars, offsets[i], offsets[i + 1] - offsets[i]);
+	}
+
+	/**
+	 * Gets the lexeme of the token without creating a string.
+	 *
+	 * @param i Index of the token in the batch.
+	 * @return View of the lexeme.
+	 */
+	public CharSequence lexemeView(int i) {
+		return CharBuffer.wrap(chars, offsets[i], offsets[i + 1] - offsets[i]).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Gets the lexical units, by their ids.
+	 *
+	 * @return Lexical units.
+	 */
+	public List<String> getUnits() {
+		return units;
+	}
+}
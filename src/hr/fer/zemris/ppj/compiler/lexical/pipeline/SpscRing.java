@@ -0,0 +1,205 @@
+package hr.fer.zemris.ppj.compiler.lexical.pipeline;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded ring buffer passing the items from a single producer thread to a single consumer thread.<br>
+ *
+ * The producer only ever writes the <code>tail</code> and the consumer only ever writes the <code>head</code>,
+ * so no locks are needed. Each side also caches the last seen position of the other side, and reads it again
+ * only when the ring looks full, or empty. A side that has to wait spins for a while, then yields, and then
+ * parks for a short time, so that a stalled pipeline doesn't burn a core.
+ *
+ * @param <T> Type of the items.
+ *
+ * @author fiilip
+ *
+ */
+final class SpscRing<T> {
+
+	/**
+	 * Number of the waits spent spinning, before yielding; spinning on a single processor only delays the
+	 * other side.
+	 */
+	private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 1 << 7 : 0;
+
+	/**
+	 * Number of the waits spent yielding, before parking.
+	 */
+	private static final int YIELDS = 1 << 8;
+
+	/**
+	 * Time a waiting side parks for, in nanoseconds.
+	 */
+	private static final long PARK_NANOS = 20_000;
+
+	private final Object[] slots;
+	private final int mask;
+
+	/**
+	 * Number of the items taken, written by the consumer.
+	 */
+	private final AtomicLong head = new AtomicLong();
+
+	/**
+	 * Number of the items put, written by the producer.
+	 */
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * Head last seen by the producer.
+	 */
+	private long producerHead;
+
+	/**
+	 * Tail last seen by the consumer.
+	 */
+	private long consumerTail;
+
+	/**
+	 * Set by the producer once it puts no more items.
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * Set by any thread once the pipeline fails; both sides stop waiting.
+	 */
+	private volatile boolean aborted;
+
+	/**
+	 * Creates a new, empty {@link SpscRing}.
+	 *
+	 * @param capacity Maximal number of the items in the ring, rounded up to a power of two.
+	 */
+	SpscRing(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		this.slots = new Object[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Puts the item, waiting while the ring is full. Called only by the producer.
+	 *
+	 * @param item Item.
+	 * @throws IOException If the ring is aborted.
+	 */
+	void put(T item) throws IOException {
+		long t = tail.get();
+
+		for (int waits = 0; t - producerHead >= slots.length; waits++) {
+			producerHead = head.get();
+
+			if (t - producerHead >= slots.length) {
+				idle(waits);
+			}
+		}
+
+		slots[(int) t & mask] = item;
+		tail.lazySet(t + 1);
+	}
+
+	/**
+	 * Puts the item if the ring is not full. Called only by the producer.
+	 *
+	 * @param item Item.
+	 * @return <code>True</code> if the item was put, <code>false</code> otherwise.
+	 */
+	boolean offer(T item) {
+		long t = tail.get();
+
+		if (t - producerHead >= slots.length) {
+			producerHead = head.get();
+
+			if (t - producerHead >= slots.length) {
+				return false;
+			}
+		}
+
+		slots[(int) t & mask] = item;
+		tail.lazySet(t + 1);
+		return true;
+	}
+
+	/**
+	 * Takes the next item, waiting while the ring is empty. Called only by the consumer.
+	 *
+	 * @return Item, or <code>null</code> if the ring is closed and there are no more items.
+	 * @throws IOException If the ring is aborted.
+	 */
+	T take() throws IOException {
+		for (int waits = 0; ; waits++) {
+			T item = poll();
+
+			if (item != null) {
+				return item;
+			}
+
+			// the last items are put before the ring is closed
+			if (closed && head.get() == tail.get()) {
+				return null;
+			}
+
+			idle(waits);
+		}
+	}
+
+	/**
+	 * Takes the next item if there is one. Called only by the consumer.
+	 *
+	 * @return Item, or <code>null</code> if the ring is empty.
+	 */
+	@SuppressWarnings("unchecked")
+	T poll() {
+		long h = head.get();
+
+		if (h >= consumerTail) {
+			consumerTail = tail.get();
+
+			if (h >= consumerTail) {
+				return null;
+			}
+		}
+
+		int slot = (int) h & mask;
+		T item = (T) slots[slot];
+		slots[slot] = null;
+		head.lazySet(h + 1);
+		return item;
+	}
+
+	/**
+	 * Closes the ring once the producer puts no more items.
+	 */
+	void close() {
+		closed = true;
+	}
+
+	/**
+	 * Aborts the ring, so that neither side waits any more.
+	 */
+	void abort() {
+		aborted = true;
+	}
+
+	/**
+	 * Waits for the other side.
+	 *
+	 * @param waits Number of the waits so far.
+	 * @throws IOException If the ring is aborted.
+	 */
+	private void idle(int waits) throws IOException {
+		if (aborted) {
+			throw new IOException("Pipeline is aborted");
+		}
+
+		if (waits < SPINS) {
+			Thread.onSpinWait();
+		} else if (waits < SPINS + YIELDS) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(this, PARK_NANOS);
+		}
+	}
+}
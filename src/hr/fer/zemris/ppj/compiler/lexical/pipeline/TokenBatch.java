@@ -0,0 +1,62 @@
+package hr.fer.zemris.ppj.compiler.lexical.pipeline;
+
+/**
+ * Batch of the token records passed from the scanning stage to the formatting stage.<br>
+ *
+ * A record holds the arguments of a single {@link hr.fer.zemris.ppj.compiler.lexical.tokens.TokenSink#token}
+ * call, or of an {@link hr.fer.zemris.ppj.compiler.lexical.tokens.ErrorSink#error} call if it has no lexical unit; the lexemes are the slices of the {@link #chars}, which hold the input at the time the batch was sent.
+ * Batches are given back to the scanning stage once formatted, and reused.
+ *
+ * @author fiilip
+ *
+ */
+final class TokenBatch {
+
+	/**
+	 * Maximal number of the records in a batch.
+	 */
+	static final int CAPACITY = 1 << 10;
+
+	final String[] units = new String[CAPACITY];
+	final int[] lines = new int[CAPACITY];
+	final int[] starts = new int[CAPACITY];
+	final int[] ends = new int[CAPACITY];
+	final int[] symbols = new int[CAPACITY];
+
+	/**
+	 * Number of the records.
+	 */
+	int size;
+
+	/**
+	 * Input the lexemes are sliced from.
+	 */
+	char[] chars;
+
+	/**
+	 * Adds a record.
+	 *
+	 * @param lexUnit Lexical unit of the token, or <code>null</code> for a skipped run.
+	 * @param line Line of the input the token is in.
+	 * @param start Index of the first char of the token in the input.
+	 * @param end Exclusive index of the last char of the token in the input.
+	 * @param symbol Symbol id of the interned lexeme, or <code>-1</code>.
+	 * @return <code>True</code> if the batch is full afterwards, <code>false</code> otherwise.
+	 */
+	boolean add(String lexUnit, int line, int start, int end, int symbol) {
+		units[size] = lexUnit;
+		lines[size] = line;
+		starts[size] = start;
+		ends[size] = end;
+		symbols[size] = symbol;
+		return ++size == CAPACITY;
+	}
+
+	/**
+	 * Removes all the records.
+	 */
+	void clear() {
+		size = 0;
+		chars = null;
+	}
+}
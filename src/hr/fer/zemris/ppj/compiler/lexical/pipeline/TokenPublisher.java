@@ -0,0 +1,410 @@
+package hr.fer.zemris.ppj.compiler.lexical.pipeline;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import hr.fer.zemris.ppj.compiler.lexical.exec.Lex;
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexObjects;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.TokenConsumer;
+import hr.fer.zemris.ppj.compiler.util.StreamManager;
+
+/**
+ * {@link Flow.Publisher} of the tokens of the input read from a byte channel, in the {@link PublishedTokens}
+ * batches. The input is read and scanned only as far as the subscriber has requested the batches: once the
+ * requested batches are published, the {@link Lex} is paused, and the channel is not read until more are
+ * requested.<br>
+ *
+ * Reading and scanning run on the executor, never on the thread calling the {@link Flow.Subscription}. The reads
+ * block the executor's thread until the channel has the bytes, so the executor must tolerate the blocking tasks;
+ * by default the publisher runs on a thread of its own. Chars of the published batches are released from the
+ * input, so the input holds only the chars of the batch being scanned, and those read ahead of it. Batches
+ * adapt to the subscriber: a batch starts at {@link #MIN_BATCH} tokens, and the next one is twice as large while
+ * the subscriber has requested more batches than are published, up to {@link #MAX_BATCH}, and half as large once
+ * it has not. A slow subscriber thus holds up only small batches, and a fast one gets large ones.<br>
+ *
+ * The channel is read once, so the publisher accepts a single subscriber; cancelling the subscription closes the
+ * channel, stopping the analysis in the middle of the input.
+ *
+ * @author fiilip
+ *
+ */
+public class TokenPublisher implements Flow.Publisher<PublishedTokens> {
+
+	/**
+	 * Least number of the tokens in a batch, except for the last one.
+	 */
+	public static final int MIN_BATCH = 1 << 6;
+
+	/**
+	 * Largest number of the tokens in a batch.
+	 */
+	public static final int MAX_BATCH = 1 << 14;
+
+	private final ReadableByteChannel channel;
+
+	private final Executor executor;
+
+	/**
+	 * Executor created by the publisher, shut down once the subscription ends, or <code>null</code>.
+	 */
+	private final ExecutorService ownExecutor;
+
+	/**
+	 * Input decoded from the channel.
+	 */
+	private final ChannelInput input;
+
+	/**
+	 * Lexical units, by their ids.
+	 */
+	private final List<String> units;
+
+	/**
+	 * Lexical analyzer, driven by the subscription.
+	 */
+	private final Lex lex;
+
+	/**
+	 * Batch being collected by the analyzer.
+	 */
+	private final Collector collector = new Collector();
+
+	/**
+	 * Whether or not the publisher has its subscriber.
+	 */
+	private final AtomicBoolean subscribed = new AtomicBoolean();
+
+	/**
+	 * Creates a new {@link TokenPublisher} publishing on a daemon thread of its own, which is stopped once the
+	 * subscription is completed or cancelled.
+	 *
+	 * @param objects Objects generated for the lexical analyzer.
+	 * @param streamManager Stream manager.
+	 * @param channel Blocking channel the input is read from.
+	 */
+	public TokenPublisher(LexObjects objects, StreamManager streamManager, ReadableByteChannel channel) {
+		this(objects, streamManager, channel, Executors.newSingleThreadExecutor(task -> {
+			Thread thread = new Thread(task, "token-publisher");
+			thread.setDaemon(true);
+			return thread;
+		}), true);
+	}
+
+	/**
+	 * Creates a new {@link TokenPublisher}.
+	 *
+	 * @param objects Objects generated for the lexical analyzer.
+	 * @param streamManager Stream manager.
+	 * @param channel Blocking channel the input is read from.
+	 * @param executor Executor reading and scanning the input, and publishing the batches. It has to tolerate the
+	 * tasks blocked on the channel, so eg. not the common fork-join pool.
+	 */
+	public TokenPublisher(LexObjects objects, StreamManager streamManager, ReadableByteChannel channel,
+			Executor executor) {
+		this(objects, streamManager, channel, executor, false);
+	}
+
+	/**
+	 * Creates a new {@link TokenPublisher}.
+	 *
+	 * @param objects Objects generated for the lexical analyzer.
+	 * @param streamManager Stream manager.
+	 * @param channel Blocking channel the input is read from.
+	 * @param executor Executor reading and scanning the input, and publishing the batches.
+	 * @param owned Whether or not the executor is shut down once the subscription ends.
+	 */
+	private TokenPublisher(LexObjects objects, StreamManager streamManager, ReadableByteChannel channel,
+			Executor executor, boolean owned) {
+		this.channel = Objects.requireNonNull(channel);
+		this.executor = Objects.requireNonNull(executor);
+		this.ownExecutor = owned ? (ExecutorService) executor : null;
+		this.input = new ChannelInput(channel);
+		this.units = objects.getLexUnits();
+		this.lex = objects.createLex(Objects.requireNonNull(streamManager), collector);
+	}
+
+	/**
+	 * Gets the analyzer of the publisher, eg. to set its error sink before the subscription. The error sink is
+	 * called on the executor.
+	 *
+	 * @return Analyzer.
+	 */
+	public Lex getLex() {
+		return lex;
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super PublishedTokens> subscriber) {
+		Objects.requireNonNull(subscriber);
+
+		if (!subscribed.compareAndSet(false, true)) {
+			subscriber.onSubscribe(new Flow.Subscription() {
+
+				@Override
+				public void request(long n) {
+				}
+
+				@Override
+				public void cancel() {
+				}
+			});
+			subscriber.onError(new IllegalStateException("Token publisher accepts a single subscriber."));
+			return;
+		}
+
+		TokenSubscription subscription = new TokenSubscription(subscriber);
+		subscriber.onSubscribe(subscription);
+	}
+
+	/**
+	 * Subscription of the single subscriber. Signals to the subscriber are sent only by the drain, which runs on
+	 * the executor and never runs twice at once.
+	 */
+	private class TokenSubscription implements Flow.Subscription {
+
+		private final Flow.Subscriber<? super PublishedTokens> subscriber;
+
+		/**
+		 * Number of the batches requested, and not published yet.
+		 */
+		private final AtomicLong demand = new AtomicLong();
+
+		/**
+		 * Number of the drains asked for while the drain is running, see {@link #schedule()}.
+		 */
+		private final AtomicInteger pending = new AtomicInteger();
+
+		private volatile boolean cancelled;
+
+		/**
+		 * Failure to be signalled by the drain, eg. of a non-positive request.
+		 */
+		private volatile Throwable failure;
+
+		/**
+		 * Whether or not the analysis is started, touched only by the drain.
+		 */
+		private boolean started;
+
+		/**
+		 * Whether or not the terminal signal is sent, touched only by the drain.
+		 */
+		private boolean terminated;
+
+		/**
+		 * Creates a new {@link TokenSubscription}.
+		 *
+		 * @param subscriber Subscriber.
+		 */
+		TokenSubscription(Flow.Subscriber<? super PublishedTokens> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				failure = new IllegalArgumentException(String.format("Request of %d batches is not positive.", n));
+			} else {
+				demand.accumulateAndGet(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+			}
+
+			schedule();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			collector.cancelled = true;
+			close();
+		}
+
+		/**
+		 * Runs the drain on the executor, unless it's running already; the running drain then goes on for
+		 * another round.
+		 */
+		private void schedule() {
+			if (pending.getAndIncrement() == 0) {
+				try {
+					executor.execute(this::drain);
+				} catch (RejectedExecutionException e) {
+					// own executor is shut down once the subscription has ended
+				}
+			}
+		}
+
+		/**
+		 * Publishes the batches while there is demand for them.
+		 */
+		private void drain() {
+			int rounds = 1;
+
+			do {
+				while (!terminated && !cancelled) {
+					if (failure != null) {
+						terminate(failure);
+					} else if (demand.get() > 0) {
+						publish();
+					} else {
+						break;
+					}
+				}
+
+				rounds = pending.addAndGet(-rounds);
+			} while (rounds != 0);
+		}
+
+		/**
+		 * Scans the next batch, and publishes it, or completes the subscription at the end of the input.
+		 */
+		private void publish() {
+			PublishedTokens batch;
+
+			try {
+				if (!started) {
+					started = true;
+					lex.analyze(input);
+				} else {
+					// chars of the published batches are copied into them
+					lex.release();
+					lex.resume();
+				}
+				batch = collector.take();
+			} catch (IOException | RuntimeException e) {
+				if (!cancelled) {
+					terminate(e);
+				}
+				return;
+			}
+
+			if (cancelled) {
+				return;
+			}
+
+			if (batch != null) {
+				collector.adapt(demand.decrementAndGet() > 0);
+				subscriber.onNext(batch);
+			}
+
+			if (!lex.isPaused()) {
+				terminate(null);
+			}
+		}
+
+		/**
+		 * Sends the terminal signal, and closes the channel.
+		 *
+		 * @param cause Failure, or <code>null</code> if the tokens are complete.
+		 */
+		private void terminate(Throwable cause) {
+			terminated = true;
+			close();
+
+			if (cause == null) {
+				subscriber.onComplete();
+			} else {
+				subscriber.onError(cause);
+			}
+		}
+
+		/**
+		 * Closes the channel, ignoring the failure, and shuts down the own executor.
+		 */
+		private void close() {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// nothing is read anymore
+			}
+
+			if (ownExecutor != null) {
+				ownExecutor.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Consumer of the analyzer, collecting the tokens into the batch and pausing the analyzer once it's full.
+	 * Called only by the drain.
+	 */
+	private class Collector implements TokenConsumer {
+
+		/**
+		 * Number of the tokens in the batch being collected.
+		 */
+		private int target = MIN_BATCH;
+
+		private int[] unitIds = new int[MIN_BATCH];
+		private int[] lines = new int[MIN_BATCH];
+		private int[] offsets = new int[MIN_BATCH + 1];
+		private char[] chars = new char[16 * MIN_BATCH];
+		private int size;
+
+		/**
+		 * Whether or not the subscription is cancelled, so that the analyzer stops at the next token.
+		 */
+		private volatile boolean cancelled;
+
+		@Override
+		public void token(int unit, CharSequence buffer, int start, int end, int line) {
+			if (size == unitIds.length) {
+				unitIds = Arrays.copyOf(unitIds, 2 * size);
+				lines = Arrays.copyOf(lines, 2 * size);
+				offsets = Arrays.copyOf(offsets, 2 * size + 1);
+			}
+
+			int offset = offsets[size];
+			if (offset + end - start > chars.length) {
+				chars = Arrays.copyOf(chars, Math.max(2 * chars.length, offset + end - start));
+			}
+
+			System.arraycopy(input.array(), start, chars, offset, end - start);
+			unitIds[size] = unit;
+			lines[size] = line;
+			offsets[++size] = offset + end - start;
+
+			if (size == target || cancelled) {
+				lex.pause();
+			}
+		}
+
+		@Override
+		public void finish() {
+		}
+
+		/**
+		 * Takes the collected tokens as a batch.
+		 *
+		 * @return Batch, or <code>null</code> if no tokens are collected.
+		 */
+		PublishedTokens take() {
+			if (size == 0) {
+				return null;
+			}
+
+			PublishedTokens batch = new PublishedTokens(units, Arrays.copyOf(unitIds, size), Arrays.copyOf(lines, size),
+					Arrays.copyOf(offsets, size + 1), Arrays.copyOf(chars, offsets[size]));
+			size = 0;
+			return batch;
+		}
+
+		/**
+		 * Sets the size of the next batch.
+		 *
+		 * @param ahead Whether or not the subscriber has requested more batches than are published.
+		 */
+		void adapt(boolean ahead) {
+			target = ahead ? Math.min(MAX_BATCH, 2 * target) : Math.max(MIN_BATCH, target / 2);
+		}
+	}
+}
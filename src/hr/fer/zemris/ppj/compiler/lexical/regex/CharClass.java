@@ -0,0 +1,352 @@
+package hr.fer.zemris.ppj.compiler.lexical.regex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Set of symbols matched by a character class of the extended regular expressions,
+ * ie. <code>[a-z_]</code> or <code>[^"\n]</code>.<br>
+ *
+ * Symbols are Unicode code points, stored as sorted, disjoint and non-adjacent inclusive ranges, so that a class
+ * can label a single transition of the automaton no matter how many symbols it matches.
+ *
+ * @author fiilip
+ *
+ */
+public final class CharClass {
+
+	/**
+	 * Symbol that starts a character class.
+	 */
+	public static final char START_SYM = '[';
+
+	/**
+	 * Symbol that ends a character class.
+	 */
+	public static final char END_SYM = ']';
+
+	/**
+	 * Symbol that negates a character class, if it's the first one in the class.
+	 */
+	private static final char NEGATION_SYM = '^';
+
+	/**
+	 * Symbol between the bounds of a range.
+	 */
+	private static final char RANGE_SYM = '-';
+
+	/**
+	 * Inclusive upper bound of the symbols.
+	 */
+	private final int maxSymbol;
+
+	/**
+	 * Bounds of the ranges: <code>low0, high0, low1, high1, ...</code>
+	 */
+	private final int[] ranges;
+
+	/**
+	 * Creates a new {@link CharClass}.
+	 *
+	 * @param ranges Sorted, disjoint and non-adjacent inclusive ranges.
+	 * @param maxSymbol Inclusive upper bound of the symbols.
+	 */
+	private CharClass(int[] ranges, int maxSymbol) {
+		this.ranges = ranges;
+		this.maxSymbol = maxSymbol;
+	}
+
+	/**
+	 * Parses the class starting at the given index of the regular expression.<br>
+	 *
+	 * Class is a list of symbols and ranges <code>a-z</code>, optionally negated by the leading <code>^</code>.
+	 * Symbols are escaped as in the rest of the regular expression; <code>]</code>, <code>\</code> and
+	 * the braces have to be escaped, while <code>-</code> is literal at the beginning or the end of the class.
+	 *
+	 * @param regEx Regular expression.
+	 * @param start Index of the <code>[</code> that starts the class.
+	 * @param maxSymbol Inclusive upper bound of the symbols, used for the negated classes.
+	 * @return Parsed class.
+	 * @throws IllegalArgumentException If the class is not closed, or has a reversed range.
+	 */
+	public static CharClass parse(String regEx, int start, int maxSymbol) {
+		return parse(regEx, start, maxSymbol, false);
+	}
+
+	/**
+	 * Parses the class starting at the given index of the regular expression, optionally regardless of the case.<br>
+	 *
+	 * Listed symbols are closed under the case conversions before a negated class is complemented, so
+	 * <code>[^a-z]</code> excludes the upper case letters as well.
+	 *
+	 * @param regEx Regular expression.
+	 * @param start Index of the <code>[</code> that starts the class.
+	 * @param maxSymbol Inclusive upper bound of the symbols, used for the negated classes.
+	 * @param ignoreCase Whether or not the class is matched regardless of the case.
+	 * @return Parsed class.
+	 * @throws IllegalArgumentException If the class is not closed, or has a reversed range.
+	 */
+	public static CharClass parse(String regEx, int start, int maxSymbol, boolean ignoreCase) {
+		int end = RegexUtil.findClassEnd(regEx, start);
+
+		if (end < 0) {
+			throw new IllegalArgumentException(String.format("Character class is not closed in regEx: '%s'.", regEx));
+		}
+
+		int idx = start + 1;
+		boolean negated = idx < end && regEx.charAt(idx) == NEGATION_SYM;
+
+		if (negated) {
+			idx ++;
+		}
+
+		List<int[]> ranges = new ArrayList<>();
+
+		while (idx < end) {
+			int low = symbolAt(regEx, idx);
+			idx += width(regEx, idx);
+			int high = low;
+
+			if (idx + 1 < end && regEx.charAt(idx) == RANGE_SYM) {
+				high = symbolAt(regEx, idx + 1);
+				idx += 1 + width(regEx, idx + 1);
+
+				if (high < low) {
+					throw new IllegalArgumentException(String.format(
+							"Reversed range %s-%s in regEx: '%s'.", new String(Character.toChars(low)),
+							new String(Character.toChars(high)), regEx));
+				}
+			}
+
+			ranges.add(new int[] { low, high });
+		}
+
+		CharClass parsed = new CharClass(join(ranges), maxSymbol);
+
+		if (ignoreCase) {
+			parsed = parsed.foldCase();
+		}
+
+		return negated ? parsed.complement() : parsed;
+	}
+
+	/**
+	 * Gets the symbol at the given index, unescaping it if needed.
+	 *
+	 * @param regEx Regular expression.
+	 * @param idx Index of the symbol, or the escape before it.
+	 * @return Symbol, as a Unicode code point.
+	 */
+	private static int symbolAt(String regEx, int idx) {
+		if (regEx.charAt(idx) != '\\') {
+			return regEx.codePointAt(idx);
+		}
+
+		int symbol = regEx.codePointAt(idx + 1);
+		return Character.isBmpCodePoint(symbol) ? RegexUtil.unescape((char) symbol) : symbol;
+	}
+
+	/**
+	 * Gets the number of chars taken by the symbol at the given index.
+	 *
+	 * @param regEx Regular expression.
+	 * @param idx Index of the symbol, or the escape before it.
+	 * @return Number of chars of the symbol, including the escape.
+	 */
+	private static int width(String regEx, int idx) {
+		return regEx.charAt(idx) == '\\'
+				? 1 + Character.charCount(regEx.codePointAt(idx + 1))
+				: Character.charCount(regEx.codePointAt(idx));
+	}
+
+	/**
+	 * Sorts the ranges and joins the overlapping and adjacent ones.
+	 *
+	 * @param ranges Inclusive ranges, in any order.
+	 * @return Bounds of the joined ranges.
+	 */
+	private static int[] join(List<int[]> ranges) {
+		ranges.sort((r1, r2) -> Integer.compare(r1[0], r2[0]));
+		int[] joined = new int[2 * ranges.size()];
+		int length = 0;
+
+		for (int[] range : ranges) {
+			if (length > 0 && range[0] <= joined[length - 1] + 1) {
+				joined[length - 1] = Math.max(joined[length - 1], range[1]);
+			} else {
+				joined[length ++] = range[0];
+				joined[length ++] = range[1];
+			}
+		}
+
+		return Arrays.copyOf(joined, length);
+	}
+
+	/**
+	 * Creates the class of all the symbols not in this class.
+	 *
+	 * @return Complement of this class.
+	 */
+	public CharClass complement() {
+		int[] complement = new int[ranges.length + 2];
+		int length = 0;
+		int next = 0;
+
+		for (int i = 0; i < ranges.length; i += 2) {
+			if (ranges[i] > next) {
+				complement[length ++] = next;
+				complement[length ++] = ranges[i] - 1;
+			}
+			next = ranges[i + 1] + 1;
+		}
+
+		if (next <= maxSymbol) {
+			complement[length ++] = next;
+			complement[length ++] = maxSymbol;
+		}
+
+		return new CharClass(Arrays.copyOf(complement, length), maxSymbol);
+	}
+
+	/**
+	 * Creates the class of the symbol and the other cases of it, for the rules matched regardless of the case.
+	 *
+	 * @param symbol Symbol, as a Unicode code point.
+	 * @param maxSymbol Inclusive upper bound of the symbols.
+	 * @return Class of all the cases of the symbol, or <code>null</code> if the symbol has a single case.
+	 */
+	public static CharClass caseOf(int symbol, int maxSymbol) {
+		List<int[]> ranges = new ArrayList<>();
+
+		for (int variant : caseVariants(symbol)) {
+			ranges.add(new int[] { variant, variant });
+		}
+
+		CharClass folded = new CharClass(join(ranges), maxSymbol);
+		return folded.getRangeCount() == 1 && folded.getLow(0) == folded.getHigh(0) ? null : folded;
+	}
+
+	/**
+	 * Creates the class of the symbols of this class and all the other cases of them.
+	 *
+	 * @return Class closed under the case conversions, this class if it already is.
+	 */
+	public CharClass foldCase() {
+		List<int[]> ranges = new ArrayList<>();
+
+		for (int i = 0; i < this.ranges.length; i += 2) {
+			ranges.add(new int[] { this.ranges[i], this.ranges[i + 1] });
+
+			for (int symbol = this.ranges[i]; symbol <= this.ranges[i + 1]; symbol++) {
+				for (int variant : caseVariants(symbol)) {
+					if (variant < this.ranges[i] || variant > this.ranges[i + 1]) {
+						ranges.add(new int[] { variant, variant });
+					}
+				}
+			}
+		}
+
+		int[] folded = join(ranges);
+		return Arrays.equals(folded, this.ranges) ? this : new CharClass(folded, maxSymbol);
+	}
+
+	/**
+	 * Gets the cases of the symbol: the symbol itself, and its lower, upper and title case.
+	 *
+	 * @param symbol Symbol, as a Unicode code point.
+	 * @return Cases of the symbol, possibly repeated.
+	 */
+	private static int[] caseVariants(int symbol) {
+		int lower = Character.toLowerCase(symbol);
+		int upper = Character.toUpperCase(symbol);
+
+		return new int[] { symbol, lower, upper, Character.toTitleCase(symbol), Character.toUpperCase(lower),
+				Character.toLowerCase(upper) };
+	}
+
+	/**
+	 * Tests whether the symbol is in this class.
+	 *
+	 * @param symbol Symbol of interest.
+	 * @return <code>True</code> if the symbol is in this class, <code>false</code> otherwise.
+	 */
+	public boolean contains(int symbol) {
+		int low = 0;
+		int high = getRangeCount() - 1;
+
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+
+			if (symbol < ranges[2 * mid]) {
+				high = mid - 1;
+			} else if (symbol > ranges[2 * mid + 1]) {
+				low = mid + 1;
+			} else {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Gets the number of ranges of this class.
+	 *
+	 * @return Number of ranges.
+	 */
+	public int getRangeCount() {
+		return ranges.length / 2;
+	}
+
+	/**
+	 * Gets the first symbol of the range.
+	 *
+	 * @param idx Index of the range.
+	 * @return First symbol of the range.
+	 */
+	public int getLow(int idx) {
+		return ranges[2 * idx];
+	}
+
+	/**
+	 * Gets the last symbol of the range.
+	 *
+	 * @param idx Index of the range.
+	 * @return Last symbol of the range, inclusive.
+	 */
+	public int getHigh(int idx) {
+		return ranges[2 * idx + 1];
+	}
+
+	/**
+	 * Tests whether this class matches no symbols.
+	 *
+	 * @return <code>True</code> if the class is empty, <code>false</code> otherwise.
+	 */
+	public boolean isEmpty() {
+		return ranges.length == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(ranges);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof CharClass && Arrays.equals(ranges, ((CharClass) obj).ranges);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+
+		for (int i = 0; i < ranges.length; i += 2) {
+			sb.append(String.format(ranges[i] == ranges[i + 1] ? "U+%04X" : "U+%04X-U+%04X", ranges[i], ranges[i + 1]));
+			sb.append(i + 2 < ranges.length ? " " : "");
+		}
+
+		return sb.append(']').toString();
+	}
+}
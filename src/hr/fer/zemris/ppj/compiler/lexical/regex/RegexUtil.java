@@ -61,7 +61,7 @@ public class RegexUtil {
     		int len = regEx.length();
     		
     		for (int idx=0; idx<len; idx++) {
-    			if (regEx.charAt(idx) == REG_DEF_START_SYM && !isPrefixed(regEx, idx)) {
+    			if (isRegDefStart(regEx, idx)) {
     				int cidx = findClosingOperator(regEx, REG_DEF_START_SYM, REG_DEF_END_SYM, idx);    				
                 String regdef = regEx.substring(idx + 1, cidx);
                 
@@ -83,6 +83,45 @@ public class RegexUtil {
     		return sb.toString();
     }
     
+    /**
+     * Finds the regular definitions directly referenced by the regular expression.
+     * 
+     * @param regEx		Regular expression of interest.
+     * @return			Names of the referenced regular definitions, in order of appearance.
+     */
+    public static List<String> references(String regEx) {
+    		List<String> names = new ArrayList<>();
+    		int len = regEx.length();
+    		
+    		for (int idx=0; idx<len; idx++) {
+    			if (isRegDefStart(regEx, idx)) {
+    				int cidx = findClosingOperator(regEx, REG_DEF_START_SYM, REG_DEF_END_SYM, idx);
+    				
+    				if (cidx < 0) {
+    					break;
+    				}
+    				
+    				names.add(regEx.substring(idx + 1, cidx));
+    				idx = cidx;
+    			}
+    		}
+    		return names;
+    }
+    
+    /**
+     * Evaluates whether or not a reference to the regular definition starts at the given index.<br>
+     * 
+     * Braces starting with a digit are the bounded repetition of the extended regular expressions, ie. <code>{2,4}</code>.
+     * 
+     * @param regEx	Regular expression.
+     * @param idx	Index of interest.
+     * @return		<code>True</code> if a regular definition is referenced at <code>idx</code>, <code>false</code> otherwise.
+     */
+    private static boolean isRegDefStart(String regEx, int idx) {
+    		return regEx.charAt(idx) == REG_DEF_START_SYM && !isPrefixed(regEx, idx) 
+    				&& !(idx + 1 < regEx.length() && Character.isDigit(regEx.charAt(idx + 1)));
+    }
+    
     /**
      * Breaks down the given regular expression into sub-regExes.<br> 
      * Ie. regEx r1|r2|r3 is split into regExes: r1, r2, r3.<br> 
@@ -93,6 +132,19 @@ public class RegexUtil {
      * @return List of smaller regExes
      */
     public static List<String> splitChoices(String regex) {
+    		return splitChoices(regex, false);
+    }
+    
+    /**
+     * Breaks down the given regular expression into sub-regExes.<br> 
+     * 
+     * In the extended regular expressions, symbols within the character classes are not operators.
+     * 
+     * @param regex 		regEx to split
+     * @param extended	Whether or not the regEx is an extended regular expression.
+     * @return List of smaller regExes
+     */
+    public static List<String> splitChoices(String regex, boolean extended) {
         List<String> expressions = new ArrayList<>();
         int lastIdx = -1;
         int len = regex.length();
@@ -105,6 +157,11 @@ public class RegexUtil {
             
             char current = regex.charAt(idx);
             
+            if (extended && current == CharClass.START_SYM) {
+            		idx = Math.max(idx, findClassEnd(regex, idx));
+            		continue;
+            }
+            
             if (current == '(') {
                 numOfBrackets++;
             }
@@ -134,6 +191,23 @@ public class RegexUtil {
      * @return Index of a first found closing operator, <code>-1</code> if none found.
      */
     public static int findClosingOperator(String regex, char open, char close, int startFrom) {
+    		return findClosingOperator(regex, open, close, startFrom, false);
+    }
+    
+    /**
+     * Finds the next closing operator starting from given index in a regEx.<br>
+     * 
+     * In the extended regular expressions, symbols within the character classes are not operators.
+     * 
+     * @param regEx	Regular expression being searched.
+     * @param open	Opening operator
+     * @param close Closing operator
+     * @param startFrom	Starting index
+     * @param extended	Whether or not the regEx is an extended regular expression.
+     * 
+     * @return Index of a first found closing operator, <code>-1</code> if none found.
+     */
+    public static int findClosingOperator(String regex, char open, char close, int startFrom, boolean extended) {
         int len = regex.length();
         int operators = 0;
         
@@ -144,6 +218,11 @@ public class RegexUtil {
                 continue;
             }
             
+            if (extended && sym == CharClass.START_SYM && sym != open) {
+            		idx = Math.max(idx, findClassEnd(regex, idx));
+            		continue;
+            }
+            
             if (sym == open) {
                 operators ++;
             } 
@@ -160,6 +239,29 @@ public class RegexUtil {
         return -1;
     }
     
+    /**
+     * Finds the end of the character class starting at the given index.
+     * 
+     * @param regEx	Regular expression being searched.
+     * @param start	Index of the <code>[</code> that starts the class.
+     * @return		Index of the <code>]</code> that ends the class, <code>-1</code> if none found.
+     */
+    public static int findClassEnd(String regEx, int start) {
+    		int len = regEx.length();
+    		
+    		for (int idx = start + 1; idx < len; idx++) {
+    			char sym = regEx.charAt(idx);
+    			
+    			if (sym == '\\') {
+    				idx ++;
+    			} else if (sym == CharClass.END_SYM) {
+    				return idx;
+    			}
+    		}
+    		
+    		return -1;
+    }
+    
     /**
      * Evaluates whether or not the character at index <code>idx</code> in <code>regEx</code> is prefixed or not.<br>
      * 
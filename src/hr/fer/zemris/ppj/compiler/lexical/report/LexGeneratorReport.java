@@ -0,0 +1,361 @@
+package hr.fer.zemris.ppj.compiler.lexical.report;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexAutomaton;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexAutomatonMerged;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexDfa;
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexNfa;
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexRule;
+import hr.fer.zemris.ppj.compiler.lexical.input.LexicalDefinitionsParser;
+import hr.fer.zemris.ppj.compiler.lexical.regex.CharClass;
+import hr.fer.zemris.ppj.compiler.lexical.regex.RegexUtil;
+import hr.fer.zemris.ppj.compiler.util.JsonWriter;
+
+/**
+ * Compilation report of the <b>Generator of Lexical Analyzer</b>.<br>
+ *
+ * Collects the sizes of the automatons built for every lexer state and every rule,
+ * together with the wall clock time spent in each of the generation phases, and writes
+ * them as a <b>JSON</b> document.
+ *
+ * @author fiilip
+ *
+ */
+public class LexGeneratorReport {
+
+	/**
+	 * Parser holding the parsed definitions.
+	 */
+	private final LexicalDefinitionsParser parser;
+
+	/**
+	 * Generation phase -> wall clock time spent, in nanoseconds.
+	 */
+	private final Map<String, Long> phaseTimes;
+
+	/**
+	 * Lexer state -> sizes of its automatons.
+	 */
+	private final Map<String, StateReport> states;
+
+	/**
+	 * Key of the generated objects in the cache, or <code>null</code> if the cache is disabled.
+	 */
+	private String cacheKey;
+
+	/**
+	 * Outcome of the cache lookup.
+	 */
+	private String cacheOutcome;
+
+	/**
+	 * Number of the old cache entries evicted.
+	 */
+	private int cacheEvictions;
+
+	/**
+	 * Warnings about the definitions, eg. the rules that never match.
+	 */
+	private final List<String> warnings = new ArrayList<>();
+
+	/**
+	 * Creates a new {@link LexGeneratorReport}.<br>
+	 *
+	 * Times of the parsing phases are taken from the <code>parser</code>, so it should already be parsed.
+	 *
+	 * @param parser Parser holding the parsed definitions.
+	 */
+	public LexGeneratorReport(LexicalDefinitionsParser parser) {
+		this.parser = Objects.requireNonNull(parser);
+		this.phaseTimes = new LinkedHashMap<>(parser.getPhaseTimes());
+		this.states = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Adds the wall clock time spent in a generation phase.<br>
+	 * Time of a phase that is added more than once is accumulated.
+	 *
+	 * @param phase Name of the phase.
+	 * @param nanos Time spent, in nanoseconds.
+	 */
+	public void addPhase(String phase, long nanos) {
+		phaseTimes.merge(phase, nanos, Long::sum);
+	}
+
+	/**
+	 * Adds the automatons built for a single lexer state.
+	 *
+	 * @param state Name of the lexer state.
+	 * @param dfa Determinized automaton, before minimization.
+	 * @param determinizeNanos Time spent in determinization, in nanoseconds.
+	 * @param minimal Minimized automaton.
+	 * @param minimizeNanos Time spent in minimization, in nanoseconds.
+	 */
+	public void addState(String state, LexDfa dfa, long determinizeNanos, LexDfa minimal, long minimizeNanos) {
+		states.put(state, new StateReport(dfa, determinizeNanos, minimal, minimizeNanos));
+		addPhase("determinize", determinizeNanos);
+		addPhase("minimize", minimizeNanos);
+	}
+
+	/**
+	 * Adds the nondeterministic automaton built for a single lexer state.
+	 *
+	 * @param state Name of the lexer state.
+	 * @param nfa Automaton with the precomputed closures.
+	 * @param closureNanos Time spent in building the automaton, in nanoseconds.
+	 */
+	public void addNfaState(String state, LexNfa nfa, long closureNanos) {
+		states.put(state, new StateReport(nfa, closureNanos));
+		addPhase("closures", closureNanos);
+	}
+
+	/**
+	 * Adds a warning about the definitions.
+	 *
+	 * @param warning Text of the warning.
+	 */
+	public void addWarning(String warning) {
+		warnings.add(warning);
+	}
+
+	/**
+	 * Sets the usage of the cache of the generated objects.
+	 *
+	 * @param key Key of the generated objects, or <code>null</code> if the cache is disabled.
+	 * @param outcome Outcome of the cache lookup.
+	 * @param evictions Number of the old cache entries evicted.
+	 */
+	public void setCache(String key, String outcome, int evictions) {
+		this.cacheKey = key;
+		this.cacheOutcome = outcome;
+		this.cacheEvictions = evictions;
+	}
+
+	/**
+	 * Writes this report as a <b>JSON</b> document.
+	 *
+	 * @param writer Writer the report is written to. It's closed afterwards.
+	 * @throws IOException
+	 */
+	public void write(Writer writer) throws IOException {
+		LexAutomatonMerged merged = parser.getAutomatonMerged();
+		Map<String, List<LexRule>> rules = parser.getStates();
+
+		try (JsonWriter json = new JsonWriter(writer)) {
+			json.beginObject();
+
+			json.name("phases").beginObject();
+			for (Map.Entry<String, Long> phase : phaseTimes.entrySet()) {
+				json.field(phase.getKey() + "Nanos", phase.getValue());
+			}
+			json.endObject();
+
+			if (cacheOutcome != null) {
+				json.name("cache").beginObject()
+						.field("outcome", cacheOutcome)
+						.field("evictions", cacheEvictions);
+				if (cacheKey != null) {
+					json.field("key", cacheKey);
+				}
+				json.endObject();
+			}
+
+			json.name("nfa").beginObject()
+					.field("states", merged.getStateCount())
+					.field("transitions", merged.getTransitionCount())
+					.field("epsilonTransitions", merged.getEpsilonTransitionCount())
+					.endObject();
+
+			json.field("lexicalUnits", parser.getLexUnits().size());
+
+			json.name("warnings").beginArray();
+			for (String warning : warnings) {
+				json.value(warning);
+			}
+			json.endArray();
+
+			json.name("regularDefinitions").beginArray();
+			for (Map.Entry<String, String> def : new TreeMap<>(parser.getRegDefs()).entrySet()) {
+				json.beginObject()
+						.field("name", def.getKey())
+						.field("length", def.getValue().length())
+						.field("expandedLength", merged.getRegDefs().get(def.getKey()).length())
+						.endObject();
+			}
+			json.endArray();
+
+			json.name("lexerStates").beginArray();
+			for (Map.Entry<String, List<LexRule>> state : rules.entrySet()) {
+				NfaSize nfa = new NfaSize();
+
+				for (LexRule rule : state.getValue()) {
+					nfa.add(NfaSize.of(merged, rule.getAutomaton()));
+				}
+
+				json.beginObject()
+						.field("name", state.getKey())
+						.field("rules", state.getValue().size());
+				nfa.write(json);
+
+				StateReport report = states.get(state.getKey());
+				if (report != null) {
+					report.write(json);
+				}
+				json.endObject();
+			}
+			json.endArray();
+
+			json.name("rules").beginArray();
+			for (Map.Entry<String, List<LexRule>> state : rules.entrySet()) {
+				int index = 0;
+
+				for (LexRule rule : state.getValue()) {
+					json.beginObject()
+							.field("state", state.getKey())
+							.field("index", index ++)
+							.field("unit", rule.lexUnit())
+							.field("regEx", rule.getRegEx())
+							.field("expandedLength", RegexUtil.normalize(rule.getRegEx(), merged.getRegDefs()).length());
+					NfaSize.of(merged, rule.getAutomaton()).write(json);
+					json.endObject();
+				}
+			}
+			json.endArray();
+
+			json.endObject();
+		}
+	}
+
+	/**
+	 * Sizes of the automatons of a single lexer state, either deterministic or nondeterministic.
+	 */
+	private static final class StateReport {
+
+		private final LexDfa dfa;
+
+		private final long determinizeNanos;
+
+		private final LexDfa minimal;
+
+		private final long minimizeNanos;
+
+		private final LexNfa nfa;
+
+		StateReport(LexDfa dfa, long determinizeNanos, LexDfa minimal, long minimizeNanos) {
+			this.dfa = dfa;
+			this.determinizeNanos = determinizeNanos;
+			this.minimal = minimal;
+			this.minimizeNanos = minimizeNanos;
+			this.nfa = null;
+		}
+
+		StateReport(LexNfa nfa, long closureNanos) {
+			this.dfa = null;
+			this.determinizeNanos = closureNanos;
+			this.minimal = null;
+			this.minimizeNanos = 0;
+			this.nfa = nfa;
+		}
+
+		void write(JsonWriter json) throws IOException {
+			if (nfa != null) {
+				json.field("engine", "nfa")
+						.field("positions", nfa.getPositionCount())
+						.field("closureEntries", nfa.getClosureLength())
+						.field("alphabetClasses", nfa.getClassCount())
+						.field("alphabetIntervals", nfa.getIntervalCount())
+						.field("tableBytes", nfa.getTableBytes())
+						.field("closureNanos", determinizeNanos);
+				return;
+			}
+
+			json.field("engine", "dfa")
+					.field("dfaStates", dfa.getStateCount())
+					.field("dfaTransitions", dfa.getTransitionCount())
+					.field("symbols", dfa.getClassCount())
+					.field("minimizedStates", minimal.getStateCount())
+					.field("minimizedTransitions", minimal.getTransitionCount())
+					.field("alphabetClasses", minimal.getClassCount())
+					.field("alphabetIntervals", minimal.getIntervalCount())
+					.field("tableBytes", minimal.getTableBytes())
+					.field("determinizeNanos", determinizeNanos)
+					.field("minimizeNanos", minimizeNanos);
+		}
+	}
+
+	/**
+	 * Sizes of the part of the merged automaton reachable from a rule automaton.
+	 */
+	private static final class NfaSize {
+
+		private int states;
+
+		private int transitions;
+
+		private int epsilonTransitions;
+
+		/**
+		 * Counts the states and transitions reachable from the starting state of the <code>automaton</code>.
+		 *
+		 * @param merged Merged automaton containing all the transitions.
+		 * @param automaton Automaton of a single rule.
+		 * @return Sizes of the rule automaton.
+		 */
+		static NfaSize of(LexAutomatonMerged merged, LexAutomaton automaton) {
+			NfaSize size = new NfaSize();
+			BitSet visited = new BitSet();
+			Deque<Integer> stack = new ArrayDeque<>();
+
+			visited.set(automaton.getLeftState());
+			stack.push(automaton.getLeftState());
+
+			while (!stack.isEmpty()) {
+				int state = stack.pop();
+				size.states ++;
+
+				List<Integer> targets = new ArrayList<>(merged.getEpsilonStates(state));
+				size.epsilonTransitions += targets.size();
+
+				Map<Integer, Integer> normal = merged.getNormalStates(state);
+				size.transitions += normal.size();
+				targets.addAll(normal.values());
+
+				Map<CharClass, Integer> classes = merged.getClassStates(state);
+				size.transitions += classes.size();
+				targets.addAll(classes.values());
+
+				for (int target : targets) {
+					if (!visited.get(target)) {
+						visited.set(target);
+						stack.push(target);
+					}
+				}
+			}
+
+			return size;
+		}
+
+		void add(NfaSize other) {
+			states += other.states;
+			transitions += other.transitions;
+			epsilonTransitions += other.epsilonTransitions;
+		}
+
+		void write(JsonWriter json) throws IOException {
+			json.field("nfaStates", states)
+					.field("nfaTransitions", transitions)
+					.field("nfaEpsilonTransitions", epsilonTransitions);
+		}
+	}
+}
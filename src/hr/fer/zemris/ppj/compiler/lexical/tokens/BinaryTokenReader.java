@@ -0,0 +1,394 @@
+package hr.fer.zemris.ppj.compiler.lexical.tokens;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Reads the binary token stream written by the {@link BinaryTokenWriter}.<br>
+ *
+ * The header is read when the reader is created. Tokens are then read one at a time by {@link #next()}, and
+ * the current token is available through the getters until the next one is read. Lexeme is kept as the
+ * <i>UTF-8</i> bytes, and decoded only if asked for. Bytes of the interned lexemes are kept by their symbol ids,
+ * since the stream holds them only for the first token of every symbol. Error records are read as the tokens
+ * too, see {@link #isError()}.
+ *
+ * @author fiilip
+ *
+ */
+public class BinaryTokenReader {
+
+	/**
+	 * Program entry - point.<br>
+	 *
+	 * Converts the binary token stream from the standard input to the text lines <code>UNIT line lexeme</code>
+	 * on the standard output, as written by the <b>Lexical Analyzer</b> without the <code>--binary</code> option.
+	 *
+	 * @param args Not used.
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		BinaryTokenReader reader = new BinaryTokenReader(System.in);
+		OutputStream ostream = new BufferedOutputStream(System.out);
+		byte[] separator = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+		while (reader.next()) {
+			if (reader.isError()) {
+				ostream.write(String.format("%s %d %d %d", ErrorSink.ERROR_UNIT, reader.getLine(), reader.getErrorOffset(),
+						reader.getErrorLength()).getBytes(StandardCharsets.UTF_8));
+				ostream.write(separator);
+				continue;
+			}
+
+			ostream.write(String.format("%s %d ", reader.getUnit(), reader.getLine()).getBytes(StandardCharsets.UTF_8));
+			ostream.write(reader.getLexemeBytes(), 0, reader.getLexemeLength());
+			ostream.write(separator);
+		}
+
+		ostream.flush();
+	}
+
+	/**
+	 * Size of the input buffer in bytes.
+	 */
+	private static final int BUFFER_BYTES = 1 << 16;
+
+	/**
+	 * Input stream the tokens are read from.
+	 */
+	private final InputStream istream;
+
+	/**
+	 * Lexical units of the header, by their ids.
+	 */
+	private final List<String> units;
+
+	/**
+	 * Bytes read from the input stream.
+	 */
+	private final byte[] buffer = new byte[BUFFER_BYTES];
+
+	/**
+	 * Position of the next unread byte in the buffer.
+	 */
+	private int position;
+
+	/**
+	 * Number of bytes in the buffer.
+	 */
+	private int limit;
+
+	/**
+	 * Whether or not the tokens carry the symbol ids.
+	 */
+	private final boolean symbols;
+
+	private int unitId = -1;
+	private int line;
+	private int symbolId = -1;
+	private int errorOffset;
+	private int errorLength;
+
+	/**
+	 * Bytes read for the last lexeme.
+	 */
+	private byte[] scratch = new byte[64];
+
+	/**
+	 * Bytes of the current lexeme, either the {@link #scratch} or the bytes of its symbol.
+	 */
+	private byte[] lexeme = scratch;
+	private int lexemeLength;
+
+	/**
+	 * symbol id -> bytes of the lexeme, or <code>null</code> if the symbol has not appeared yet
+	 */
+	private byte[][] symbolBytes = new byte[0][];
+
+	/**
+	 * Tests whether the stream starts with the header of a binary token stream, without consuming it.
+	 *
+	 * @param istream Input stream supporting the mark.
+	 * @return <code>True</code> for a binary token stream, <code>false</code> otherwise.
+	 * @throws IOException If the stream can't be read.
+	 */
+	public static boolean isTokenStream(InputStream istream) throws IOException {
+		istream.mark(BinaryTokenWriter.MAGIC.length);
+		byte[] head = istream.readNBytes(BinaryTokenWriter.MAGIC.length);
+		istream.reset();
+		return Arrays.equals(head, BinaryTokenWriter.MAGIC);
+	}
+
+	/**
+	 * Creates a new {@link BinaryTokenReader}, and reads the header of the stream.
+	 *
+	 * @param istream Input stream the tokens are read from.
+	 * @throws IOException If the stream can't be read, or is not a token stream.
+	 */
+	public BinaryTokenReader(InputStream istream) throws IOException {
+		this.istream = Objects.requireNonNull(istream);
+
+		for (byte magic : BinaryTokenWriter.MAGIC) {
+			if (!fill() || buffer[position ++] != magic) {
+				throw new IOException("Not a binary token stream.");
+			}
+		}
+
+		int version = readVarint();
+
+		if (version != BinaryTokenWriter.VERSION) {
+			throw new IOException(String.format("Unsupported version %d of the binary token stream; expected %d.",
+					version, BinaryTokenWriter.VERSION));
+		}
+
+		this.symbols = (readVarint() & BinaryTokenWriter.FLAG_SYMBOLS) != 0;
+
+		int unitCount = readVarint();
+		List<String> units = new ArrayList<>(unitCount);
+
+		for (int i = 0; i < unitCount; i++) {
+			readBytes(readVarint());
+			units.add(new String(lexeme, 0, lexemeLength, StandardCharsets.UTF_8));
+		}
+
+		this.units = Collections.unmodifiableList(units);
+	}
+
+	/**
+	 * Reads the next token.
+	 *
+	 * @return <code>True</code> if the token was read, <code>false</code> at the end of the stream.
+	 * @throws IOException If the stream can't be read, or ends within a token.
+	 */
+	public boolean next() throws IOException {
+		if (!fill()) {
+			return false;
+		}
+
+		unitId = readVarint();
+
+		if (unitId > units.size()) {
+			throw new IOException(String.format("Unknown lexical unit id %d in the binary token stream.", unitId));
+		}
+
+		line += readVarint();
+
+		if (unitId == units.size()) {
+			errorOffset = readVarint();
+			errorLength = readVarint();
+			symbolId = -1;
+			lexemeLength = 0;
+			return true;
+		}
+
+		if (!symbols) {
+			readBytes(readVarint());
+			return true;
+		}
+
+		int tag = readVarint();
+
+		if ((tag & 1) != 0) {
+			// interned lexeme already in the stream
+			symbolId = tag >>> 1;
+
+			if (symbolId >= symbolBytes.length || symbolBytes[symbolId] == null) {
+				throw new IOException(String.format("Symbol id %d is used before its lexeme.", symbolId));
+			}
+			lexeme = symbolBytes[symbolId];
+			lexemeLength = lexeme.length;
+		} else if ((tag & 2) != 0) {
+			// interned lexeme, written for the first time
+			symbolId = readVarint();
+			readBytes(tag >>> 2);
+
+			if (symbolId >= symbolBytes.length) {
+				symbolBytes = Arrays.copyOf(symbolBytes, Math.max(2 * symbolBytes.length, symbolId + 1));
+			}
+			symbolBytes[symbolId] = Arrays.copyOf(scratch, lexemeLength);
+		} else {
+			symbolId = -1;
+			readBytes(tag >>> 2);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Gets the lexical units of the stream.
+	 *
+	 * @return Lexical units, by their ids.
+	 */
+	public List<String> getUnits() {
+		return units;
+	}
+
+	/**
+	 * Gets the id of the current token's lexical unit.
+	 *
+	 * @return Index of the unit in the {@link #getUnits()}, or the number of the units for an error record.
+	 */
+	public int getUnitId() {
+		return unitId;
+	}
+
+	/**
+	 * Gets the lexical unit of the current token.
+	 *
+	 * @return Lexical unit, or {@link ErrorSink#ERROR_UNIT} for an error record.
+	 */
+	public String getUnit() {
+		return isError() ? ErrorSink.ERROR_UNIT : units.get(unitId);
+	}
+
+	/**
+	 * Tests whether the current token is an error record, ie. a run of the input skipped by the error recovery.
+	 * Lexeme of an error record is empty.
+	 *
+	 * @return <code>True</code> for an error record, <code>false</code> for a token.
+	 */
+	public boolean isError() {
+		return unitId == units.size();
+	}
+
+	/**
+	 * Gets the offset of the current error record's run in the input.
+	 *
+	 * @return Index of the first skipped char.
+	 */
+	public int getErrorOffset() {
+		return errorOffset;
+	}
+
+	/**
+	 * Gets the length of the current error record's run.
+	 *
+	 * @return Number of the skipped chars.
+	 */
+	public int getErrorLength() {
+		return errorLength;
+	}
+
+	/**
+	 * Gets the line of the current token.
+	 *
+	 * @return Line of the input the token is in.
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * Gets the symbol id of the current token's lexeme.
+	 *
+	 * @return Symbol id, or <code>-1</code> if the lexeme is not interned or the stream has no symbol ids.
+	 */
+	public int getSymbolId() {
+		return symbolId;
+	}
+
+	/**
+	 * Gets the bytes of the current token's lexeme. The array is reused for the next tokens, and must not be
+	 * modified.
+	 *
+	 * @return <i>UTF-8</i> bytes of the lexeme, from index <code>0</code> up to the {@link #getLexemeLength()}.
+	 */
+	public byte[] getLexemeBytes() {
+		return lexeme;
+	}
+
+	/**
+	 * Gets the number of bytes of the current token's lexeme.
+	 *
+	 * @return Length of the lexeme in bytes.
+	 */
+	public int getLexemeLength() {
+		return lexemeLength;
+	}
+
+	/**
+	 * Decodes the lexeme of the current token.
+	 *
+	 * @return Lexeme.
+	 */
+	public String getLexeme() {
+		return new String(lexeme, 0, lexemeLength, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Makes sure there is at least one unread byte in the buffer.
+	 *
+	 * @return <code>True</code> if there is an unread byte, <code>false</code> at the end of the stream.
+	 * @throws IOException
+	 */
+	private boolean fill() throws IOException {
+		while (position == limit) {
+			limit = istream.read(buffer);
+			position = 0;
+
+			if (limit < 0) {
+				limit = 0;
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Reads a varint.
+	 *
+	 * @return Value read.
+	 * @throws IOException If the stream ends within the varint.
+	 */
+	private int readVarint() throws IOException {
+		int value = 0;
+
+		for (int shift = 0; ; shift += 7) {
+			if (!fill()) {
+				throw new EOFException("Binary token stream is truncated.");
+			}
+
+			byte b = buffer[position ++];
+			value |= (b & 0x7F) << shift;
+
+			if (b >= 0) {
+				return value;
+			}
+		}
+	}
+
+	/**
+	 * Reads the given number of bytes into the {@link #scratch}, which becomes the current lexeme.
+	 *
+	 * @param count Number of bytes.
+	 * @throws IOException If the stream ends before.
+	 */
+	private void readBytes(int count) throws IOException {
+		if (count > scratch.length) {
+			scratch = Arrays.copyOf(scratch, Math.max(2 * scratch.length, count));
+		}
+
+		for (int read = 0; read < count; ) {
+			if (!fill()) {
+				throw new EOFException("Binary token stream is truncated.");
+			}
+
+			int chunk = Math.min(count - read, limit - position);
+			System.arraycopy(buffer, position, scratch, read, chunk);
+			position += chunk;
+			read += chunk;
+		}
+
+		lexeme = scratch;
+		lexemeLength = count;
+	}
+}
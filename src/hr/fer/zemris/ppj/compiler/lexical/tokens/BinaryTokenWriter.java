@@ -0,0 +1,303 @@
+package hr.fer.zemris.ppj.compiler.lexical.tokens;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Writes the tokens as a compact binary stream, read back by the {@link BinaryTokenReader}.<br>
+ *
+ * Integers are unsigned <i>LEB128</i> varints: seven bits per byte, the least significant group first,
+ * with the high bit set on all but the last byte.
+ * <ul>
+ * <li><b>header</b> - magic bytes <code>PPJT</code>, <code>version</code>, <code>flags</code>, <code>unitCount</code>,
+ * and for every lexical unit its <code>byteLength</code> followed by the <i>UTF-8</i> bytes of its name</li>
+ * <li><b>token</b> - <code>unitId</code> (index of the unit in the header), <code>lineDelta</code> (line minus the
+ * line of the previous token, or minus <code>0</code> for the first token), <code>byteLength</code> followed by
+ * the <i>UTF-8</i> bytes of the lexeme</li>
+ * </ul>
+ * Tokens follow the header up to the end of the stream. Lines never decrease, so the deltas are never negative.<br>
+ *
+ * With the {@link #FLAG_SYMBOLS} flag, the <code>byteLength</code> of a token is replaced by a <code>tag</code>
+ * telling apart the lexemes by their lowest bits:
+ * <ul>
+ * <li><code>symbolId &lt;&lt; 1 | 1</code> - interned lexeme already written to the stream, no bytes follow</li>
+ * <li><code>byteLength &lt;&lt; 2 | 2</code> - interned lexeme written for the first time, followed by the
+ * <code>symbolId</code> and the <i>UTF-8</i> bytes</li>
+ * <li><code>byteLength &lt;&lt; 2</code> - lexeme that is not interned, followed by the <i>UTF-8</i> bytes</li>
+ * </ul>
+ * A repeated identifier then takes a single varint instead of its bytes.<br>
+ *
+ * A run of the input skipped by the error recovery is written as an <b>error</b> record: <code>unitCount</code>
+ * in place of the <code>unitId</code>, <code>lineDelta</code>, and the <code>offset</code> and <code>charLength</code>
+ * of the run in the input.
+ *
+ * @author fiilip
+ *
+ */
+public class BinaryTokenWriter implements TokenSink, ErrorSink {
+
+	/**
+	 * Magic bytes of the stream, <code>PPJT</code> in ASCII.
+	 */
+	static final byte[] MAGIC = { 'P', 'P', 'J', 'T' };
+
+	/**
+	 * Version of the stream format.
+	 */
+	static final int VERSION = 3;
+
+	/**
+	 * Flag of the streams whose tokens carry the symbol ids.
+	 */
+	static final int FLAG_SYMBOLS = 1;
+
+	/**
+	 * Size of the output buffer in bytes.
+	 */
+	private static final int BUFFER_BYTES = 1 << 16;
+
+	/**
+	 * Maximal size of a varint in bytes.
+	 */
+	private static final int MAX_VARINT_BYTES = 5;
+
+	/**
+	 * Output stream the tokens are written to.
+	 */
+	private final OutputStream ostream;
+
+	/**
+	 * Lexical unit -> id
+	 */
+	private final Map<String, Integer> unitIds = new HashMap<>();
+
+	/**
+	 * Bytes not yet written to the output stream.
+	 */
+	private byte[] buffer = new byte[BUFFER_BYTES];
+
+	/**
+	 * Number of bytes in the buffer.
+	 */
+	private int length;
+
+	/**
+	 * Line of the previous token.
+	 */
+	private int previousLine;
+
+	/**
+	 * Symbols already written to the stream, or <code>null</code> if the symbol ids are not written.
+	 */
+	private final BitSet written;
+
+	/**
+	 * Creates a new {@link BinaryTokenWriter} without the symbol ids, and writes the header to the buffer.
+	 *
+	 * @param ostream Output stream the tokens are written to.
+	 * @param units Lexical units of the tokens, in order of their ids.
+	 */
+	public BinaryTokenWriter(OutputStream ostream, List<String> units) {
+		this(ostream, units, false);
+	}
+
+	/**
+	 * Creates a new {@link BinaryTokenWriter}, and writes the header to the buffer.
+	 *
+	 * @param ostream Output stream the tokens are written to.
+	 * @param units Lexical units of the tokens, in order of their ids.
+	 * @param symbols Whether or not to write the symbol ids of the interned lexemes.
+	 */
+	public BinaryTokenWriter(OutputStream ostream, List<String> units, boolean symbols) {
+		this.ostream = Objects.requireNonNull(ostream);
+		this.written = symbols ? new BitSet() : null;
+
+		System.arraycopy(MAGIC, 0, buffer, 0, MAGIC.length);
+		length = MAGIC.length;
+		putVarint(VERSION);
+		putVarint(symbols ? FLAG_SYMBOLS : 0);
+		putVarint(units.size());
+
+		for (String unit : units) {
+			byte[] bytes = unit.getBytes(StandardCharsets.UTF_8);
+			grow(MAX_VARINT_BYTES + bytes.length);
+			putVarint(bytes.length);
+			System.arraycopy(bytes, 0, buffer, length, bytes.length);
+			length += bytes.length;
+			unitIds.put(unit, unitIds.size());
+		}
+	}
+
+	@Override
+	public void error(int line, CharSequence input, int start, int end) throws IOException {
+		ensureCapacity(4 * MAX_VARINT_BYTES);
+		putVarint(unitIds.size());
+		putVarint(line - previousLine);
+		putVarint(start);
+		putVarint(end - start);
+		previousLine = line;
+	}
+
+	@Override
+	public void token(String lexUnit, int line, CharSequence input, int start, int end, int symbol) throws IOException {
+		Integer unitId = unitIds.get(lexUnit);
+
+		if (unitId == null) {
+			throw new IllegalArgumentException(String.format("Lexical unit %s is not in the header.", lexUnit));
+		}
+
+		if (written != null && symbol >= 0 && written.get(symbol)) {
+			// lexeme of the symbol is already in the stream
+			ensureCapacity(3 * MAX_VARINT_BYTES);
+			putVarint(unitId);
+			putVarint(line - previousLine);
+			putVarint(symbol << 1 | 1);
+			previousLine = line;
+			return;
+		}
+
+		int bytes = utf8Length(input, start, end);
+		ensureCapacity(4 * MAX_VARINT_BYTES + bytes);
+
+		putVarint(unitId);
+		putVarint(line - previousLine);
+
+		if (written == null) {
+			putVarint(bytes);
+		} else if (symbol < 0) {
+			putVarint(bytes << 2);
+		} else {
+			putVarint(bytes << 2 | 2);
+			putVarint(symbol);
+			written.set(symbol);
+		}
+
+		putUtf8(input, start, end);
+		previousLine = line;
+	}
+
+	@Override
+	public void finish() throws IOException {
+		flushBuffer();
+		ostream.flush();
+	}
+
+	/**
+	 * Makes room for the given number of bytes in the buffer, writing out the buffered bytes if needed.
+	 *
+	 * @param bytes Number of bytes needed.
+	 * @throws IOException
+	 */
+	private void ensureCapacity(int bytes) throws IOException {
+		if (length + bytes > buffer.length) {
+			flushBuffer();
+			grow(bytes);
+		}
+	}
+
+	/**
+	 * Grows the buffer, keeping the buffered bytes, so that there is room for the given number of bytes.
+	 *
+	 * @param bytes Number of bytes needed.
+	 */
+	private void grow(int bytes) {
+		if (length + bytes > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, length + bytes));
+		}
+	}
+
+	/**
+	 * Writes out the buffered bytes.
+	 *
+	 * @throws IOException
+	 */
+	private void flushBuffer() throws IOException {
+		ostream.write(buffer, 0, length);
+		length = 0;
+	}
+
+	/**
+	 * Appends the varint to the buffer.
+	 *
+	 * @param value Non-negative value.
+	 */
+	private void putVarint(int value) {
+		while ((value & ~0x7F) != 0) {
+			buffer[length ++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+
+		buffer[length ++] = (byte) value;
+	}
+
+	/**
+	 * Appends the <i>UTF-8</i> bytes of the chars to the buffer. Unpaired surrogates are written as <code>?</code>,
+	 * the same as {@link String#getBytes(java.nio.charset.Charset)} does.
+	 *
+	 * @param input Chars of interest.
+	 * @param start Index of the first char.
+	 * @param end Exclusive index of the last char.
+	 */
+	private void putUtf8(CharSequence input, int start, int end) {
+		for (int idx = start; idx < end; idx++) {
+			char c = input.charAt(idx);
+
+			if (c < 0x80) {
+				buffer[length ++] = (byte) c;
+			} else if (c < 0x800) {
+				buffer[length ++] = (byte) (0xC0 | c >> 6);
+				buffer[length ++] = (byte) (0x80 | c & 0x3F);
+			} else if (Character.isHighSurrogate(c) && idx + 1 < end && Character.isLowSurrogate(input.charAt(idx + 1))) {
+				int symbol = Character.toCodePoint(c, input.charAt(++ idx));
+				buffer[length ++] = (byte) (0xF0 | symbol >> 18);
+				buffer[length ++] = (byte) (0x80 | symbol >> 12 & 0x3F);
+				buffer[length ++] = (byte) (0x80 | symbol >> 6 & 0x3F);
+				buffer[length ++] = (byte) (0x80 | symbol & 0x3F);
+			} else if (Character.isSurrogate(c)) {
+				buffer[length ++] = '?';
+			} else {
+				buffer[length ++] = (byte) (0xE0 | c >> 12);
+				buffer[length ++] = (byte) (0x80 | c >> 6 & 0x3F);
+				buffer[length ++] = (byte) (0x80 | c & 0x3F);
+			}
+		}
+	}
+
+	/**
+	 * Counts the <i>UTF-8</i> bytes of the chars.
+	 *
+	 * @param input Chars of interest.
+	 * @param start Index of the first char.
+	 * @param end Exclusive index of the last char.
+	 * @return Number of bytes.
+	 */
+	private static int utf8Length(CharSequence input, int start, int end) {
+		int bytes = 0;
+
+		for (int idx = start; idx < end; idx++) {
+			char c = input.charAt(idx);
+
+			if (c < 0x80) {
+				bytes += 1;
+			} else if (c < 0x800) {
+				bytes += 2;
+			} else if (Character.isHighSurrogate(c) && idx + 1 < end && Character.isLowSurrogate(input.charAt(idx + 1))) {
+				bytes += 4;
+				idx ++;
+			} else if (Character.isSurrogate(c)) {
+				bytes += 1;
+			} else {
+				bytes += 3;
+			}
+		}
+
+		return bytes;
+	}
+}
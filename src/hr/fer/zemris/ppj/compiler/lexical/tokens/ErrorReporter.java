@@ -0,0 +1,63 @@
+package hr.fer.zemris.ppj.compiler.lexical.tokens;
+
+import java.io.PrintStream;
+import java.util.Objects;
+
+/**
+ * Reports every run of the input skipped by the error recovery as a line of text, eg. to the standard error.
+ * Only the first few chars of the run are shown, with the control and non-ASCII chars escaped.
+ *
+ * @author fiilip
+ *
+ */
+public class ErrorReporter implements ErrorSink {
+
+	/**
+	 * Maximal number of the chars of a run shown.
+	 */
+	private static final int PREVIEW_CHARS = 32;
+
+	/**
+	 * Stream the errors are reported to.
+	 */
+	private final PrintStream pstream;
+
+	/**
+	 * Creates a new {@link ErrorReporter}.
+	 *
+	 * @param pstream Stream the errors are reported to.
+	 */
+	public ErrorReporter(PrintStream pstream) {
+		this.pstream = Objects.requireNonNull(pstream);
+	}
+
+	@Override
+	public void error(int line, CharSequence input, int start, int end) {
+		pstream.println(String.format("Lexical error at line %d, offset %d: skipped %d chars \"%s\".", line, start,
+				end - start, preview(input, start, end)));
+	}
+
+	/**
+	 * Shows the first chars of the run.
+	 *
+	 * @param input Entire input.
+	 * @param start Index of the first char of the run.
+	 * @param end Exclusive index of the last char of the run.
+	 * @return Escaped chars of the run.
+	 */
+	private static String preview(CharSequence input, int start, int end) {
+		StringBuilder sb = new StringBuilder();
+
+		for (int idx = start; idx < Math.min(end, start + PREVIEW_CHARS); idx++) {
+			char c = input.charAt(idx);
+
+			if (c >= ' ' && c < 0x7F && c != '"' && c != '\\') {
+				sb.append(c);
+			} else {
+				sb.append(String.format("\\u%04x", (int) c));
+			}
+		}
+
+		return end - start > PREVIEW_CHARS ? sb.append("...").toString() : sb.toString();
+	}
+}
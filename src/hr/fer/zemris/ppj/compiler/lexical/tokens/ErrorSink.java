@@ -0,0 +1,28 @@
+package hr.fer.zemris.ppj.compiler.lexical.tokens;
+
+import java.io.IOException;
+
+/**
+ * Receives the runs of the input skipped by the error recovery of the <b>Lexical Analyzer</b>, in order of the input.
+ *
+ * @author fiilip
+ *
+ */
+public interface ErrorSink {
+
+	/**
+	 * Name the error tokens are written with, which can't be a name of a lexical unit.
+	 */
+	String ERROR_UNIT = "#ERROR";
+
+	/**
+	 * Receives a run of the input no token could be matched at.
+	 *
+	 * @param line Line of the input the run is in.
+	 * @param input Entire input.
+	 * @param start Index of the first skipped char in the input.
+	 * @param end Exclusive index of the last skipped char in the input.
+	 * @throws IOException
+	 */
+	void error(int line, CharSequence input, int start, int end) throws IOException;
+}
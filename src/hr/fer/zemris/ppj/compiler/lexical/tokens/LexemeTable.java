@@ -0,0 +1,230 @@
+package hr.fer.zemris.ppj.compiler.lexical.tokens;
+
+import java.util.Arrays;
+
+/**
+ * Symbol table with open addressing over the chars of the lexemes, for a single thread.<br>
+ *
+ * Every slot holds the symbol id, the hash and the chars of a lexeme. A lexeme is looked up by its hash and
+ * compared char by char with the input slice, so a lexeme already in the table costs no allocation. Slots are
+ * probed linearly, and the table is doubled once it's half full.
+ *
+ * @author fiilip
+ *
+ */
+public class LexemeTable implements SymbolTable {
+
+	/**
+	 * Initial number of slots, a power of two.
+	 */
+	private static final int INITIAL_SLOTS = 1 << 10;
+
+	/**
+	 * slot -> symbol id, or <code>-1</code> if the slot is empty
+	 */
+	private int[] ids;
+
+	/**
+	 * slot -> hash of the lexeme
+	 */
+	private int[] hashes;
+
+	/**
+	 * slot -> chars of the lexeme
+	 */
+	private char[][] lexemes;
+
+	/**
+	 * Number of the occupied slots.
+	 */
+	private int occupied;
+
+	/**
+	 * symbol id -> chars of the lexeme
+	 */
+	private char[][] symbols = new char[INITIAL_SLOTS][];
+
+	/**
+	 * Number of the symbols.
+	 */
+	private int size;
+
+	/**
+	 * Creates a new, empty {@link LexemeTable}.
+	 */
+	public LexemeTable() {
+		allocate(INITIAL_SLOTS);
+	}
+
+	@Override
+	public int intern(CharSequence input, int start, int end) {
+		int hash = hash(input, start, end);
+		int id = find(hash, input, start, end);
+
+		if (id < 0) {
+			id = size ++;
+			char[] lexeme = copy(input, start, end);
+			insert(hash, id, lexeme);
+
+			if (id == symbols.length) {
+				symbols = Arrays.copyOf(symbols, 2 * symbols.length);
+			}
+			symbols[id] = lexeme;
+		}
+
+		return id;
+	}
+
+	@Override
+	public String getSymbol(int id) {
+		if (id < 0 || id >= size) {
+			throw new IllegalArgumentException(String.format("Unknown symbol id %d.", id));
+		}
+
+		return new String(symbols[id]);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Finds the lexeme with the given hash in the slots.
+	 *
+	 * @param hash Hash of the lexeme, see {@link #hash(CharSequence, int, int)}.
+	 * @param input Entire input.
+	 * @param start Index of the first char of the lexeme.
+	 * @param end Exclusive index of the last char of the lexeme.
+	 * @return Symbol id of the lexeme, or <code>-1</code> if it's not in the slots.
+	 */
+	int find(int hash, CharSequence input, int start, int end) {
+		int mask = ids.length - 1;
+
+		for (int slot = hash & mask; ids[slot] >= 0; slot = (slot + 1) & mask) {
+			if (hashes[slot] == hash && equal(lexemes[slot], input, start, end)) {
+				return ids[slot];
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Inserts the lexeme that is not in the slots yet.
+	 *
+	 * @param hash Hash of the lexeme.
+	 * @param id Symbol id of the lexeme.
+	 * @param lexeme Chars of the lexeme.
+	 */
+	void insert(int hash, int id, char[] lexeme) {
+		if (2 * (occupied + 1) > ids.length) {
+			int[] oldIds = ids;
+			int[] oldHashes = hashes;
+			char[][] oldLexemes = lexemes;
+			allocate(2 * oldIds.length);
+
+			for (int slot = 0; slot < oldIds.length; slot++) {
+				if (oldIds[slot] >= 0) {
+					place(oldHashes[slot], oldIds[slot], oldLexemes[slot]);
+				}
+			}
+		}
+
+		place(hash, id, lexeme);
+		occupied ++;
+	}
+
+	/**
+	 * Puts the lexeme to the first free slot from its hash.
+	 *
+	 * @param hash Hash of the lexeme.
+	 * @param id Symbol id of the lexeme.
+	 * @param lexeme Chars of the lexeme.
+	 */
+	private void place(int hash, int id, char[] lexeme) {
+		int mask = ids.length - 1;
+		int slot = hash & mask;
+
+		while (ids[slot] >= 0) {
+			slot = (slot + 1) & mask;
+		}
+
+		ids[slot] = id;
+		hashes[slot] = hash;
+		lexemes[slot] = lexeme;
+	}
+
+	/**
+	 * Allocates the empty slots.
+	 *
+	 * @param slots Number of the slots, a power of two.
+	 */
+	private void allocate(int slots) {
+		ids = new int[slots];
+		hashes = new int[slots];
+		lexemes = new char[slots][];
+		Arrays.fill(ids, -1);
+	}
+
+	/**
+	 * Computes the hash of the lexeme given as a slice of the input.
+	 *
+	 * @param input Entire input.
+	 * @param start Index of the first char of the lexeme.
+	 * @param end Exclusive index of the last char of the lexeme.
+	 * @return Hash of the lexeme.
+	 */
+	static int hash(CharSequence input, int start, int end) {
+		int hash = 0;
+
+		for (int idx = start; idx < end; idx++) {
+			hash = 31 * hash + input.charAt(idx);
+		}
+
+		// spreads the high bits to the low ones, which select the slot
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Copies the chars of the lexeme.
+	 *
+	 * @param input Entire input.
+	 * @param start Index of the first char of the lexeme.
+	 * @param end Exclusive index of the last char of the lexeme.
+	 * @return Chars of the lexeme.
+	 */
+	static char[] copy(CharSequence input, int start, int end) {
+		char[] lexeme = new char[end - start];
+
+		for (int idx = start; idx < end; idx++) {
+			lexeme[idx - start] = input.charAt(idx);
+		}
+
+		return lexeme;
+	}
+
+	/**
+	 * Compares the lexeme with the input slice.
+	 *
+	 * @param lexeme Chars of the lexeme.
+	 * @param input Entire input.
+	 * @param start Index of the first char of the slice.
+	 * @param end Exclusive index of the last char of the slice.
+	 * @return <code>True</code> if the chars are equal, <code>false</code> otherwise.
+	 */
+	private static boolean equal(char[] lexeme, CharSequence input, int start, int end) {
+		if (lexeme.length != end - start) {
+			return false;
+		}
+
+		for (int idx = start; idx < end; idx++) {
+			if (lexeme[idx - start] != input.charAt(idx)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
@@ -0,0 +1,122 @@
+package hr.fer.zemris.ppj.compiler.lexical.tokens;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Thread safe symbol table, shared by the analyzers of many inputs.<br>
+ *
+ * Lexemes are split by the high bits of their hash into the stripes, each being a {@link LexemeTable} guarded
+ * by its own lock, so that the threads interning different lexemes rarely wait for each other. Symbol ids are
+ * still dense over all the stripes: they are taken from a single counter, and the chars of the symbols are
+ * kept by id in the chunks that are allocated once and never moved. A symbol id can be resolved by any thread
+ * that has seen the thread interning it finish, eg. once the analyses of the inputs are joined.
+ *
+ * @author fiilip
+ *
+ */
+public class StripedLexemeTable implements SymbolTable {
+
+	/**
+	 * Number of the symbols in a chunk, a power of two.
+	 */
+	private static final int CHUNK_SYMBOLS = 1 << 12;
+
+	/**
+	 * Maximal number of the chunks.
+	 */
+	private static final int MAX_CHUNKS = 1 << 16;
+
+	/**
+	 * Stripes of the table, also used as their locks.
+	 */
+	private final LexemeTable[] stripes;
+
+	/**
+	 * Number of the hash bits left after the bits selecting the stripe.
+	 */
+	private final int stripeShift;
+
+	/**
+	 * Next symbol id.
+	 */
+	private final AtomicInteger size = new AtomicInteger();
+
+	/**
+	 * id / CHUNK_SYMBOLS -> chunk holding the chars of the symbols
+	 */
+	private final AtomicReferenceArray<char[][]> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+
+	/**
+	 * Creates a new, empty {@link StripedLexemeTable}.
+	 *
+	 * @param stripes Number of the stripes, rounded up to a power of two.
+	 */
+	public StripedLexemeTable(int stripes) {
+		int count = Integer.highestOneBit(Math.max(1, stripes - 1)) << (stripes > 1 ? 1 : 0);
+		this.stripes = new LexemeTable[count];
+		this.stripeShift = Integer.SIZE - Integer.numberOfTrailingZeros(count);
+
+		for (int i = 0; i < count; i++) {
+			this.stripes[i] = new LexemeTable();
+		}
+	}
+
+	@Override
+	public int intern(CharSequence input, int start, int end) {
+		int hash = LexemeTable.hash(input, start, end);
+		LexemeTable stripe = stripes.length == 1 ? stripes[0] : stripes[hash >>> stripeShift];
+
+		synchronized (stripe) {
+			int id = stripe.find(hash, input, start, end);
+
+			if (id < 0) {
+				id = size.getAndIncrement();
+
+				if (id >= CHUNK_SYMBOLS * MAX_CHUNKS) {
+					throw new IllegalStateException("Symbol table is full.");
+				}
+
+				char[] lexeme = LexemeTable.copy(input, start, end);
+				chunk(id / CHUNK_SYMBOLS)[id % CHUNK_SYMBOLS] = lexeme;
+				stripe.insert(hash, id, lexeme);
+			}
+
+			return id;
+		}
+	}
+
+	@Override
+	public String getSymbol(int id) {
+		char[][] chunk = id < 0 || id >= size.get() ? null : chunks.get(id / CHUNK_SYMBOLS);
+		char[] lexeme = chunk == null ? null : chunk[id % CHUNK_SYMBOLS];
+
+		if (lexeme == null) {
+			throw new IllegalArgumentException(String.format("Unknown symbol id %d.", id));
+		}
+
+		return new String(lexeme);
+	}
+
+	@Override
+	public int size() {
+		return size.get();
+	}
+
+	/**
+	 * Gets the chunk, allocating it if it's the first symbol of the chunk.
+	 *
+	 * @param idx Index of the chunk.
+	 * @return Chunk.
+	 */
+	private char[][] chunk(int idx) {
+		char[][] chunk = chunks.get(idx);
+
+		if (chunk == null) {
+			chunks.compareAndSet(idx, null, new char[CHUNK_SYMBOLS][]);
+			chunk = chunks.get(idx);
+		}
+
+		return chunk;
+	}
+}
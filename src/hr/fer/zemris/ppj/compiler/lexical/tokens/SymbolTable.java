@@ -0,0 +1,37 @@
+package hr.fer.zemris.ppj.compiler.lexical.tokens;
+
+/**
+ * Table of the interned lexemes. Every distinct lexeme gets a dense symbol id, starting from <code>0</code>
+ * in order of interning.
+ *
+ * @author fiilip
+ *
+ */
+public interface SymbolTable {
+
+	/**
+	 * Interns the lexeme given as a slice of the input. No string is created for a lexeme that is
+	 * already in the table.
+	 *
+	 * @param input Entire input.
+	 * @param start Index of the first char of the lexeme.
+	 * @param end Exclusive index of the last char of the lexeme.
+	 * @return Symbol id of the lexeme.
+	 */
+	int intern(CharSequence input, int start, int end);
+
+	/**
+	 * Gets the lexeme with the given symbol id.
+	 *
+	 * @param id Symbol id.
+	 * @return Lexeme.
+	 */
+	String getSymbol(int id);
+
+	/**
+	 * Gets the number of the interned lexemes.
+	 *
+	 * @return Number of symbols.
+	 */
+	int size();
+}
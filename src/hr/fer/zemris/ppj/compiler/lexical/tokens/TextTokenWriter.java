@@ -0,0 +1,54 @@
+package hr.fer.zemris.ppj.compiler.lexical.tokens;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+
+import hr.fer.zemris.ppj.compiler.util.StreamManager;
+
+/**
+ * Writes every token as a line of text, <code>UNIT line lexeme</code>. Symbol ids of the interned lexemes
+ * are not written. A run of the input skipped by the error recovery is written as <code>#ERROR line offset
+ * length</code>, with the offset and the length of the run in chars.
+ *
+ * @author fiilip
+ *
+ */
+public class TextTokenWriter implements TokenSink, ErrorSink {
+
+	private final StreamManager streamManager;
+
+	/**
+	 * Output stream the lines are written to.
+	 */
+	private final OutputStream ostream;
+
+	/**
+	 * Creates a new {@link TextTokenWriter}.
+	 *
+	 * @param streamManager Stream manager.
+	 * @param ostream Output stream the lines are written to.
+	 */
+	public TextTokenWriter(StreamManager streamManager, OutputStream ostream) {
+		this.streamManager = Objects.requireNonNull(streamManager);
+		this.ostream = Objects.requireNonNull(ostream);
+	}
+
+	@Override
+	public void token(String lexUnit, int line, CharSequence input, int start, int end, int symbol) throws IOException {
+		streamManager.writeToStream(
+				String.format("%s %d %s%s", lexUnit, line, input.subSequence(start, end), System.lineSeparator()),
+				ostream);
+	}
+
+	@Override
+	public void error(int line, CharSequence input, int start, int end) throws IOException {
+		streamManager.writeToStream(
+				String.format("%s %d %d %d%s", ERROR_UNIT, line, start, end - start, System.lineSeparator()), ostream);
+	}
+
+	@Override
+	public void finish() throws IOException {
+		ostream.flush();
+	}
+}
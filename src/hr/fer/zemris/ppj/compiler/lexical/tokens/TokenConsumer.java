@@ -0,0 +1,38 @@
+package hr.fer.zemris.ppj.compiler.lexical.tokens;
+
+import java.io.IOException;
+
+/**
+ * Receives the tokens produced by the <b>Lexical Analyzer</b> in the same process, in order of the input.<br>
+ *
+ * Unlike the {@link TokenSink}, a token is passed only by the primitives: the id of its lexical unit and its bounds
+ * in the input buffer, so that no string is created unless the consumer asks for the lexeme. Lexical units are
+ * numbered by their index in <code>LexObjects.getLexUnits()</code>. Chars of the buffer never change once scanned,
+ * so the bounds stay valid after the call.<br>
+ *
+ * The consumer may pause the analyzer from the call, see <code>Lex.pause()</code>.
+ *
+ * @author fiilip
+ *
+ */
+public interface TokenConsumer {
+
+	/**
+	 * Receives a single token.
+	 *
+	 * @param unit Id of the lexical unit of the token.
+	 * @param buffer Input buffer.
+	 * @param start Index of the first char of the token in the buffer.
+	 * @param end Exclusive index of the last char of the token in the buffer.
+	 * @param line Line of the input the token is in.
+	 * @throws IOException
+	 */
+	void token(int unit, CharSequence buffer, int start, int end, int line) throws IOException;
+
+	/**
+	 * Called once all the tokens are received.
+	 *
+	 * @throws IOException
+	 */
+	void finish() throws IOException;
+}
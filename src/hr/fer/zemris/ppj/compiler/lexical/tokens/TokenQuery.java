@@ -0,0 +1,240 @@
+package hr.fer.zemris.ppj.compiler.lexical.tokens;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import hr.fer.zemris.ppj.compiler.util.StreamManager;
+
+/**
+ * Aggregates the tokens of the selected lexical units while they are scanned, instead of writing every token, and
+ * writes only the result once the analysis is done.<br>
+ *
+ * Tokens of the units not selected are dropped by their unit id, before anything else is looked at. Lexemes are read
+ * only by the aggregations that need them, and interned into a {@link LexemeTable} per unit, so a lexeme seen before
+ * creates no string. Supported aggregations, with the lines of their result:
+ * <ul>
+ * <li>{@link #COUNT} - <code>UNIT count</code>, for every selected unit with a token</li>
+ * <li>{@link #DISTINCT} - <code>UNIT lexeme</code>, for every distinct lexeme of a unit, in order of the input</li>
+ * <li>{@link #TOP} - <code>UNIT count lexeme</code>, for the <code>k</code> most frequent lexemes, most frequent
+ * first</li>
+ * <li>{@link #LINES} - <code>line count</code>, for every line with a selected token</li>
+ * </ul>
+ *
+ * @author fiilip
+ *
+ */
+public class TokenQuery implements TokenConsumer {
+
+	/**
+	 * Number of the tokens per lexical unit.
+	 */
+	public static final String COUNT = "count";
+
+	/**
+	 * Distinct lexemes per lexical unit.
+	 */
+	public static final String DISTINCT = "distinct";
+
+	/**
+	 * The <code>k</code> most frequent lexemes.
+	 */
+	public static final String TOP = "top";
+
+	/**
+	 * Number of the tokens per line.
+	 */
+	public static final String LINES = "lines";
+
+	private final StreamManager streamManager;
+
+	/**
+	 * Output stream the result is written to.
+	 */
+	private final OutputStream ostream;
+
+	/**
+	 * Lexical units, by their ids.
+	 */
+	private final List<String> units;
+
+	/**
+	 * Ids of the selected lexical units.
+	 */
+	private final BitSet selected = new BitSet();
+
+	/**
+	 * One of the {@link #COUNT}, {@link #DISTINCT}, {@link #TOP} or {@link #LINES}.
+	 */
+	private final String aggregation;
+
+	/**
+	 * Number of the lexemes written by the {@link #TOP}.
+	 */
+	private final int k;
+
+	/**
+	 * unit id -> number of the tokens
+	 */
+	private final long[] counts;
+
+	/**
+	 * unit id -> lexemes of the unit, created once the unit has a token
+	 */
+	private final LexemeTable[] lexemes;
+
+	/**
+	 * unit id -> symbol id -> number of the tokens
+	 */
+	private final long[][] lexemeCounts;
+
+	/**
+	 * line -> number of the tokens
+	 */
+	private long[] lines = new long[1024];
+
+	/**
+	 * Creates a new {@link TokenQuery}.
+	 *
+	 * @param streamManager Stream manager.
+	 * @param ostream Output stream the result is written to.
+	 * @param units Lexical units, by their ids.
+	 * @param selectedUnits Lexical units whose tokens are aggregated, or <code>null</code> for all of them.
+	 * @param aggregation {@link #COUNT}, {@link #DISTINCT}, {@link #TOP} or {@link #LINES}.
+	 * @param k Number of the lexemes written by the {@link #TOP}.
+	 * @throws IllegalArgumentException If the aggregation is unknown, or the <code>k</code> is not positive.
+	 */
+	public TokenQuery(StreamManager streamManager, OutputStream ostream, List<String> units, Set<String> selectedUnits,
+			String aggregation, int k) {
+		if (!COUNT.equals(aggregation) && !DISTINCT.equals(aggregation) && !TOP.equals(aggregation)
+				&& !LINES.equals(aggregation)) {
+			throw new IllegalArgumentException(String.format("Unknown aggregation %s; expected %s, %s, %s or %s.",
+					aggregation, COUNT, DISTINCT, TOP, LINES));
+		}
+		if (TOP.equals(aggregation) && k < 1) {
+			throw new IllegalArgumentException(String.format("Top %d lexemes are not supported.", k));
+		}
+
+		this.streamManager = Objects.requireNonNull(streamManager);
+		this.ostream = Objects.requireNonNull(ostream);
+		this.units = Objects.requireNonNull(units);
+		this.aggregation = aggregation;
+		this.k = k;
+		this.counts = new long[units.size()];
+		this.lexemes = new LexemeTable[units.size()];
+		this.lexemeCounts = new long[units.size()][];
+
+		for (int id = 0; id < units.size(); id++) {
+			if (selectedUnits == null || selectedUnits.contains(units.get(id))) {
+				selected.set(id);
+			}
+		}
+	}
+
+	@Override
+	public void token(int unit, CharSequence buffer, int start, int end, int line) {
+		if (!selected.get(unit)) {
+			return;
+		}
+
+		switch (aggregation) {
+			case COUNT:
+				counts[unit]++;
+				break;
+
+			case LINES:
+				if (line >= lines.length) {
+					lines = Arrays.copyOf(lines, Math.max(2 * lines.length, line + 1));
+				}
+				lines[line]++;
+				break;
+
+			default:
+				if (lexemes[unit] == null) {
+					lexemes[unit] = new LexemeTable();
+					lexemeCounts[unit] = new long[64];
+				}
+
+				int symbol = lexemes[unit].intern(buffer, start, end);
+				if (symbol == lexemeCounts[unit].length) {
+					lexemeCounts[unit] = Arrays.copyOf(lexemeCounts[unit], 2 * symbol);
+				}
+				lexemeCounts[unit][symbol]++;
+		}
+	}
+
+	@Override
+	public void finish() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		String separator = System.lineSeparator();
+
+		switch (aggregation) {
+			case COUNT:
+				for (int unit = selected.nextSetBit(0); unit >= 0; unit = selected.nextSetBit(unit + 1)) {
+					if (counts[unit] > 0) {
+						sb.append(units.get(unit)).append(' ').append(counts[unit]).append(separator);
+					}
+				}
+				break;
+
+			case LINES:
+				for (int line = 0; line < lines.length; line++) {
+					if (lines[line] > 0) {
+						sb.append(line).append(' ').append(lines[line]).append(separator);
+					}
+				}
+				break;
+
+			case DISTINCT:
+				for (int unit = selected.nextSetBit(0); unit >= 0; unit = selected.nextSetBit(unit + 1)) {
+					for (int symbol = 0; lexemes[unit] != null && symbol < lexemes[unit].size(); symbol++) {
+						sb.append(units.get(unit)).append(' ').append(lexemes[unit].getSymbol(symbol)).append(separator);
+					}
+				}
+				break;
+
+			default:
+				for (long[] entry : top()) {
+					int unit = (int) entry[0];
+					sb.append(units.get(unit)).append(' ').append(entry[2]).append(' ')
+							.append(lexemes[unit].getSymbol((int) entry[1])).append(separator);
+				}
+		}
+
+		streamManager.writeToStream(sb, ostream);
+		ostream.flush();
+	}
+
+	/**
+	 * Selects the {@link #k} most frequent lexemes of all the selected units, keeping only the <code>k</code>
+	 * candidates at a time. Lexemes of the same frequency are ordered by their unit, then by their first token.
+	 *
+	 * @return Entries <code>{unit, symbol, count}</code>, most frequent first.
+	 */
+	private long[][] top() {
+		// the least frequent candidate, and the latest of the same frequency, is at the head
+		PriorityQueue<long[]> candidates = new PriorityQueue<>((a, b) -> a[2] != b[2] ? Long.compare(a[2], b[2])
+				: a[0] != b[0] ? Long.compare(b[0], a[0]) : Long.compare(b[1], a[1]));
+
+		for (int unit = selected.nextSetBit(0); unit >= 0; unit = selected.nextSetBit(unit + 1)) {
+			for (int symbol = 0; lexemes[unit] != null && symbol < lexemes[unit].size(); symbol++) {
+				candidates.add(new long[] { unit, symbol, lexemeCounts[unit][symbol] });
+
+				if (candidates.size() > k) {
+					candidates.poll();
+				}
+			}
+		}
+
+		long[][] result = new long[candidates.size()][];
+		for (int i = result.length - 1; i >= 0; i--) {
+			result[i] = candidates.poll();
+		}
+		return result;
+	}
+}
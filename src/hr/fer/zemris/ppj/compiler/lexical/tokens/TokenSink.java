@@ -0,0 +1,32 @@
+package hr.fer.zemris.ppj.compiler.lexical.tokens;
+
+import java.io.IOException;
+
+/**
+ * Receives the tokens produced by the <b>Lexical Analyzer</b>, in order of the input.
+ *
+ * @author fiilip
+ *
+ */
+public interface TokenSink {
+
+	/**
+	 * Receives a single token.
+	 *
+	 * @param lexUnit Lexical unit of the token.
+	 * @param line Line of the input the token is in.
+	 * @param input Entire input.
+	 * @param start Index of the first char of the token in the input.
+	 * @param end Exclusive index of the last char of the token in the input.
+	 * @param symbol Symbol id of the interned lexeme, or <code>-1</code> if the lexeme is not interned.
+	 * @throws IOException
+	 */
+	void token(String lexUnit, int line, CharSequence input, int start, int end, int symbol) throws IOException;
+
+	/**
+	 * Called once all the tokens are received, eg. to flush the buffered output.
+	 *
+	 * @throws IOException
+	 */
+	void finish() throws IOException;
+}
@@ -0,0 +1,60 @@
+package hr.fer.zemris.ppj.compiler.syntax.exec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import hr.fer.zemris.ppj.compiler.lexical.tokens.BinaryTokenReader;
+
+/**
+ * Reads the tokens from the binary token stream of the <b>Lexical Analyzer</b>. Units are given by their ids in the
+ * header of the stream, and the lexemes are decoded only if asked for. Error records are passed over.
+ *
+ * @author fiilip
+ *
+ */
+public class BinaryTokenSource implements TokenSource {
+
+	private final BinaryTokenReader reader;
+
+	/**
+	 * Creates a new {@link BinaryTokenSource}, and reads the header of the stream.
+	 *
+	 * @param istream Input stream of the binary tokens.
+	 * @throws IOException If the stream can't be read, or is not a token stream.
+	 */
+	public BinaryTokenSource(InputStream istream) throws IOException {
+		this.reader = new BinaryTokenReader(istream);
+	}
+
+	@Override
+	public boolean next() throws IOException {
+		while (reader.next()) {
+			if (!reader.isError()) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	@Override
+	public List<String> getUnits() {
+		return reader.getUnits();
+	}
+
+	@Override
+	public int getUnitId() {
+		return reader.getUnitId();
+	}
+
+	@Override
+	public int getLine() {
+		return reader.getLine();
+	}
+
+	@Override
+	public String getLexeme() {
+		return reader.getLexeme();
+	}
+}
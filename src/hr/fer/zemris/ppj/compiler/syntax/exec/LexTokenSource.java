@@ -0,0 +1,64 @@
+package hr.fer.zemris.ppj.compiler.syntax.exec;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+import hr.fer.zemris.ppj.compiler.lexical.exec.TokenWindow;
+
+/**
+ * {@link TokenSource} reading the tokens straight from the <b>Lexical Analyzer</b> running in the same process, so
+ * that the tokens are neither written nor parsed between the phases. The analyzer scans the next token only when the
+ * parser advances to it.
+ *
+ * @author fiilip
+ *
+ */
+public class LexTokenSource implements TokenSource {
+
+	private final TokenWindow window;
+
+	/**
+	 * Whether or not the current token is in the window, to be consumed on the next advance.
+	 */
+	private boolean current;
+
+	/**
+	 * Creates a new {@link LexTokenSource}.
+	 *
+	 * @param window Window of the analyzer, with the analysis already started.
+	 */
+	public LexTokenSource(TokenWindow window) {
+		this.window = Objects.requireNonNull(window);
+	}
+
+	@Override
+	public boolean next() throws IOException {
+		if (current) {
+			window.consume();
+		}
+
+		current = window.has(0);
+		return current;
+	}
+
+	@Override
+	public List<String> getUnits() {
+		return window.getUnits();
+	}
+
+	@Override
+	public int getUnitId() {
+		return window.unit(0);
+	}
+
+	@Override
+	public int getLine() {
+		return window.line(0);
+	}
+
+	@Override
+	public String getLexeme() {
+		return window.lexeme(0);
+	}
+}
@@ -0,0 +1,264 @@
+package hr.fer.zemris.ppj.compiler.syntax.exec;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+/**
+ * Table driven <b>LR</b> parser of the <b>Syntax Analyzer</b>.<br>
+ *
+ * The parser keeps the states and the nodes of the generative tree on the primitive stacks, and looks up the
+ * actions in the packed {@link SynTables}. Lexical units are mapped to the terminals once per unit, by their ids in
+ * the {@link TokenSource}.<br>
+ *
+ * On a syntax error, the error is reported, and the tokens are discarded up to the first synchronization terminal.
+ * States are then popped from the stack until one has an action on that terminal, and the parsing continues from
+ * there. If the input ends before, or the stack is emptied, the parsing stops.
+ *
+ * @author fiilip
+ *
+ */
+public class LrParser {
+
+	/**
+	 * Initial depth of the stacks.
+	 */
+	private static final int STACK_DEPTH = 1 << 8;
+
+	private final SynObjects objects;
+	private final SynTables tables;
+	private final int terminalCount;
+	private final int end;
+
+	/**
+	 * Stream the syntax errors are reported to, or <code>null</code>.
+	 */
+	private PrintStream errors = System.err;
+
+	/**
+	 * Generative tree, or <code>null</code> if the tree is not built.
+	 */
+	private ParseTree tree;
+
+	/**
+	 * unit id -> terminal, or <code>-1</code> for the units the grammar doesn't declare
+	 */
+	private int[] unitTerminals = new int[0];
+
+	private int[] states = new int[STACK_DEPTH];
+	private int[] nodes = new int[STACK_DEPTH];
+	private int top;
+
+	/**
+	 * Line of the current token, kept at the end of the input.
+	 */
+	private int line;
+	private long tokenCount;
+	private int errorCount;
+
+	/**
+	 * Creates a new {@link LrParser}, which builds the generative tree.
+	 *
+	 * @param objects Objects generated for the syntax analyzer.
+	 */
+	public LrParser(SynObjects objects) {
+		this.objects = Objects.requireNonNull(objects);
+		this.tables = objects.getTables();
+		this.terminalCount = objects.getTerminalCount();
+		this.end = objects.getEnd();
+		this.tree = new ParseTree(objects);
+	}
+
+	/**
+	 * Sets whether or not the generative tree is built. Without the tree, the parser only checks the syntax.
+	 *
+	 * @param buildTree <code>True</code> if the tree is built.
+	 */
+	public void setBuildTree(boolean buildTree) {
+		this.tree = buildTree ? new ParseTree(objects) : null;
+	}
+
+	/**
+	 * Sets the stream the syntax errors are reported to.
+	 *
+	 * @param errors Error stream, or <code>null</code> to recover silently.
+	 */
+	public void setErrorStream(PrintStream errors) {
+		this.errors = errors;
+	}
+
+	/**
+	 * Parses the tokens of the source.
+	 *
+	 * @param source Source of the tokens.
+	 * @return <code>True</code> if the input is accepted, possibly after recovering from the errors,
+	 * <code>false</code> if the error recovery ran out of the input or the stack.
+	 * @throws IOException If the source can't be read.
+	 */
+	public boolean parse(TokenSource source) throws IOException {
+		unitTerminals = new int[0];
+		tokenCount = 0;
+		errorCount = 0;
+		line = 0;
+		top = 0;
+		states[0] = 0;
+
+		if (tree != null) {
+			tree.clear();
+		}
+
+		int terminal = advance(source);
+		boolean stalled = false;
+
+		for (;;) {
+			// a unit the grammar doesn't declare takes only the default reductions, so that the error is reported
+			// by the state that expects the terminals
+			int action = terminal < 0 ? tables.defaultAction(states[top]) : tables.action(states[top], terminal);
+
+			if (action > 0) {
+				push(action - 1, tree == null ? 0 : tree.leaf(terminal, line, source.getLexeme()));
+				terminal = advance(source);
+				stalled = false;
+			} else if (action < 0) {
+				int production = -action - 1;
+
+				if (production == 0) {
+					if (tree != null) {
+						tree.setRoot(nodes[top]);
+					}
+					return true;
+				}
+
+				int lhs = objects.getLhs(production);
+				int length = objects.getRhsLength(production);
+				top -= length;
+
+				int node = tree == null ? 0 : tree.node(lhs, nodes, top + 1, length);
+				push(tables.gotoState(states[top], lhs - terminalCount), node);
+			} else {
+				report(terminal, source);
+				errorCount++;
+
+				// the synchronization terminal that failed again is discarded too
+				if (stalled && terminal != end) {
+					terminal = advance(source);
+				}
+
+				while (terminal < 0 || !objects.isSync(terminal)) {
+					if (terminal == end) {
+						return false;
+					}
+					terminal = advance(source);
+				}
+
+				while (top >= 0 && !tables.isExplicit(states[top], terminal)) {
+					top--;
+				}
+
+				if (top < 0) {
+					return false;
+				}
+
+				stalled = true;
+			}
+		}
+	}
+
+	/**
+	 * Reads the next token.
+	 *
+	 * @param source Source of the tokens.
+	 * @return Terminal of the token, {@link SynObjects#getEnd()} at the end of the input, or <code>-1</code> for the
+	 * unit the grammar doesn't declare.
+	 * @throws IOException
+	 */
+	private int advance(TokenSource source) throws IOException {
+		if (!source.next()) {
+			return end;
+		}
+
+		tokenCount++;
+		line = source.getLine();
+		int unit = source.getUnitId();
+
+		if (unit >= unitTerminals.length) {
+			List<String> units = source.getUnits();
+			int mapped = unitTerminals.length;
+			unitTerminals = Arrays.copyOf(unitTerminals, units.size());
+
+			for (int i = mapped; i < unitTerminals.length; i++) {
+				unitTerminals[i] = objects.getTerminal(units.get(i));
+			}
+		}
+
+		return unitTerminals[unit];
+	}
+
+	private void push(int state, int node) {
+		if (++top == states.length) {
+			states = Arrays.copyOf(states, top << 1);
+			nodes = Arrays.copyOf(nodes, top << 1);
+		}
+
+		states[top] = state;
+		nodes[top] = node;
+	}
+
+	/**
+	 * Reports the syntax error, with the terminals expected in the state on top of the stack.
+	 *
+	 * @param terminal Unexpected terminal.
+	 * @param source Source of the tokens.
+	 */
+	private void report(int terminal, TokenSource source) {
+		if (errors == null) {
+			return;
+		}
+
+		StringJoiner expected = new StringJoiner(" ");
+		for (int t = 0; t < terminalCount; t++) {
+			if (tables.isExplicit(states[top], t)) {
+				expected.add(objects.getName(t));
+			}
+		}
+
+		if (terminal == end) {
+			errors.println(String.format("Syntax error at line %d: unexpected end of input; expected %s.", line,
+					expected));
+		} else {
+			String unit = terminal < 0 ? source.getUnits().get(source.getUnitId()) : objects.getName(terminal);
+			errors.println(String.format("Syntax error at line %d: unexpected %s \"%s\"; expected %s.", line, unit,
+					source.getLexeme(), expected));
+		}
+	}
+
+	/**
+	 * Gets the generative tree of the last parsed input.
+	 *
+	 * @return Tree, or <code>null</code> if the tree is not built.
+	 */
+	public ParseTree getTree() {
+		return tree;
+	}
+
+	/**
+	 * Gets the number of the tokens read by the last parse.
+	 *
+	 * @return Number of tokens.
+	 */
+	public long getTokenCount() {
+		return tokenCount;
+	}
+
+	/**
+	 * Gets the number of the syntax errors of the last parse.
+	 *
+	 * @return Number of errors.
+	 */
+	public int getErrorCount() {
+		return errorCount;
+	}
+}
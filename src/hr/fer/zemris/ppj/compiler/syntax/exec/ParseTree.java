@@ -0,0 +1,203 @@
+package hr.fer.zemris.ppj.compiler.syntax.exec;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+import hr.fer.zemris.ppj.compiler.syntax.grammar.Grammar;
+
+/**
+ * Generative tree built by the {@link LrParser}, kept in the parallel arrays of the nodes instead of the node
+ * objects. Children of a node are stored consecutively in the shared array of children, and a leaf holds the line
+ * and the lexeme of its token.<br>
+ *
+ * The tree is written in preorder, a node per line indented by its depth: a nonterminal by its name, a leaf as
+ * <code>UNIT line lexeme</code>, and the empty right side as <code>$</code>.
+ *
+ * @author fiilip
+ *
+ */
+public class ParseTree {
+
+	private final SynObjects objects;
+
+	/**
+	 * node -> symbol
+	 */
+	private int[] symbols = new int[1 << 10];
+
+	/**
+	 * node -> index of the first child, or the line of the leaf
+	 */
+	private int[] firsts = new int[symbols.length];
+
+	/**
+	 * node -> number of the children, or <code>-1</code> for a leaf
+	 */
+	private int[] counts = new int[symbols.length];
+
+	/**
+	 * node -> lexeme of the leaf
+	 */
+	private String[] lexemes = new String[symbols.length];
+	private int size;
+
+	private int[] children = new int[1 << 10];
+	private int childCount;
+
+	private int root = -1;
+
+	/**
+	 * Creates a new, empty {@link ParseTree}.
+	 *
+	 * @param objects Objects of the parser, naming the symbols.
+	 */
+	public ParseTree(SynObjects objects) {
+		this.objects = Objects.requireNonNull(objects);
+	}
+
+	/**
+	 * Adds the leaf of a shifted token.
+	 *
+	 * @param terminal Terminal.
+	 * @param line Line of the token.
+	 * @param lexeme Lexeme of the token.
+	 * @return Node.
+	 */
+	int leaf(int terminal, int line, String lexeme) {
+		int node = add(terminal);
+		firsts[node] = line;
+		counts[node] = -1;
+		lexemes[node] = lexeme;
+		return node;
+	}
+
+	/**
+	 * Adds the node of a reduced nonterminal.
+	 *
+	 * @param nonterminal Nonterminal.
+	 * @param nodes Stack of the nodes.
+	 * @param from Index of the first child on the stack.
+	 * @param count Number of the children.
+	 * @return Node.
+	 */
+	int node(int nonterminal, int[] nodes, int from, int count) {
+		int node = add(nonterminal);
+
+		if (childCount + count > children.length) {
+			children = Arrays.copyOf(children, Math.max(childCount + count, children.length << 1));
+		}
+
+		System.arraycopy(nodes, from, children, childCount, count);
+		firsts[node] = childCount;
+		counts[node] = count;
+		childCount += count;
+		return node;
+	}
+
+	private int add(int symbol) {
+		if (size == symbols.length) {
+			int capacity = size << 1;
+			symbols = Arrays.copyOf(symbols, capacity);
+			firsts = Arrays.copyOf(firsts, capacity);
+			counts = Arrays.copyOf(counts, capacity);
+			lexemes = Arrays.copyOf(lexemes, capacity);
+		}
+
+		symbols[size] = symbol;
+		return size++;
+	}
+
+	void setRoot(int root) {
+		this.root = root;
+	}
+
+	/**
+	 * Removes all the nodes, so that the tree can be built again.
+	 */
+	void clear() {
+		Arrays.fill(lexemes, 0, size, null);
+		size = 0;
+		childCount = 0;
+		root = -1;
+	}
+
+	/**
+	 * Gets the number of the nodes, including the nodes discarded by the error recovery.
+	 *
+	 * @return Number of nodes.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Writes the tree to the stream.
+	 *
+	 * @param ostream Output stream.
+	 * @throws IOException
+	 */
+	public void write(OutputStream ostream) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(ostream, StandardCharsets.UTF_8), 1 << 16);
+		String separator = System.lineSeparator();
+
+		if (root < 0) {
+			writer.flush();
+			return;
+		}
+
+		// node << 32 | depth, children pushed in reverse
+		long[] stack = new long[64];
+		int top = 0;
+		stack[top++] = (long) root << 32;
+
+		while (top > 0) {
+			long entry = stack[--top];
+			int node = (int) (entry >>> 32);
+			int depth = (int) entry;
+
+			indent(writer, depth);
+
+			if (counts[node] < 0) {
+				writer.write(objects.getName(symbols[node]));
+				writer.write(' ');
+				writer.write(Integer.toString(firsts[node]));
+				writer.write(' ');
+				writer.write(lexemes[node]);
+				writer.write(separator);
+				continue;
+			}
+
+			writer.write(objects.getName(symbols[node]));
+			writer.write(separator);
+
+			if (counts[node] == 0) {
+				indent(writer, depth + 1);
+				writer.write(Grammar.EPSILON);
+				writer.write(separator);
+				continue;
+			}
+
+			if (top + counts[node] > stack.length) {
+				stack = Arrays.copyOf(stack, Math.max(top + counts[node], stack.length << 1));
+			}
+
+			for (int i = firsts[node] + counts[node] - 1; i >= firsts[node]; i--) {
+				stack[top++] = (long) children[i] << 32 | (depth + 1);
+			}
+		}
+
+		writer.flush();
+	}
+
+	private static void indent(Writer writer, int depth) throws IOException {
+		for (int i = 0; i < depth; i++) {
+			writer.write(' ');
+		}
+	}
+}
@@ -0,0 +1,234 @@
+package hr.fer.zemris.ppj.compiler.syntax.exec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import hr.fer.zemris.ppj.compiler.syntax.grammar.Grammar;
+
+/**
+ * Objects generated for the <b>Syntax Analyzer</b>: the names of the symbols, the shapes of the productions, the
+ * synchronization terminals and the packed parse tables. Symbols are numbered as in the {@link Grammar}.
+ *
+ * @author fiilip
+ *
+ */
+public class SynObjects {
+
+	/**
+	 * Version of the artifact format, part of the cache key of the generated objects.
+	 */
+	public static final int FORMAT_VERSION = SynObjectsFormat.VERSION;
+
+	/**
+	 * symbol -> name
+	 */
+	private final String[] names;
+
+	/**
+	 * Number of the terminals, including the end marker.
+	 */
+	private final int terminalCount;
+
+	/**
+	 * production -> left side nonterminal
+	 */
+	private final int[] lhs;
+
+	/**
+	 * production -> number of the symbols on the right side
+	 */
+	private final int[] rhsLengths;
+
+	/**
+	 * Synchronization terminals of the error recovery.
+	 */
+	private final BitSet sync;
+
+	private final SynTables tables;
+
+	/**
+	 * terminal name -> terminal
+	 */
+	private final Map<String, Integer> terminals = new HashMap<>();
+
+	/**
+	 * Creates new {@link SynObjects}.
+	 *
+	 * @param names Names of the symbols.
+	 * @param terminalCount Number of the terminals, including the end marker.
+	 * @param lhs Left side of every production.
+	 * @param rhsLengths Length of the right side of every production.
+	 * @param sync Synchronization terminals.
+	 * @param tables Packed parse tables.
+	 */
+	SynObjects(String[] names, int terminalCount, int[] lhs, int[] rhsLengths, BitSet sync, SynTables tables) {
+		this.names = Objects.requireNonNull(names);
+		this.terminalCount = terminalCount;
+		this.lhs = Objects.requireNonNull(lhs);
+		this.rhsLengths = Objects.requireNonNull(rhsLengths);
+		this.sync = Objects.requireNonNull(sync);
+		this.tables = Objects.requireNonNull(tables);
+
+		for (int terminal = 0; terminal < terminalCount - 1; terminal++) {
+			terminals.put(names[terminal], terminal);
+		}
+	}
+
+	/**
+	 * Creates the objects of the grammar and its tables.
+	 *
+	 * @param grammar Grammar.
+	 * @param tables Packed parse tables of the grammar.
+	 * @return Objects.
+	 */
+	public static SynObjects of(Grammar grammar, SynTables tables) {
+		int[] lhs = new int[grammar.getProductionCount()];
+		int[] rhsLengths = new int[lhs.length];
+		BitSet sync = new BitSet();
+
+		for (int p = 0; p < lhs.length; p++) {
+			lhs[p] = grammar.getLhs(p);
+			rhsLengths[p] = grammar.getRhs(p).length;
+		}
+
+		for (int terminal = 0; terminal < grammar.getTerminalCount(); terminal++) {
+			if (grammar.isSync(terminal)) {
+				sync.set(terminal);
+			}
+		}
+
+		List<String> names = grammar.getNames();
+		return new SynObjects(names.toArray(new String[0]), grammar.getTerminalCount(), lhs, rhsLengths, sync, tables);
+	}
+
+	/**
+	 * Reads the objects from the artifact written by {@link #write(WritableByteChannel)}.
+	 *
+	 * @param buffer Content of the artifact.
+	 * @return Objects.
+	 * @throws IOException If the artifact is not valid.
+	 */
+	public static SynObjects read(ByteBuffer buffer) throws IOException {
+		return SynObjectsFormat.read(buffer);
+	}
+
+	/**
+	 * Writes the objects to the channel.
+	 *
+	 * @param channel Channel the artifact is written to.
+	 * @return Number of bytes written.
+	 * @throws IOException
+	 */
+	public long write(WritableByteChannel channel) throws IOException {
+		return SynObjectsFormat.write(this, channel);
+	}
+
+	/**
+	 * Gets the terminal of the lexical unit.
+	 *
+	 * @param unit Name of the lexical unit.
+	 * @return Terminal, or <code>-1</code> if the grammar doesn't declare it.
+	 */
+	public int getTerminal(String unit) {
+		return terminals.getOrDefault(unit, -1);
+	}
+
+	/**
+	 * Gets the name of the symbol.
+	 *
+	 * @param symbol Symbol of interest.
+	 * @return Name of the terminal or the nonterminal.
+	 */
+	public String getName(int symbol) {
+		return names[symbol];
+	}
+
+	/**
+	 * Gets the total number of the symbols.
+	 *
+	 * @return Number of symbols.
+	 */
+	public int getSymbolCount() {
+		return names.length;
+	}
+
+	/**
+	 * Gets the number of the terminals, including the end marker.
+	 *
+	 * @return Number of terminals, also the id of the first nonterminal.
+	 */
+	public int getTerminalCount() {
+		return terminalCount;
+	}
+
+	/**
+	 * Gets the terminal marking the end of the input.
+	 *
+	 * @return Id of the end marker.
+	 */
+	public int getEnd() {
+		return terminalCount - 1;
+	}
+
+	/**
+	 * Gets the number of the productions, including the augmented one.
+	 *
+	 * @return Number of productions.
+	 */
+	public int getProductionCount() {
+		return lhs.length;
+	}
+
+	/**
+	 * Gets the left side of the production.
+	 *
+	 * @param production Production of interest.
+	 * @return Nonterminal on the left side.
+	 */
+	public int getLhs(int production) {
+		return lhs[production];
+	}
+
+	/**
+	 * Gets the number of the symbols on the right side of the production, ie. the states it pops.
+	 *
+	 * @param production Production of interest.
+	 * @return Length of the right side.
+	 */
+	public int getRhsLength(int production) {
+		return rhsLengths[production];
+	}
+
+	/**
+	 * Tests whether the terminal is a synchronization terminal of the error recovery.
+	 *
+	 * @param terminal Terminal of interest.
+	 * @return <code>True</code> for a synchronization terminal.
+	 */
+	public boolean isSync(int terminal) {
+		return sync.get(terminal);
+	}
+
+	/**
+	 * Gets the packed parse tables.
+	 *
+	 * @return Parse tables.
+	 */
+	public SynTables getTables() {
+		return tables;
+	}
+
+	String[] getNames() {
+		return names;
+	}
+
+	BitSet getSync() {
+		return sync;
+	}
+}
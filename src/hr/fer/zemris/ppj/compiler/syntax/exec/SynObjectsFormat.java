@@ -0,0 +1,217 @@
+package hr.fer.zemris.ppj.compiler.syntax.exec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Binary format of the {@link SynObjects} artifact.<br>
+ *
+ * All values are little endian 32 bit integers, and every part of the artifact starts at an offset divisible by
+ * <code>4</code>.
+ * <ul>
+ * <li><b>header</b> - <code>magic, version, symbolCount, terminalCount, productionCount, stateCount, actionLength,
+ * gotoLength, length</code></li>
+ * <li><b>names</b> - for every symbol: <code>byteLength</code> followed by the <i>UTF-8</i> bytes, padded to
+ * <code>4</code> bytes</li>
+ * <li><b>productions</b> - <code>lhs[productionCount], rhsLengths[productionCount]</code></li>
+ * <li><b>sync</b> - <code>bitmap[(terminalCount + 31) / 32]</code> of the synchronization terminals</li>
+ * <li><b>actions</b> - <code>defaults[stateCount], base[stateCount], check[actionLength], next[actionLength]</code></li>
+ * <li><b>gotos</b> - <code>defaults[nonterminals], base[nonterminals], check[gotoLength], next[gotoLength]</code>,
+ * where <code>nonterminals = symbolCount - terminalCount</code></li>
+ * </ul>
+ * The tables are small, so they are copied into the heap when read.
+ *
+ * @author fiilip
+ *
+ */
+final class SynObjectsFormat {
+
+	/**
+	 * Magic number of the artifact, <code>PPJS</code> in ASCII.
+	 */
+	static final int MAGIC = 0x534A5050;
+
+	/**
+	 * Version of the format. Artifacts of the other versions are rejected.
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * Size of the header in integers.
+	 */
+	private static final int HEADER_INTS = 9;
+
+	private SynObjectsFormat() {
+	}
+
+	/**
+	 * Writes the objects to the given <code>channel</code>.
+	 *
+	 * @param objects Objects to be written.
+	 * @param channel Channel the artifact is written to.
+	 * @return Number of bytes written.
+	 * @throws IOException
+	 */
+	static long write(SynObjects objects, WritableByteChannel channel) throws IOException {
+		SynTables tables = objects.getTables();
+		String[] names = objects.getNames();
+		List<byte[]> encoded = new ArrayList<>();
+		int namesLength = 0;
+
+		for (String name : names) {
+			byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+			encoded.add(bytes);
+			namesLength += Integer.BYTES + align(bytes.length);
+		}
+
+		int productionCount = objects.getProductionCount();
+		int[] lhs = new int[productionCount];
+		int[] rhsLengths = new int[productionCount];
+
+		for (int p = 0; p < productionCount; p++) {
+			lhs[p] = objects.getLhs(p);
+			rhsLengths[p] = objects.getRhsLength(p);
+		}
+
+		int[] sync = new int[words(objects.getTerminalCount())];
+		BitSet syncSet = objects.getSync();
+
+		for (int terminal = syncSet.nextSetBit(0); terminal >= 0; terminal = syncSet.nextSetBit(terminal + 1)) {
+			sync[terminal >>> 5] |= 1 << (terminal & 31);
+		}
+
+		int[][] parts = { lhs, rhsLengths, sync, tables.getDefaults(), tables.getActionBase(), tables.getActionCheck(),
+				tables.getActionNext(), tables.getGotoDefaults(), tables.getGotoBase(), tables.getGotoCheck(),
+				tables.getGotoNext() };
+		int length = HEADER_INTS * Integer.BYTES + namesLength;
+
+		for (int[] part : parts) {
+			length += part.length * Integer.BYTES;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(names.length).putInt(objects.getTerminalCount())
+				.putInt(productionCount).putInt(tables.getStateCount()).putInt(tables.getActionNext().length)
+				.putInt(tables.getGotoNext().length).putInt(length);
+
+		for (byte[] bytes : encoded) {
+			buffer.putInt(bytes.length).put(bytes);
+			buffer.position(buffer.position() + align(bytes.length) - bytes.length);
+		}
+
+		for (int[] part : parts) {
+			buffer.asIntBuffer().put(part);
+			buffer.position(buffer.position() + part.length * Integer.BYTES);
+		}
+
+		buffer.flip();
+
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+
+		return length;
+	}
+
+	/**
+	 * Reads the objects from the artifact.
+	 *
+	 * @param buffer Content of the artifact.
+	 * @return Objects.
+	 * @throws IOException If the artifact is not valid.
+	 */
+	static SynObjects read(ByteBuffer buffer) throws IOException {
+		ByteBuffer artifact = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+		if (artifact.remaining() < HEADER_INTS * Integer.BYTES || artifact.getInt(0) != MAGIC) {
+			throw new IOException("Not a syntax objects artifact; regenerate it with GSA.");
+		}
+
+		if (artifact.getInt(4) != VERSION) {
+			throw new IOException(String.format("Unsupported version %d of the syntax objects artifact; expected %d.",
+					artifact.getInt(4), VERSION));
+		}
+
+		if (artifact.getInt(32) != artifact.remaining()) {
+			throw new IOException("Syntax objects artifact is truncated.");
+		}
+
+		int symbolCount = artifact.getInt(8);
+		int terminalCount = artifact.getInt(12);
+		int productionCount = artifact.getInt(16);
+		int stateCount = artifact.getInt(20);
+		int actionLength = artifact.getInt(24);
+		int gotoLength = artifact.getInt(28);
+		int nonterminalCount = symbolCount - terminalCount;
+
+		String[] names = new String[symbolCount];
+		artifact.position(HEADER_INTS * Integer.BYTES);
+
+		for (int i = 0; i < names.length; i++) {
+			byte[] bytes = new byte[artifact.getInt()];
+			artifact.get(bytes);
+			names[i] = new String(bytes, StandardCharsets.UTF_8);
+			artifact.position(artifact.position() + align(bytes.length) - bytes.length);
+		}
+
+		int[] lhs = ints(artifact, productionCount);
+		int[] rhsLengths = ints(artifact, productionCount);
+		int[] syncWords = ints(artifact, words(terminalCount));
+		BitSet sync = new BitSet(terminalCount);
+
+		for (int terminal = 0; terminal < terminalCount; terminal++) {
+			if ((syncWords[terminal >>> 5] & (1 << (terminal & 31))) != 0) {
+				sync.set(terminal);
+			}
+		}
+
+		try {
+			SynTables tables = new SynTables(terminalCount, ints(artifact, stateCount), ints(artifact, stateCount),
+					ints(artifact, actionLength), ints(artifact, actionLength), ints(artifact, nonterminalCount),
+					ints(artifact, nonterminalCount), ints(artifact, gotoLength), ints(artifact, gotoLength));
+			return new SynObjects(names, terminalCount, lhs, rhsLengths, sync, tables);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(String.format("Syntax objects artifact is not valid: %s", e.getMessage()), e);
+		}
+	}
+
+	/**
+	 * Reads the integers at the position of the buffer, and advances it.
+	 *
+	 * @param buffer Buffer.
+	 * @param count Number of the integers.
+	 * @return Integers read.
+	 */
+	private static int[] ints(ByteBuffer buffer, int count) {
+		int[] values = new int[count];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + count * Integer.BYTES);
+		return values;
+	}
+
+	/**
+	 * Gets the number of the words of a bitmap.
+	 *
+	 * @param bits Number of the bits.
+	 * @return Number of the 32 bit words.
+	 */
+	private static int words(int bits) {
+		return (bits + 31) >>> 5;
+	}
+
+	/**
+	 * Rounds the length up to a multiple of <code>4</code>.
+	 *
+	 * @param length Length in bytes.
+	 * @return Aligned length.
+	 */
+	private static int align(int length) {
+		return (length + Integer.BYTES - 1) & -Integer.BYTES;
+	}
+}
@@ -0,0 +1,207 @@
+package hr.fer.zemris.ppj.compiler.syntax.exec;
+
+import java.util.Objects;
+
+/**
+ * Packed action and goto tables of the <b>LR</b> parser.<br>
+ *
+ * An action is encoded as an integer: {@link #ERROR} is <code>0</code>, shifting to the state <code>s</code> is
+ * <code>s + 1</code>, and reducing the production <code>p</code> is <code>-(p + 1)</code>, where reducing the
+ * augmented production <code>0</code> accepts the input.<br>
+ *
+ * Every state has a default action, the reduction most frequent in its row, or the {@link #ERROR}. The entries of
+ * the row other than the default are packed into the shared <code>next</code> array at the offset
+ * <code>base[state]</code>, and the <code>check</code> array tells which state an entry belongs to. Gotos are packed
+ * the same way, by the columns of the nonterminals, with the most frequent target state as the default of the column.
+ * Lookups are then two array reads and a comparison, while the tables stay a fraction of the dense size.
+ *
+ * @author fiilip
+ *
+ */
+public final class SynTables {
+
+	/**
+	 * Action of a syntax error.
+	 */
+	public static final int ERROR = 0;
+
+	private final int stateCount;
+	private final int terminalCount;
+
+	/**
+	 * state -> default action
+	 */
+	private final int[] defaults;
+	private final int[] actionBase;
+	private final int[] actionCheck;
+	private final int[] actionNext;
+
+	/**
+	 * nonterminal -> default target state
+	 */
+	private final int[] gotoDefaults;
+	private final int[] gotoBase;
+	private final int[] gotoCheck;
+	private final int[] gotoNext;
+
+	/**
+	 * Creates new {@link SynTables}. The arrays are not copied.
+	 *
+	 * @param terminalCount Number of the terminals.
+	 * @param defaults Default action of every state.
+	 * @param actionBase Offset of the row of every state.
+	 * @param actionCheck State every packed action belongs to, or <code>-1</code>.
+	 * @param actionNext Packed actions.
+	 * @param gotoDefaults Default target state of every nonterminal.
+	 * @param gotoBase Offset of the column of every nonterminal.
+	 * @param gotoCheck Nonterminal every packed target belongs to, or <code>-1</code>.
+	 * @param gotoNext Packed target states.
+	 * @throws IllegalArgumentException If the offsets point out of the packed arrays.
+	 */
+	public SynTables(int terminalCount, int[] defaults, int[] actionBase, int[] actionCheck, int[] actionNext,
+			int[] gotoDefaults, int[] gotoBase, int[] gotoCheck, int[] gotoNext) {
+		this.stateCount = defaults.length;
+		this.terminalCount = terminalCount;
+		this.defaults = defaults;
+		this.actionBase = Objects.requireNonNull(actionBase);
+		this.actionCheck = Objects.requireNonNull(actionCheck);
+		this.actionNext = Objects.requireNonNull(actionNext);
+		this.gotoDefaults = Objects.requireNonNull(gotoDefaults);
+		this.gotoBase = Objects.requireNonNull(gotoBase);
+		this.gotoCheck = Objects.requireNonNull(gotoCheck);
+		this.gotoNext = Objects.requireNonNull(gotoNext);
+
+		// lookups are not bounds checked beyond the arrays themselves
+		if (actionBase.length != stateCount || actionCheck.length != actionNext.length
+				|| gotoCheck.length != gotoNext.length || gotoBase.length != gotoDefaults.length) {
+			throw new IllegalArgumentException("Sizes of the parse tables don't match.");
+		}
+
+		for (int base : actionBase) {
+			if (base < 0 || base + terminalCount > actionCheck.length) {
+				throw new IllegalArgumentException("Action row is out of the packed table.");
+			}
+		}
+
+		for (int base : gotoBase) {
+			if (base < 0 || base + stateCount > gotoCheck.length) {
+				throw new IllegalArgumentException("Goto column is out of the packed table.");
+			}
+		}
+	}
+
+	/**
+	 * Gets the action of the state on the terminal.
+	 *
+	 * @param state State on top of the stack.
+	 * @param terminal Lookahead terminal.
+	 * @return Encoded action.
+	 */
+	public int action(int state, int terminal) {
+		int i = actionBase[state] + terminal;
+		return actionCheck[i] == state ? actionNext[i] : defaults[state];
+	}
+
+	/**
+	 * Gets the default action of the state, taken on the terminals without an entry in its row.
+	 *
+	 * @param state State.
+	 * @return Reduction, or the {@link #ERROR}.
+	 */
+	public int defaultAction(int state) {
+		return defaults[state];
+	}
+
+	/**
+	 * Tests whether the state has an action on the terminal other than its default reduction.
+	 *
+	 * @param state State.
+	 * @param terminal Terminal.
+	 * @return <code>True</code> if the terminal is expected by the state itself.
+	 */
+	public boolean isExplicit(int state, int terminal) {
+		return actionCheck[actionBase[state] + terminal] == state;
+	}
+
+	/**
+	 * Gets the state reached after reducing the nonterminal.
+	 *
+	 * @param state State uncovered by the reduction.
+	 * @param nonterminal Nonterminal, counted from the first one.
+	 * @return Target state.
+	 */
+	public int gotoState(int state, int nonterminal) {
+		int i = gotoBase[nonterminal] + state;
+		return gotoCheck[i] == nonterminal ? gotoNext[i] : gotoDefaults[nonterminal];
+	}
+
+	/**
+	 * Encodes the shift action.
+	 *
+	 * @param state Target state.
+	 * @return Encoded action.
+	 */
+	public static int shift(int state) {
+		return state + 1;
+	}
+
+	/**
+	 * Encodes the reduce action.
+	 *
+	 * @param production Reduced production.
+	 * @return Encoded action.
+	 */
+	public static int reduce(int production) {
+		return -(production + 1);
+	}
+
+	public int getStateCount() {
+		return stateCount;
+	}
+
+	public int getTerminalCount() {
+		return terminalCount;
+	}
+
+	int[] getDefaults() {
+		return defaults;
+	}
+
+	int[] getActionBase() {
+		return actionBase;
+	}
+
+	int[] getActionCheck() {
+		return actionCheck;
+	}
+
+	int[] getActionNext() {
+		return actionNext;
+	}
+
+	int[] getGotoDefaults() {
+		return gotoDefaults;
+	}
+
+	int[] getGotoBase() {
+		return gotoBase;
+	}
+
+	int[] getGotoCheck() {
+		return gotoCheck;
+	}
+
+	int[] getGotoNext() {
+		return gotoNext;
+	}
+
+	/**
+	 * Gets the number of the packed entries of both tables.
+	 *
+	 * @return Size of the packed tables, in integers.
+	 */
+	public int getPackedSize() {
+		return defaults.length + actionBase.length + 2 * actionNext.length + gotoDefaults.length + gotoBase.length
+				+ 2 * gotoNext.length;
+	}
+}
@@ -0,0 +1,111 @@
+package hr.fer.zemris.ppj.compiler.syntax.exec;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import hr.fer.zemris.ppj.compiler.lexical.tokens.ErrorSink;
+
+/**
+ * Reads the tokens written by the <b>Lexical Analyzer</b> as the lines of text, <code>UNIT line lexeme</code>.
+ * Lines of the skipped runs, <code>#ERROR line offset length</code>, are passed over. Units get their ids in order
+ * they first appear.
+ *
+ * @author fiilip
+ *
+ */
+public class TextTokenSource implements TokenSource {
+
+	private final BufferedReader reader;
+
+	/**
+	 * unit -> id
+	 */
+	private final Map<String, Integer> ids = new HashMap<>();
+
+	/**
+	 * id -> unit
+	 */
+	private final List<String> units = new ArrayList<>();
+
+	private int unitId;
+	private int line;
+	private String lexeme;
+
+	/**
+	 * Creates a new {@link TextTokenSource}.
+	 *
+	 * @param istream Input stream of the lines.
+	 */
+	public TextTokenSource(InputStream istream) {
+		this.reader = new BufferedReader(new InputStreamReader(Objects.requireNonNull(istream), StandardCharsets.UTF_8),
+				1 << 16);
+	}
+
+	@Override
+	public boolean next() throws IOException {
+		String text;
+
+		do {
+			text = reader.readLine();
+
+			if (text == null) {
+				return false;
+			}
+		} while (text.isEmpty() || text.startsWith(ErrorSink.ERROR_UNIT + " "));
+
+		int unitEnd = text.indexOf(' ');
+		int lineEnd = unitEnd < 0 ? -1 : text.indexOf(' ', unitEnd + 1);
+
+		if (lineEnd < 0) {
+			throw new IOException(String.format("Token is not in the UNIT line lexeme format: %s", text));
+		}
+
+		String unit = text.substring(0, unitEnd);
+		Integer id = ids.get(unit);
+
+		if (id == null) {
+			id = units.size();
+			ids.put(unit, id);
+			units.add(unit);
+		}
+
+		try {
+			line = Integer.parseInt(text, unitEnd + 1, lineEnd, 10);
+		} catch (NumberFormatException e) {
+			throw new IOException(String.format("Token is not in the UNIT line lexeme format: %s", text), e);
+		}
+
+		unitId = id;
+		lexeme = text.substring(lineEnd + 1);
+		return true;
+	}
+
+	@Override
+	public List<String> getUnits() {
+		return Collections.unmodifiableList(units);
+	}
+
+	@Override
+	public int getUnitId() {
+		return unitId;
+	}
+
+	@Override
+	public int getLine() {
+		return line;
+	}
+
+	@Override
+	public String getLexeme() {
+		return lexeme;
+	}
+}
@@ -0,0 +1,52 @@
+package hr.fer.zemris.ppj.compiler.syntax.exec;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Stream of the tokens produced by the <b>Lexical Analyzer</b>, read by the {@link LrParser}.<br>
+ *
+ * Lexical units of the tokens are given by the dense ids, so that the parser maps every unit to its terminal only
+ * once. Runs of the input skipped by the lexical error recovery are not passed on.
+ *
+ * @author fiilip
+ *
+ */
+public interface TokenSource {
+
+	/**
+	 * Advances to the next token.
+	 *
+	 * @return <code>True</code> if there is a next token, <code>false</code> at the end of the stream.
+	 * @throws IOException If the stream can't be read.
+	 */
+	boolean next() throws IOException;
+
+	/**
+	 * Gets the names of the lexical units by their ids. The list may grow as the stream is read.
+	 *
+	 * @return Lexical units.
+	 */
+	List<String> getUnits();
+
+	/**
+	 * Gets the id of the lexical unit of the current token.
+	 *
+	 * @return Index into the {@link #getUnits()}.
+	 */
+	int getUnitId();
+
+	/**
+	 * Gets the line of the current token.
+	 *
+	 * @return Line, starting from <code>1</code>.
+	 */
+	int getLine();
+
+	/**
+	 * Gets the lexeme of the current token. Only called when the generative tree is built.
+	 *
+	 * @return Lexeme.
+	 */
+	String getLexeme();
+}
@@ -0,0 +1,360 @@
+package hr.fer.zemris.ppj.compiler.syntax.grammar;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Context free grammar of the <b>Syntax Analyzer</b>, with the symbols numbered densely.<br>
+ *
+ * Terminals come first, ending with the {@link #END} marker, followed by the nonterminals, starting with the
+ * augmented start symbol {@link #START}. Production <code>0</code> is the augmented production
+ * <code>&lt;%&gt; -&gt; S</code>, where <code>S</code> is the first declared nonterminal; the other productions
+ * follow in the order of the definitions. Nullable nonterminals and the <i>FIRST</i> sets of the nonterminals are
+ * computed when the grammar is created.
+ *
+ * @author fiilip
+ *
+ */
+public class Grammar {
+
+	/**
+	 * Name of the terminal marking the end of the input.
+	 */
+	public static final String END = "#END";
+
+	/**
+	 * Name of the augmented start symbol.
+	 */
+	public static final String START = "<%>";
+
+	/**
+	 * Name of the symbol standing for the empty sequence in the definitions and the generative tree.
+	 */
+	public static final String EPSILON = "$";
+
+	/**
+	 * symbol -> name
+	 */
+	private final String[] names;
+
+	/**
+	 * Number of the terminals, including the {@link #END}.
+	 */
+	private final int terminalCount;
+
+	/**
+	 * production -> left side nonterminal
+	 */
+	private final int[] lhs;
+
+	/**
+	 * production -> right side symbols
+	 */
+	private final int[][] rhs;
+
+	/**
+	 * nonterminal - terminalCount -> productions of the nonterminal, in order of the definitions
+	 */
+	private final int[][] productionsOf;
+
+	/**
+	 * nonterminal - terminalCount -> whether or not it derives the empty sequence
+	 */
+	private final boolean[] nullable;
+
+	/**
+	 * nonterminal - terminalCount -> terminals its derivations can start with
+	 */
+	private final BitSet[] first;
+
+	/**
+	 * Synchronization terminals of the error recovery.
+	 */
+	private final BitSet sync = new BitSet();
+
+	/**
+	 * Creates a new {@link Grammar}.
+	 *
+	 * @param terminals Declared terminals.
+	 * @param nonterminals Declared nonterminals; the first one is the start symbol.
+	 * @param productions Productions as the pairs of the left side nonterminal and the right side symbols.
+	 * @param syncTerminals Synchronization terminals of the error recovery.
+	 * @throws IllegalStateException If a symbol is not declared, or declared twice.
+	 */
+	public Grammar(List<String> terminals, List<String> nonterminals, List<Map.Entry<String, List<String>>> productions,
+			List<String> syncTerminals) {
+		if (nonterminals.isEmpty()) {
+			throw new IllegalStateException("Grammar has no nonterminals.");
+		}
+
+		Map<String, Integer> ids = new HashMap<>();
+		List<String> symbols = new ArrayList<>(terminals);
+		symbols.add(END);
+		symbols.add(START);
+		symbols.addAll(nonterminals);
+
+		for (String symbol : symbols) {
+			if (ids.put(symbol, ids.size()) != null) {
+				throw new IllegalStateException(String.format("Symbol %s is declared more than once.", symbol));
+			}
+		}
+
+		this.names = symbols.toArray(new String[0]);
+		this.terminalCount = terminals.size() + 1;
+		this.lhs = new int[productions.size() + 1];
+		this.rhs = new int[productions.size() + 1][];
+
+		lhs[0] = terminalCount;
+		rhs[0] = new int[] { terminalCount + 1 };
+
+		for (int p = 1; p < lhs.length; p++) {
+			Map.Entry<String, List<String>> production = productions.get(p - 1);
+			lhs[p] = id(ids, production.getKey());
+
+			if (isTerminal(lhs[p]) || lhs[p] == terminalCount) {
+				throw new IllegalStateException(String.format("Left side %s is not a nonterminal.", production.getKey()));
+			}
+
+			rhs[p] = production.getValue().stream().mapToInt(symbol -> id(ids, symbol)).toArray();
+		}
+
+		for (String terminal : syncTerminals) {
+			int id = id(ids, terminal);
+
+			if (!isTerminal(id)) {
+				throw new IllegalStateException(String.format("Synchronization symbol %s is not a terminal.", terminal));
+			}
+			sync.set(id);
+		}
+
+		int nonterminalCount = names.length - terminalCount;
+		List<List<Integer>> byLhs = new ArrayList<>();
+		for (int n = 0; n < nonterminalCount; n++) {
+			byLhs.add(new ArrayList<>());
+		}
+		for (int p = 0; p < lhs.length; p++) {
+			byLhs.get(lhs[p] - terminalCount).add(p);
+		}
+
+		this.productionsOf = new int[nonterminalCount][];
+		for (int n = 0; n < nonterminalCount; n++) {
+			productionsOf[n] = byLhs.get(n).stream().mapToInt(Integer::intValue).toArray();
+		}
+
+		this.nullable = new boolean[nonterminalCount];
+		this.first = new BitSet[nonterminalCount];
+		computeFirst();
+	}
+
+	/**
+	 * Computes the nullable nonterminals and their <i>FIRST</i> sets, iterating to the fixed point.
+	 */
+	private void computeFirst() {
+		for (int n = 0; n < first.length; n++) {
+			first[n] = new BitSet(terminalCount);
+		}
+
+		for (boolean changed = true; changed; ) {
+			changed = false;
+
+			for (int p = 0; p < lhs.length; p++) {
+				int n = lhs[p] - terminalCount;
+				int before = first[n].cardinality();
+
+				if (addFirst(rhs[p], 0, first[n]) && !nullable[n]) {
+					nullable[n] = true;
+					changed = true;
+				}
+
+				changed |= first[n].cardinality() != before;
+			}
+		}
+	}
+
+	/**
+	 * Adds the terminals the sequence of symbols can start with.
+	 *
+	 * @param symbols Symbols.
+	 * @param from Index of the first symbol of the sequence.
+	 * @param terminals Set the terminals are added to.
+	 * @return <code>True</code> if the sequence derives the empty sequence, <code>false</code> otherwise.
+	 */
+	public boolean addFirst(int[] symbols, int from, BitSet terminals) {
+		for (int i = from; i < symbols.length; i++) {
+			int symbol = symbols[i];
+
+			if (isTerminal(symbol)) {
+				terminals.set(symbol);
+				return false;
+			}
+
+			terminals.or(first[symbol - terminalCount]);
+
+			if (!nullable[symbol - terminalCount]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Gets the id of the declared symbol.
+	 *
+	 * @param ids Symbol ids.
+	 * @param symbol Name of the symbol.
+	 * @return Id of the symbol.
+	 */
+	private static int id(Map<String, Integer> ids, String symbol) {
+		Integer id = ids.get(symbol);
+
+		if (id == null) {
+			throw new IllegalStateException(String.format("Symbol %s is not declared.", symbol));
+		}
+
+		return id;
+	}
+
+	/**
+	 * Gets the total number of the symbols.
+	 *
+	 * @return Number of symbols.
+	 */
+	public int getSymbolCount() {
+		return names.length;
+	}
+
+	/**
+	 * Gets the number of the terminals, including the {@link #END}.
+	 *
+	 * @return Number of terminals, also the id of the first nonterminal.
+	 */
+	public int getTerminalCount() {
+		return terminalCount;
+	}
+
+	/**
+	 * Gets the number of the nonterminals, including the {@link #START}.
+	 *
+	 * @return Number of nonterminals.
+	 */
+	public int getNonterminalCount() {
+		return names.length - terminalCount;
+	}
+
+	/**
+	 * Gets the id of the {@link #END} terminal.
+	 *
+	 * @return Id of the end marker.
+	 */
+	public int getEnd() {
+		return terminalCount - 1;
+	}
+
+	/**
+	 * Tests whether the symbol is a terminal.
+	 *
+	 * @param symbol Symbol of interest.
+	 * @return <code>True</code> for a terminal, <code>false</code> for a nonterminal.
+	 */
+	public boolean isTerminal(int symbol) {
+		return symbol < terminalCount;
+	}
+
+	/**
+	 * Gets the name of the symbol.
+	 *
+	 * @param symbol Symbol of interest.
+	 * @return Name of the symbol.
+	 */
+	public String getName(int symbol) {
+		return names[symbol];
+	}
+
+	/**
+	 * Gets the number of the productions, including the augmented one.
+	 *
+	 * @return Number of productions.
+	 */
+	public int getProductionCount() {
+		return lhs.length;
+	}
+
+	/**
+	 * Gets the left side of the production.
+	 *
+	 * @param production Production of interest.
+	 * @return Nonterminal on the left side.
+	 */
+	public int getLhs(int production) {
+		return lhs[production];
+	}
+
+	/**
+	 * Gets the right side of the production. The array must not be modified.
+	 *
+	 * @param production Production of interest.
+	 * @return Symbols on the right side.
+	 */
+	public int[] getRhs(int production) {
+		return rhs[production];
+	}
+
+	/**
+	 * Gets the productions of the nonterminal. The array must not be modified.
+	 *
+	 * @param nonterminal Nonterminal of interest.
+	 * @return Productions, in order of the definitions.
+	 */
+	public int[] getProductions(int nonterminal) {
+		return productionsOf[nonterminal - terminalCount];
+	}
+
+	/**
+	 * Tests whether the symbol derives the empty sequence.
+	 *
+	 * @param symbol Symbol of interest.
+	 * @return <code>True</code> for a nullable nonterminal, <code>false</code> otherwise.
+	 */
+	public boolean isNullable(int symbol) {
+		return !isTerminal(symbol) && nullable[symbol - terminalCount];
+	}
+
+	/**
+	 * Tests whether the terminal is a synchronization terminal of the error recovery.
+	 *
+	 * @param terminal Terminal of interest.
+	 * @return <code>True</code> for a synchronization terminal, <code>false</code> otherwise.
+	 */
+	public boolean isSync(int terminal) {
+		return sync.get(terminal);
+	}
+
+	/**
+	 * Describes the production, eg. for the conflict reports.
+	 *
+	 * @param production Production of interest.
+	 * @return Left side and the right side of the production, separated by <code>::=</code>.
+	 */
+	public String describe(int production) {
+		StringBuilder sb = new StringBuilder(names[lhs[production]]).append(" ::=");
+
+		for (int symbol : rhs[production]) {
+			sb.append(' ').append(names[symbol]);
+		}
+
+		return rhs[production].length == 0 ? sb.append(' ').append(EPSILON).toString() : sb.toString();
+	}
+
+	/**
+	 * Gets the name of every symbol.
+	 *
+	 * @return Names of the symbols, by their ids.
+	 */
+	public List<String> getNames() {
+		return List.of(names);
+	}
+}
@@ -0,0 +1,176 @@
+package hr.fer.zemris.ppj.compiler.syntax.input;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import hr.fer.zemris.ppj.compiler.syntax.grammar.Grammar;
+
+/**
+ * This class is used to read in the syntax definitions of the given language, and parse them into the
+ * {@link Grammar}.<br>
+ *
+ * The definitions start with the <code>%V</code> line declaring the nonterminals, the first of which is the start
+ * symbol, the <code>%T</code> line declaring the terminals, ie. the lexical units, and the optional
+ * <code>%Syn</code> line declaring the synchronization terminals of the error recovery. Productions follow,
+ * grouped by the left side: a line with the nonterminal is followed by the lines with its right sides, each
+ * starting with a space. Symbols are separated by spaces, and the right side <code>$</code> is the empty sequence.
+ *
+ * @author fiilip
+ *
+ */
+public class SyntaxDefinitionsParser {
+
+	/**
+	 * Prefix of the line declaring the nonterminals.
+	 */
+	private static final String NONTERMINALS_PREFIX = "%V";
+
+	/**
+	 * Prefix of the line declaring the terminals.
+	 */
+	private static final String TERMINALS_PREFIX = "%T";
+
+	/**
+	 * Prefix of the line declaring the synchronization terminals.
+	 */
+	private static final String SYNC_PREFIX = "%Syn";
+
+	/**
+	 * Pattern separating the symbols on a line.
+	 */
+	private static final Pattern SEPARATOR = Pattern.compile("\\s+");
+
+	/**
+	 * Buffered reader used for reading the input stream.
+	 */
+	private final BufferedReader reader;
+
+	/**
+	 * Currently processed line.
+	 */
+	private String currLine;
+
+	private final List<String> nonterminals = new ArrayList<>();
+	private final List<String> terminals = new ArrayList<>();
+	private final List<String> syncTerminals = new ArrayList<>();
+	private final List<Map.Entry<String, List<String>>> productions = new ArrayList<>();
+
+	/**
+	 * Creates a new {@link SyntaxDefinitionsParser}.
+	 *
+	 * @param istream Stream of the syntax definitions.
+	 */
+	public SyntaxDefinitionsParser(InputStream istream) {
+		this.reader = new BufferedReader(new InputStreamReader(Objects.requireNonNull(istream), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Reads the definitions from the input stream.
+	 *
+	 * @throws IllegalStateException If the definitions are not in the expected format.
+	 */
+	public void read() {
+		try {
+			nextLine();
+			readDeclaration(NONTERMINALS_PREFIX, nonterminals);
+			readDeclaration(TERMINALS_PREFIX, terminals);
+
+			if (currLine != null && currLine.startsWith(SYNC_PREFIX + " ")) {
+				readDeclaration(SYNC_PREFIX, syncTerminals);
+			}
+
+			readProductions();
+		} catch (IOException e) {
+			throw new IllegalStateException(String.format("Unable to read the syntax definitions: %s", e.getMessage()), e);
+		}
+	}
+
+	/**
+	 * Reads the line declaring the symbols.
+	 *
+	 * @param prefix Prefix of the line.
+	 * @param symbols Declared symbols, filled by this method.
+	 * @throws IOException
+	 */
+	private void readDeclaration(String prefix, List<String> symbols) throws IOException {
+		if (currLine == null || !(currLine.equals(prefix) || currLine.startsWith(prefix + " "))) {
+			throw new IllegalStateException(
+					String.format("Expected the %s line, got: %s. Check the input stream format.", prefix, currLine));
+		}
+
+		symbols.addAll(split(currLine.substring(prefix.length())));
+		nextLine();
+	}
+
+	/**
+	 * Reads the productions, grouped by their left sides.
+	 *
+	 * @throws IOException
+	 */
+	private void readProductions() throws IOException {
+		String lhs = null;
+
+		for (; currLine != null; nextLine()) {
+			if (!Character.isWhitespace(currLine.charAt(0))) {
+				lhs = currLine.trim();
+				continue;
+			}
+
+			if (lhs == null) {
+				throw new IllegalStateException(
+						String.format("Right side without the left side: %s. Check the input stream format.", currLine));
+			}
+
+			List<String> rhs = split(currLine);
+
+			if (rhs.equals(Collections.singletonList(Grammar.EPSILON))) {
+				rhs = Collections.emptyList();
+			}
+
+			productions.add(new AbstractMap.SimpleImmutableEntry<>(lhs, rhs));
+		}
+	}
+
+	/**
+	 * Reads the next line that is not blank.
+	 *
+	 * @throws IOException
+	 */
+	private void nextLine() throws IOException {
+		do {
+			currLine = reader.readLine();
+		} while (currLine != null && currLine.isBlank());
+	}
+
+	/**
+	 * Splits the line into the symbols.
+	 *
+	 * @param line Line of the definitions.
+	 * @return Symbols on the line.
+	 */
+	private static List<String> split(String line) {
+		String trimmed = line.trim();
+		return trimmed.isEmpty() ? new ArrayList<>() : new ArrayList<>(Arrays.asList(SEPARATOR.split(trimmed)));
+	}
+
+	/**
+	 * Creates the grammar of the read definitions.
+	 *
+	 * @return Grammar.
+	 * @throws IllegalStateException If a symbol is not declared, or declared twice.
+	 */
+	public Grammar getGrammar() {
+		return new Grammar(terminals, nonterminals, productions, syncTerminals);
+	}
+}
@@ -0,0 +1,39 @@
+package hr.fer.zemris.ppj.compiler.syntax.lr;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive integers, used by the builders of the automatons and the tables.
+ *
+ * @author fiilip
+ *
+ */
+final class IntList {
+
+	private int[] values = new int[8];
+	private int size;
+
+	void add(int value) {
+		if (size == values.length) {
+			values = Arrays.copyOf(values, size << 1);
+		}
+
+		values[size++] = value;
+	}
+
+	int get(int index) {
+		return values[index];
+	}
+
+	int size() {
+		return size;
+	}
+
+	void clear() {
+		size = 0;
+	}
+
+	int[] toArray() {
+		return Arrays.copyOf(values, size);
+	}
+}
@@ -0,0 +1,219 @@
+package hr.fer.zemris.ppj.compiler.syntax.lr;
+
+import java.util.BitSet;
+import java.util.Objects;
+
+import hr.fer.zemris.ppj.compiler.syntax.grammar.Grammar;
+
+/**
+ * Builds the <i>LALR(1)</i> automaton of the grammar: the <i>LR(0)</i> automaton, with the lookaheads computed
+ * by the <b>DeRemer-Pennello</b> algorithm instead of merging the canonical <i>LR(1)</i> states.<br>
+ *
+ * For every nonterminal transition <code>(p, A)</code> of the <i>LR(0)</i> automaton:
+ * <ul>
+ * <li><i>DR(p, A)</i> are the terminals read right after the transition</li>
+ * <li><i>Read(p, A)</i> extends them over the <i>reads</i> relation, ie. over the nullable nonterminals that follow
+ * the transition</li>
+ * <li><i>Follow(p, A)</i> extends them over the <i>includes</i> relation, ie. to the transitions of the nonterminals
+ * whose productions end with <code>A</code> and a nullable suffix</li>
+ * </ul>
+ * Both extensions are the unions over the relations, computed by the <i>digraph</i> algorithm, which handles the
+ * strongly connected components in a single traversal. The lookaheads of the reduction of <code>A -&gt; w</code> in
+ * the state <code>q</code> are then the union of <i>Follow(p, A)</i> over the transitions <code>(p, A)</code> that
+ * lead back from <code>q</code> over <code>w</code>.
+ *
+ * @author fiilip
+ *
+ */
+public final class LalrBuilder {
+
+	private final Grammar grammar;
+
+	/**
+	 * Creates a new {@link LalrBuilder}.
+	 *
+	 * @param grammar Grammar.
+	 */
+	public LalrBuilder(Grammar grammar) {
+		this.grammar = Objects.requireNonNull(grammar);
+	}
+
+	/**
+	 * Builds the automaton.
+	 *
+	 * @return <i>LALR(1)</i> automaton.
+	 */
+	public LrAutomaton build() {
+		Lr0Builder lr0 = new Lr0Builder(grammar).build();
+		int[][] transitions = lr0.getTransitions();
+		int[][] reductions = lr0.getReductions();
+		int terminalCount = grammar.getTerminalCount();
+		int symbolCount = grammar.getSymbolCount();
+
+		// nonterminal transitions
+		int[][] index = new int[transitions.length][grammar.getNonterminalCount()];
+		IntList sources = new IntList();
+		IntList symbols = new IntList();
+
+		for (int state = 0; state < transitions.length; state++) {
+			for (int symbol = terminalCount; symbol < symbolCount; symbol++) {
+				if (transitions[state][symbol] < 0) {
+					index[state][symbol - terminalCount] = -1;
+				} else {
+					index[state][symbol - terminalCount] = sources.size();
+					sources.add(state);
+					symbols.add(symbol);
+				}
+			}
+		}
+
+		int count = sources.size();
+		BitSet[] follow = new BitSet[count];
+		IntList[] reads = new IntList[count];
+		IntList[] includes = new IntList[count];
+
+		for (int x = 0; x < count; x++) {
+			int target = transitions[sources.get(x)][symbols.get(x)];
+			follow[x] = new BitSet(terminalCount);
+			reads[x] = new IntList();
+			includes[x] = new IntList();
+
+			for (int terminal = 0; terminal < terminalCount; terminal++) {
+				if (transitions[target][terminal] >= 0) {
+					follow[x].set(terminal);
+				}
+			}
+
+			for (int symbol = terminalCount; symbol < symbolCount; symbol++) {
+				if (transitions[target][symbol] >= 0 && grammar.isNullable(symbol)) {
+					reads[x].add(index[target][symbol - terminalCount]);
+				}
+			}
+		}
+
+		// the start symbol is followed by the end of the input
+		follow[index[0][grammar.getRhs(0)[0] - terminalCount]].set(grammar.getEnd());
+
+		new Digraph(follow, reads).run();
+
+		// includes and lookback, by walking every production from every transition of its left side
+		IntList[][] lookback = new IntList[transitions.length][];
+		for (int state = 0; state < transitions.length; state++) {
+			lookback[state] = new IntList[reductions[state].length];
+
+			for (int k = 0; k < lookback[state].length; k++) {
+				lookback[state][k] = new IntList();
+			}
+		}
+
+		for (int y = 0; y < count; y++) {
+			for (int production : grammar.getProductions(symbols.get(y))) {
+				int[] rhs = grammar.getRhs(production);
+				boolean[] nullableSuffix = new boolean[rhs.length + 1];
+				nullableSuffix[rhs.length] = true;
+
+				for (int i = rhs.length - 1; i >= 0; i--) {
+					nullableSuffix[i] = nullableSuffix[i + 1] && grammar.isNullable(rhs[i]);
+				}
+
+				int state = sources.get(y);
+
+				for (int i = 0; i < rhs.length; i++) {
+					if (!grammar.isTerminal(rhs[i]) && nullableSuffix[i + 1]) {
+						includes[index[state][rhs[i] - terminalCount]].add(y);
+					}
+
+					state = transitions[state][rhs[i]];
+				}
+
+				for (int k = 0; k < reductions[state].length; k++) {
+					if (reductions[state][k] == production) {
+						lookback[state][k].add(y);
+					}
+				}
+			}
+		}
+
+		new Digraph(follow, includes).run();
+
+		BitSet[][] lookaheads = new BitSet[transitions.length][];
+
+		for (int state = 0; state < transitions.length; state++) {
+			lookaheads[state] = new BitSet[reductions[state].length];
+
+			for (int k = 0; k < reductions[state].length; k++) {
+				BitSet terminals = new BitSet(terminalCount);
+
+				if (reductions[state][k] == 0) {
+					terminals.set(grammar.getEnd());
+				}
+
+				for (int i = 0; i < lookback[state][k].size(); i++) {
+					terminals.or(follow[lookback[state][k].get(i)]);
+				}
+
+				lookaheads[state][k] = terminals;
+			}
+		}
+
+		return new LrAutomaton(grammar, transitions, reductions, lookaheads);
+	}
+
+	/**
+	 * Digraph algorithm: extends every set by the union of the sets of the related elements, transitively.
+	 * Elements of a strongly connected component end up with equal sets.
+	 */
+	private static final class Digraph {
+
+		private final BitSet[] sets;
+		private final IntList[] relation;
+		private final int[] depths;
+		private final int[] stack;
+		private int top;
+
+		Digraph(BitSet[] sets, IntList[] relation) {
+			this.sets = sets;
+			this.relation = relation;
+			this.depths = new int[sets.length];
+			this.stack = new int[sets.length];
+		}
+
+		void run() {
+			for (int x = 0; x < sets.length; x++) {
+				if (depths[x] == 0) {
+					traverse(x);
+				}
+			}
+		}
+
+		private void traverse(int x) {
+			stack[top++] = x;
+			int depth = top;
+			depths[x] = depth;
+
+			for (int i = 0; i < relation[x].size(); i++) {
+				int y = relation[x].get(i);
+
+				if (depths[y] == 0) {
+					traverse(y);
+				}
+
+				depths[x] = Math.min(depths[x], depths[y]);
+				sets[x].or(sets[y]);
+			}
+
+			if (depths[x] == depth) {
+				int member;
+
+				do {
+					member = stack[--top];
+					depths[member] = Integer.MAX_VALUE;
+
+					if (member != x) {
+						sets[member] = (BitSet) sets[x].clone();
+					}
+				} while (member != x);
+			}
+		}
+	}
+}
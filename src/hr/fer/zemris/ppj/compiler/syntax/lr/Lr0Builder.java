@@ -0,0 +1,164 @@
+package hr.fer.zemris.ppj.compiler.syntax.lr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import hr.fer.zemris.ppj.compiler.syntax.grammar.Grammar;
+
+/**
+ * Builds the <i>LR(0)</i> automaton of the grammar. States are identified by their kernels, and the transitions
+ * of a state are explored in order of the symbols, so the numbering of the states is deterministic.
+ *
+ * @author fiilip
+ *
+ */
+final class Lr0Builder {
+
+	private final Grammar grammar;
+	private final LrItems items;
+
+	/**
+	 * state -> symbol -> state, or <code>-1</code>
+	 */
+	private final List<int[]> transitions = new ArrayList<>();
+
+	/**
+	 * state -> productions reduced in the state
+	 */
+	private final List<int[]> reductions = new ArrayList<>();
+
+	Lr0Builder(Grammar grammar) {
+		this.grammar = grammar;
+		this.items = new LrItems(grammar);
+	}
+
+	/**
+	 * Builds the states reachable from the start state.
+	 *
+	 * @return This builder.
+	 */
+	Lr0Builder build() {
+		Map<Kernel, Integer> ids = new HashMap<>();
+		List<int[]> kernels = new ArrayList<>();
+		int symbolCount = grammar.getSymbolCount();
+
+		Kernel start = new Kernel(new int[] { items.start(0) });
+		ids.put(start, 0);
+		kernels.add(start.items);
+
+		boolean[] expanded = new boolean[grammar.getNonterminalCount()];
+		IntList[] buckets = new IntList[symbolCount];
+
+		for (int state = 0; state < kernels.size(); state++) {
+			int[] closure = closure(kernels.get(state), expanded);
+			int[] row = new int[symbolCount];
+			Arrays.fill(row, -1);
+			IntList reduced = new IntList();
+
+			for (int item : closure) {
+				int next = items.next(item);
+
+				if (next < 0) {
+					reduced.add(items.production(item));
+				} else {
+					if (buckets[next] == null) {
+						buckets[next] = new IntList();
+					}
+					buckets[next].add(item + 1);
+				}
+			}
+
+			for (int symbol = 0; symbol < symbolCount; symbol++) {
+				if (buckets[symbol] == null || buckets[symbol].size() == 0) {
+					continue;
+				}
+
+				int[] kernel = buckets[symbol].toArray();
+				Arrays.sort(kernel);
+				buckets[symbol].clear();
+
+				Kernel key = new Kernel(kernel);
+				Integer target = ids.get(key);
+
+				if (target == null) {
+					target = kernels.size();
+					ids.put(key, target);
+					kernels.add(kernel);
+				}
+
+				row[symbol] = target;
+			}
+
+			transitions.add(row);
+			reductions.add(reduced.toArray());
+		}
+
+		return this;
+	}
+
+	/**
+	 * Computes the closure of the kernel.
+	 *
+	 * @param kernel Kernel items.
+	 * @param expanded Scratch flags of the expanded nonterminals, cleared on return.
+	 * @return Kernel items followed by the items added by the closure.
+	 */
+	private int[] closure(int[] kernel, boolean[] expanded) {
+		IntList closure = new IntList();
+		int terminalCount = grammar.getTerminalCount();
+
+		for (int item : kernel) {
+			closure.add(item);
+		}
+
+		for (int i = 0; i < closure.size(); i++) {
+			int next = items.next(closure.get(i));
+
+			if (next >= terminalCount && !expanded[next - terminalCount]) {
+				expanded[next - terminalCount] = true;
+
+				for (int production : grammar.getProductions(next)) {
+					closure.add(items.start(production));
+				}
+			}
+		}
+
+		Arrays.fill(expanded, false);
+		return closure.toArray();
+	}
+
+	int[][] getTransitions() {
+		return transitions.toArray(new int[0][]);
+	}
+
+	int[][] getReductions() {
+		return reductions.toArray(new int[0][]);
+	}
+
+	/**
+	 * Kernel of a state, as the sorted items.
+	 */
+	private static final class Kernel {
+
+		private final int[] items;
+		private final int hash;
+
+		Kernel(int[] items) {
+			this.items = items;
+			this.hash = Arrays.hashCode(items);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Kernel && Arrays.equals(items, ((Kernel) obj).items);
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package hr.fer.zemris.ppj.compiler.syntax.lr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import hr.fer.zemris.ppj.compiler.syntax.grammar.Grammar;
+
+/**
+ * Builds the canonical <i>LR(1)</i> automaton of the grammar. States are identified by their kernel items
+ * together with the lookaheads of every item, so states with the same items are split whenever their
+ * lookaheads differ. The automaton has no conflicts the <i>LALR(1)</i> merging would introduce, at the cost of
+ * many more states.
+ *
+ * @author fiilip
+ *
+ */
+public final class Lr1Builder {
+
+	private final Grammar grammar;
+	private final LrItems items;
+
+	/**
+	 * Creates a new {@link Lr1Builder}.
+	 *
+	 * @param grammar Grammar.
+	 */
+	public Lr1Builder(Grammar grammar) {
+		this.grammar = Objects.requireNonNull(grammar);
+		this.items = new LrItems(grammar);
+	}
+
+	/**
+	 * Builds the automaton.
+	 *
+	 * @return Canonical <i>LR(1)</i> automaton.
+	 */
+	public LrAutomaton build() {
+		Map<Kernel, Integer> ids = new HashMap<>();
+		List<Kernel> kernels = new ArrayList<>();
+		List<int[]> transitions = new ArrayList<>();
+		List<int[]> reductions = new ArrayList<>();
+		List<BitSet[]> lookaheads = new ArrayList<>();
+		int symbolCount = grammar.getSymbolCount();
+
+		BitSet end = new BitSet();
+		end.set(grammar.getEnd());
+		Kernel start = new Kernel(new int[] { items.start(0) }, new BitSet[] { end });
+		ids.put(start, 0);
+		kernels.add(start);
+
+		BitSet[] closure = new BitSet[items.size()];
+		IntList order = new IntList();
+
+		for (int state = 0; state < kernels.size(); state++) {
+			closure(kernels.get(state), closure, order);
+
+			int[] row = new int[symbolCount];
+			Arrays.fill(row, -1);
+			IntList reduced = new IntList();
+			List<BitSet> reducedLookaheads = new ArrayList<>();
+
+			for (int i = 0; i < order.size(); i++) {
+				int item = order.get(i);
+
+				if (items.next(item) < 0) {
+					reduced.add(items.production(item));
+					reducedLookaheads.add(closure[item]);
+				}
+			}
+
+			for (int symbol = 0; symbol < symbolCount; symbol++) {
+				IntList advanced = new IntList();
+
+				for (int i = 0; i < order.size(); i++) {
+					if (items.next(order.get(i)) == symbol) {
+						advanced.add(order.get(i) + 1);
+					}
+				}
+
+				if (advanced.size() == 0) {
+					continue;
+				}
+
+				int[] kernelItems = advanced.toArray();
+				Arrays.sort(kernelItems);
+				BitSet[] kernelLookaheads = new BitSet[kernelItems.length];
+
+				for (int i = 0; i < kernelItems.length; i++) {
+					kernelLookaheads[i] = closure[kernelItems[i] - 1];
+				}
+
+				Kernel key = new Kernel(kernelItems, kernelLookaheads);
+				Integer target = ids.get(key);
+
+				if (target == null) {
+					target = kernels.size();
+					ids.put(key, target);
+					kernels.add(key);
+				}
+
+				row[symbol] = target;
+			}
+
+			for (int i = 0; i < order.size(); i++) {
+				closure[order.get(i)] = null;
+			}
+
+			transitions.add(row);
+			reductions.add(reduced.toArray());
+			lookaheads.add(reducedLookaheads.toArray(new BitSet[0]));
+		}
+
+		return new LrAutomaton(grammar, transitions.toArray(new int[0][]), reductions.toArray(new int[0][]),
+				lookaheads.toArray(new BitSet[0][]));
+	}
+
+	/**
+	 * Computes the closure of the kernel, propagating the lookaheads until they don't change.
+	 *
+	 * @param kernel Kernel items with their lookaheads.
+	 * @param closure item -> lookaheads, filled by this method for the items of the closure.
+	 * @param order Items of the closure in order they are added, filled by this method.
+	 */
+	private void closure(Kernel kernel, BitSet[] closure, IntList order) {
+		order.clear();
+		IntList work = new IntList();
+		boolean[] queued = new boolean[closure.length];
+
+		for (int i = 0; i < kernel.items.length; i++) {
+			closure[kernel.items[i]] = (BitSet) kernel.lookaheads[i].clone();
+			order.add(kernel.items[i]);
+			work.add(kernel.items[i]);
+			queued[kernel.items[i]] = true;
+		}
+
+		for (int w = 0; w < work.size(); w++) {
+			int item = work.get(w);
+			queued[item] = false;
+			int next = items.next(item);
+
+			if (next < 0 || grammar.isTerminal(next)) {
+				continue;
+			}
+
+			BitSet first = new BitSet();
+			if (grammar.addFirst(grammar.getRhs(items.production(item)), items.dot(item) + 1, first)) {
+				first.or(closure[item]);
+			}
+
+			for (int production : grammar.getProductions(next)) {
+				int added = items.start(production);
+
+				if (closure[added] == null) {
+					closure[added] = new BitSet();
+					order.add(added);
+				}
+
+				int before = closure[added].cardinality();
+				closure[added].or(first);
+
+				if ((closure[added].cardinality() != before || before == 0) && !queued[added]) {
+					queued[added] = true;
+					work.add(added);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Kernel of a state, as the sorted items and their lookaheads.
+	 */
+	private static final class Kernel {
+
+		private final int[] items;
+		private final BitSet[] lookaheads;
+		private final int hash;
+
+		Kernel(int[] items, BitSet[] lookaheads) {
+			this.items = items;
+			this.lookaheads = lookaheads;
+			this.hash = 31 * Arrays.hashCode(items) + Arrays.hashCode(lookaheads);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Kernel)) {
+				return false;
+			}
+
+			Kernel other = (Kernel) obj;
+			return Arrays.equals(items, other.items) && Arrays.equals(lookaheads, other.lookaheads);
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package hr.fer.zemris.ppj.compiler.syntax.lr;
+
+import java.util.BitSet;
+import java.util.Objects;
+
+import hr.fer.zemris.ppj.compiler.syntax.grammar.Grammar;
+
+/**
+ * Characteristic automaton of the <b>LR</b> parser: the transitions between the states on the symbols, and the
+ * productions reduced in every state, with the lookahead terminals of each reduction.<br>
+ *
+ * State <code>0</code> is the start state. Both the <i>LALR(1)</i> automaton built by the {@link LalrLookaheads}
+ * and the canonical <i>LR(1)</i> automaton built by the {@link Lr1Builder} have this form.
+ *
+ * @author fiilip
+ *
+ */
+public final class LrAutomaton {
+
+	private final Grammar grammar;
+
+	/**
+	 * state -> symbol -> state, or <code>-1</code>
+	 */
+	private final int[][] transitions;
+
+	/**
+	 * state -> productions reduced in the state
+	 */
+	private final int[][] reductions;
+
+	/**
+	 * state -> reduction -> lookahead terminals
+	 */
+	private final BitSet[][] lookaheads;
+
+	/**
+	 * Creates a new {@link LrAutomaton}.
+	 *
+	 * @param grammar Grammar.
+	 * @param transitions Transitions of every state.
+	 * @param reductions Productions reduced in every state.
+	 * @param lookaheads Lookahead terminals of every reduction.
+	 */
+	LrAutomaton(Grammar grammar, int[][] transitions, int[][] reductions, BitSet[][] lookaheads) {
+		this.grammar = Objects.requireNonNull(grammar);
+		this.transitions = Objects.requireNonNull(transitions);
+		this.reductions = Objects.requireNonNull(reductions);
+		this.lookaheads = Objects.requireNonNull(lookaheads);
+	}
+
+	public Grammar getGrammar() {
+		return grammar;
+	}
+
+	/**
+	 * Gets the number of the states.
+	 *
+	 * @return Number of states.
+	 */
+	public int getStateCount() {
+		return transitions.length;
+	}
+
+	/**
+	 * Gets the state reached from the state on the symbol.
+	 *
+	 * @param state State.
+	 * @param symbol Terminal or nonterminal.
+	 * @return Next state, or <code>-1</code> if there's no transition.
+	 */
+	public int getTransition(int state, int symbol) {
+		return transitions[state][symbol];
+	}
+
+	/**
+	 * Gets the productions reduced in the state. The array must not be modified.
+	 *
+	 * @param state State.
+	 * @return Productions.
+	 */
+	public int[] getReductions(int state) {
+		return reductions[state];
+	}
+
+	/**
+	 * Gets the lookahead terminals of the reduction.
+	 *
+	 * @param state State.
+	 * @param reduction Index of the reduction in {@link #getReductions(int)}.
+	 * @return Lookahead terminals.
+	 */
+	public BitSet getLookaheads(int state, int reduction) {
+		return lookaheads[state][reduction];
+	}
+}
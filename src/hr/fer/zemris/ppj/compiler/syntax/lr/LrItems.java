@@ -0,0 +1,94 @@
+package hr.fer.zemris.ppj.compiler.syntax.lr;
+
+import hr.fer.zemris.ppj.compiler.syntax.grammar.Grammar;
+
+/**
+ * Dense numbering of the <i>LR(0)</i> items of the grammar. Items of a production are numbered consecutively
+ * by the position of the dot, so advancing the dot is incrementing the item.
+ *
+ * @author fiilip
+ *
+ */
+final class LrItems {
+
+	private final Grammar grammar;
+
+	/**
+	 * production -> item with the dot at the start
+	 */
+	private final int[] first;
+
+	/**
+	 * item -> production
+	 */
+	private final int[] productions;
+
+	/**
+	 * item -> position of the dot
+	 */
+	private final int[] dots;
+
+	/**
+	 * Numbers the items of the grammar.
+	 *
+	 * @param grammar Grammar.
+	 */
+	LrItems(Grammar grammar) {
+		this.grammar = grammar;
+		this.first = new int[grammar.getProductionCount()];
+
+		int count = 0;
+		for (int p = 0; p < first.length; p++) {
+			first[p] = count;
+			count += grammar.getRhs(p).length + 1;
+		}
+
+		this.productions = new int[count];
+		this.dots = new int[count];
+
+		for (int p = 0; p < first.length; p++) {
+			for (int dot = 0; dot <= grammar.getRhs(p).length; dot++) {
+				productions[first[p] + dot] = p;
+				dots[first[p] + dot] = dot;
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of the items.
+	 *
+	 * @return Number of items.
+	 */
+	int size() {
+		return productions.length;
+	}
+
+	/**
+	 * Gets the item of the production with the dot at the start.
+	 *
+	 * @param production Production.
+	 * @return Item.
+	 */
+	int start(int production) {
+		return first[production];
+	}
+
+	int production(int item) {
+		return productions[item];
+	}
+
+	int dot(int item) {
+		return dots[item];
+	}
+
+	/**
+	 * Gets the symbol after the dot.
+	 *
+	 * @param item Item.
+	 * @return Symbol after the dot, or <code>-1</code> if the dot is at the end.
+	 */
+	int next(int item) {
+		int[] rhs = grammar.getRhs(productions[item]);
+		return dots[item] < rhs.length ? rhs[dots[item]] : -1;
+	}
+}
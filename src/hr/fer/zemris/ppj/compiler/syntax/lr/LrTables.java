@@ -0,0 +1,328 @@
+package hr.fer.zemris.ppj.compiler.syntax.lr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+
+import hr.fer.zemris.ppj.compiler.syntax.exec.SynTables;
+import hr.fer.zemris.ppj.compiler.syntax.grammar.Grammar;
+
+/**
+ * Dense action and goto tables of the {@link LrAutomaton}, and their packing into the {@link SynTables}.<br>
+ *
+ * Conflicts are resolved the usual way: a shift/reduce conflict in favour of the shift, and a reduce/reduce
+ * conflict in favour of the production defined earlier. Every resolved conflict is recorded, so that the generator
+ * can report it.
+ *
+ * @author fiilip
+ *
+ */
+public final class LrTables {
+
+	private final Grammar grammar;
+
+	/**
+	 * state -> terminal -> encoded action
+	 */
+	private final int[][] actions;
+
+	/**
+	 * state -> nonterminal - terminalCount -> state, or <code>-1</code>
+	 */
+	private final int[][] gotos;
+
+	private int shiftReduce;
+	private int reduceReduce;
+
+	/**
+	 * Descriptions of the resolved conflicts.
+	 */
+	private final List<String> conflicts = new ArrayList<>();
+
+	/**
+	 * Fills the tables of the automaton.
+	 *
+	 * @param automaton Automaton.
+	 */
+	public LrTables(LrAutomaton automaton) {
+		this.grammar = automaton.getGrammar();
+		int stateCount = automaton.getStateCount();
+		int terminalCount = grammar.getTerminalCount();
+		int nonterminalCount = grammar.getNonterminalCount();
+		this.actions = new int[stateCount][terminalCount];
+		this.gotos = new int[stateCount][nonterminalCount];
+
+		for (int state = 0; state < stateCount; state++) {
+			for (int terminal = 0; terminal < terminalCount; terminal++) {
+				int target = automaton.getTransition(state, terminal);
+				actions[state][terminal] = target < 0 ? SynTables.ERROR : SynTables.shift(target);
+			}
+
+			for (int n = 0; n < nonterminalCount; n++) {
+				gotos[state][n] = automaton.getTransition(state, terminalCount + n);
+			}
+
+			int[] reductions = automaton.getReductions(state);
+
+			for (int k = 0; k < reductions.length; k++) {
+				BitSet lookaheads = automaton.getLookaheads(state, k);
+
+				for (int t = lookaheads.nextSetBit(0); t >= 0; t = lookaheads.nextSetBit(t + 1)) {
+					reduce(state, t, reductions[k]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sets the reduce action, resolving the conflict with the action already set.
+	 *
+	 * @param state State.
+	 * @param terminal Lookahead terminal.
+	 * @param production Reduced production.
+	 */
+	private void reduce(int state, int terminal, int production) {
+		int action = actions[state][terminal];
+
+		if (action == SynTables.ERROR) {
+			actions[state][terminal] = SynTables.reduce(production);
+		} else if (action > 0) {
+			shiftReduce++;
+			conflicts.add(String.format("State %d on %s: shift/reduce conflict with %s, resolved as shift.", state,
+					grammar.getName(terminal), grammar.describe(production)));
+		} else {
+			int other = -action - 1;
+			reduceReduce++;
+			conflicts.add(String.format("State %d on %s: reduce/reduce conflict between %s and %s, resolved as %s.",
+					state, grammar.getName(terminal), grammar.describe(other), grammar.describe(production),
+					grammar.describe(Math.min(other, production))));
+
+			actions[state][terminal] = SynTables.reduce(Math.min(other, production));
+		}
+	}
+
+	/**
+	 * Packs the tables. The default action of a state is its most frequent reduction, which also replaces the errors
+	 * of the state; the error is then detected in the state uncovered by the reduction, before any more input is
+	 * shifted. The augmented production is never a default, so that the input is accepted only at its end.
+	 *
+	 * @return Packed tables.
+	 */
+	public SynTables pack() {
+		int stateCount = actions.length;
+		int terminalCount = grammar.getTerminalCount();
+		int nonterminalCount = grammar.getNonterminalCount();
+		int[] defaults = new int[stateCount];
+		List<int[]> rows = new ArrayList<>();
+
+		for (int state = 0; state < stateCount; state++) {
+			defaults[state] = mostFrequent(actions[state], SynTables.ERROR, SynTables.reduce(0));
+			rows.add(entries(actions[state], defaults[state], SynTables.ERROR, grammar::isSync));
+		}
+
+		Comb actionComb = new Comb(terminalCount);
+		int[] actionBase = actionComb.pack(rows);
+
+		int[] gotoDefaults = new int[nonterminalCount];
+		List<int[]> columns = new ArrayList<>();
+
+		for (int n = 0; n < nonterminalCount; n++) {
+			int[] column = new int[stateCount];
+
+			for (int state = 0; state < stateCount; state++) {
+				column[state] = gotos[state][n];
+			}
+
+			gotoDefaults[n] = Math.max(0, mostFrequent(column, -1, -1));
+			columns.add(entries(column, gotoDefaults[n], -1, index -> false));
+		}
+
+		Comb gotoComb = new Comb(stateCount);
+		int[] gotoBase = gotoComb.pack(columns);
+
+		return new SynTables(terminalCount, defaults, actionBase, actionComb.getCheck(), actionComb.getNext(),
+				gotoDefaults, gotoBase, gotoComb.getCheck(), gotoComb.getNext());
+	}
+
+	/**
+	 * Finds the most frequent value of the row, the smallest one in case of a tie.
+	 *
+	 * @param row Row.
+	 * @param none Value returned if there are no candidates.
+	 * @param ignored Value not considered, besides the <code>none</code>; with the {@link SynTables#ERROR} as the
+	 * <code>none</code>, only the reductions are considered.
+	 * @return Most frequent value.
+	 */
+	private static int mostFrequent(int[] row, int none, int ignored) {
+		int[] sorted = Arrays.stream(row).filter(value -> value != none && value != ignored && (none < 0 || value < 0))
+				.sorted().toArray();
+		int best = none;
+		int bestCount = 0;
+
+		for (int i = 0, j; i < sorted.length; i = j) {
+			for (j = i; j < sorted.length && sorted[j] == sorted[i]; j++) {
+				// counting equal values
+			}
+
+			if (j - i > bestCount) {
+				best = sorted[i];
+				bestCount = j - i;
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * Lists the entries of the row that differ from its default. Entries of the synchronization terminals are kept
+	 * even if they are equal to the default, since the error recovery looks for the states that really have an action
+	 * on them.
+	 *
+	 * @param row Row.
+	 * @param defaultValue Default of the row.
+	 * @param empty Value of the empty entries, which take the default.
+	 * @param kept Indices whose entries are kept even if equal to the default.
+	 * @return Pairs of the index and the value.
+	 */
+	private static int[] entries(int[] row, int defaultValue, int empty, IntPredicate kept) {
+		IntList entries = new IntList();
+
+		for (int i = 0; i < row.length; i++) {
+			if (row[i] != empty && (row[i] != defaultValue || kept.test(i))) {
+				entries.add(i);
+				entries.add(row[i]);
+			}
+		}
+
+		return entries.toArray();
+	}
+
+	public int getStateCount() {
+		return actions.length;
+	}
+
+	public int getShiftReduceConflicts() {
+		return shiftReduce;
+	}
+
+	public int getReduceReduceConflicts() {
+		return reduceReduce;
+	}
+
+	/**
+	 * Gets the descriptions of the resolved conflicts.
+	 *
+	 * @return Conflicts, in order they were resolved.
+	 */
+	public List<String> getConflicts() {
+		return Collections.unmodifiableList(conflicts);
+	}
+
+	/**
+	 * Row displacement packing: every row is placed at the lowest offset where its entries don't collide with the
+	 * entries placed before, the rows with the most entries first.
+	 */
+	private static final class Comb {
+
+		/**
+		 * Width of a row.
+		 */
+		private final int width;
+
+		private int[] check = new int[0];
+		private int[] next = new int[0];
+		private int length;
+
+		Comb(int width) {
+			this.width = width;
+		}
+
+		/**
+		 * Places the rows.
+		 *
+		 * @param rows Entries of every row, as the pairs of the index and the value.
+		 * @return Offset of every row.
+		 */
+		int[] pack(List<int[]> rows) {
+			Integer[] order = new Integer[rows.size()];
+			for (int i = 0; i < order.length; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, (a, b) -> Integer.compare(rows.get(b).length, rows.get(a).length));
+
+			int[] bases = new int[rows.size()];
+			int lowest = 0;
+
+			for (int row : order) {
+				int[] entries = Objects.requireNonNull(rows.get(row));
+
+				if (entries.length == 0) {
+					continue;
+				}
+
+				int base = Math.max(0, lowest - entries[0]);
+				while (!fits(entries, base)) {
+					base++;
+				}
+
+				ensure(base + width);
+				for (int i = 0; i < entries.length; i += 2) {
+					check[base + entries[i]] = row;
+					next[base + entries[i]] = entries[i + 1];
+				}
+
+				bases[row] = base;
+				while (lowest < length && check[lowest] >= 0) {
+					lowest++;
+				}
+			}
+
+			ensure(width);
+			return bases;
+		}
+
+		private boolean fits(int[] entries, int base) {
+			for (int i = 0; i < entries.length; i += 2) {
+				int slot = base + entries[i];
+
+				if (slot < length && check[slot] >= 0) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		/**
+		 * Grows the arrays to the length, filling the new entries as empty.
+		 *
+		 * @param required Required length.
+		 */
+		private void ensure(int required) {
+			if (required <= length) {
+				return;
+			}
+
+			if (required > check.length) {
+				int capacity = Math.max(required, check.length << 1);
+				check = Arrays.copyOf(check, capacity);
+				next = Arrays.copyOf(next, capacity);
+				Arrays.fill(check, length, capacity, -1);
+			}
+
+			length = required;
+		}
+
+		int[] getCheck() {
+			return Arrays.copyOf(check, length);
+		}
+
+		int[] getNext() {
+			return Arrays.copyOf(next, length);
+		}
+	}
+}
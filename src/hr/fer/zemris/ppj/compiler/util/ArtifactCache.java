@@ -0,0 +1,291 @@
+package hr.fer.zemris.ppj.compiler.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Content addressed cache of the generated files.<br>
+ *
+ * Every entry is a single file named <code>prefix + key + suffix</code>, where the key is a hash of
+ * everything the content of the file depends on (see {@link #key(byte[]...)}). Entries are written to a
+ * temporary file first and then renamed, so a concurrent reader either sees the whole entry or none at all.<br>
+ *
+ * The least recently used entries are evicted once there are more than the allowed number of entries,
+ * or they take more than the allowed number of bytes. Modification time of an entry is used as the
+ * time of its last use. An instance may be used by many threads at once.
+ *
+ * @author fiilip
+ *
+ */
+public class ArtifactCache {
+
+	/**
+	 * Directory of the cache.
+	 */
+	private final Path directory;
+
+	/**
+	 * Prefix of the entry names.
+	 */
+	private final String prefix;
+
+	/**
+	 * Suffix of the entry names.
+	 */
+	private final String suffix;
+
+	/**
+	 * Maximal number of entries.
+	 */
+	private final int maxEntries;
+
+	/**
+	 * Maximal total size of the entries, in bytes.
+	 */
+	private final long maxBytes;
+
+	private final AtomicInteger hits = new AtomicInteger();
+	private final AtomicInteger misses = new AtomicInteger();
+	private final AtomicInteger evictions = new AtomicInteger();
+
+	/**
+	 * Creates a new {@link ArtifactCache}.
+	 *
+	 * @param directory		Directory of the cache.
+	 * @param prefix		Prefix of the entry names, distinguishing the entries of this cache from the other files.
+	 * @param suffix		Suffix of the entry names.
+	 * @param maxEntries	Maximal number of entries.
+	 * @param maxBytes		Maximal total size of the entries, in bytes.
+	 */
+	public ArtifactCache(Path directory, String prefix, String suffix, int maxEntries, long maxBytes) {
+		this.directory = Objects.requireNonNull(directory);
+		this.prefix = Objects.requireNonNull(prefix);
+		this.suffix = Objects.requireNonNull(suffix);
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Creates the cache of the files kept along with the entries of this cache, under the same keys. It's in the 
+	 * same directory and has the same limits, but its entries are evicted on their own.
+	 *
+	 * @param suffix	Suffix of the entry names, different from the suffix of this cache.
+	 * @return			Companion cache.
+	 */
+	public ArtifactCache companion(String suffix) {
+		if (suffix.equals(this.suffix)) {
+			throw new IllegalArgumentException(String.format("Companion cache needs a suffix other than %s.", suffix));
+		}
+
+		return new ArtifactCache(directory, prefix, suffix, maxEntries, maxBytes);
+	}
+
+	/**
+	 * Computes the key of the content that depends on the given parts.
+	 *
+	 * @param parts	Parts the content depends on, eg. version of the generator and its input.
+	 * @return		Hexadecimal <i>SHA-256</i> hash of the parts.
+	 */
+	public static String key(byte[]... parts) {
+		MessageDigest digest;
+
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+
+		for (byte[] part : parts) {
+			// length first, so that the parts can't be shifted into each other
+			digest.update(Integer.toString(part.length).getBytes(StandardCharsets.US_ASCII));
+			digest.update((byte) 0);
+			digest.update(part);
+		}
+
+		StringBuilder key = new StringBuilder();
+
+		for (byte b : digest.digest()) {
+			key.append(String.format("%02x", b));
+		}
+
+		return key.toString();
+	}
+
+	/**
+	 * Looks up the entry with the given key, marking it as used.
+	 *
+	 * @param key	Key of the entry.
+	 * @return		Path of the entry, or <code>null</code> if there is no such entry.
+	 */
+	public Path lookup(String key) {
+		Path entry = path(key);
+
+		try {
+			Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+			hits.incrementAndGet();
+			return entry;
+		} catch (IOException e) {
+			// missing or just evicted by a concurrent build
+			misses.incrementAndGet();
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the given file as the entry with the given key, and evicts the old entries.
+	 *
+	 * @param key	Key of the entry.
+	 * @param file	File with the content of the entry. It's left unchanged.
+	 * @return		Path of the entry.
+	 * @throws IOException
+	 */
+	public Path store(String key, Path file) throws IOException {
+		Files.createDirectories(directory);
+		Path entry = path(key);
+		Path temporary = Files.createTempFile(directory, prefix, ".tmp");
+
+		try {
+			Files.copy(file, temporary, StandardCopyOption.REPLACE_EXISTING);
+			move(temporary, entry);
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+
+		evict(entry);
+		return entry;
+	}
+
+	/**
+	 * Copies the file to the <code>target</code> atomically: through a temporary file in the target's
+	 * directory that is then renamed.
+	 *
+	 * @param file		File to be copied.
+	 * @param target	Target path.
+	 * @throws IOException
+	 */
+	public static void copyAtomically(Path file, Path target) throws IOException {
+		Path parent = target.toAbsolutePath().getParent();
+		Path temporary = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+
+		try {
+			Files.copy(file, temporary, StandardCopyOption.REPLACE_EXISTING);
+			move(temporary, target);
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	/**
+	 * Evicts the least recently used entries over the limits, never evicting the given entry.
+	 *
+	 * @param keep	Entry that is kept.
+	 * @throws IOException
+	 */
+	private void evict(Path keep) throws IOException {
+		List<Path> entries = new ArrayList<>();
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+			for (Path entry : stream) {
+				entries.add(entry);
+			}
+		}
+
+		// most recently used first
+		List<long[]> info = new ArrayList<>();
+
+		for (int i = 0; i < entries.size(); i ++) {
+			try {
+				info.add(new long[] { i, Files.getLastModifiedTime(entries.get(i)).toMillis(), Files.size(entries.get(i)) });
+			} catch (NoSuchFileException e) {
+				// evicted concurrently
+			}
+		}
+
+		info.sort(Comparator.comparingLong((long[] entry) -> entry[1]).reversed());
+
+		int count = 0;
+		long bytes = 0;
+
+		for (long[] entry : info) {
+			Path path = entries.get((int) entry[0]);
+			count ++;
+			bytes += entry[2];
+
+			if (!path.equals(keep) && (count > maxEntries || bytes > maxBytes)) {
+				if (Files.deleteIfExists(path)) {
+					evictions.incrementAndGet();
+				}
+
+				count --;
+				bytes -= entry[2];
+			}
+		}
+	}
+
+	/**
+	 * Renames the file, replacing the target atomically if the file system supports it.
+	 *
+	 * @param source	File to be renamed.
+	 * @param target	Target path.
+	 * @throws IOException
+	 */
+	public static void move(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Gets the path of the entry with the given key.
+	 *
+	 * @param key	Key of the entry.
+	 * @return		Path of the entry.
+	 */
+	public Path path(String key) {
+		return directory.resolve(prefix + key + suffix);
+	}
+
+	/**
+	 * Gets the number of lookups that found the entry.
+	 *
+	 * @return	Number of hits.
+	 */
+	public int getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Gets the number of lookups that didn't find the entry.
+	 *
+	 * @return	Number of misses.
+	 */
+	public int getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Gets the number of entries evicted.
+	 *
+	 * @return	Number of evictions.
+	 */
+	public int getEvictions() {
+		return evictions.get();
+	}
+}
@@ -0,0 +1,287 @@
+package hr.fer.zemris.ppj.compiler.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+
+/**
+ * Minimal streaming writer of the <b>JSON</b> documents.<br>
+ *
+ * Used for the machine-readable reports produced by generators and analyzers.
+ * Values are written in the order the methods are called; the writer only takes
+ * care of separators, indentation and escaping.
+ *
+ * @author fiilip
+ *
+ */
+public class JsonWriter implements Closeable {
+
+	/**
+	 * String used to indent a single nesting level.
+	 */
+	private static final String INDENT = "  ";
+
+	/**
+	 * Underlying writer.
+	 */
+	private final Writer writer;
+
+	/**
+	 * For every open object or array, whether or not it is still empty.
+	 */
+	private final Deque<Boolean> empty;
+
+	/**
+	 * Whether or not the last thing written was a name of the object member.
+	 */
+	private boolean afterName;
+
+	/**
+	 * Creates a new {@link JsonWriter}.
+	 *
+	 * @param writer Writer the document is written to.
+	 */
+	public JsonWriter(Writer writer) {
+		this.writer = Objects.requireNonNull(writer);
+		this.empty = new ArrayDeque<>();
+	}
+
+	/**
+	 * Begins a new object.
+	 *
+	 * @return This writer.
+	 * @throws IOException
+	 */
+	public JsonWriter beginObject() throws IOException {
+		return open('{');
+	}
+
+	/**
+	 * Ends the current object.
+	 *
+	 * @return This writer.
+	 * @throws IOException
+	 */
+	public JsonWriter endObject() throws IOException {
+		return close('}');
+	}
+
+	/**
+	 * Begins a new array.
+	 *
+	 * @return This writer.
+	 * @throws IOException
+	 */
+	public JsonWriter beginArray() throws IOException {
+		return open('[');
+	}
+
+	/**
+	 * Ends the current array.
+	 *
+	 * @return This writer.
+	 * @throws IOException
+	 */
+	public JsonWriter endArray() throws IOException {
+		return close(']');
+	}
+
+	/**
+	 * Writes the name of the next object member.
+	 *
+	 * @param name Name of the member.
+	 * @return This writer.
+	 * @throws IOException
+	 */
+	public JsonWriter name(String name) throws IOException {
+		separate();
+		string(name);
+		writer.write(": ");
+		afterName = true;
+		return this;
+	}
+
+	/**
+	 * Writes a string value.
+	 *
+	 * @param value String value.
+	 * @return This writer.
+	 * @throws IOException
+	 */
+	public JsonWriter value(String value) throws IOException {
+		separate();
+
+		if (value == null) {
+			writer.write("null");
+		} else {
+			string(value);
+		}
+		return this;
+	}
+
+	/**
+	 * Writes a numeric value.
+	 *
+	 * @param value Numeric value.
+	 * @return This writer.
+	 * @throws IOException
+	 */
+	public JsonWriter value(long value) throws IOException {
+		separate();
+		writer.write(Long.toString(value));
+		return this;
+	}
+
+	/**
+	 * Writes a boolean value.
+	 *
+	 * @param value Boolean value.
+	 * @return This writer.
+	 * @throws IOException
+	 */
+	public JsonWriter value(boolean value) throws IOException {
+		separate();
+		writer.write(Boolean.toString(value));
+		return this;
+	}
+
+	/**
+	 * Writes a member with a string value.
+	 *
+	 * @param name Name of the member.
+	 * @param value String value.
+	 * @return This writer.
+	 * @throws IOException
+	 */
+	public JsonWriter field(String name, String value) throws IOException {
+		return name(name).value(value);
+	}
+
+	/**
+	 * Writes a member with a numeric value.
+	 *
+	 * @param name Name of the member.
+	 * @param value Numeric value.
+	 * @return This writer.
+	 * @throws IOException
+	 */
+	public JsonWriter field(String name, long value) throws IOException {
+		return name(name).value(value);
+	}
+
+	/**
+	 * Writes a member with a boolean value.
+	 *
+	 * @param name Name of the member.
+	 * @param value Boolean value.
+	 * @return This writer.
+	 * @throws IOException
+	 */
+	public JsonWriter field(String name, boolean value) throws IOException {
+		return name(name).value(value);
+	}
+
+	@Override
+	public void close() throws IOException {
+		writer.write(System.lineSeparator());
+		writer.close();
+	}
+
+	/**
+	 * Opens a new object or array.
+	 *
+	 * @param bracket Opening bracket.
+	 * @return This writer.
+	 * @throws IOException
+	 */
+	private JsonWriter open(char bracket) throws IOException {
+		separate();
+		writer.write(bracket);
+		empty.push(true);
+		return this;
+	}
+
+	/**
+	 * Closes the current object or array.
+	 *
+	 * @param bracket Closing bracket.
+	 * @return This writer.
+	 * @throws IOException
+	 */
+	private JsonWriter close(char bracket) throws IOException {
+		if (!empty.pop()) {
+			newLine();
+		}
+		writer.write(bracket);
+		return this;
+	}
+
+	/**
+	 * Writes the separator and the indentation needed before the next value.
+	 *
+	 * @throws IOException
+	 */
+	private void separate() throws IOException {
+		if (afterName) {
+			afterName = false;
+			return;
+		}
+
+		if (empty.isEmpty()) {
+			return;
+		}
+
+		if (!empty.peek()) {
+			writer.write(',');
+		}
+		empty.pop();
+		empty.push(false);
+		newLine();
+	}
+
+	/**
+	 * Writes a new line indented to the current nesting level.
+	 *
+	 * @throws IOException
+	 */
+	private void newLine() throws IOException {
+		writer.write(System.lineSeparator());
+
+		for (int i = 0; i < empty.size(); i++) {
+			writer.write(INDENT);
+		}
+	}
+
+	/**
+	 * Writes an escaped, quoted string.
+	 *
+	 * @param value String to be written.
+	 * @throws IOException
+	 */
+	private void string(String value) throws IOException {
+		writer.write('"');
+
+		for (int i = 0, len = value.length(); i < len; i++) {
+			char c = value.charAt(i);
+
+			switch (c) {
+				case '"': writer.write("\\\""); break;
+				case '\\': writer.write("\\\\"); break;
+				case '\n': writer.write("\\n"); break;
+				case '\r': writer.write("\\r"); break;
+				case '\t': writer.write("\\t"); break;
+				default:
+					if (c < 0x20) {
+						writer.write(String.format("\\u%04x", (int) c));
+					} else {
+						writer.write(c);
+					}
+			}
+		}
+
+		writer.write('"');
+	}
+}
@@ -1,5 +1,6 @@
 package hr.fer.zemris.ppj.compiler.util;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -9,8 +10,15 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import hr.fer.zemris.ppj.compiler.events.InputLoadEvent;
 
 /**
  * A class used to manage input and output streams.<br>
@@ -77,6 +85,34 @@ public class StreamManager {
 		return new ObjectInputStream(new FileInputStream(new File(fileName)));
 	}
 	
+	/**
+	 * Gets the {@link FileChannel} used to write a binary artifact, truncating the existing file.
+	 * 
+	 * @param fileName Name of the artifact file.
+	 * @return {@link FileChannel} open for writing.
+	 * @throws IOException 
+	 */
+	public FileChannel getOutputChannel(String fileName) throws IOException {
+		return FileChannel.open(Paths.get(fileName), 
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+	}
+	
+	/**
+	 * Maps the entire binary artifact to memory, read only.<br>
+	 * 
+	 * The mapping stays valid after this method returns, and the pages of the
+	 * file are only read once they are accessed.
+	 * 
+	 * @param fileName Name of the artifact file.
+	 * @return Buffer mapped to the content of the file.
+	 * @throws IOException 
+	 */
+	public MappedByteBuffer map(String fileName) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+	
 	/**
 	 * Reads entire content of the <code>istream</code> to memory as {@link String}.
 	 * 
@@ -85,16 +121,28 @@ public class StreamManager {
 	 * @throws IOException 
 	 */
 	public String readFromStream(InputStream istream) throws IOException {
-		StringBuilder sb = new StringBuilder();
+		InputLoadEvent event = new InputLoadEvent();
+		event.begin();
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
 		
 		byte[] buffer = new byte[BUFF_CAPACITY];
 		int length;
 		
 		while ((length = istream.read(buffer)) > 0) {
-			sb.append(new String(buffer, 0, length, CS));
+			bytes.write(buffer, 0, length);
+		}
+		
+		// decoded at once, so that a character split by the reads is decoded as a whole
+		String content = bytes.toString(CS);
+		
+		event.end();
+		if (event.shouldCommit()) {
+			event.setSizes(bytes.size(), content.length());
+			event.commit();
 		}
 		
-		return sb.toString();
+		return content;
 	}
 	
 	/**
@@ -126,6 +174,16 @@ public class StreamManager {
 		return String.format("%s/%s", FOLDER, LEX_OBJECTS);
 	}
 
+	/**
+	 * Gets the directory shared by the analyzers and generators, used for caching
+	 * the generated objects.
+	 * 
+	 * @return Path of the directory.
+	 */
+	public static Path getRootDir() {
+		return Paths.get(FOLDER);
+	}
+
 	/**
 	 * Creates a root directory for sub-folders.
 	 * 
@@ -0,0 +1,71 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import hr.fer.zemris.ppj.compiler.util.ArtifactCache;
+
+/**
+ * Tests of the {@link GLA} generating the objects again: from the cache, and incrementally.
+ * 
+ * @author fiilip
+ *
+ */
+class GLATest {
+
+	@TempDir
+	Path directory;
+	
+	private ArtifactCache cache;
+
+	/**
+	 * Rules of the starting state, the second one shadowed by the first. The state stays the same in all
+	 * the definitions, so it's reused by the incremental builds.
+	 */
+	private static final String START_STATE = String.join("\n", 
+			"<S_pocetno>\\_", "{", "-", "}", 
+			"<S_pocetno>-", "{", "MINUS", "}", 
+			"<S_pocetno>-", "{", "SJENA", "}", 
+			"<S_pocetno>a", "{", "IDN", "}", 
+			"<S_pocetno>#", "{", "-", "UDJI_U_STANJE S_drugo", "}");
+	
+	@Test
+	void reusesStatesWithShadowedRulesAfterCacheHit() throws Exception {
+		generate(definitions("b"));
+		generate(definitions("c"));
+		// taken from the cache
+		generate(definitions("b"));
+		generate(definitions("d"));
+		
+		assertEquals(1, cache.getHits());
+		assertEquals(String.join(System.lineSeparator(), "MINUS 1 -", "IDN 1 a", "DRUGI 1 d", ""), 
+				analyze("- a #d"));
+	}
+	
+	private static String definitions(String other) {
+		return String.join("\n", "%X S_pocetno S_drugo", "%L MINUS SJENA IDN DRUGI", START_STATE, 
+				"<S_drugo>" + other, "{", "DRUGI", "}", "");
+	}
+	
+	private void generate(String definitions) {
+		GLA gla = new GLA(new ByteArrayInputStream(definitions.getBytes(StandardCharsets.UTF_8)));
+		if (cache == null) {
+			cache = new ArtifactCache(directory, "lex-", ".bin", 16, 1L << 20);
+		}
+		
+		gla.setCache(cache);
+		gla.generateLA(directory.resolve("lex_objects.bin").toString());
+	}
+	
+	private String analyze(String input) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new LA(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out)
+				.analyze(directory.resolve("lex_objects.bin").toString());
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,102 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of the {@link LA} analyzing the batch files through the cache.
+ * 
+ * @author fiilip
+ *
+ */
+class LATest {
+
+	@TempDir
+	Path directory;
+	
+	private static final String DEFINITIONS = String.join("\n", 
+			"%X S_pocetno", "%L IDN", 
+			"<S_pocetno>\\_", "{", "-", "}", 
+			"<S_pocetno>a|b", "{", "IDN", "}", "");
+	
+	@Test
+	void reportsErrorsOfCachedTokens() throws Exception {
+		Path objects = generate();
+		
+		Path input = directory.resolve("in.txt");
+		Files.write(input, "a ? a".getBytes(StandardCharsets.UTF_8));
+		
+		String missed = analyzeBatch(objects, input, la -> {});
+		
+		// the tokens of the second run come from the cache
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "tokens-*.bin")) {
+			for (Path entry : entries) {
+				Files.write(entry, "cached".getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		String hit = analyzeBatch(objects, input, la -> {});
+		
+		assertTrue(missed.startsWith("Lexical error at line 1"), missed);
+		assertEquals(missed, hit);
+		assertEquals("cached", new String(Files.readAllBytes(Paths.get(input + ".tokens")), StandardCharsets.UTF_8));
+	}
+	
+	@Test
+	void writesSameSymbolsOnRerun() throws Exception {
+		Path objects = generate();
+		
+		Path input = directory.resolve("in.txt");
+		Files.write(input, "a b a".getBytes(StandardCharsets.UTF_8));
+		Path cold = directory.resolve("cold.sym");
+		Path warm = directory.resolve("warm.sym");
+		
+		analyzeBatch(objects, input, la -> intern(la, cold));
+		analyzeBatch(objects, input, la -> intern(la, warm));
+		
+		assertEquals(List.of("0 a", "1 b"), Files.readAllLines(cold, StandardCharsets.UTF_8));
+		assertEquals(Files.readAllLines(cold, StandardCharsets.UTF_8), Files.readAllLines(warm, StandardCharsets.UTF_8));
+	}
+	
+	private static void intern(LA la, Path symbols) {
+		la.setInternedUnits(Set.of("IDN"));
+		la.setSymbolsFile(symbols.toString());
+	}
+	
+	private Path generate() {
+		Path objects = directory.resolve("lex_objects.bin");
+		GLA gla = new GLA(new ByteArrayInputStream(DEFINITIONS.getBytes(StandardCharsets.UTF_8)));
+		gla.setCache(null);
+		gla.generateLA(objects.toString());
+		return objects;
+	}
+	
+	private String analyzeBatch(Path objects, Path input, Consumer<LA> options) {
+		PrintStream stderr = System.err;
+		ByteArrayOutputStream reported = new ByteArrayOutputStream();
+		
+		try {
+			System.setErr(new PrintStream(reported, true, StandardCharsets.UTF_8));
+			LA la = new LA(new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream());
+			la.setCacheDirectory(directory.toString());
+			options.accept(la);
+			la.analyzeBatch(objects.toString(), List.of(input.toString()));
+		} finally {
+			System.setErr(stderr);
+		}
+		
+		return new String(reported.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
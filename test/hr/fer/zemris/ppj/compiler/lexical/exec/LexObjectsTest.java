@@ -0,0 +1,72 @@
+package hr.fer.zemris.ppj.compiler.lexical.exec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexAutomatonMerged;
+import hr.fer.zemris.ppj.compiler.lexical.input.LexicalDefinitionsParser;
+
+/**
+ * Tests of the {@link LexObjects} read from the artifact.
+ *
+ * @author fiilip
+ *
+ */
+class LexObjectsTest {
+
+	private static final String DEFINITIONS = String.join("\n",
+			"%X S_pocetno S_komentar",
+			"%L IDN OTVORI ZATVORI",
+			"<S_pocetno>\\_",
+			"{",
+			"-",
+			"}",
+			"<S_pocetno>a|b",
+			"{",
+			"IDN",
+			"}",
+			"<S_pocetno>#",
+			"{",
+			"OTVORI",
+			"UDJI_U_STANJE S_komentar",
+			"}",
+			"<S_komentar>#",
+			"{",
+			"ZATVORI",
+			"UDJI_U_STANJE S_pocetno",
+			"}",
+			"<S_komentar>a|b",
+			"{",
+			"-",
+			"}",
+			"");
+
+	@Test
+	void readsLexUnitsWithoutDecodingStates() throws IOException {
+		LexicalDefinitionsParser parser = new LexicalDefinitionsParser(
+				new ByteArrayInputStream(DEFINITIONS.getBytes(StandardCharsets.UTF_8)), new LexAutomatonMerged());
+		parser.parse();
+		LexObjects built = LexObjects.build(parser.getStartState(), parser.getStates(), parser.getAutomatonMerged());
+
+		ByteArrayOutputStream artifact = new ByteArrayOutputStream();
+		built.write(Channels.newChannel(artifact));
+		LexObjects read = LexObjects.read(ByteBuffer.wrap(artifact.toByteArray()));
+
+		assertEquals(List.of("IDN", "OTVORI", "ZATVORI"), read.getLexUnits());
+		assertEquals(built.getLexUnits(), read.getLexUnits());
+
+		for (String state : read.getStateNames()) {
+			assertFalse(read.isDecoded(state), state);
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package hr.fer.zemris.ppj.compiler.lexical.input;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexAutomatonMerged;
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexObjects;
+import hr.fer.zemris.ppj.compiler.lexical.tokens.TokenConsumer;
+import hr.fer.zemris.ppj.compiler.util.StreamManager;
+
+/**
+ * Tests of the {@link LexicalDefinitionsParser}: regular definitions, nested in each other, the scanning
+ * going on after a lexical error, and the rules matched regardless of the case.
+ *
+ * @author fiilip
+ *
+ */
+class LexicalDefinitionsParserTest {
+
+	private static final String DEFINITIONS = String.join("\n",
+			"{znamenka} 0|1|2|3|4|5|6|7|8|9",
+			"{broj} {znamenka}{znamenka}*",
+			"{decimalni} {broj}.{broj}",
+			"%X S_pocetno",
+			"%L BROJ DECIMALNI",
+			"<S_pocetno>\\_",
+			"{",
+			"-",
+			"}",
+			"<S_pocetno>\\n",
+			"{",
+			"-",
+			"NOVI_REDAK",
+			"}",
+			"<S_pocetno>{broj}",
+			"{",
+			"BROJ",
+			"}",
+			"<S_pocetno>{decimalni}",
+			"{",
+			"DECIMALNI",
+			"}",
+			"");
+
+	private static final String CASE_DEFINITIONS = String.join("\n",
+			"%O EXTENDED_REGEX",
+			"%X S_pocetno",
+			"%L RIJEC OSTALO",
+			"<S_pocetno>\\_",
+			"{",
+			"-",
+			"}",
+			"<S_pocetno>(?i)[^a-z\\_]+",
+			"{",
+			"OSTALO",
+			"}",
+			"<S_pocetno>[a-zA-Z]+",
+			"{",
+			"RIJEC",
+			"}",
+			"");
+
+	private static final String LITERAL_DEFINITIONS = String.join("\n",
+			"%X S_pocetno",
+			"%L UPIT",
+			"<S_pocetno>(?i)x",
+			"{",
+			"UPIT",
+			"}",
+			"");
+
+	@Test
+	void parsesNestedRegularDefinitions() {
+		LexicalDefinitionsParser parser = parse(DEFINITIONS);
+
+		assertEquals("0|1|2|3|4|5|6|7|8|9", parser.getRegDefs().get("znamenka"));
+		assertEquals(4, parser.getStates().get("S_pocetno").size());
+		assertEquals(List.of("BROJ 1 12", "DECIMALNI 1 3.25", "BROJ 2 7"), scan("12 3.25\n7"));
+	}
+
+	@Test
+	void scansPastLexicalError() {
+		assertEquals(List.of("BROJ 1 1", "BROJ 1 2", "BROJ 2 34"), scan("1 x 2\n? 34"));
+	}
+
+	@Test
+	void foldsNegatedClassBeforeComplement() {
+		assertEquals(List.of("RIJEC 1 aB", "OSTALO 1 12", "RIJEC 1 Zz"), scan(CASE_DEFINITIONS, "aB 12 Zz"));
+	}
+
+	@Test
+	void matchesIgnoreCasePrefixLiterallyInBasicRegex() {
+		assertEquals(List.of("UPIT 1 ?ix"), scan(LITERAL_DEFINITIONS, "?ix"));
+	}
+
+	private static LexicalDefinitionsParser parse(String definitions) {
+		LexicalDefinitionsParser parser = new LexicalDefinitionsParser(
+				new ByteArrayInputStream(definitions.getBytes(StandardCharsets.UTF_8)), new LexAutomatonMerged());
+		parser.parse();
+		return parser;
+	}
+
+	private static List<String> scan(String input) {
+		return scan(DEFINITIONS, input);
+	}
+
+	private static List<String> scan(String definitions, String input) {
+		LexicalDefinitionsParser parser = parse(definitions);
+		LexObjects objects = LexObjects.build(parser.getStartState(), parser.getStates(), parser.getAutomatonMerged());
+		List<String> tokens = new ArrayList<>();
+
+		try {
+			objects.createLex(new StreamManager(), new TokenConsumer() {
+
+				@Override
+				public void token(int unit, CharSequence buffer, int start, int end, int line) {
+					tokens.add(String.format("%s %d %s", objects.getLexUnits().get(unit), line,
+							buffer.subSequence(start, end)));
+				}
+
+				@Override
+				public void finish() {
+				}
+			}).analyze(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+
+		return tokens;
+	}
+}
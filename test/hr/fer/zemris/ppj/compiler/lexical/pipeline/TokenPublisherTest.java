@@ -0,0 +1,106 @@
+package hr.fer.zemris.ppj.compiler.lexical.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import hr.fer.zemris.ppj.compiler.lexical.automata.LexAutomatonMerged;
+import hr.fer.zemris.ppj.compiler.lexical.exec.LexObjects;
+import hr.fer.zemris.ppj.compiler.lexical.input.LexicalDefinitionsParser;
+import hr.fer.zemris.ppj.compiler.util.StreamManager;
+
+/**
+ * Tests of the {@link TokenPublisher}: tokens published one batch at a time, with the scanned chars released from
+ * the input between the batches.
+ *
+ * @author fiilip
+ *
+ */
+class TokenPublisherTest {
+
+	private static final String DEFINITIONS = String.join("\n",
+			"%X S_pocetno",
+			"%L BROJ",
+			"<S_pocetno>\\_",
+			"{",
+			"-",
+			"}",
+			"<S_pocetno>\\n",
+			"{",
+			"-",
+			"NOVI_REDAK",
+			"}",
+			"<S_pocetno>(0|1|2|3|4|5|6|7|8|9)(0|1|2|3|4|5|6|7|8|9)*",
+			"{",
+			"BROJ",
+			"}",
+			"");
+
+	@Test
+	void publishesAllTokensAcrossReleasedInput() throws Exception {
+		StringBuilder input = new StringBuilder();
+		List<String> expected = new ArrayList<>();
+
+		for (int i = 0; i < 50000; i++) {
+			input.append(i).append(i % 10 == 9 ? "\n" : " ");
+			expected.add(String.format("BROJ %d %d", i / 10 + 1, i));
+		}
+
+		assertEquals(expected, publish(input.toString()));
+	}
+
+	private static List<String> publish(String input) throws Exception {
+		LexicalDefinitionsParser parser = new LexicalDefinitionsParser(
+				new ByteArrayInputStream(DEFINITIONS.getBytes(StandardCharsets.UTF_8)), new LexAutomatonMerged());
+		parser.parse();
+		LexObjects objects = LexObjects.build(parser.getStartState(), parser.getStates(), parser.getAutomatonMerged());
+		TokenPublisher publisher = new TokenPublisher(objects, new StreamManager(),
+				Channels.newChannel(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8))));
+
+		List<String> tokens = new ArrayList<>();
+		CompletableFuture<List<String>> done = new CompletableFuture<>();
+
+		publisher.subscribe(new Flow.Subscriber<PublishedTokens>() {
+
+			private Flow.Subscription subscription;
+
+			@Override
+			public void onSubscribe(Flow.Subscription subscription) {
+				this.subscription = subscription;
+				subscription.request(1);
+			}
+
+			@Override
+			public void onNext(PublishedTokens batch) {
+				for (int i = 0; i < batch.size(); i++) {
+					tokens.add(String.format("%s %d %s", batch.unit(i), batch.line(i), batch.lexeme(i)));
+				}
+				subscription.request(1);
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+				done.completeExceptionally(throwable);
+			}
+
+			@Override
+			public void onComplete() {
+				done.complete(tokens);
+			}
+		});
+
+		List<String> published = done.get(30, TimeUnit.SECONDS);
+		assertTrue(published.size() > TokenPublisher.MIN_BATCH);
+		return published;
+	}
+}